@@ -0,0 +1,83 @@
+package taichi.gui;
+
+import taichi.util.EventoCambio;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Aplica un {@link EventoCambio} a un modelo de tabla cuya primera columna es el ID de la entidad:
+ * agrega, actualiza o quita solo esa fila, sin volver a consultar la tabla completa.
+ */
+final class ActualizadorTabla {
+
+    private ActualizadorTabla() {
+    }
+
+    /**
+     * @param modelo Modelo de la tabla (ID en la columna 0).
+     * @param evento Cambio recibido del bus.
+     * @param fila Arma la fila de la tabla a partir de la entidad.
+     */
+    static <T> void aplicar(DefaultTableModel modelo, EventoCambio<T> evento, Function<T, Object[]> fila) {
+        if (evento.getTipo() == EventoCambio.Tipo.ELIMINADO) {
+            eliminar(modelo, evento.getId());
+        } else {
+            reemplazarOAgregar(modelo, evento.getId(), fila.apply(evento.getEntidad()));
+        }
+    }
+
+    /**
+     * Actualiza la fila del ID (solo las celdas que cambiaron) o la agrega al final si no está.
+     */
+    static void reemplazarOAgregar(DefaultTableModel modelo, int id, Object[] fila) {
+        int indice = buscarFila(modelo, id);
+        if (indice < 0) {
+            modelo.addRow(fila);
+            return;
+        }
+        for (int columna = 0; columna < fila.length; columna++) {
+            if (!Objects.equals(modelo.getValueAt(indice, columna), fila[columna])) {
+                modelo.setValueAt(fila[columna], indice, columna);
+            }
+        }
+    }
+
+    static void eliminar(DefaultTableModel modelo, int id) {
+        int indice = buscarFila(modelo, id);
+        if (indice >= 0) {
+            modelo.removeRow(indice);
+        }
+    }
+
+    /**
+     * Cambia el valor de una columna en todas las filas que referencian a otra entidad
+     * (ej. el nombre del alumno en las filas de sus pagos).
+     * @param columnaId Columna con el ID de la entidad referenciada.
+     * @param id ID de la entidad referenciada.
+     * @param columna Columna a actualizar.
+     * @param valor Nuevo valor.
+     */
+    static void actualizarReferencias(DefaultTableModel modelo, int columnaId, int id, int columna, Object valor) {
+        Integer buscado = id;
+        for (int i = 0; i < modelo.getRowCount(); i++) {
+            if (buscado.equals(modelo.getValueAt(i, columnaId)) && !Objects.equals(modelo.getValueAt(i, columna), valor)) {
+                modelo.setValueAt(valor, i, columna);
+            }
+        }
+    }
+
+    /**
+     * @return Índice de la fila con ese ID en la columna 0, o -1 si no está.
+     */
+    static int buscarFila(DefaultTableModel modelo, int id) {
+        Integer buscado = id;
+        for (int i = 0; i < modelo.getRowCount(); i++) {
+            if (buscado.equals(modelo.getValueAt(i, 0))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
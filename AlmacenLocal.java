@@ -0,0 +1,279 @@
+package taichi.dao;
+
+import taichi.model.Alumno;
+import taichi.model.Asistencia;
+import taichi.model.Dinero;
+import taichi.model.DocumentoEstado;
+import taichi.model.InstantaneaLocal;
+import taichi.model.OperacionSinConexion;
+import taichi.model.PeriodoCuota;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Almacén local para trabajar sin conexión a la BD. Vive en un directorio de este puesto y guarda:
+ * <ul>
+ *   <li>la última instantánea de alumnos, períodos de cuota y saldos (instantanea.tsv, se reemplaza entera);</li>
+ *   <li>el diario de las operaciones hechas sin conexión (sin-conexion.diario, ver {@link DiarioLocal});</li>
+ *   <li>el informe de los conflictos de cada resincronización (conflictos.txt, solo se agrega).</li>
+ * </ul>
+ */
+public class AlmacenLocal {
+
+    private static final Logger LOGGER = Logger.getLogger(AlmacenLocal.class.getName());
+
+    private static final String ARCHIVO_INSTANTANEA = "instantanea.tsv";
+    private static final String ARCHIVO_DIARIO = "sin-conexion.diario";
+    private static final String ARCHIVO_CONFLICTOS = "conflictos.txt";
+
+    // Tipo de cada línea de la instantánea
+    private static final String FECHA = "F";
+    private static final String ALUMNO = "A";
+    private static final String PERIODO = "Q";
+    private static final String SALDO = "S";
+    private static final String SEPARADOR = "\t";
+
+    private final Path directorio;
+    private final DiarioLocal diario;
+
+    /**
+     * @param directorio Directorio del almacén (se crea si no existe).
+     */
+    public AlmacenLocal(Path directorio) {
+        this.directorio = directorio;
+        this.diario = new DiarioLocal(directorio.resolve(ARCHIVO_DIARIO));
+    }
+
+    // --- Instantánea ---
+
+    /**
+     * Reemplaza la instantánea. Se escribe en un archivo temporal y se renombra, así nunca queda una copia a medias.
+     * @throws IOException Si no se pudo escribir.
+     */
+    public synchronized void guardarInstantanea(InstantaneaLocal instantanea) throws IOException {
+        Files.createDirectories(directorio);
+        Path temporal = directorio.resolve(ARCHIVO_INSTANTANEA + ".tmp");
+        try (BufferedWriter escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            escribirLinea(escritor, FECHA, instantanea.getFecha().toString());
+            for (Alumno alumno : instantanea.getAlumnos()) {
+                escribirLinea(escritor, ALUMNO,
+                    String.valueOf(alumno.getIdAlumno()),
+                    alumno.getNombreCompleto(),
+                    alumno.getDni(),
+                    texto(alumno.getFechaNacimiento()),
+                    alumno.getDireccion(),
+                    alumno.getTelefono(),
+                    alumno.getEmail(),
+                    texto(alumno.getFechaInscripcion()),
+                    String.valueOf(alumno.isActivo()));
+            }
+            for (PeriodoCuota periodo : instantanea.getPeriodos()) {
+                escribirLinea(escritor, PERIODO,
+                    String.valueOf(periodo.getIdPeriodo()),
+                    periodo.getNombrePeriodo(),
+                    texto(periodo.getFechaInicio()),
+                    texto(periodo.getFechaFin()),
+                    texto(periodo.getFechaVencimiento()),
+                    String.valueOf(periodo.getMontoBase()),
+                    String.valueOf(periodo.getMontoRecargo()));
+            }
+            for (Map.Entry<Long, Dinero> saldo : instantanea.getSaldos().entrySet()) {
+                escribirLinea(escritor, SALDO,
+                    String.valueOf((int) (saldo.getKey() >>> 32)),
+                    String.valueOf(saldo.getKey().intValue()),
+                    String.valueOf(saldo.getValue()));
+            }
+        }
+        Files.move(temporal, directorio.resolve(ARCHIVO_INSTANTANEA),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.fine(() -> "Instantánea local guardada: " + instantanea.getAlumnos().size() + " alumnos, "
+            + instantanea.getPeriodos().size() + " períodos.");
+    }
+
+    /**
+     * @return La última instantánea guardada, o null si nunca se guardó una.
+     * @throws IOException Si no se pudo leer.
+     */
+    public synchronized InstantaneaLocal leerInstantanea() throws IOException {
+        Path archivo = directorio.resolve(ARCHIVO_INSTANTANEA);
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        LocalDateTime fecha = null;
+        List<Alumno> alumnos = new ArrayList<>();
+        List<PeriodoCuota> periodos = new ArrayList<>();
+        Map<Long, Dinero> saldos = new HashMap<>();
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                String[] c = linea.split(SEPARADOR, -1);
+                switch (c[0]) {
+                    case FECHA:
+                        fecha = LocalDateTime.parse(c[1]);
+                        break;
+                    case ALUMNO:
+                        alumnos.add(new Alumno(Integer.parseInt(c[1]), c[2], c[3], fecha(c[4]), c[5], c[6], c[7],
+                            fecha(c[8]), Boolean.parseBoolean(c[9])));
+                        break;
+                    case PERIODO:
+                        periodos.add(new PeriodoCuota(Integer.parseInt(c[1]), c[2], fecha(c[3]), fecha(c[4]), fecha(c[5]),
+                            Dinero.parsear(c[6]), Dinero.parsear(c[7])));
+                        break;
+                    case SALDO:
+                        saldos.put(InstantaneaLocal.claveSaldo(Integer.parseInt(c[1]), Integer.parseInt(c[2])),
+                            Dinero.parsear(c[3]));
+                        break;
+                    default:
+                        LOGGER.warning("Línea de la instantánea local descartada: " + linea);
+                }
+            }
+        }
+        return new InstantaneaLocal(fecha, alumnos, periodos, saldos);
+    }
+
+    // --- Diario de operaciones sin conexión ---
+
+    /**
+     * Anota una operación hecha sin conexión. Cuando vuelve, ya está en disco.
+     * @throws IOException Si no se pudo escribir (la operación no debe darse por hecha).
+     */
+    public void anotar(OperacionSinConexion operacion) throws IOException {
+        Files.createDirectories(directorio);
+        diario.anotar(operacion.getClave(), campos(operacion));
+    }
+
+    /**
+     * @return Las operaciones anotadas que todavía no se enviaron a la BD, en el orden en que se hicieron.
+     * @throws IOException Si no se pudo leer el diario.
+     */
+    public List<OperacionSinConexion> pendientes() throws IOException {
+        List<OperacionSinConexion> operaciones = new ArrayList<>();
+        for (Map.Entry<String, String[]> pendiente : diario.pendientes().entrySet()) {
+            try {
+                operaciones.add(operacion(pendiente.getKey(), pendiente.getValue()));
+            } catch (RuntimeException e) {
+                LOGGER.warning("Operación del diario sin conexión descartada (" + e.getMessage() + "): " + pendiente.getKey());
+            }
+        }
+        return operaciones;
+    }
+
+    /**
+     * Marca operaciones como enviadas (guardadas, o descartadas por conflicto y ya informadas).
+     * @throws IOException Si no se pudo escribir el diario.
+     */
+    public void confirmar(Collection<OperacionSinConexion> operaciones) throws IOException {
+        List<String> claves = new ArrayList<>();
+        for (OperacionSinConexion operacion : operaciones) {
+            claves.add(operacion.getClave());
+        }
+        diario.confirmar(claves);
+        diario.compactar();
+    }
+
+    /**
+     * Agrega los conflictos de una resincronización al informe, con la fecha y hora.
+     * @throws IOException Si no se pudo escribir.
+     */
+    public synchronized void registrarConflictos(List<String> conflictos) throws IOException {
+        if (conflictos.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directorio);
+        StringBuilder texto = new StringBuilder("== Resincronización del ").append(LocalDateTime.now()).append('\n');
+        for (String conflicto : conflictos) {
+            texto.append(conflicto).append('\n');
+        }
+        Files.write(directorio.resolve(ARCHIVO_CONFLICTOS), texto.toString().getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return Ruta del informe de conflictos (para indicarla en pantalla).
+     */
+    public Path getArchivoConflictos() {
+        return directorio.resolve(ARCHIVO_CONFLICTOS);
+    }
+
+    private static String[] campos(OperacionSinConexion operacion) {
+        List<String> campos = new ArrayList<>();
+        campos.add(operacion.getTipo().name());
+        switch (operacion.getTipo()) {
+            case PAGO:
+                campos.addAll(Arrays.asList(DiarioPagos.campos(operacion.getPago())));
+                break;
+            case ASISTENCIA:
+                campos.add(String.valueOf(operacion.getIdClase()));
+                campos.add(operacion.getFecha().toString());
+                StringBuilder marcas = new StringBuilder();
+                for (Asistencia marca : operacion.getMarcas()) {
+                    if (marcas.length() > 0) {
+                        marcas.append(',');
+                    }
+                    marcas.append(marca.getIdAlumno()).append(':').append(marca.isPresente() ? '1' : '0');
+                }
+                campos.add(marcas.toString());
+                break;
+            case DOCUMENTO:
+                DocumentoEstado documento = operacion.getDocumento();
+                campos.add(String.valueOf(documento.getIdAlumno()));
+                campos.add(documento.getTipoDocumento());
+                campos.add(documento.getEstado());
+                campos.add(documento.getObservaciones());
+                break;
+        }
+        return campos.toArray(new String[0]);
+    }
+
+    private static OperacionSinConexion operacion(String clave, String[] c) {
+        OperacionSinConexion.Tipo tipo = OperacionSinConexion.Tipo.valueOf(c[0]);
+        switch (tipo) {
+            case PAGO:
+                return OperacionSinConexion.pago(DiarioPagos.pago(clave, Arrays.copyOfRange(c, 1, c.length)));
+            case ASISTENCIA:
+                int idClase = Integer.parseInt(c[1]);
+                LocalDate fecha = LocalDate.parse(c[2]);
+                List<Asistencia> marcas = new ArrayList<>();
+                for (String marca : c[3].split(",")) {
+                    String[] partes = marca.split(":");
+                    marcas.add(new Asistencia(Integer.parseInt(partes[0]), idClase, fecha, "1".equals(partes[1])));
+                }
+                return OperacionSinConexion.asistencia(clave, idClase, fecha, marcas);
+            default:
+                return OperacionSinConexion.documento(clave, new DocumentoEstado(Integer.parseInt(c[1]), c[2], c[3], c[4]));
+        }
+    }
+
+    private static void escribirLinea(BufferedWriter escritor, String tipo, String... campos) throws IOException {
+        escritor.write(tipo);
+        for (String campo : campos) {
+            escritor.write(SEPARADOR);
+            escritor.write(campo == null ? "" : campo.replaceAll("[\\t\\r\\n]", " "));
+        }
+        escritor.newLine();
+    }
+
+    private static String texto(LocalDate fecha) {
+        return fecha == null ? "" : fecha.toString();
+    }
+
+    private static LocalDate fecha(String texto) {
+        return texto.isEmpty() ? null : LocalDate.parse(texto);
+    }
+}
@@ -15,6 +15,7 @@ public class Alumno {
     private String email;                 // email
     private LocalDate fechaInscripcion;   // fecha_inscripcion
     private boolean activo;               // activo (para saber si el alumno está activo o dado de baja)
+    private int version;                  // version (control de concurrencia optimista)
 
     // --- Constructores ---
 
@@ -126,6 +127,14 @@ public class Alumno {
         this.activo = activo;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Alumno{" +
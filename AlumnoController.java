@@ -1,11 +1,20 @@
 package taichi.controller;
 
 import taichi.model.Alumno;
+import taichi.model.Dinero;
+import taichi.model.InstantaneaLocal;
+import taichi.model.MatrizCohortes;
 import taichi.dao.AlumnoDAO;
+import taichi.dao.FacturacionDAO;
 import taichi.dao.PagoDAO; // Necesitamos el PagoDAO para verificar deudores
 import taichi.model.PeriodoCuota; // También el PeriodoCuota para la lógica de deudores
 import taichi.dao.PeriodoCuotaDAO; // Y su DAO para obtener períodos
+import taichi.dao.ConflictoVersionException;
+import taichi.util.IndiceTrigramas;
 import taichi.util.InputValidator; // Para futuras validaciones de entrada 
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
@@ -16,20 +25,54 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Level; // Para logging de errores
 import java.util.logging.Logger; // Para logging de errores
+import java.util.concurrent.CompletableFuture;
 
 public class AlumnoController {
 
     // Instancia del DAO para interactuar con la base de datos de Alumnos
     private AlumnoDAO alumnoDAO;
     private PeriodoCuotaDAO periodoCuotaDAO; // Para obtener periodos de cuota
+    private FacturacionDAO facturacionDAO; // Recargos guardados en las cuotas (reporte de deudas)
+    private ArranqueEnCaliente arranqueEnCaliente; // null: los listados siempre se piden a la BD
+    private ModoSinConexion modoSinConexion; // null: sin respaldo local
 
     // Logger para registrar errores y mensajes importantes
     private static final Logger LOGGER = Logger.getLogger(AlumnoController.class.getName());
 
+    private static final int MAXIMO_MESES_RETENCION = 120; // Rango máximo del análisis de cohortes
+
+    // Índice de búsqueda por nombre y DNI; se carga desde la BD en la primera búsqueda y luego se mantiene con cada cambio
+    private final IndiceTrigramas<Alumno> indiceBusqueda =
+        new IndiceTrigramas<>(Alumno::getIdAlumno, alumno -> alumno.getNombreCompleto() + " " + alumno.getDni());
+    private boolean indiceCargado = false;
+
     public AlumnoController() {
-        this.alumnoDAO = new AlumnoDAO();
-        new PagoDAO();
-        this.periodoCuotaDAO = new PeriodoCuotaDAO();
+        this(new AlumnoDAO(), new PeriodoCuotaDAO(), new FacturacionDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public AlumnoController(AlumnoDAO alumnoDAO, PeriodoCuotaDAO periodoCuotaDAO, FacturacionDAO facturacionDAO) {
+        this.alumnoDAO = alumnoDAO;
+        this.periodoCuotaDAO = periodoCuotaDAO;
+        this.facturacionDAO = facturacionDAO;
+    }
+
+    /**
+     * Activa el modo sin conexión (ver {@link ModoSinConexion}): si la BD no responde, el listado de alumnos
+     * se responde con la instantánea local.
+     */
+    public void setModoSinConexion(ModoSinConexion modoSinConexion) {
+        this.modoSinConexion = modoSinConexion;
+    }
+
+    /**
+     * Mientras no se concilie la copia de datos de referencia del inicio (ver {@link ArranqueEnCaliente}),
+     * el listado completo de alumnos sale de ella; las diferencias llegan después por el {@link BusEventos}.
+     */
+    public void setArranqueEnCaliente(ArranqueEnCaliente arranqueEnCaliente) {
+        this.arranqueEnCaliente = arranqueEnCaliente;
     }
 
     /**
@@ -76,6 +119,8 @@ public class AlumnoController {
             int idGenerado = alumnoDAO.insertar(nuevoAlumno);
             if (idGenerado != -1) {
                 nuevoAlumno.setIdAlumno(idGenerado); // Asegurar que el objeto tiene el ID
+                actualizarIndiceBusqueda(nuevoAlumno);
+                BusEventos.getInstancia().publicar(Alumno.class, EventoCambio.creado(idGenerado, nuevoAlumno));
                 return nuevoAlumno;
             } else {
                 throw new Exception("No se pudo insertar el alumno en la base de datos.");
@@ -110,19 +155,42 @@ public class AlumnoController {
      * @throws Exception Si ocurre un error de base de datos.
      */
     public List<Alumno> obtenerTodosLosAlumnos() throws Exception {
+        if (modoSinConexion != null && modoSinConexion.estaSinConexion()) {
+            return new ArrayList<>(modoSinConexion.getInstantanea().getAlumnos());
+        }
+        List<Alumno> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getAlumnos() : null;
+        if (copiaInicial != null) {
+            return copiaInicial;
+        }
         try {
             // El DAO ya trae todos, aquí podríamos filtrar si quisiéramos solo activos
             return alumnoDAO.obtenerTodos(); 
         } catch (SQLException e) {
+            if (modoSinConexion != null && modoSinConexion.pasarASinConexion(e)) {
+                return obtenerTodosLosAlumnos();
+            }
             LOGGER.log(Level.SEVERE, "Error al obtener todos los alumnos de la BD: " + e.getMessage(), e);
             throw new Exception("Error al obtener listado de alumnos: " + e.getMessage());
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodosLosAlumnos()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<Alumno>> obtenerTodosLosAlumnosAsync() {
+        List<Alumno> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getAlumnos() : null;
+        if (copiaInicial != null) {
+            return CompletableFuture.completedFuture(copiaInicial); // Sin esperar a la BD
+        }
+        return Asincrono.ejecutar(() -> obtenerTodosLosAlumnos());
+    }
+
     /**
      * Actualiza la información de un alumno existente.
      * @param alumno El objeto Alumno con la información actualizada.
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarInformacionAlumno(Alumno alumno) throws Exception {
@@ -152,7 +220,15 @@ public class AlumnoController {
 
         // --- 2. Llamar al DAO para actualizar en la BD ---
         try {
-            return alumnoDAO.actualizar(alumno);
+            boolean exito = alumnoDAO.actualizar(alumno);
+            if (exito) {
+                actualizarIndiceBusqueda(alumno);
+                BusEventos.getInstancia().publicar(Alumno.class, EventoCambio.actualizado(alumno.getIdAlumno(), alumno));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar alumno con ID " + alumno.getIdAlumno() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar alumno: " + e.getMessage());
@@ -176,11 +252,19 @@ public class AlumnoController {
                 throw new Exception("Alumno no encontrado con ID: " + idAlumno);
             }
             if (!alumno.isActivo()) {
-                System.out.println("El alumno con ID " + idAlumno + " ya está inactivo.");
+                LOGGER.fine(() -> "El alumno con ID " + idAlumno + " ya está inactivo.");
                 return true; // Ya está inactivo, consideramos que la operación fue "exitosa"
             }
             alumno.setActivo(false); // Cambiar el estado a inactivo
-            return alumnoDAO.actualizar(alumno); // Actualizar en la base de datos
+            boolean exito = alumnoDAO.actualizar(alumno);
+            if (exito) {
+                actualizarIndiceBusqueda(alumno);
+                BusEventos.getInstancia().publicar(Alumno.class, EventoCambio.actualizado(alumno.getIdAlumno(), alumno));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al dar de baja al alumno con ID " + idAlumno + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al dar de baja alumno: " + e.getMessage());
@@ -203,11 +287,19 @@ public class AlumnoController {
                 throw new Exception("Alumno no encontrado con ID: " + idAlumno);
             }
             if (alumno.isActivo()) {
-                System.out.println("El alumno con ID " + idAlumno + " ya está activo.");
+                LOGGER.fine(() -> "El alumno con ID " + idAlumno + " ya está activo.");
                 return true; // Ya está activo, consideramos que la operación fue "exitosa"
             }
             alumno.setActivo(true); // Cambiar el estado a activo
-            return alumnoDAO.actualizar(alumno); // Actualizar en la base de datos
+            boolean exito = alumnoDAO.actualizar(alumno);
+            if (exito) {
+                actualizarIndiceBusqueda(alumno);
+                BusEventos.getInstancia().publicar(Alumno.class, EventoCambio.actualizado(alumno.getIdAlumno(), alumno));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al activar al alumno con ID " + idAlumno + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al activar alumno: " + e.getMessage());
@@ -245,15 +337,77 @@ public class AlumnoController {
         }
     }
 
+    /**
+     * Obtiene los alumnos activos deudores de varios períodos a la vez (por ejemplo, los últimos meses).
+     *
+     * @param idsPeriodo IDs de los períodos a verificar.
+     * @return Deudores de cada período, en el orden pedido.
+     * @throws Exception Si no se indicó ningún período o hay un error de base de datos.
+     */
+    public Map<Integer, List<Alumno>> obtenerAlumnosDeudores(List<Integer> idsPeriodo) throws Exception {
+        if (idsPeriodo == null || idsPeriodo.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un período de cuota.");
+        }
+        try {
+            return alumnoDAO.obtenerDeudoresPorPeriodos(idsPeriodo);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener alumnos deudores de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener lista de deudores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #obtenerAlumnosDeudores(int)}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<Alumno>> obtenerAlumnosDeudoresAsync(int idPeriodo) {
+        return Asincrono.ejecutar(() -> obtenerAlumnosDeudores(idPeriodo));
+    }
+
+    /**
+     * Obtiene la matriz de cohortes de retención (alumnos por mes de alta y meses en que pagaron),
+     * con la que se calculan retención, bajas y reactivaciones.
+     * @param desde Primer mes del análisis.
+     * @param hasta Último mes del análisis (incluido).
+     * @return La matriz de cohortes.
+     * @throws Exception Si el rango es inválido o hay un error de base de datos.
+     */
+    public MatrizCohortes obtenerMatrizCohortes(YearMonth desde, YearMonth hasta) throws Exception {
+        if (desde == null || hasta == null) {
+            throw new IllegalArgumentException("Los meses inicial y final son obligatorios.");
+        }
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("El mes final no puede ser anterior al inicial.");
+        }
+        if (desde.plusMonths(MAXIMO_MESES_RETENCION).isBefore(hasta.plusMonths(1))) {
+            throw new IllegalArgumentException("El análisis de retención admite hasta " + MAXIMO_MESES_RETENCION + " meses.");
+        }
+        try {
+            return alumnoDAO.obtenerMatrizCohortes(desde, hasta);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener la matriz de cohortes de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener la retención de alumnos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #obtenerMatrizCohortes(YearMonth, YearMonth)}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<MatrizCohortes> obtenerMatrizCohortesAsync(YearMonth desde, YearMonth hasta) {
+        return Asincrono.ejecutar(() -> obtenerMatrizCohortes(desde, hasta));
+    }
+
         public List<Alumno> obtenerAlumnosNoPagaronEnMes(YearMonth mes) throws Exception {
-        List<Alumno> todosAlumnos = alumnoDAO.obtenerTodos(); // Asume que AlumnoDAO tiene obtenerTodos()
-        List<Integer> idsAlumnosConPagoEnMes = null;
+        List<Alumno> todosAlumnos;
+        List<Integer> idsAlumnosConPagoEnMes;
         try {
+            todosAlumnos = alumnoDAO.obtenerTodos();
             idsAlumnosConPagoEnMes = PagoDAO.obtenerIdsAlumnosConPagoEnMes(mes);
         } catch (SQLException e) {
-        
-            e.printStackTrace();
-        } // Este método lo crearemos en PagoDAO
+            LOGGER.log(Level.SEVERE, "Error al obtener alumnos que no pagaron en " + mes + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener alumnos que no pagaron: " + e.getMessage());
+        }
 
         List<Alumno> alumnosNoPagaron = new ArrayList<>();
         for (Alumno alumno : todosAlumnos) {
@@ -266,39 +420,54 @@ public class AlumnoController {
 
     /**
      * Obtiene un mapa de alumnos y sus deudas pendientes de meses anteriores al mes dado.
-     * Retorna Map<Alumno, Map<PeriodoCuota, Double>> donde la clave es el alumno,
+     * Retorna Map<Alumno, Map<PeriodoCuota, Dinero>> donde la clave es el alumno,
      * y el valor es un mapa de PeriodoCuota adeudado y el monto de la cuota.
      */
-    public Map<Alumno, Map<PeriodoCuota, Double>> obtenerAlumnosConDeudaAnteriorA(YearMonth mesActual) throws Exception {
-        Map<Alumno, Map<PeriodoCuota, Double>> deudasPorAlumno = new HashMap<>();
-        List<Alumno> todosAlumnos = alumnoDAO.obtenerTodos(); // Ojo: si hay muchos alumnos inactivos, considerar filtrar
-
-        for (Alumno alumno : todosAlumnos) {
+    public Map<Alumno, Map<PeriodoCuota, Dinero>> obtenerAlumnosConDeudaAnteriorA(YearMonth mesActual) throws Exception {
+        Map<Alumno, Map<PeriodoCuota, Dinero>> deudasPorAlumno = new HashMap<>();
+        List<Alumno> todosAlumnos; // Ojo: si hay muchos alumnos inactivos, considerar filtrar
+        List<PeriodoCuota> periodosAnteriores;
+        Map<Long, Dinero> recargos;
+        try {
+            todosAlumnos = alumnoDAO.obtenerTodos();
             // Obtenemos los períodos de cuota anteriores al mes actual
-            List<PeriodoCuota> periodosAnteriores = periodoCuotaDAO.obtenerPeriodosAnterioresA(mesActual); // Crear este método en PeriodoCuotaDAO
+            periodosAnteriores = periodoCuotaDAO.obtenerPeriodosAnterioresA(mesActual);
+            // Recargos que el job de recargos dejó guardados en las cuotas vencidas impagas (se suman a lo adeudado)
+            List<Integer> idsPeriodos = new ArrayList<>();
+            for (PeriodoCuota periodo : periodosAnteriores) {
+                idsPeriodos.add(periodo.getIdPeriodo());
+            }
+            recargos = facturacionDAO.obtenerRecargosAplicados(idsPeriodos);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener los datos del reporte de deudas de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener alumnos con deuda: " + e.getMessage());
+        }
 
-            Map<PeriodoCuota, Double> deudasAlumno = new HashMap<>();
+        for (Alumno alumno : todosAlumnos) {
+            Map<PeriodoCuota, Dinero> deudasAlumno = new HashMap<>();
 
             for (PeriodoCuota periodo : periodosAnteriores) {
                 // Verificar si el alumno ha pagado por este período
                 // Asumimos que una cuota por alumno por periodo, o que el monto adeudado es el esperado de la cuota del periodo
-                double montoPagado = 0;
+                Dinero montoPagado;
                 try {
                     montoPagado = PagoDAO.obtenerSumaPagosPorAlumnoYPeriodo(alumno.getIdAlumno(), periodo.getIdPeriodo());
                 } catch (SQLException e) {
-                    
-                    e.printStackTrace();
-                } // Crear este método en PagoDAO
+                    LOGGER.log(Level.SEVERE, "Error al obtener lo pagado por el alumno " + alumno.getIdAlumno() + " en el período "
+                        + periodo.getIdPeriodo() + " de la BD: " + e.getMessage(), e);
+                    throw new Exception("Error al obtener alumnos con deuda: " + e.getMessage());
+                }
 
                 // Si no hay pagos o el monto pagado es menor a la cuota esperada del periodo
                 // Se asume que PeriodoCuota tiene un getMontoCuotaEsperado() o similar.
                 // Si el monto de la cuota se define en la Clase o Alumno, la lógica cambia.
                 // Aquí, asumimos que el PeriodoCuota tiene el "monto esperado" de la cuota.
                 // Si no existe, deberás adaptar esta lógica o usar un valor por defecto.
-                double montoCuotaEsperado = periodo.getMontoBase(); // Asumiendo que PeriodoCuota tiene getMonto()
+                Dinero montoCuotaEsperado = periodo.getMontoBase() // Asumiendo que PeriodoCuota tiene getMonto()
+                    .mas(recargos.getOrDefault(InstantaneaLocal.claveSaldo(alumno.getIdAlumno(), periodo.getIdPeriodo()), Dinero.CERO));
 
-                if (montoPagado < montoCuotaEsperado) {
-                    deudasAlumno.put(periodo, montoCuotaEsperado - montoPagado);
+                if (montoPagado.esMenorQue(montoCuotaEsperado)) {
+                    deudasAlumno.put(periodo, montoCuotaEsperado.menos(montoPagado));
                 }
             }
 
@@ -308,5 +477,95 @@ public class AlumnoController {
         }
         return deudasPorAlumno;
     }
+
+    /**
+     * Busca alumnos por parte del nombre o del DNI, sin distinguir mayúsculas ni acentos.
+     * Pensado para búsqueda mientras se escribe: no consulta la base de datos salvo la primera vez.
+     * @param texto Texto a buscar.
+     * @param limite Cantidad máxima de resultados.
+     * @return Lista de alumnos ordenada de mejor a peor coincidencia.
+     * @throws Exception Si ocurre un error de base de datos al cargar el índice.
+     */
+    public List<Alumno> buscarAlumnos(String texto, int limite) throws Exception {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite de resultados debe ser un número positivo.");
+        }
+        return obtenerIndiceBusqueda().buscar(texto, limite);
+    }
+
+    /**
+     * Carga el índice de búsqueda con un listado de alumnos ya consultado (ej. la precarga al iniciar),
+     * para que la primera búsqueda no tenga que ir a la base de datos. Si el índice ya estaba cargado, no hace nada.
+     * @param alumnos Todos los alumnos, tal como los devuelve {@link #obtenerTodosLosAlumnos()}.
+     */
+    public synchronized void cargarIndiceBusqueda(List<Alumno> alumnos) {
+        if (!indiceCargado) {
+            indiceBusqueda.cargar(alumnos);
+            indiceCargado = true;
+        }
+    }
+
+    /**
+     * Aplica un cambio hecho desde otro puesto (ver {@link SincronizadorCambios}): relee el alumno de la BD,
+     * actualiza el índice de búsqueda y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idAlumno ID del alumno modificado.
+     * @param tipo Tipo de cambio registrado.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public void aplicarCambioExterno(int idAlumno, EventoCambio.Tipo tipo) throws Exception {
+        Alumno alumno;
+        try {
+            alumno = alumnoDAO.obtenerPorId(idAlumno);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al releer el alumno con ID " + idAlumno + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al sincronizar alumno: " + e.getMessage());
+        }
+        reflejarCambioExterno(idAlumno, alumno, tipo);
+    }
+
+    /**
+     * Refleja un cambio externo ya leído de la BD (ej. al conciliar la copia local del inicio, ver
+     * {@link ArranqueEnCaliente}): actualiza el índice de búsqueda y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idAlumno ID del registro cambiado.
+     * @param alumno Su estado actual, o null si ya no existe.
+     * @param tipo Tipo de cambio.
+     */
+    public void reflejarCambioExterno(int idAlumno, Alumno alumno, EventoCambio.Tipo tipo) {
+        if (alumno == null) { // Se eliminó (quizás después del cambio anotado)
+            quitarDelIndiceBusqueda(idAlumno);
+            BusEventos.getInstancia().publicar(Alumno.class, EventoCambio.eliminado(idAlumno));
+        } else {
+            actualizarIndiceBusqueda(alumno);
+            BusEventos.getInstancia().publicar(Alumno.class, tipo == EventoCambio.Tipo.CREADO
+                ? EventoCambio.creado(idAlumno, alumno) : EventoCambio.actualizado(idAlumno, alumno));
+        }
+    }
+
+    // Devuelve el índice de búsqueda, cargándolo desde la BD la primera vez
+    private synchronized IndiceTrigramas<Alumno> obtenerIndiceBusqueda() throws Exception {
+        if (!indiceCargado) {
+            try {
+                indiceBusqueda.cargar(alumnoDAO.obtenerTodos());
+                indiceCargado = true;
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error al cargar el índice de búsqueda de alumnos: " + e.getMessage(), e);
+                throw new Exception("Error al preparar la búsqueda de alumnos: " + e.getMessage());
+            }
+        }
+        return indiceBusqueda;
+    }
+
+    // Refleja en el índice de búsqueda un alumno ya guardado en la BD
+    private synchronized void actualizarIndiceBusqueda(Alumno alumno) {
+        if (indiceCargado) { // Si aún no se cargó, se cargará completo en la primera búsqueda
+            indiceBusqueda.agregar(alumno);
+        }
+    }
+
+    // Quita del índice de búsqueda un alumno que ya no existe en la BD
+    private synchronized void quitarDelIndiceBusqueda(int idAlumno) {
+        if (indiceCargado) {
+            indiceBusqueda.quitar(idAlumno);
+        }
+    }
 }
-    
\ No newline at end of file
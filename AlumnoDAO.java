@@ -1,19 +1,38 @@
 package taichi.dao;
 
 import taichi.model.Alumno; // Importamos la clase Alumno
+import taichi.model.MatrizCohortes;
+import taichi.util.EventoCambio;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement; // Necesario para Statement.RETURN_GENERATED_KEYS
+import java.sql.Timestamp;
 import java.time.LocalDate; // Para manejar fechas en Java
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
 import java.sql.Date; // Necesario para java.sql.Date.valueOf()
 
 // Implementamos la interfaz IDAO, especificando que trabajamos con Alumno y su ID es Integer
 public class AlumnoDAO implements IDAO<Alumno, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(AlumnoDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_alumno", "nombre", "apellido", "dni", "telefono", "email", "fecha_nacimiento", "activo", "version"
+    };
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Alumno crear(Alumno alumno) throws SQLException {
         String sql = "INSERT INTO alumnos (nombre, apellido, dni, telefono, email, fecha_nacimiento, activo) VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -38,6 +57,7 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     alumno.setIdAlumno(rs.getInt(1)); // Asignar el ID generado al objeto Alumno
+                    RegistroCambiosDAO.registrar(conn, Alumno.class, rs.getInt(1), EventoCambio.Tipo.CREADO);
                 } else {
                     throw new SQLException("La creación del alumno falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -54,7 +74,7 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Alumno obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
-        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo FROM alumnos WHERE id_alumno = ?";
+        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo, version FROM alumnos WHERE id_alumno = ?";
         Alumno alumno = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -63,9 +83,7 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
             pstmt.setInt(1, id);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    alumno = mapResultSetToAlumno(rs); // Usamos el método auxiliar de mapeo
-                }
+                alumno = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToAlumno);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el alumno con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -76,24 +94,67 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public List<Alumno> obtenerTodos() throws SQLException {
         List<Alumno> alumnos = new ArrayList<>();
-        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo FROM alumnos";
+        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo, version FROM alumnos";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                alumnos.add(mapResultSetToAlumno(rs)); // Usamos el método auxiliar de mapeo
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToAlumno, alumnos);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todos los alumnos de la base de datos: " + e.getMessage(), e);
         }
         return alumnos;
     }
 
+    /**
+     * Obtiene los alumnos creados o modificados desde un momento dado (según fecha_actualizacion),
+     * para poner al día una copia local sin volver a traer la tabla entera.
+     * @param desde Momento de la copia, en la hora del servidor (ver {@link DatabaseConnection#obtenerHoraServidor()}).
+     * @return Lista de los alumnos cambiados; puede repetir alguno ya copiado si se modificó en ese mismo segundo.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<Alumno> obtenerActualizadosDesde(LocalDateTime desde) throws SQLException {
+        List<Alumno> alumnos = new ArrayList<>();
+        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo, version FROM alumnos WHERE fecha_actualizacion >= ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToAlumno, alumnos);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los alumnos actualizados desde " + desde + ": " + e.getMessage(), e);
+        }
+        return alumnos;
+    }
+
+    /**
+     * @return Los IDs de todos los alumnos (para saber cuáles de una copia local se borraron).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Set<Integer> obtenerIds() throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        String sql = "SELECT id_alumno FROM alumnos";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los IDs de los alumnos: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean actualizar(Alumno alumno) throws SQLException {
-        String sql = "UPDATE alumnos SET nombre = ?, apellido = ?, dni = ?, telefono = ?, email = ?, fecha_nacimiento = ?, activo = ? WHERE id_alumno = ?";
+        String sql = "UPDATE alumnos SET nombre = ?, apellido = ?, dni = ?, telefono = ?, email = ?, fecha_nacimiento = ?, activo = ?, version = version + 1 WHERE id_alumno = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -107,8 +168,12 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
             pstmt.setDate(6, alumno.getFechaNacimiento() != null ? java.sql.Date.valueOf(alumno.getFechaNacimiento()) : null);
             pstmt.setBoolean(7, alumno.isActivo());
             pstmt.setInt(8, alumno.getIdAlumno());
+            pstmt.setInt(9, alumno.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Alumno.class, alumno.getIdAlumno(), EventoCambio.Tipo.ACTUALIZADO);
+            }
         } catch (SQLException e) {
             // Manejo específico para violaciones de unicidad (ej. DNI duplicado al actualizar, si la columna DNI es UNIQUE)
             if (e.getSQLState().startsWith("23") || e.getErrorCode() == 1062) {
@@ -116,20 +181,46 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
             }
             throw new SQLException("Error al actualizar el alumno con ID " + alumno.getIdAlumno() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            Alumno actual = obtenerPorId(alumno.getIdAlumno());
+            if (actual != null) {
+                throw new ConflictoVersionException("alumno", alumno.getIdAlumno(), actual);
+            }
+            return false;
+        }
+        alumno.setVersion(alumno.getVersion() + 1);
+        return true;
     }
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean eliminar(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
+        // Las inscripciones se borran en cascada: antes se liberan sus lugares en el contador de cada clase
+        String sqlLiberarCupos = "UPDATE clases c JOIN inscripciones_clase i ON i.id_clase = c.id_clase " +
+                                 "SET c.inscriptos_activos = c.inscriptos_activos - 1 " +
+                                 "WHERE i.id_alumno = ? AND i.activa = TRUE AND c.inscriptos_activos > 0";
         String sql = "DELETE FROM alumnos WHERE id_alumno = ?";
         int filasAfectadas = 0;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, id);
-
-            filasAfectadas = pstmt.executeUpdate();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlLiberarCupos)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    filasAfectadas = pstmt.executeUpdate();
+                }
+                if (filasAfectadas > 0) {
+                    RegistroCambiosDAO.registrar(conn, Alumno.class, id, EventoCambio.Tipo.ELIMINADO);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al eliminar el alumno con ID " + id + ": " + e.getMessage(), e);
         }
@@ -137,38 +228,64 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
     }
 
     /**
-     * Obtiene una lista de alumnos que tienen alguna cuota pendiente (deudores)
-     * para un período específico.
+     * Obtiene los alumnos activos que tienen la cuota de un período pendiente (deudores).
+     * Ver {@link #obtenerDeudoresPorPeriodos(List)}.
      *
      * @param idPeriodo El ID del período a verificar si el alumno pagó completamente.
      * @return Una lista de alumnos que son deudores para el período dado.
      * @throws SQLException Si ocurre un error de base de datos.
      */
     public List<Alumno> obtenerDeudoresPorPeriodo(int idPeriodo) throws SQLException {
-        List<Alumno> deudores = new ArrayList<>();
-        // Asumimos que un alumno es deudor si NO tiene un pago registrado para el idPeriodo O
-        // si tiene un pago registrado pero el monto pagado es MENOR al monto esperado del periodo
-        // (Esto requiere un campo 'monto_esperado' en PeriodosCuota y 'monto_pagado' en Pagos, lo cual está en nuestro esquema).
-        String sql = "SELECT A.id_alumno, A.nombre, A.apellido, A.dni, A.telefono, A.email, A.fecha_nacimiento, A.activo " +
-                     "FROM alumnos A " +
-                     "LEFT JOIN pagos P ON A.id_alumno = P.id_alumno AND P.id_periodo = ? " +
-                     "LEFT JOIN periodos_cuota PC ON PC.id_periodo = ? " + // Unimos al PeriodoCuota específico
-                     "WHERE P.id_pago IS NULL " + // No hay ningún pago registrado para este periodo
-                     "OR (P.monto_pagado < PC.monto_esperado)"; // O el monto pagado es menor al esperado (pago parcial/insuficiente)
+        return obtenerDeudoresPorPeriodos(Collections.singletonList(idPeriodo)).get(idPeriodo);
+    }
+
+    /**
+     * Obtiene los alumnos activos deudores de varios períodos en una sola consulta. Un alumno es deudor de un
+     * período si la suma de sus pagos de ese período (0 si no pagó nada) es menor al monto esperado, así que
+     * con varios pagos parciales aparece una sola vez y según el total.
+     *
+     * Los pagos se suman agrupando por período y alumno sobre idx_pagos_periodo_alumno, que los tiene en ese
+     * orden e incluye monto_pagado: la consulta no lee filas de la tabla pagos.
+     *
+     * @param idsPeriodo IDs de los períodos a verificar.
+     * @return Deudores de cada período, en el orden pedido (lista vacía si no hay), ordenados por apellido y nombre.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Map<Integer, List<Alumno>> obtenerDeudoresPorPeriodos(List<Integer> idsPeriodo) throws SQLException {
+        Map<Integer, List<Alumno>> deudores = new LinkedHashMap<>();
+        for (Integer idPeriodo : idsPeriodo) {
+            deudores.put(idPeriodo, new ArrayList<>());
+        }
+        if (deudores.isEmpty()) {
+            return deudores;
+        }
+        String marcadores = String.join(", ", Collections.nCopies(deudores.size(), "?"));
+        String sql = "SELECT PC.id_periodo, A.id_alumno, A.nombre, A.apellido, A.dni, A.telefono, A.email, A.fecha_nacimiento, A.activo, A.version " +
+                     "FROM periodos_cuota PC " +
+                     "JOIN alumnos A ON A.activo = TRUE " +
+                     "LEFT JOIN pagos P ON P.id_periodo = PC.id_periodo AND P.id_alumno = A.id_alumno " +
+                     "WHERE PC.id_periodo IN (" + marcadores + ") " +
+                     "GROUP BY PC.id_periodo, A.id_alumno " + // Columnas de A y PC: dependen de sus claves primarias
+                     "HAVING COALESCE(SUM(P.monto_pagado), 0) < PC.monto_esperado " +
+                     "ORDER BY PC.id_periodo, A.apellido, A.nombre";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, idPeriodo); // Para el LEFT JOIN en Pagos
-            pstmt.setInt(2, idPeriodo); // Para el LEFT JOIN en PeriodosCuota
+            int indice = 1;
+            for (Integer idPeriodo : deudores.keySet()) {
+                pstmt.setInt(indice++, idPeriodo);
+            }
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                int[] col = ResultSetMapper.resolverColumnas(rs, COLUMNAS);
+                int colPeriodo = rs.findColumn("id_periodo");
                 while (rs.next()) {
-                    deudores.add(mapResultSetToAlumno(rs)); // Usamos el método auxiliar de mapeo
+                    deudores.get(rs.getInt(colPeriodo)).add(mapResultSetToAlumno(rs, col));
                 }
             }
         } catch (SQLException e) {
-            throw new SQLException("Error al obtener alumnos deudores para el período " + idPeriodo + ": " + e.getMessage(), e);
+            throw new SQLException("Error al obtener alumnos deudores para los períodos " + deudores.keySet() + ": " + e.getMessage(), e);
         }
         return deudores;
     }
@@ -181,7 +298,7 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
      * @throws SQLException Si ocurre un error de base de datos.
      */
     public Alumno obtenerPorDni(String dni) throws SQLException {
-        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo FROM alumnos WHERE dni = ?";
+        String sql = "SELECT id_alumno, nombre, apellido, dni, telefono, email, fecha_nacimiento, activo, version FROM alumnos WHERE dni = ?";
         Alumno alumno = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -190,9 +307,7 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
             pstmt.setString(1, dni);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    alumno = mapResultSetToAlumno(rs); // Usamos el método auxiliar de mapeo
-                }
+                alumno = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToAlumno);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el alumno por DNI '" + dni + "': " + e.getMessage(), e);
@@ -200,26 +315,100 @@ public class AlumnoDAO implements IDAO<Alumno, Integer> {
         return alumno;
     }
 
+    /**
+     * Arma la matriz de cohortes de retención del rango de meses indicado.
+     *
+     * La cohorte de cada alumno es el mes de su primera inscripción a una clase (si nunca se inscribió, el mes
+     * en que se lo cargó) y un alumno está activo en un mes si pagó la cuota del período que empieza ese mes.
+     * Los pagos se recorren una sola vez en modo streaming y solo se leen id_periodo e id_alumno, que están en
+     * idx_pagos_periodo_alumno, así que no se leen las filas de la tabla.
+     *
+     * @param desde Primer mes (incluido).
+     * @param hasta Último mes (incluido).
+     * @return La matriz de cohortes.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public MatrizCohortes obtenerMatrizCohortes(YearMonth desde, YearMonth hasta) throws SQLException {
+        long inicio = System.nanoTime();
+        MatrizCohortes matriz = new MatrizCohortes(desde, hasta);
+        String sqlAlumnos = "SELECT a.id_alumno, COALESCE(MIN(ic.fecha_inscripcion), DATE(a.fecha_creacion)) AS fecha_alta " +
+                            "FROM alumnos a LEFT JOIN inscripciones_clase ic ON ic.id_alumno = a.id_alumno " +
+                            "GROUP BY a.id_alumno";
+        String sqlPeriodos = "SELECT id_periodo, fecha_inicio FROM periodos_cuota WHERE fecha_inicio BETWEEN ? AND ?";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlAlumnos);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    matriz.agregarAlumno(rs.getInt(1), ResultSetMapper.getLocalDate(rs, 2));
+                }
+            }
+
+            // Mes de cada período del rango, indexado por id_periodo (-1: fuera del rango)
+            int[] mesPorPeriodo = new int[0];
+            List<Integer> idsPeriodo = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlPeriodos)) {
+                pstmt.setDate(1, Date.valueOf(desde.atDay(1)));
+                pstmt.setDate(2, Date.valueOf(hasta.atEndOfMonth()));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int idPeriodo = rs.getInt(1);
+                        if (idPeriodo >= mesPorPeriodo.length) {
+                            int anterior = mesPorPeriodo.length;
+                            mesPorPeriodo = Arrays.copyOf(mesPorPeriodo, Math.max(idPeriodo + 1, anterior * 2));
+                            Arrays.fill(mesPorPeriodo, anterior, mesPorPeriodo.length, -1);
+                        }
+                        mesPorPeriodo[idPeriodo] = matriz.indiceMes(YearMonth.from(ResultSetMapper.getLocalDate(rs, 2)));
+                        idsPeriodo.add(idPeriodo);
+                    }
+                }
+            }
+            if (idsPeriodo.isEmpty()) {
+                return matriz; // Ningún período en el rango: todos quedan sin actividad
+            }
+
+            String sqlPagos = "SELECT id_periodo, id_alumno FROM pagos WHERE id_periodo IN (" +
+                              String.join(", ", Collections.nCopies(idsPeriodo.size(), "?")) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlPagos, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE); // Modo streaming del driver de MySQL
+                for (int i = 0; i < idsPeriodo.size(); i++) {
+                    pstmt.setInt(i + 1, idsPeriodo.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        matriz.registrarActividad(rs.getInt(2), mesPorPeriodo[rs.getInt(1)]);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la retención de alumnos entre " + desde + " y " + hasta + ": " + e.getMessage(), e);
+        }
+        long fin = System.nanoTime();
+        LOGGER.fine(() -> "Matriz de cohortes " + desde + " a " + hasta + ": " + matriz.getCantidadAlumnos() + " alumnos en "
+                + (fin - inicio) / 1_000_000 + " ms.");
+        return matriz;
+    }
+
     /**
      * Método auxiliar para mapear un ResultSet a un objeto Alumno.
      * Centraliza la lógica de conversión de datos de la base de datos a objetos Java.
      * @param rs El ResultSet que contiene los datos del alumno.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto Alumno con los datos del ResultSet.
      * @throws SQLException Si ocurre un error al leer del ResultSet.
      */
-    private Alumno mapResultSetToAlumno(ResultSet rs) throws SQLException {
-        LocalDate fechaNacimiento = rs.getDate("fecha_nacimiento") != null ? rs.getDate("fecha_nacimiento").toLocalDate() : null;
-
-        return new Alumno(
-            rs.getInt("id_alumno"),
-            rs.getString("nombre"),
-            rs.getString("apellido"),
-            rs.getString("dni"),
-            rs.getString("telefono"),
-            rs.getString("email"),
-            fechaNacimiento,
-            rs.getBoolean("activo")
-            
+    private Alumno mapResultSetToAlumno(ResultSet rs, int[] col) throws SQLException {
+        Alumno alumno = new Alumno(
+            rs.getInt(col[0]),                               // id_alumno
+            rs.getString(col[1]),                            // nombre
+            rs.getString(col[2]),                            // apellido
+            rs.getString(col[3]),                            // dni
+            rs.getString(col[4]),                            // telefono
+            rs.getString(col[5]),                            // email
+            ResultSetMapper.getLocalDate(rs, col[6]),        // fecha_nacimiento (puede ser NULL)
+            rs.getBoolean(col[7])                            // activo
         );
+        alumno.setVersion(rs.getInt(col[8]));
+        return alumno;
     }
 }
\ No newline at end of file
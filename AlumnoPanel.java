@@ -1,7 +1,10 @@
 package taichi.gui;
 
 import taichi.controller.AlumnoController;
+import taichi.dao.ConflictoVersionException;
 import taichi.model.Alumno;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -10,6 +13,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class AlumnoPanel extends JPanel {
 
@@ -34,11 +38,20 @@ public class AlumnoPanel extends JPanel {
 
     private JTable alumnoTable;
     private DefaultTableModel tableModel;
+    private int versionEnEdicion; // Versión del registro cargado en el formulario
 
     // Formateador de fechas
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     public AlumnoPanel(AlumnoController alumnoController) {
+        this(alumnoController, null);
+    }
+
+    /**
+     * @param alumnosPrecargados Listado de alumnos ya pedido en segundo plano al iniciar (puede ser null:
+     *        en ese caso el panel lo consulta al crearse).
+     */
+    public AlumnoPanel(AlumnoController alumnoController, CompletableFuture<List<Alumno>> alumnosPrecargados) {
         this.alumnoController = alumnoController;
         setLayout(new BorderLayout());
 
@@ -109,7 +122,7 @@ public class AlumnoPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         // --- Configuración de la Tabla ---
-        String[] columnNames = {"ID", "Nombre Completo", "DNI", "Fecha Nac.", "Dirección", "Teléfono", "Email", "Fecha Insc.", "Activo"};
+        String[] columnNames = {"ID", "Nombre Completo", "DNI", "Fecha Nac.", "Dirección", "Teléfono", "Email", "Fecha Insc.", "Activo", DialogoConflicto.COLUMNA_VERSION};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -117,6 +130,7 @@ public class AlumnoPanel extends JPanel {
             }
         };
         alumnoTable = new JTable(tableModel);
+        DialogoConflicto.ocultarColumnaVersion(alumnoTable);
         alumnoTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION); // Solo una fila a la vez
         JScrollPane scrollPane = new JScrollPane(alumnoTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -135,8 +149,12 @@ public class AlumnoPanel extends JPanel {
             }
         });
 
-        // Cargar alumnos al iniciar el panel
-        cargarAlumnos();
+        // Cargar alumnos al iniciar el panel (usa la precarga si ya está en camino)
+        mostrarAlumnos(alumnosPrecargados != null ? alumnosPrecargados : alumnoController.obtenerTodosLosAlumnosAsync());
+
+        // Cada alta, modificación o baja confirmada actualiza solo su fila, sin volver a consultar la tabla
+        BusEventos.getInstancia().suscribir(Alumno.class, Asincrono.EN_INTERFAZ,
+            evento -> ActualizadorTabla.aplicar(tableModel, evento, this::filaAlumno));
     }
 
     private void guardarAlumno() {
@@ -166,7 +184,6 @@ public class AlumnoPanel extends JPanel {
 
             JOptionPane.showMessageDialog(this, "Alumno guardado con éxito. ID: " + nuevoAlumno.getIdAlumno(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
             limpiarCampos();
-            cargarAlumnos(); // Recargar la tabla
         } catch (DateTimeParseException e) {
             JOptionPane.showMessageDialog(this, "Formato de fecha inválido. Use YYYY-MM-DD.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException e) {
@@ -207,11 +224,15 @@ public class AlumnoPanel extends JPanel {
                     chkActivo.isSelected()
             );
 
-            boolean exito = alumnoController.actualizarInformacionAlumno(alumnoActualizar);
+            alumnoActualizar.setVersion(versionEnEdicion);
+
+            Boolean exito = guardarCambios(alumnoActualizar);
+            if (exito == null) {
+                return; // Conflicto sin guardar: el usuario sigue en el formulario
+            }
             if (exito) {
                 JOptionPane.showMessageDialog(this, "Alumno actualizado con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 limpiarCampos();
-                cargarAlumnos();
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo actualizar el alumno.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -241,7 +262,6 @@ public class AlumnoPanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Alumno dado de baja exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarAlumnos();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo dar de baja al alumno.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -268,7 +288,6 @@ public class AlumnoPanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Alumno activado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarAlumnos();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo activar al alumno.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -295,33 +314,62 @@ public class AlumnoPanel extends JPanel {
         alumnoTable.clearSelection(); // Desseleccionar cualquier fila
     }
 
-    private void cargarAlumnos() {
-        // Limpiar la tabla antes de cargar nuevos datos
-        tableModel.setRowCount(0); 
-        try {
-            List<Alumno> alumnos = alumnoController.obtenerTodosLosAlumnos();
+    // Llena la tabla cuando llega el listado, sin bloquear la interfaz mientras se consulta
+    private void mostrarAlumnos(CompletableFuture<List<Alumno>> alumnosFuturo) {
+        alumnosFuturo.whenCompleteAsync((alumnos, error) -> {
+            if (error != null) {
+                Throwable causa = Asincrono.causa(error);
+                JOptionPane.showMessageDialog(this, "Error al cargar alumnos: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                causa.printStackTrace();
+                return;
+            }
+            // Limpiar la tabla antes de cargar nuevos datos
+            tableModel.setRowCount(0);
             for (Alumno alumno : alumnos) {
-                tableModel.addRow(new Object[]{
-                    alumno.getIdAlumno(),
-                    alumno.getNombreCompleto(),
-                    alumno.getDni(),
-                    alumno.getFechaNacimiento().format(DATE_FORMATTER),
-                    alumno.getDireccion(),
-                    alumno.getTelefono(),
-                    alumno.getEmail(),
-                    alumno.getFechaInscripcion().format(DATE_FORMATTER),
-                    alumno.isActivo() ? "Sí" : "No"
-                });
+                tableModel.addRow(filaAlumno(alumno));
+            }
+        }, Asincrono.EN_INTERFAZ);
+    }
+
+    // Guarda los cambios del formulario; si otro usuario guardó el registro mientras tanto, muestra las diferencias y deja elegir
+    private Boolean guardarCambios(Alumno alumno) throws Exception {
+        try {
+            return alumnoController.actualizarInformacionAlumno(alumno);
+        } catch (ConflictoVersionException e) {
+            Alumno guardado = (Alumno) e.getRegistroActual();
+            switch (DialogoConflicto.preguntar(this, tableModel, filaAlumno(alumno), filaAlumno(guardado))) {
+                case SOBRESCRIBIR:
+                    alumno.setVersion(guardado.getVersion());
+                    return guardarCambios(alumno);
+                case USAR_GUARDADO:
+                    DialogoConflicto.seleccionarGuardado(alumnoTable, tableModel, guardado.getIdAlumno(), filaAlumno(guardado));
+                    mostrarAlumnoSeleccionado();
+                    return null;
+                default:
+                    return null;
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al cargar alumnos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
         }
     }
 
+    private Object[] filaAlumno(Alumno alumno) {
+        return new Object[]{
+            alumno.getIdAlumno(),
+            alumno.getNombreCompleto(),
+            alumno.getDni(),
+            alumno.getFechaNacimiento().format(DATE_FORMATTER),
+            alumno.getDireccion(),
+            alumno.getTelefono(),
+            alumno.getEmail(),
+            alumno.getFechaInscripcion().format(DATE_FORMATTER),
+            alumno.isActivo() ? "Sí" : "No",
+            alumno.getVersion()
+        };
+    }
+
     private void mostrarAlumnoSeleccionado() {
         int selectedRow = alumnoTable.getSelectedRow();
         if (selectedRow >= 0) {
+            versionEnEdicion = DialogoConflicto.versionDeFila(tableModel, selectedRow);
             txtIdAlumno.setText(tableModel.getValueAt(selectedRow, 0).toString());
             txtNombreCompleto.setText(tableModel.getValueAt(selectedRow, 1).toString());
             txtDni.setText(tableModel.getValueAt(selectedRow, 2).toString());
@@ -134,4 +134,112 @@ CREATE TABLE IF NOT EXISTS asistencia (
     FOREIGN KEY (id_alumno) REFERENCES alumnos(id_alumno) ON DELETE CASCADE,
     FOREIGN KEY (id_clase) REFERENCES clases(id_clase) ON DELETE CASCADE,
     UNIQUE (id_alumno, id_clase, fecha_asistencia) -- Un alumno solo puede tener un registro de asistencia por clase y fecha
-);
\ No newline at end of file
+);
+
+-- Índices para la toma y consulta de asistencia
+-- Consultas por clase y rango de fechas (planilla del día, asistencia mensual); cubre también id_alumno y presente
+CREATE INDEX idx_asistencia_clase_fecha ON asistencia (id_clase, fecha_asistencia, id_alumno, presente);
+-- Alumnos inscriptos activos de una clase (armado de la planilla)
+CREATE INDEX idx_inscripciones_clase_activa ON inscripciones_clase (id_clase, activa, id_alumno);
+
+-- Control de cupo de las clases
+-- Contador de inscripciones activas: se actualiza en la misma transacción que cada alta/baja
+-- y permite reservar lugar con un UPDATE condicional y consultar la ocupación sin COUNT(*)
+ALTER TABLE clases ADD COLUMN inscriptos_activos INT NOT NULL DEFAULT 0 CHECK (inscriptos_activos >= 0);
+-- Inicializa el contador a partir de las inscripciones (al borrar un alumno, AlumnoDAO libera sus lugares
+-- antes de que ON DELETE CASCADE borre sus inscripciones)
+UPDATE clases c SET c.inscriptos_activos = (
+    SELECT COUNT(*) FROM inscripciones_clase i WHERE i.id_clase = c.id_clase AND i.activa = TRUE
+);
+
+-- Horario semanal: duración de cada clase, para detectar superposiciones de un mismo profesor
+ALTER TABLE clases ADD COLUMN duracion_minutos INT NOT NULL DEFAULT 60 CHECK (duracion_minutos > 0);
+CREATE INDEX idx_clases_profesor_dia ON clases (id_profesor, dia_semana, horario);
+
+-- Cumplimiento de documentación: la matriz se arma agrupando por alumno y tipo de documento
+CREATE INDEX idx_documentos_alumno_tipo ON documentos_estado (id_alumno, tipo_documento, presentado);
+
+-- Exportación de pagos: recorrido por rango de fechas, ya ordenado por fecha (e id_pago, incluido en el índice por ser la PK)
+CREATE INDEX idx_pagos_fecha ON pagos (fecha_pago);
+
+-- 12. Tabla Cuotas_Alumno: cuota esperada de cada alumno activo en cada período (la genera la facturación mensual)
+CREATE TABLE IF NOT EXISTS cuotas_alumno (
+    id_cuota_alumno INT AUTO_INCREMENT PRIMARY KEY,
+    id_periodo INT NOT NULL,
+    id_alumno INT NOT NULL,
+    monto_esperado DECIMAL(10, 2) NOT NULL,
+    fecha_generacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (id_periodo) REFERENCES periodos_cuota(id_periodo) ON DELETE RESTRICT,
+    FOREIGN KEY (id_alumno) REFERENCES alumnos(id_alumno) ON DELETE CASCADE,
+    UNIQUE (id_periodo, id_alumno) -- Una sola cuota por alumno y período: la facturación se puede repetir sin duplicar
+);
+
+-- 13. Tabla Facturacion_Ejecuciones: punto de control de la facturación de cada período
+CREATE TABLE IF NOT EXISTS facturacion_ejecuciones (
+    id_periodo INT PRIMARY KEY,
+    estado VARCHAR(20) NOT NULL, -- 'EN_CURSO' o 'COMPLETADA'
+    ultimo_id_alumno INT NOT NULL DEFAULT 0, -- Último alumno cuyo lote quedó confirmado
+    cuotas_generadas INT NOT NULL DEFAULT 0,
+    fecha_inicio TIMESTAMP NULL,
+    fecha_fin TIMESTAMP NULL,
+    FOREIGN KEY (id_periodo) REFERENCES periodos_cuota(id_periodo) ON DELETE CASCADE
+);
+
+-- Lotes de facturación: alumnos activos recorridos por rango de id_alumno
+CREATE INDEX idx_alumnos_activo_id ON alumnos (activo, id_alumno);
+
+-- Recargos por vencimiento: datos del período y estado del recargo guardado en cada cuota (lo aplica el job de recargos)
+ALTER TABLE periodos_cuota
+    ADD COLUMN fecha_vencimiento DATE NULL, -- Último día para pagar sin recargo
+    ADD COLUMN monto_recargo DECIMAL(10, 2) NOT NULL DEFAULT 0;
+ALTER TABLE cuotas_alumno
+    ADD COLUMN monto_recargo DECIMAL(10, 2) NOT NULL DEFAULT 0,
+    ADD COLUMN fecha_recargo DATE NULL, -- NULL mientras no se aplicó recargo
+    ADD COLUMN fecha_revision_recargo DATE NULL; -- NULL mientras el job no revisó la cuota (con o sin recargo)
+UPDATE cuotas_alumno SET fecha_revision_recargo = fecha_recargo WHERE fecha_recargo IS NOT NULL; -- Ya revisadas antes de la columna
+-- Saldo pagado por alumno y período hasta una fecha (subconsulta del UPDATE de recargos) y total pagado por
+-- alumno y período (deudores): ambas consultas se resuelven solo con el índice, sin leer las filas de pagos
+CREATE INDEX idx_pagos_periodo_alumno ON pagos (id_periodo, id_alumno, fecha_pago, monto_pagado);
+
+-- 14. Tabla Tareas_Historial: ejecuciones de las tareas en segundo plano (recargos, facturación, precálculos)
+CREATE TABLE IF NOT EXISTS tareas_historial (
+    id_ejecucion INT AUTO_INCREMENT PRIMARY KEY,
+    tipo VARCHAR(50) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    disparador VARCHAR(20) NOT NULL, -- 'CRON', 'UNA_VEZ' o 'MANUAL'
+    fecha_programada DATETIME,
+    fecha_inicio DATETIME NOT NULL,
+    fecha_fin DATETIME NOT NULL,
+    estado VARCHAR(20) NOT NULL, -- 'EXITOSA', 'FALLIDA' u 'OMITIDA'
+    mensaje VARCHAR(500),
+    INDEX idx_tareas_historial_nombre (nombre, fecha_inicio)
+);
+
+-- 15. Tabla Cambios_Registro: registro de altas/modificaciones/bajas para que cada puesto actualice sus cachés
+-- (id_cambio es la secuencia global: cada cliente pide los cambios posteriores al último que vio)
+CREATE TABLE IF NOT EXISTS cambios_registro (
+    id_cambio BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entidad VARCHAR(40) NOT NULL, -- 'Alumno', 'Profesor', 'Clase', 'Pago', 'DocumentoEstado', 'PeriodoCuota'
+    id_entidad INT NOT NULL,
+    operacion VARCHAR(12) NOT NULL, -- 'CREADO', 'ACTUALIZADO' o 'ELIMINADO'
+    origen VARCHAR(36) NOT NULL, -- Puesto que hizo el cambio (no se lo reaplica a sí mismo)
+    fecha TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_cambios_registro_fecha (fecha)
+);
+
+-- Control de concurrencia optimista: cada UPDATE exige la versión leída ("... WHERE id = ? AND version = ?")
+-- y la incrementa; si otro puesto guardó antes, no afecta filas y la pantalla ofrece combinar los cambios
+ALTER TABLE alumnos ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE profesores ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE clases ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE periodos_cuota ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE pagos ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE documentos_estado ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE usuarios ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE inscripciones_clase ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE asistencia ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+-- Escritura diferida de pagos: cada pago anotado en el diario local lleva una clave única, así reenviarlo
+-- (por ejemplo al recuperar el diario después de un corte) no lo inserta dos veces
+ALTER TABLE pagos ADD COLUMN clave_idempotencia CHAR(36) NULL;
+CREATE UNIQUE INDEX uq_pagos_clave_idempotencia ON pagos (clave_idempotencia);
@@ -0,0 +1,252 @@
+package taichi.dao;
+
+import taichi.model.Alumno;
+import taichi.model.Clase;
+import taichi.model.DatosReferencia;
+import taichi.model.Dinero;
+import taichi.model.PeriodoCuota;
+import taichi.model.Profesor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Archivo binario con la copia de los datos de referencia (ver {@link DatosReferencia}).
+ *
+ * Se lee mapeándolo en memoria, sin copiarlo antes a un búfer ni interpretar texto, así la copia está lista
+ * en pocos milisegundos aunque tenga miles de alumnos. Formato (big-endian): marca de inicio y de formato,
+ * hora de la copia, y las cuatro listas, cada una con su cantidad y sus registros campo por campo;
+ * los textos van con su largo en bytes (-1 si son null), las fechas como día epoch y los montos en centavos.
+ * Al final se repite la marca de inicio para reconocer un archivo incompleto.
+ */
+public class ArchivoReferencia {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchivoReferencia.class.getName());
+
+    private static final int MAGIA = 0x54414931; // "TAI1"
+    private static final int FORMATO = 2;        // Se incrementa si cambian los campos guardados
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    private final Path archivo;
+
+    /**
+     * @param archivo Ruta del archivo (su directorio se crea si no existe).
+     */
+    public ArchivoReferencia(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    /**
+     * Reemplaza la copia guardada. Se escribe en un archivo temporal y se renombra, así nunca queda una copia
+     * a medias. Si el renombre falla (en Windows el archivo puede seguir mapeado desde el inicio), se conserva
+     * la copia anterior, que sigue siendo válida: solo habrá más para conciliar la próxima vez.
+     * @throws IOException Si no se pudo escribir.
+     */
+    public synchronized void guardar(DatosReferencia datos) throws IOException {
+        byte[] contenido = serializar(datos);
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer destino = canal.map(FileChannel.MapMode.READ_WRITE, 0, contenido.length);
+            destino.put(contenido);
+            destino.force();
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.fine(() -> "Copia de datos de referencia guardada (" + contenido.length + " bytes): " + datos);
+    }
+
+    /**
+     * @return La copia guardada, o null si no hay ninguna o no se puede usar (incompleta o de otro formato).
+     * @throws IOException Si no se pudo leer el archivo.
+     */
+    public synchronized DatosReferencia leer() throws IOException {
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer origen = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return deserializar(origen);
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            LOGGER.log(Level.WARNING, "Copia de datos de referencia descartada (" + archivo + "): " + e, e);
+            return null;
+        }
+    }
+
+    private static byte[] serializar(DatosReferencia datos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream salida = new DataOutputStream(bytes);
+        salida.writeInt(MAGIA);
+        salida.writeInt(FORMATO);
+        salida.writeLong(datos.getMarca().toEpochSecond(ZoneOffset.UTC));
+        salida.writeInt(datos.getMarca().getNano());
+
+        salida.writeInt(datos.getAlumnos().size());
+        for (Alumno alumno : datos.getAlumnos()) {
+            salida.writeInt(alumno.getIdAlumno());
+            escribirTexto(salida, alumno.getNombreCompleto());
+            escribirTexto(salida, alumno.getDni());
+            escribirFecha(salida, alumno.getFechaNacimiento());
+            escribirTexto(salida, alumno.getDireccion());
+            escribirTexto(salida, alumno.getTelefono());
+            escribirTexto(salida, alumno.getEmail());
+            escribirFecha(salida, alumno.getFechaInscripcion());
+            salida.writeBoolean(alumno.isActivo());
+            salida.writeInt(alumno.getVersion());
+        }
+
+        salida.writeInt(datos.getProfesores().size());
+        for (Profesor profesor : datos.getProfesores()) {
+            salida.writeInt(profesor.getIdProfesor());
+            escribirTexto(salida, profesor.getNombreCompleto());
+            escribirTexto(salida, profesor.getDni());
+            escribirFecha(salida, profesor.getFechaNacimiento());
+            escribirTexto(salida, profesor.getDireccion());
+            escribirTexto(salida, profesor.getTelefono());
+            escribirTexto(salida, profesor.getEmail());
+            escribirFecha(salida, profesor.getFechaContratacion());
+            salida.writeBoolean(profesor.isActivo());
+            salida.writeInt(profesor.getVersion());
+        }
+
+        salida.writeInt(datos.getClases().size());
+        for (Clase clase : datos.getClases()) {
+            salida.writeInt(clase.getIdClase());
+            escribirTexto(salida, clase.getNombreClase());
+            escribirTexto(salida, clase.getDescripcion());
+            escribirTexto(salida, clase.getHorario());
+            salida.writeInt(clase.getCupoMaximo());
+            salida.writeBoolean(clase.isActiva());
+            escribirTexto(salida, clase.getDiaSemana());
+            salida.writeInt(clase.getIdProfesor() != null ? clase.getIdProfesor() : 0); // 0: sin profesor
+            salida.writeInt(clase.getDuracionMinutos());
+            salida.writeInt(clase.getVersion());
+        }
+
+        salida.writeInt(datos.getPeriodos().size());
+        for (PeriodoCuota periodo : datos.getPeriodos()) {
+            salida.writeInt(periodo.getIdPeriodo());
+            escribirTexto(salida, periodo.getNombrePeriodo());
+            escribirFecha(salida, periodo.getFechaInicio());
+            escribirFecha(salida, periodo.getFechaFin());
+            escribirFecha(salida, periodo.getFechaVencimiento());
+            salida.writeLong(periodo.getMontoBase().getCentavos());
+            salida.writeLong(periodo.getMontoRecargo().getCentavos());
+            salida.writeInt(periodo.getVersion());
+        }
+
+        salida.writeInt(MAGIA);
+        salida.flush();
+        return bytes.toByteArray();
+    }
+
+    private static DatosReferencia deserializar(ByteBuffer entrada) {
+        if (entrada.getInt() != MAGIA) {
+            throw new IllegalArgumentException("no es un archivo de datos de referencia");
+        }
+        int formato = entrada.getInt();
+        if (formato != FORMATO) {
+            throw new IllegalArgumentException("formato " + formato + ", se esperaba " + FORMATO);
+        }
+        LocalDateTime marca = LocalDateTime.ofEpochSecond(entrada.getLong(), entrada.getInt(), ZoneOffset.UTC);
+
+        int cantidad = entrada.getInt();
+        List<Alumno> alumnos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Alumno alumno = new Alumno(entrada.getInt(), leerTexto(entrada), leerTexto(entrada), leerFecha(entrada),
+                leerTexto(entrada), leerTexto(entrada), leerTexto(entrada), leerFecha(entrada), entrada.get() != 0);
+            alumno.setVersion(entrada.getInt());
+            alumnos.add(alumno);
+        }
+
+        cantidad = entrada.getInt();
+        List<Profesor> profesores = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Profesor profesor = new Profesor(entrada.getInt(), leerTexto(entrada), leerTexto(entrada), leerFecha(entrada),
+                leerTexto(entrada), leerTexto(entrada), leerTexto(entrada), leerFecha(entrada), entrada.get() != 0);
+            profesor.setVersion(entrada.getInt());
+            profesores.add(profesor);
+        }
+
+        cantidad = entrada.getInt();
+        List<Clase> clases = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Clase clase = new Clase(entrada.getInt(), leerTexto(entrada), leerTexto(entrada), leerTexto(entrada),
+                entrada.getInt(), entrada.get() != 0);
+            clase.setDiaSemana(leerTexto(entrada));
+            int idProfesor = entrada.getInt();
+            clase.setIdProfesor(idProfesor != 0 ? idProfesor : null);
+            clase.setDuracionMinutos(entrada.getInt());
+            clase.setVersion(entrada.getInt());
+            clases.add(clase);
+        }
+
+        cantidad = entrada.getInt();
+        List<PeriodoCuota> periodos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            PeriodoCuota periodo = new PeriodoCuota(entrada.getInt(), leerTexto(entrada), leerFecha(entrada),
+                leerFecha(entrada), leerFecha(entrada), Dinero.deCentavos(entrada.getLong()), Dinero.deCentavos(entrada.getLong()));
+            periodo.setVersion(entrada.getInt());
+            periodos.add(periodo);
+        }
+
+        if (entrada.getInt() != MAGIA) {
+            throw new IllegalArgumentException("archivo incompleto");
+        }
+        return new DatosReferencia(marca, alumnos, profesores, clases, periodos);
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(utf8.length);
+        salida.write(utf8);
+    }
+
+    private static String leerTexto(ByteBuffer entrada) {
+        int largo = entrada.getInt();
+        if (largo < 0) {
+            return null;
+        }
+        if (largo > entrada.remaining()) {
+            // Archivo truncado o dañado: no se reserva un arreglo del tamaño leído
+            throw new IllegalArgumentException("Texto de " + largo + " bytes con solo " + entrada.remaining() + " disponibles.");
+        }
+        byte[] utf8 = new byte[largo];
+        entrada.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void escribirFecha(DataOutputStream salida, LocalDate fecha) throws IOException {
+        salida.writeInt(fecha != null ? (int) fecha.toEpochDay() : SIN_FECHA);
+    }
+
+    private static LocalDate leerFecha(ByteBuffer entrada) {
+        int dia = entrada.getInt();
+        return dia != SIN_FECHA ? LocalDate.ofEpochDay(dia) : null;
+    }
+}
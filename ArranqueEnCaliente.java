@@ -0,0 +1,277 @@
+package taichi.controller;
+
+import taichi.dao.AlumnoDAO;
+import taichi.dao.ArchivoReferencia;
+import taichi.dao.ClaseDAO;
+import taichi.dao.DatabaseConnection;
+import taichi.dao.PeriodoCuotaDAO;
+import taichi.dao.ProfesorDAO;
+import taichi.model.Alumno;
+import taichi.model.Clase;
+import taichi.model.DatosReferencia;
+import taichi.model.PeriodoCuota;
+import taichi.model.Profesor;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
+import taichi.util.HilosVirtuales;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Inicio en caliente: al abrir la aplicación se lee la copia de los datos de referencia guardada al cerrar
+ * la última vez (ver {@link ArchivoReferencia}) y las tablas y selectores se llenan con ella sin esperar a la BD.
+ *
+ * En segundo plano se concilia la copia contra la BD: se traen solo las filas con fecha_actualizacion posterior
+ * a la copia y los IDs vigentes (para detectar las borradas). Las diferencias se aplican en el hilo de la
+ * interfaz y se publican en el {@link BusEventos}, así las pantallas ya abiertas corrigen solo esas filas;
+ * desde ese momento los listados vuelven a pedirse a la BD. Al cerrar se guarda la copia conciliada.
+ */
+public class ArranqueEnCaliente {
+
+    private static final Logger LOGGER = Logger.getLogger(ArranqueEnCaliente.class.getName());
+
+    private static final long REINTENTO_SEGUNDOS = 30;
+
+    private ArchivoReferencia archivo;
+    private AlumnoDAO alumnoDAO;
+    private ProfesorDAO profesorDAO;
+    private ClaseDAO claseDAO;
+    private PeriodoCuotaDAO periodoCuotaDAO;
+    private AlumnoController alumnoController;
+    private ProfesorController profesorController;
+    private ClaseController claseController;
+
+    private volatile DatosReferencia copiaInicial; // Copia leída al iniciar; null cuando ya se concilió (o no había)
+    private volatile DatosReferencia conciliados;  // Datos al día según la BD, para guardar al cerrar
+    private ScheduledExecutorService ejecutor;
+
+    public ArranqueEnCaliente(ArchivoReferencia archivo, AlumnoDAO alumnoDAO, ProfesorDAO profesorDAO, ClaseDAO claseDAO,
+                              PeriodoCuotaDAO periodoCuotaDAO, AlumnoController alumnoController,
+                              ProfesorController profesorController, ClaseController claseController) {
+        this.archivo = archivo;
+        this.alumnoDAO = alumnoDAO;
+        this.profesorDAO = profesorDAO;
+        this.claseDAO = claseDAO;
+        this.periodoCuotaDAO = periodoCuotaDAO;
+        this.alumnoController = alumnoController;
+        this.profesorController = profesorController;
+        this.claseController = claseController;
+    }
+
+    /**
+     * Lee la copia guardada. Hay que llamarlo antes de pedir los listados para que salgan de ella.
+     * @return true si había una copia utilizable.
+     */
+    public boolean cargar() {
+        long inicio = System.nanoTime();
+        DatosReferencia copia;
+        try {
+            copia = archivo.leer();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer la copia de datos de referencia: " + e.getMessage(), e);
+            copia = null;
+        }
+        copiaInicial = copia;
+        if (copia != null) {
+            long fin = System.nanoTime();
+            DatosReferencia cargada = copia;
+            LOGGER.info(() -> "Copia de datos de referencia leída en " + (fin - inicio) / 1_000_000 + " ms: " + cargada);
+        }
+        return copia != null;
+    }
+
+    /**
+     * Empieza a conciliar la copia contra la BD en segundo plano (si no había copia, trae todo para guardarla
+     * al cerrar). Si la BD no responde, se reintenta cada {@value #REINTENTO_SEGUNDOS} segundos.
+     * Llamadas posteriores no hacen nada.
+     */
+    public synchronized void iniciar() {
+        if (ejecutor != null) {
+            return;
+        }
+        ejecutor = Executors.newSingleThreadScheduledExecutor(HilosVirtuales.fabricaDaemon("arranque-en-caliente"));
+        ejecutor.execute(this::conciliar);
+    }
+
+    /**
+     * Detiene la conciliación pendiente (al cerrar la aplicación).
+     */
+    public synchronized void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdownNow();
+            ejecutor = null;
+        }
+    }
+
+    /**
+     * Guarda los datos conciliados para el próximo inicio (al cerrar la aplicación).
+     * Si no se llegaron a conciliar, queda la copia anterior, que se conciliará la próxima vez.
+     */
+    public void guardar() {
+        DatosReferencia datos = conciliados;
+        if (datos == null) {
+            return;
+        }
+        try {
+            archivo.guardar(datos);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar la copia de datos de referencia: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true mientras los listados salen de la copia del inicio (todavía no se concilió).
+     */
+    public boolean estaSirviendoCopia() {
+        return copiaInicial != null;
+    }
+
+    /**
+     * @return Los alumnos de la copia del inicio, o null si ya se concilió (hay que pedirlos a la BD).
+     */
+    public List<Alumno> getAlumnos() {
+        DatosReferencia copia = copiaInicial;
+        return copia != null ? new ArrayList<>(copia.getAlumnos()) : null;
+    }
+
+    /**
+     * @return Los profesores de la copia del inicio, o null si ya se concilió.
+     */
+    public List<Profesor> getProfesores() {
+        DatosReferencia copia = copiaInicial;
+        return copia != null ? new ArrayList<>(copia.getProfesores()) : null;
+    }
+
+    /**
+     * @return Las clases de la copia del inicio, o null si ya se concilió.
+     */
+    public List<Clase> getClases() {
+        DatosReferencia copia = copiaInicial;
+        return copia != null ? new ArrayList<>(copia.getClases()) : null;
+    }
+
+    /**
+     * @return Los períodos de cuota de la copia del inicio, o null si ya se concilió.
+     */
+    public List<PeriodoCuota> getPeriodos() {
+        DatosReferencia copia = copiaInicial;
+        return copia != null ? new ArrayList<>(copia.getPeriodos()) : null;
+    }
+
+    // Trae de la BD lo que cambió desde la copia; si falla, se reintenta más tarde
+    private void conciliar() {
+        DatosReferencia copia = copiaInicial;
+        long inicio = System.nanoTime();
+        try {
+            // La marca se toma antes de consultar: lo que cambie mientras tanto se vuelve a traer la próxima vez
+            LocalDateTime marca = DatabaseConnection.obtenerHoraServidor();
+            if (copia == null) { // No había copia: se trae todo, solo para guardarla al cerrar
+                conciliados = new DatosReferencia(marca, alumnoDAO.obtenerTodos(), profesorDAO.obtenerTodos(),
+                    claseDAO.obtenerTodos(), periodoCuotaDAO.obtenerTodos());
+                return;
+            }
+            Diferencias<Alumno> alumnos = new Diferencias<>(copia.getAlumnos(),
+                alumnoDAO.obtenerActualizadosDesde(copia.getMarca()), alumnoDAO.obtenerIds(), Alumno::getIdAlumno);
+            Diferencias<Profesor> profesores = new Diferencias<>(copia.getProfesores(),
+                profesorDAO.obtenerActualizadosDesde(copia.getMarca()), profesorDAO.obtenerIds(), Profesor::getIdProfesor);
+            Diferencias<Clase> clases = new Diferencias<>(copia.getClases(),
+                claseDAO.obtenerActualizadosDesde(copia.getMarca()), claseDAO.obtenerIds(), Clase::getIdClase);
+            Diferencias<PeriodoCuota> periodos = new Diferencias<>(copia.getPeriodos(),
+                periodoCuotaDAO.obtenerActualizadosDesde(copia.getMarca()), periodoCuotaDAO.obtenerIds(),
+                PeriodoCuota::getIdPeriodo);
+            DatosReferencia nuevos = new DatosReferencia(marca, alumnos.resultado(), profesores.resultado(),
+                clases.resultado(), periodos.resultado());
+            // Se aplica en el hilo de la interfaz: cada pantalla o bien se armó antes (y recibe los avisos)
+            // o bien se arma después (y ya pide los datos a la BD)
+            Asincrono.EN_INTERFAZ.execute(() -> aplicar(nuevos, alumnos, profesores, clases, periodos));
+            long fin = System.nanoTime();
+            LOGGER.info(() -> "Copia de datos de referencia conciliada en " + (fin - inicio) / 1_000_000 + " ms: "
+                + (alumnos.cantidad() + profesores.cantidad() + clases.cantidad() + periodos.cantidad())
+                + " cambios desde " + copia.getMarca());
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo conciliar la copia de datos de referencia, se reintenta en "
+                + REINTENTO_SEGUNDOS + " s: " + e.getMessage(), e);
+            synchronized (this) {
+                if (ejecutor != null) {
+                    ejecutor.schedule(this::conciliar, REINTENTO_SEGUNDOS, TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    private void aplicar(DatosReferencia nuevos, Diferencias<Alumno> alumnos, Diferencias<Profesor> profesores,
+                         Diferencias<Clase> clases, Diferencias<PeriodoCuota> periodos) {
+        conciliados = nuevos;
+        copiaInicial = null; // Desde ahora los listados se piden a la BD
+        alumnos.avisar(alumnoController::reflejarCambioExterno);
+        profesores.avisar(profesorController::reflejarCambioExterno);
+        clases.avisar(claseController::reflejarCambioExterno);
+        periodos.avisar((id, periodo, tipo) -> BusEventos.getInstancia().publicar(PeriodoCuota.class,
+            periodo == null ? EventoCambio.eliminado(id)
+                : tipo == EventoCambio.Tipo.CREADO ? EventoCambio.creado(id, periodo) : EventoCambio.actualizado(id, periodo)));
+    }
+
+    // Recibe cada diferencia encontrada (actual es null si el registro se borró)
+    private interface Aviso<T> {
+        void recibir(int id, T actual, EventoCambio.Tipo tipo);
+    }
+
+    // Diferencias de una lista de la copia con la BD, por ID
+    private static final class Diferencias<T> {
+
+        private final Map<Integer, T> resultado = new LinkedHashMap<>();
+        private final Map<Integer, T> cambiados = new LinkedHashMap<>(); // Valor null: borrado
+        private final Set<Integer> creados = new HashSet<>();
+
+        Diferencias(List<T> copia, List<T> actualizados, Set<Integer> vigentes, ToIntFunction<T> id) {
+            for (T registro : copia) {
+                resultado.put(id.applyAsInt(registro), registro);
+            }
+            for (T registro : actualizados) {
+                int clave = id.applyAsInt(registro);
+                if (resultado.put(clave, registro) == null) {
+                    creados.add(clave);
+                }
+                cambiados.put(clave, registro);
+            }
+            resultado.keySet().removeIf(clave -> {
+                if (vigentes.contains(clave)) {
+                    return false;
+                }
+                cambiados.put(clave, null);
+                return true;
+            });
+        }
+
+        List<T> resultado() {
+            return new ArrayList<>(resultado.values());
+        }
+
+        int cantidad() {
+            return cambiados.size();
+        }
+
+        void avisar(Aviso<T> aviso) {
+            for (Map.Entry<Integer, T> cambio : cambiados.entrySet()) {
+                EventoCambio.Tipo tipo = cambio.getValue() == null ? EventoCambio.Tipo.ELIMINADO
+                    : creados.contains(cambio.getKey()) ? EventoCambio.Tipo.CREADO : EventoCambio.Tipo.ACTUALIZADO;
+                aviso.recibir(cambio.getKey(), cambio.getValue(), tipo);
+            }
+        }
+    }
+}
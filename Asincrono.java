@@ -0,0 +1,72 @@
+package taichi.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Ejecuta llamadas bloqueantes de los controladores (consultas a la BD) en segundo plano y devuelve un
+ * {@link CompletableFuture}, para poder lanzar varias consultas independientes a la vez y combinar sus resultados.
+ *
+ * Todas las llamadas comparten un ejecutor de hilos virtuales (ver {@link HilosVirtuales}): cada consulta espera
+ * a la base de datos en su propio hilo, sin un tamaño de pool que ajustar. El límite real lo pone la BD.
+ *
+ * Si la llamada falla, el futuro se completa con la misma excepción que lanza la versión bloqueante
+ * (envuelta en CompletionException, como hace CompletableFuture); {@link #causa(Throwable)} la desenvuelve.
+ */
+public final class Asincrono {
+
+    /**
+     * Llamada bloqueante que puede fallar con las excepciones de los controladores.
+     */
+    @FunctionalInterface
+    public interface Llamada<T> {
+        T llamar() throws Exception;
+    }
+
+    // Se crea al primer uso; sus hilos no impiden cerrar la aplicación
+    private static class Holder {
+        private static final ExecutorService EJECUTOR = HilosVirtuales.nuevoEjecutor("consulta");
+    }
+
+    /**
+     * Ejecutor que corre las tareas en el hilo de eventos de Swing, para continuar un futuro actualizando la interfaz:
+     * {@code futuro.thenAcceptAsync(datos -> ..., Asincrono.EN_INTERFAZ)}.
+     */
+    public static final Executor EN_INTERFAZ = javax.swing.SwingUtilities::invokeLater;
+
+    private Asincrono() {
+    }
+
+    /**
+     * Ejecuta la llamada en un hilo virtual.
+     * @param llamada Llamada bloqueante (normalmente, un método de un controlador).
+     * @return Futuro con el resultado de la llamada.
+     */
+    public static <T> CompletableFuture<T> ejecutar(Llamada<T> llamada) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return llamada.llamar();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, Holder.EJECUTOR);
+    }
+
+    /**
+     * Desenvuelve la excepción recibida en exceptionally/whenComplete/get, para mostrar el mensaje original.
+     * @param error Excepción del futuro.
+     * @return La excepción original lanzada por la llamada.
+     */
+    public static Throwable causa(Throwable error) {
+        Throwable actual = error;
+        while ((actual instanceof CompletionException || actual instanceof ExecutionException) && actual.getCause() != null) {
+            actual = actual.getCause();
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,108 @@
+package taichi.model;
+
+import java.time.LocalDate; // Necesario para manejar fechas
+
+public class Asistencia {
+
+    // Atributos (variables de instancia)
+    // Corresponden a las columnas de la tabla 'asistencia'
+    private int idAsistencia;              // id_asistencia (clave primaria)
+    private int idAlumno;                  // id_alumno (clave foránea a alumnos)
+    private int idClase;                   // id_clase (clave foránea a clases)
+    private LocalDate fechaAsistencia;     // fecha_asistencia
+    private boolean presente;              // presente (TRUE/FALSE)
+    private String nombreAlumno;           // Solo lectura: se completa al armar la planilla de una clase
+    private int version;                   // version (control de concurrencia optimista)
+
+    // --- Constructores ---
+
+    // Constructor vacío
+    public Asistencia() {
+    }
+
+    // Constructor sin idAsistencia (para registrar una NUEVA marca de asistencia)
+    public Asistencia(int idAlumno, int idClase, LocalDate fechaAsistencia, boolean presente) {
+        this.idAlumno = idAlumno;
+        this.idClase = idClase;
+        this.fechaAsistencia = fechaAsistencia;
+        this.presente = presente;
+    }
+
+    // Constructor con idAsistencia (para cuando recuperas una asistencia de la BD)
+    public Asistencia(int idAsistencia, int idAlumno, int idClase, LocalDate fechaAsistencia, boolean presente) {
+        this.idAsistencia = idAsistencia;
+        this.idAlumno = idAlumno;
+        this.idClase = idClase;
+        this.fechaAsistencia = fechaAsistencia;
+        this.presente = presente;
+    }
+
+    // --- Métodos Getters y Setters (Encapsulamiento) ---
+
+    public int getIdAsistencia() {
+        return idAsistencia;
+    }
+
+    public void setIdAsistencia(int idAsistencia) {
+        this.idAsistencia = idAsistencia;
+    }
+
+    public int getIdAlumno() {
+        return idAlumno;
+    }
+
+    public void setIdAlumno(int idAlumno) {
+        this.idAlumno = idAlumno;
+    }
+
+    public int getIdClase() {
+        return idClase;
+    }
+
+    public void setIdClase(int idClase) {
+        this.idClase = idClase;
+    }
+
+    public LocalDate getFechaAsistencia() {
+        return fechaAsistencia;
+    }
+
+    public void setFechaAsistencia(LocalDate fechaAsistencia) {
+        this.fechaAsistencia = fechaAsistencia;
+    }
+
+    public boolean isPresente() { // Para booleanos, el getter suele ser 'isNombre'
+        return presente;
+    }
+
+    public void setPresente(boolean presente) {
+        this.presente = presente;
+    }
+
+    public String getNombreAlumno() {
+        return nombreAlumno;
+    }
+
+    public void setNombreAlumno(String nombreAlumno) {
+        this.nombreAlumno = nombreAlumno;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "Asistencia{" +
+               "idAsistencia=" + idAsistencia +
+               ", idAlumno=" + idAlumno +
+               ", idClase=" + idClase +
+               ", fechaAsistencia=" + fechaAsistencia +
+               ", presente=" + presente +
+               '}';
+    }
+}
@@ -0,0 +1,171 @@
+package taichi.controller;
+import taichi.model.Asistencia;
+import taichi.dao.AsistenciaDAO;
+import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
+
+public class AsistenciaController {
+
+    private AsistenciaDAO asistenciaDAO;
+    private ModoSinConexion modoSinConexion; // null: sin respaldo local
+    private static final Logger LOGGER = Logger.getLogger(AsistenciaController.class.getName());
+
+    public AsistenciaController() {
+        this(new AsistenciaDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public AsistenciaController(AsistenciaDAO asistenciaDAO) {
+        this.asistenciaDAO = asistenciaDAO;
+    }
+
+    /**
+     * Activa el modo sin conexión (ver {@link ModoSinConexion}): si la BD no responde, la asistencia tomada
+     * se anota en el diario local y se envía cuando vuelve la conexión.
+     */
+    public void setModoSinConexion(ModoSinConexion modoSinConexion) {
+        this.modoSinConexion = modoSinConexion;
+    }
+
+    /**
+     * Obtiene la planilla de asistencia de una clase para una fecha:
+     * los alumnos inscriptos con su marca actual (o presentes por defecto si aún no se tomó lista).
+     * @param idClase ID de la clase.
+     * @param fecha Fecha de la clase.
+     * @return Lista de asistencias, una por alumno inscripto.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public List<Asistencia> obtenerPlanilla(int idClase, LocalDate fecha) throws Exception {
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha de la clase es obligatoria.");
+        }
+        try {
+            return asistenciaDAO.obtenerPlanilla(idClase, fecha);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener la planilla de la clase " + idClase + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener planilla de asistencia: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registra la asistencia de toda la clase de una sola vez.
+     * Si algún alumno ya tenía marca para esa fecha, se corrige.
+     * @param idClase ID de la clase.
+     * @param fecha Fecha de la clase (no puede ser futura).
+     * @param marcas Marcas de asistencia de los alumnos.
+     * @return La cantidad de alumnos registrados.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public int registrarAsistenciaClase(int idClase, LocalDate fecha, List<Asistencia> marcas) throws Exception {
+        // --- 1. Validaciones de entrada ---
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha de la clase es obligatoria.");
+        }
+        if (fecha.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("No se puede registrar asistencia para una fecha futura.");
+        }
+        if (marcas == null || marcas.isEmpty()) {
+            throw new IllegalArgumentException("La planilla no tiene alumnos para registrar.");
+        }
+        for (Asistencia marca : marcas) {
+            if (!InputValidator.isPositive(marca.getIdAlumno())) {
+                throw new IllegalArgumentException("Todas las marcas deben tener un ID de alumno válido.");
+            }
+        }
+
+        // --- 2. Sin conexión: se anota en el diario local ---
+        if (modoSinConexion != null && modoSinConexion.estaSinConexion()) {
+            try {
+                modoSinConexion.anotarAsistencia(idClase, fecha, marcas);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error al anotar la asistencia en el diario local: " + e.getMessage(), e);
+                throw new Exception("Error al registrar asistencia: " + e.getMessage());
+            }
+            LOGGER.info(() -> "Asistencia de la clase " + idClase + " del " + fecha + " anotada sin conexión (" + marcas.size() + " alumnos).");
+            return marcas.size();
+        }
+
+        // --- 3. Llamar al DAO para registrar en la BD ---
+        try {
+            int registradas = asistenciaDAO.registrarAsistenciaClase(idClase, fecha, marcas);
+            LOGGER.info(() -> "Asistencia de la clase " + idClase + " del " + fecha + " registrada con éxito (" + registradas + " alumnos).");
+            return registradas;
+        } catch (SQLException e) {
+            if (modoSinConexion != null && modoSinConexion.pasarASinConexion(e)) {
+                return registrarAsistenciaClase(idClase, fecha, marcas);
+            }
+            LOGGER.log(Level.SEVERE, "Error al registrar asistencia de la clase " + idClase + " en la BD: " + e.getMessage(), e);
+            throw new Exception("Error al registrar asistencia: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene todas las marcas de asistencia de una clase en un mes.
+     * @param idClase ID de la clase.
+     * @param mes Mes a consultar.
+     * @return Lista de asistencias ordenada por fecha.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public List<Asistencia> obtenerAsistenciaMensual(int idClase, YearMonth mes) throws Exception {
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        if (mes == null) {
+            throw new IllegalArgumentException("El mes a consultar es obligatorio.");
+        }
+        try {
+            return asistenciaDAO.obtenerAsistenciaPorClaseYMes(idClase, mes);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener asistencia mensual de la clase " + idClase + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener asistencia mensual: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el resumen mensual de asistencia por alumno de una clase.
+     * @param idClase ID de la clase.
+     * @param mes Mes a consultar.
+     * @return Mapa idAlumno -> {presentes, clasesRegistradas}.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public Map<Integer, int[]> obtenerResumenMensual(int idClase, YearMonth mes) throws Exception {
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        if (mes == null) {
+            throw new IllegalArgumentException("El mes a consultar es obligatorio.");
+        }
+        try {
+            return asistenciaDAO.obtenerResumenMensualPorClase(idClase, mes);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener resumen de asistencia de la clase " + idClase + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener resumen de asistencia: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #obtenerResumenMensual(int, YearMonth)}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<Map<Integer, int[]>> obtenerResumenMensualAsync(int idClase, YearMonth mes) {
+        return Asincrono.ejecutar(() -> obtenerResumenMensual(idClase, mes));
+    }
+}
@@ -0,0 +1,317 @@
+package taichi.dao;
+
+import taichi.model.Asistencia; // Importamos la clase Asistencia
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement; // Necesario para Statement.RETURN_GENERATED_KEYS
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Implementamos la interfaz IDAO, especificando que trabajamos con Asistencia y su ID es Integer
+public class AsistenciaDAO implements IDAO<Asistencia, Integer> {
+
+    private static final Logger LOGGER = Logger.getLogger(AsistenciaDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_asistencia", "id_alumno", "id_clase", "fecha_asistencia", "presente", "version"
+    };
+
+    // Upsert sobre la clave única (id_alumno, id_clase, fecha_asistencia): si la marca ya existe se corrige
+    // (y cambia de versión, así una edición de esa marca abierta en otro puesto detecta el conflicto)
+    private static final String SQL_UPSERT =
+        "INSERT INTO asistencia (id_alumno, id_clase, fecha_asistencia, presente) VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE presente = VALUES(presente), version = version + 1";
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public Asistencia crear(Asistencia asistencia) throws SQLException {
+        String sql = "INSERT INTO asistencia (id_alumno, id_clase, fecha_asistencia, presente) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setInt(1, asistencia.getIdAlumno());
+            pstmt.setInt(2, asistencia.getIdClase());
+            pstmt.setObject(3, asistencia.getFechaAsistencia()); // LocalDate directo (JDBC 4.2)
+            pstmt.setBoolean(4, asistencia.isPresente());
+
+            int filasAfectadas = pstmt.executeUpdate();
+
+            if (filasAfectadas == 0) {
+                throw new SQLException("La creación de la asistencia falló, no se insertaron filas en la base de datos.");
+            }
+
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    asistencia.setIdAsistencia(rs.getInt(1)); // Asignar el ID generado al objeto Asistencia
+                    LOGGER.fine(() -> "Asistencia insertada con ID: " + asistencia.getIdAsistencia());
+                } else {
+                    throw new SQLException("La creación de la asistencia falló, no se obtuvo ID generado de la base de datos.");
+                }
+            }
+        } catch (SQLException e) {
+            // Violación de la clave única (alumno, clase, fecha)
+            if (e.getErrorCode() == 1062) {
+                throw new SQLException("Error: El alumno ya tiene una asistencia registrada para esa clase y fecha.", e);
+            }
+            throw new SQLException("Error al crear la asistencia en la base de datos: " + e.getMessage(), e);
+        }
+        return asistencia;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public Asistencia obtenerPorId(Integer id) throws SQLException {
+        String sql = "SELECT id_asistencia, id_alumno, id_clase, fecha_asistencia, presente, version FROM asistencia WHERE id_asistencia = ?";
+        Asistencia asistencia = null;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                asistencia = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToAsistencia);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la asistencia con ID " + id + " de la base de datos: " + e.getMessage(), e);
+        }
+        return asistencia;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public List<Asistencia> obtenerTodos() throws SQLException {
+        List<Asistencia> asistencias = new ArrayList<>();
+        String sql = "SELECT id_asistencia, id_alumno, id_clase, fecha_asistencia, presente, version FROM asistencia";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToAsistencia, asistencias);
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener todas las asistencias de la base de datos: " + e.getMessage(), e);
+        }
+        return asistencias;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public boolean actualizar(Asistencia asistencia) throws SQLException {
+        String sql = "UPDATE asistencia SET id_alumno = ?, id_clase = ?, fecha_asistencia = ?, presente = ?, version = version + 1 WHERE id_asistencia = ? AND version = ?";
+        int filasAfectadas = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, asistencia.getIdAlumno());
+            pstmt.setInt(2, asistencia.getIdClase());
+            pstmt.setObject(3, asistencia.getFechaAsistencia());
+            pstmt.setBoolean(4, asistencia.isPresente());
+            pstmt.setInt(5, asistencia.getIdAsistencia());
+            pstmt.setInt(6, asistencia.getVersion());
+
+            filasAfectadas = pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new SQLException("Error al actualizar la asistencia con ID " + asistencia.getIdAsistencia() + ": " + e.getMessage(), e);
+        }
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            Asistencia actual = obtenerPorId(asistencia.getIdAsistencia());
+            if (actual != null) {
+                throw new ConflictoVersionException("asistencia", asistencia.getIdAsistencia(), actual);
+            }
+            return false;
+        }
+        asistencia.setVersion(asistencia.getVersion() + 1);
+        return true;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public boolean eliminar(Integer id) throws SQLException {
+        String sql = "DELETE FROM asistencia WHERE id_asistencia = ?";
+        int filasAfectadas = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+
+            filasAfectadas = pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new SQLException("Error al eliminar la asistencia con ID " + id + ": " + e.getMessage(), e);
+        }
+        return filasAfectadas > 0;
+    }
+
+    // --- Consultas específicas de la BD ---
+
+    /**
+     * Registra (o corrige) la asistencia de toda una clase para una fecha en una sola operación.
+     * Todas las marcas se envían como un único batch de upserts dentro de una transacción,
+     * por lo que la planilla se guarda completa o no se guarda.
+     * Con "rewriteBatchedStatements=true" en la URL de conexión, el driver de MySQL lo envía
+     * como un único INSERT multi-fila.
+     *
+     * @param idClase El ID de la clase.
+     * @param fecha La fecha de la clase.
+     * @param marcas Las marcas de asistencia (solo se usan idAlumno y presente).
+     * @return La cantidad de marcas procesadas.
+     * @throws SQLException Si ocurre un error de base de datos; en ese caso no se guarda ninguna marca.
+     */
+    public int registrarAsistenciaClase(int idClase, LocalDate fecha, List<Asistencia> marcas) throws SQLException {
+        if (marcas.isEmpty()) {
+            return 0;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean autoCommitOriginal = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_UPSERT)) {
+                for (Asistencia marca : marcas) {
+                    pstmt.setInt(1, marca.getIdAlumno());
+                    pstmt.setInt(2, idClase);
+                    pstmt.setObject(3, fecha);
+                    pstmt.setBoolean(4, marca.isPresente());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommitOriginal);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al registrar la asistencia de la clase " + idClase + " para el " + fecha + ": " + e.getMessage(), e);
+        }
+        LOGGER.fine(() -> "Asistencia registrada para la clase " + idClase + " (" + fecha + "): " + marcas.size() + " alumnos.");
+        return marcas.size();
+    }
+
+    /**
+     * Arma la planilla de asistencia de una clase para una fecha: todos los alumnos con inscripción activa,
+     * con la marca ya registrada si existe (si no, se proponen como presentes).
+     * @param idClase El ID de la clase.
+     * @param fecha La fecha de la clase.
+     * @return Lista de asistencias (idAsistencia = 0 si todavía no se registró) ordenada por apellido y nombre.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<Asistencia> obtenerPlanilla(int idClase, LocalDate fecha) throws SQLException {
+        List<Asistencia> planilla = new ArrayList<>();
+        String sql = "SELECT COALESCE(S.id_asistencia, 0) AS id_asistencia, I.id_alumno, I.id_clase, ? AS fecha_asistencia, " +
+                     "COALESCE(S.presente, TRUE) AS presente, COALESCE(S.version, 0) AS version, " +
+                     "CONCAT(A.apellido, ', ', A.nombre) AS nombre_alumno " +
+                     "FROM inscripciones_clase I " +
+                     "JOIN alumnos A ON A.id_alumno = I.id_alumno " +
+                     "LEFT JOIN asistencia S ON S.id_alumno = I.id_alumno AND S.id_clase = I.id_clase AND S.fecha_asistencia = ? " +
+                     "WHERE I.id_clase = ? AND I.activa = TRUE AND A.activo = TRUE " +
+                     "ORDER BY A.apellido, A.nombre";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setObject(1, fecha);
+            pstmt.setObject(2, fecha);
+            pstmt.setInt(3, idClase);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                String[] columnas = {"id_asistencia", "id_alumno", "id_clase", "fecha_asistencia", "presente", "version", "nombre_alumno"};
+                ResultSetMapper.mapearLista(rs, columnas, (fila, col) -> {
+                    Asistencia asistencia = mapResultSetToAsistencia(fila, col);
+                    asistencia.setNombreAlumno(fila.getString(col[6]));
+                    return asistencia;
+                }, planilla);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la planilla de asistencia de la clase " + idClase + ": " + e.getMessage(), e);
+        }
+        return planilla;
+    }
+
+    /**
+     * Obtiene todas las marcas de asistencia de una clase en un mes.
+     * Usa un rango de fechas (y no MONTH()/YEAR()) para aprovechar el índice (id_clase, fecha_asistencia).
+     * @param idClase El ID de la clase.
+     * @param mes El mes a consultar.
+     * @return Lista de asistencias ordenada por fecha.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<Asistencia> obtenerAsistenciaPorClaseYMes(int idClase, YearMonth mes) throws SQLException {
+        List<Asistencia> asistencias = new ArrayList<>();
+        String sql = "SELECT id_asistencia, id_alumno, id_clase, fecha_asistencia, presente, version FROM asistencia " +
+                     "WHERE id_clase = ? AND fecha_asistencia >= ? AND fecha_asistencia < ? " +
+                     "ORDER BY fecha_asistencia";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, idClase);
+            pstmt.setObject(2, mes.atDay(1));
+            pstmt.setObject(3, mes.plusMonths(1).atDay(1));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToAsistencia, asistencias);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la asistencia de la clase " + idClase + " para el mes " + mes + ": " + e.getMessage(), e);
+        }
+        return asistencias;
+    }
+
+    /**
+     * Resume la asistencia mensual de una clase por alumno, agregando en la base de datos.
+     * @param idClase El ID de la clase.
+     * @param mes El mes a consultar.
+     * @return Mapa idAlumno -> {presentes, clasesRegistradas}.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Map<Integer, int[]> obtenerResumenMensualPorClase(int idClase, YearMonth mes) throws SQLException {
+        Map<Integer, int[]> resumen = new HashMap<>();
+        String sql = "SELECT id_alumno, SUM(presente) AS presentes, COUNT(*) AS registros FROM asistencia " +
+                     "WHERE id_clase = ? AND fecha_asistencia >= ? AND fecha_asistencia < ? " +
+                     "GROUP BY id_alumno";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, idClase);
+            pstmt.setObject(2, mes.atDay(1));
+            pstmt.setObject(3, mes.plusMonths(1).atDay(1));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    resumen.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3)});
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener el resumen de asistencia de la clase " + idClase + " para el mes " + mes + ": " + e.getMessage(), e);
+        }
+        return resumen;
+    }
+
+    /**
+     * Método auxiliar para mapear un ResultSet a un objeto Asistencia.
+     * @param rs El ResultSet que contiene los datos de la asistencia.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
+     * @return Un objeto Asistencia con los datos del ResultSet.
+     * @throws SQLException Si ocurre un error al leer del ResultSet.
+     */
+    private Asistencia mapResultSetToAsistencia(ResultSet rs, int[] col) throws SQLException {
+        Asistencia asistencia = new Asistencia(
+            rs.getInt(col[0]),                               // id_asistencia
+            rs.getInt(col[1]),                               // id_alumno
+            rs.getInt(col[2]),                               // id_clase
+            ResultSetMapper.getLocalDate(rs, col[3]),        // fecha_asistencia
+            rs.getBoolean(col[4])                            // presente
+        );
+        asistencia.setVersion(rs.getInt(col[5]));
+        return asistencia;
+    }
+}
@@ -0,0 +1,214 @@
+package taichi.gui;
+
+import taichi.controller.AsistenciaController;
+import taichi.controller.ClaseController;
+import taichi.model.Asistencia;
+import taichi.model.Clase;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AsistenciaPanel extends JPanel {
+
+    private AsistenciaController asistenciaController;
+    private ClaseController claseController;
+
+    // Componentes de la UI
+    private JComboBox<Clase> cmbClase; // ComboBox para seleccionar la clase
+    private JTextField txtFecha; // Formato YYYY-MM-DD
+
+    private JButton btnCargarPlanilla;
+    private JButton btnMarcarTodos;
+    private JButton btnDesmarcarTodos;
+    private JButton btnGuardar;
+
+    private JTable asistenciaTable;
+    private DefaultTableModel tableModel;
+
+    // Planilla cargada: la clase y fecha a las que corresponden las filas de la tabla
+    private int idClasePlanilla = -1;
+    private LocalDate fechaPlanilla;
+
+    // Columnas de la tabla
+    private static final int COL_ID_ALUMNO = 0;
+    private static final int COL_PRESENTE = 2;
+
+    // Formateador de fechas
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public AsistenciaPanel(AsistenciaController asistenciaController, ClaseController claseController) {
+        this.asistenciaController = asistenciaController;
+        this.claseController = claseController;
+        setLayout(new BorderLayout());
+
+        // --- Panel de Formulario ---
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(BorderFactory.createTitledBorder("Toma de Asistencia"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5); // Márgenes
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        // Inicializar componentes
+        cmbClase = new JComboBox<>();
+        cmbClase.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof Clase) {
+                    Clase clase = (Clase) value;
+                    setText(clase.getNombreClase() + " (" + clase.getHorario() + ")");
+                }
+                return this;
+            }
+        });
+        txtFecha = new JTextField(LocalDate.now().format(DATE_FORMATTER), 10);
+        btnCargarPlanilla = new JButton("Cargar Planilla");
+
+        // Añadir etiquetas y campos al formulario
+        int row = 0;
+        gbc.gridx = 0; gbc.gridy = row; formPanel.add(new JLabel("Clase:"), gbc);
+        gbc.gridx = 1; gbc.gridy = row++; formPanel.add(cmbClase, gbc);
+
+        gbc.gridx = 0; gbc.gridy = row; formPanel.add(new JLabel("Fecha (YYYY-MM-DD):"), gbc);
+        gbc.gridx = 1; gbc.gridy = row; formPanel.add(txtFecha, gbc);
+        gbc.gridx = 2; gbc.gridy = row++; formPanel.add(btnCargarPlanilla, gbc);
+
+        // --- Panel de Botones ---
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        btnMarcarTodos = new JButton("Marcar Todos Presentes");
+        btnDesmarcarTodos = new JButton("Marcar Todos Ausentes");
+        btnGuardar = new JButton("Guardar Asistencia");
+
+        buttonPanel.add(btnMarcarTodos);
+        buttonPanel.add(btnDesmarcarTodos);
+        buttonPanel.add(btnGuardar);
+
+        // Añadir paneles de formulario y botones al panel principal
+        add(formPanel, BorderLayout.NORTH);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // --- Configuración de la Tabla ---
+        // Solo la columna "Presente" es editable y se muestra como checkbox
+        String[] columnNames = {"ID Alumno", "Alumno", "Presente"};
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == COL_PRESENTE;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == COL_PRESENTE ? Boolean.class : super.getColumnClass(column);
+            }
+        };
+        asistenciaTable = new JTable(tableModel);
+        asistenciaTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JScrollPane scrollPane = new JScrollPane(asistenciaTable);
+        add(scrollPane, BorderLayout.CENTER);
+
+        // --- Listeners de Eventos ---
+        btnCargarPlanilla.addActionListener(e -> cargarPlanilla());
+        btnMarcarTodos.addActionListener(e -> marcarTodos(true));
+        btnDesmarcarTodos.addActionListener(e -> marcarTodos(false));
+        btnGuardar.addActionListener(e -> guardarAsistencia());
+
+        // Cargar clases al iniciar el panel
+        cargarClasesEnComboBox();
+    }
+
+    private void cargarClasesEnComboBox() {
+        cmbClase.removeAllItems();
+        try {
+            List<Clase> clases = claseController.obtenerTodasLasClases();
+            for (Clase clase : clases) {
+                if (clase.isActiva()) {
+                    cmbClase.addItem(clase);
+                }
+            }
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Error al cargar clases: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    private void cargarPlanilla() {
+        Clase selectedClase = (Clase) cmbClase.getSelectedItem();
+        if (selectedClase == null) {
+            JOptionPane.showMessageDialog(this, "Seleccione una clase.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        try {
+            LocalDate fecha = LocalDate.parse(txtFecha.getText().trim(), DATE_FORMATTER);
+            List<Asistencia> planilla = asistenciaController.obtenerPlanilla(selectedClase.getIdClase(), fecha);
+
+            tableModel.setRowCount(0); // Limpiar tabla
+            for (Asistencia asistencia : planilla) {
+                tableModel.addRow(new Object[]{
+                    asistencia.getIdAlumno(),
+                    asistencia.getNombreAlumno(),
+                    asistencia.isPresente()
+                });
+            }
+            idClasePlanilla = selectedClase.getIdClase();
+            fechaPlanilla = fecha;
+
+            if (planilla.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "La clase no tiene alumnos con inscripción activa.", "Información", JOptionPane.INFORMATION_MESSAGE);
+            }
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Formato de fecha inválido. Use YYYY-MM-DD.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Error de validación: " + e.getMessage(), "Error de Validación", JOptionPane.WARNING_MESSAGE);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Error al cargar la planilla: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    private void marcarTodos(boolean presente) {
+        detenerEdicion();
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            tableModel.setValueAt(presente, i, COL_PRESENTE);
+        }
+    }
+
+    private void guardarAsistencia() {
+        if (idClasePlanilla == -1 || tableModel.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this, "Cargue primero la planilla de una clase.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        detenerEdicion();
+
+        // Se arma la planilla completa y se envía en una única operación
+        List<Asistencia> marcas = new ArrayList<>(tableModel.getRowCount());
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            int idAlumno = (Integer) tableModel.getValueAt(i, COL_ID_ALUMNO);
+            boolean presente = Boolean.TRUE.equals(tableModel.getValueAt(i, COL_PRESENTE));
+            marcas.add(new Asistencia(idAlumno, idClasePlanilla, fechaPlanilla, presente));
+        }
+
+        try {
+            int registradas = asistenciaController.registrarAsistenciaClase(idClasePlanilla, fechaPlanilla, marcas);
+            JOptionPane.showMessageDialog(this, "Asistencia guardada con éxito (" + registradas + " alumnos).", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Error de validación: " + e.getMessage(), "Error de Validación", JOptionPane.WARNING_MESSAGE);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Error al guardar la asistencia: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    // Confirma el checkbox que se esté editando para que su valor quede en el modelo
+    private void detenerEdicion() {
+        if (asistenciaTable.isEditing()) {
+            asistenciaTable.getCellEditor().stopCellEditing();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package taichi.util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler de java.util.logging que desacopla a quien registra el mensaje de la escritura real.
+ * Los registros se guardan en un buffer circular de tamaño fijo y un hilo daemon los vuelca
+ * en el handler delegado (consola, archivo, etc.). De esta forma los DAOs y controladores
+ * nunca quedan bloqueados esperando la E/S de consola o de disco.
+ *
+ * Si el buffer se llena, se descarta el registro más antiguo y se contabiliza en
+ * {@link #getRegistrosDescartados()}: preferimos perder una línea de log antes que frenar un pago.
+ */
+public class AsyncLogHandler extends Handler {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1024;
+
+    private final Handler delegado;
+    private final LogRecord[] buffer;
+    private int cabeza = 0;     // Próxima posición a leer
+    private int cantidad = 0;   // Registros pendientes en el buffer
+    private boolean escribiendo = false; // El escritor sacó un registro del buffer y todavía lo está escribiendo
+    private long registrosDescartados = 0;
+    private volatile boolean cerrado = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayRegistros = lock.newCondition();
+    private final Condition bufferVacio = lock.newCondition();
+    private final Thread escritor;
+
+    public AsyncLogHandler() {
+        this(new ConsoleHandler(), CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param delegado Handler que realiza la escritura real (puede ser lento).
+     * @param capacidad Cantidad máxima de registros pendientes en memoria.
+     */
+    public AsyncLogHandler(Handler delegado, int capacidad) {
+        if (delegado == null) {
+            throw new IllegalArgumentException("El handler delegado no puede ser nulo.");
+        }
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del buffer debe ser un número positivo.");
+        }
+        this.delegado = delegado;
+        this.buffer = new LogRecord[capacidad];
+        this.escritor = new Thread(this::vaciarBufferEnSegundoPlano, "taichi-async-log");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (cerrado || record == null || !isLoggable(record)) {
+            return;
+        }
+        // Forzamos la resolución de parámetros/fuente en el hilo que registra,
+        // ya que el hilo escritor no tiene ese contexto.
+        record.getSourceClassName();
+
+        lock.lock();
+        try {
+            int cola = (cabeza + cantidad) % buffer.length;
+            if (cantidad == buffer.length) {
+                // Buffer lleno: pisamos el más antiguo
+                buffer[cabeza] = record;
+                cabeza = (cabeza + 1) % buffer.length;
+                registrosDescartados++;
+            } else {
+                buffer[cola] = record;
+                cantidad++;
+            }
+            hayRegistros.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void vaciarBufferEnSegundoPlano() {
+        while (true) {
+            LogRecord record;
+            lock.lock();
+            try {
+                escribiendo = false; // El registro anterior (si hubo) ya pasó al delegado
+                while (cantidad == 0) {
+                    bufferVacio.signalAll();
+                    if (cerrado) {
+                        return;
+                    }
+                    hayRegistros.await();
+                }
+                record = buffer[cabeza];
+                buffer[cabeza] = null;
+                cabeza = (cabeza + 1) % buffer.length;
+                cantidad--;
+                escribiendo = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                delegado.publish(record);
+            } catch (RuntimeException e) {
+                reportError("Error al escribir un registro de log.", e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Espera a que el buffer se vacíe y se termine de escribir el último registro, y luego vacía el handler delegado.
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            while ((cantidad > 0 || escribiendo) && escritor.isAlive()) {
+                bufferVacio.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        delegado.flush();
+    }
+
+    @Override
+    public void close() throws SecurityException {
+        flush();
+        lock.lock();
+        try {
+            cerrado = true;
+            hayRegistros.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        delegado.close();
+    }
+
+    /**
+     * @return Cantidad de registros descartados por tener el buffer lleno.
+     */
+    public long getRegistrosDescartados() {
+        lock.lock();
+        try {
+            return registrosDescartados;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package taichi.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bus de eventos dentro de la aplicación: los controladores publican cada alta, modificación o baja
+ * confirmada en la BD, y los paneles interesados actualizan solo la fila afectada en vez de volver a consultar
+ * la tabla completa.
+ *
+ * Los suscriptores eligen en qué ejecutor reciben los eventos (los paneles usan {@link Asincrono#EN_INTERFAZ}),
+ * así un controlador puede publicar desde cualquier hilo.
+ */
+public final class BusEventos {
+
+    private static final Logger LOGGER = Logger.getLogger(BusEventos.class.getName());
+
+    private static final BusEventos INSTANCIA = new BusEventos();
+
+    private final Map<Class<?>, List<Suscriptor<?>>> suscriptores = new ConcurrentHashMap<>();
+
+    private BusEventos() {
+    }
+
+    /**
+     * @return El bus de eventos de la aplicación.
+     */
+    public static BusEventos getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Suscribe un oyente a los cambios de un tipo de entidad.
+     * @param tipoEntidad Clase de la entidad (ej. Alumno.class).
+     * @param ejecutor Ejecutor en el que se entrega cada evento.
+     * @param oyente Recibe los eventos.
+     * @return Acción que cancela la suscripción.
+     */
+    public <T> Runnable suscribir(Class<T> tipoEntidad, Executor ejecutor, Consumer<EventoCambio<T>> oyente) {
+        Suscriptor<T> suscriptor = new Suscriptor<>(ejecutor, oyente);
+        List<Suscriptor<?>> lista = suscriptores.computeIfAbsent(tipoEntidad, k -> new CopyOnWriteArrayList<>());
+        lista.add(suscriptor);
+        return () -> lista.remove(suscriptor);
+    }
+
+    /**
+     * Publica un cambio a todos los suscriptores de ese tipo de entidad.
+     * @param tipoEntidad Clase de la entidad que cambió.
+     * @param evento El cambio.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void publicar(Class<T> tipoEntidad, EventoCambio<T> evento) {
+        List<Suscriptor<?>> lista = suscriptores.get(tipoEntidad);
+        if (lista == null) {
+            return;
+        }
+        for (Suscriptor<?> suscriptor : lista) {
+            ((Suscriptor<T>) suscriptor).entregar(tipoEntidad, evento);
+        }
+    }
+
+    private static final class Suscriptor<T> {
+        private final Executor ejecutor;
+        private final Consumer<EventoCambio<T>> oyente;
+
+        Suscriptor(Executor ejecutor, Consumer<EventoCambio<T>> oyente) {
+            this.ejecutor = ejecutor;
+            this.oyente = oyente;
+        }
+
+        void entregar(Class<T> tipoEntidad, EventoCambio<T> evento) {
+            ejecutor.execute(() -> {
+                try {
+                    oyente.accept(evento);
+                } catch (RuntimeException e) {
+                    // Un suscriptor con error no debe impedir que los demás reciban el evento
+                    LOGGER.log(Level.WARNING, "Error al procesar " + evento + " de " + tipoEntidad.getSimpleName() + ": " + e.getMessage(), e);
+                }
+            });
+        }
+    }
+}
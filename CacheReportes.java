@@ -0,0 +1,233 @@
+package taichi.controller;
+
+import taichi.model.Alumno;
+import taichi.model.Pago;
+import taichi.model.PeriodoCuota;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Caché de los resultados de los reportes de pagos: guarda las filas ya calculadas de cada reporte,
+ * por tipo de reporte, mes y parámetros, para que volver a pedir el mismo reporte no recalcule nada.
+ *
+ * Cada resultado se descarta cuando cambia algo de lo que depende, según los avisos del {@link BusEventos}
+ * (que incluyen los cambios hechos desde otros puestos):
+ * - un pago nuevo o modificado descarta los reportes del mes de su fecha de pago (y del mes anterior, si se
+ *   le cambió la fecha); los reportes que dependen de todos los pagos se descartan con cualquier pago;
+ * - un cambio de período de cuota descarta los reportes que usan los períodos;
+ * - un cambio de alumno descarta los reportes que muestran alumnos;
+ * - la facturación y el job de recargos avisan cuando cambian las cuotas de un período
+ *   ({@link FacturacionController.CuotasPeriodo}), y eso descarta los reportes que suman recargos.
+ * Si de un pago no se conoce el mes anterior (se borró o se modificó uno que no se vio antes), se descartan
+ * todos los reportes que dependen de pagos.
+ */
+public class CacheReportes {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheReportes.class.getName());
+
+    private static final int MAXIMO_RESULTADOS = 64; // Se descartan los menos usados
+
+    /**
+     * Reportes que se guardan, con los datos de los que depende cada uno.
+     */
+    public enum TipoReporte {
+        ALUMNOS_PAGARON_MES(true, false, true, false),
+        ALUMNOS_NO_PAGARON_MES(true, false, true, false),
+        DEUDA_ANTERIOR(false, true, true, true),     // Los pagos de períodos anteriores pueden tener cualquier fecha
+        GANANCIAS_MES(true, false, false, false);
+
+        private final boolean pagosDelMes; // false: depende de los pagos de cualquier mes
+        private final boolean usaPeriodos;
+        private final boolean usaAlumnos;
+        private final boolean usaCuotas;   // Recargos guardados en las cuotas de los alumnos
+
+        TipoReporte(boolean pagosDelMes, boolean usaPeriodos, boolean usaAlumnos, boolean usaCuotas) {
+            this.pagosDelMes = pagosDelMes;
+            this.usaPeriodos = usaPeriodos;
+            this.usaAlumnos = usaAlumnos;
+            this.usaCuotas = usaCuotas;
+        }
+    }
+
+    /**
+     * Calcula las filas de un reporte cuando no están guardadas.
+     */
+    @FunctionalInterface
+    public interface Calculo {
+        List<Object[]> calcular() throws Exception;
+    }
+
+    /**
+     * Filas de un reporte, con el momento en que se calcularon y si salieron del caché.
+     */
+    public static final class Resultado {
+        private final List<Object[]> filas;
+        private final Instant calculadoEn;
+        private final boolean desdeCache;
+
+        private Resultado(List<Object[]> filas, Instant calculadoEn, boolean desdeCache) {
+            this.filas = filas;
+            this.calculadoEn = calculadoEn;
+            this.desdeCache = desdeCache;
+        }
+
+        public List<Object[]> getFilas() {
+            return filas;
+        }
+
+        public Instant getCalculadoEn() {
+            return calculadoEn;
+        }
+
+        public boolean isDesdeCache() {
+            return desdeCache;
+        }
+
+        /**
+         * @return Tiempo transcurrido desde que se calcularon las filas.
+         */
+        public Duration getAntiguedad() {
+            return Duration.between(calculadoEn, Instant.now());
+        }
+    }
+
+    private static final class Clave {
+        private final TipoReporte tipo;
+        private final YearMonth mes;
+        private final String parametros;
+
+        Clave(TipoReporte tipo, YearMonth mes, String parametros) {
+            this.tipo = tipo;
+            this.mes = mes;
+            this.parametros = parametros != null ? parametros : "";
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            if (!(otro instanceof Clave)) {
+                return false;
+            }
+            Clave clave = (Clave) otro;
+            return tipo == clave.tipo && mes.equals(clave.mes) && parametros.equals(clave.parametros);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tipo, mes, parametros);
+        }
+
+        @Override
+        public String toString() {
+            return tipo + " " + mes + (parametros.isEmpty() ? "" : " " + parametros);
+        }
+    }
+
+    // Orden de acceso, para descartar el menos usado al pasar el máximo
+    private final Map<Clave, Resultado> resultados = new LinkedHashMap<Clave, Resultado>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Clave, Resultado> masViejo) {
+            return size() > MAXIMO_RESULTADOS;
+        }
+    };
+
+    // Mes de la fecha de cada pago visto en un aviso, para saber qué mes descartar si después cambia o se borra
+    private final Map<Integer, YearMonth> mesPorPago = new ConcurrentHashMap<>();
+
+    // Cantidad de descartes: un cálculo que empezó antes de un descarte no se guarda (podría estar desactualizado)
+    private long descartes;
+
+    /**
+     * Se suscribe a los avisos de cambios. Se reciben en el mismo hilo que los publica, así el resultado
+     * ya está descartado cuando el controlador termina de guardar.
+     */
+    public void iniciar() {
+        BusEventos bus = BusEventos.getInstancia();
+        bus.suscribir(Pago.class, Runnable::run, this::aplicarCambioPago);
+        bus.suscribir(PeriodoCuota.class, Runnable::run, evento -> descartarSi(tipo -> tipo.usaPeriodos, null));
+        bus.suscribir(Alumno.class, Runnable::run, evento -> descartarSi(tipo -> tipo.usaAlumnos, null));
+        bus.suscribir(FacturacionController.CuotasPeriodo.class, Runnable::run, evento -> descartarSi(tipo -> tipo.usaCuotas, null));
+    }
+
+    /**
+     * Devuelve las filas guardadas del reporte, o las calcula y las guarda.
+     * @param tipo Tipo de reporte.
+     * @param mes Mes del reporte.
+     * @param parametros Otros parámetros que cambian el resultado (vacío o null si no hay).
+     * @param calculo Cálculo del reporte, si no está guardado.
+     * @throws Exception Si falla el cálculo (en ese caso no se guarda nada).
+     */
+    public Resultado obtener(TipoReporte tipo, YearMonth mes, String parametros, Calculo calculo) throws Exception {
+        Clave clave = new Clave(tipo, mes, parametros);
+        long descartesAlEmpezar;
+        synchronized (this) {
+            Resultado guardado = resultados.get(clave);
+            if (guardado != null) {
+                return new Resultado(guardado.filas, guardado.calculadoEn, true);
+            }
+            descartesAlEmpezar = descartes;
+        }
+        Instant inicio = Instant.now();
+        List<Object[]> filas = Collections.unmodifiableList(new ArrayList<>(calculo.calcular()));
+        Resultado calculado = new Resultado(filas, inicio, false);
+        synchronized (this) {
+            if (descartes == descartesAlEmpezar) {
+                resultados.put(clave, calculado);
+            }
+        }
+        LOGGER.fine(() -> "Reporte " + clave + " calculado en " + Duration.between(inicio, Instant.now()).toMillis() + " ms.");
+        return calculado;
+    }
+
+    /**
+     * Descarta el resultado guardado de un reporte (para recalcularlo a pedido del usuario).
+     */
+    public synchronized void descartar(TipoReporte tipo, YearMonth mes, String parametros) {
+        if (resultados.remove(new Clave(tipo, mes, parametros)) != null) {
+            descartes++;
+        }
+    }
+
+    private void aplicarCambioPago(EventoCambio<Pago> evento) {
+        Pago pago = evento.getEntidad();
+        YearMonth mesNuevo = pago != null && pago.getFechaPago() != null ? YearMonth.from(pago.getFechaPago()) : null;
+        YearMonth mesAnterior = mesNuevo != null ? mesPorPago.put(evento.getId(), mesNuevo) : mesPorPago.remove(evento.getId());
+
+        if (evento.getTipo() != EventoCambio.Tipo.CREADO && mesAnterior == null) {
+            // No se sabe en qué mes estaba antes: se descartan todos los reportes que dependen de pagos
+            descartarSi(tipo -> true, null);
+            return;
+        }
+        descartarSi(tipo -> !tipo.pagosDelMes, null);
+        if (mesNuevo != null) {
+            descartarSi(tipo -> tipo.pagosDelMes, mesNuevo);
+        }
+        if (mesAnterior != null && !mesAnterior.equals(mesNuevo)) {
+            descartarSi(tipo -> tipo.pagosDelMes, mesAnterior);
+        }
+    }
+
+    // Descarta los resultados de los tipos indicados (de un mes, o de todos si mes es null)
+    private synchronized void descartarSi(Predicate<TipoReporte> tipos, YearMonth mes) {
+        descartes++;
+        for (Iterator<Clave> it = resultados.keySet().iterator(); it.hasNext(); ) {
+            Clave clave = it.next();
+            if (tipos.test(clave.tipo) && (mes == null || mes.equals(clave.mes))) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package taichi.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del registro de cambios (tabla cambios_registro): qué entidad cambió, cómo y desde qué puesto.
+ */
+public class CambioRegistrado {
+
+    private long idCambio;
+    private String entidad;
+    private int idEntidad;
+    private String operacion;
+    private String origen;
+    private LocalDateTime fecha;
+
+    public CambioRegistrado(long idCambio, String entidad, int idEntidad, String operacion, String origen, LocalDateTime fecha) {
+        this.idCambio = idCambio;
+        this.entidad = entidad;
+        this.idEntidad = idEntidad;
+        this.operacion = operacion;
+        this.origen = origen;
+        this.fecha = fecha;
+    }
+
+    public long getIdCambio() {
+        return idCambio;
+    }
+
+    public String getEntidad() {
+        return entidad;
+    }
+
+    public int getIdEntidad() {
+        return idEntidad;
+    }
+
+    public String getOperacion() {
+        return operacion;
+    }
+
+    public String getOrigen() {
+        return origen;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    @Override
+    public String toString() {
+        return "CambioRegistrado{" +
+               "idCambio=" + idCambio +
+               ", entidad='" + entidad + '\'' +
+               ", idEntidad=" + idEntidad +
+               ", operacion='" + operacion + '\'' +
+               ", origen='" + origen + '\'' +
+               ", fecha=" + fecha +
+               '}';
+    }
+}
@@ -10,6 +10,10 @@ public class Clase {
     private String horario;              // horario (ej. "Lunes y Miércoles 18:00-19:30")
     private int cupoMaximo;              // cupo_maximo
     private boolean activa;              // activa (para saber si la clase está actualmente en curso)
+    private String diaSemana;            // dia_semana (ej. "Lunes")
+    private Integer idProfesor;          // id_profesor (puede ser null si la clase no tiene profesor asignado)
+    private int duracionMinutos = 60;    // duracion_minutos
+    private int version;                 // version (control de concurrencia optimista)
 
     // --- Constructores ---
 
@@ -78,6 +82,30 @@ public class Clase {
         this.cupoMaximo = cupoMaximo;
     }
 
+    public String getDiaSemana() {
+        return diaSemana;
+    }
+
+    public void setDiaSemana(String diaSemana) {
+        this.diaSemana = diaSemana;
+    }
+
+    public Integer getIdProfesor() {
+        return idProfesor;
+    }
+
+    public void setIdProfesor(Integer idProfesor) {
+        this.idProfesor = idProfesor;
+    }
+
+    public int getDuracionMinutos() {
+        return duracionMinutos;
+    }
+
+    public void setDuracionMinutos(int duracionMinutos) {
+        this.duracionMinutos = duracionMinutos;
+    }
+
     public boolean isActiva() {
         return activa;
     }
@@ -86,6 +114,14 @@ public class Clase {
         this.activa = activa;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Clase{" +
@@ -95,6 +131,9 @@ public class Clase {
                ", horario='" + horario + '\'' +
                ", cupoMaximo=" + cupoMaximo +
                ", activa=" + activa +
+               ", diaSemana='" + diaSemana + '\'' +
+               ", idProfesor=" + idProfesor +
+               ", duracionMinutos=" + duracionMinutos +
                '}';
     }
 }
\ No newline at end of file
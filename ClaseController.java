@@ -1,20 +1,56 @@
 package taichi.controller;
 import taichi.model.Clase;
+import taichi.model.FranjaHoraria;
 import taichi.dao.ClaseDAO;
+import taichi.dao.ConflictoVersionException;
+import taichi.util.HorarioSemanal;
 import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
 import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
 
 public class ClaseController {
 
     private ClaseDAO claseDAO;
+    private ArranqueEnCaliente arranqueEnCaliente; // null: los listados siempre se piden a la BD
     private static final Logger LOGGER = Logger.getLogger(ClaseController.class.getName());
 
+    // Horas "HH:mm" dentro del texto del horario (ej. "18:00" o "18:00-19:30")
+    private static final Pattern HORA = Pattern.compile("(\\d{1,2}):(\\d{2})");
+
+    // Horario semanal en memoria; se carga desde la BD en el primer uso y luego se mantiene con cada cambio
+    private final HorarioSemanal horarioSemanal = new HorarioSemanal();
+    private boolean horarioCargado = false;
+
     public ClaseController() {
-        this.claseDAO = new ClaseDAO();
+        this(new ClaseDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public ClaseController(ClaseDAO claseDAO) {
+        this.claseDAO = claseDAO;
+    }
+
+    /**
+     * Mientras no se concilie la copia de datos de referencia del inicio (ver {@link ArranqueEnCaliente}),
+     * el listado completo de clases sale de ella; las diferencias llegan después por el {@link BusEventos}.
+     */
+    public void setArranqueEnCaliente(ArranqueEnCaliente arranqueEnCaliente) {
+        this.arranqueEnCaliente = arranqueEnCaliente;
     }
 
     /**
@@ -30,6 +66,20 @@ public class ClaseController {
      */
     public Clase registrarNuevaClase(String nombreClase, String descripcion, String horario, 
                                      int cupoMaximo, boolean activa) throws Exception {
+        return registrarNuevaClase(nombreClase, descripcion, horario, cupoMaximo, activa, null, null, 60);
+    }
+
+    /**
+     * Registra una nueva clase indicando día, profesor y duración.
+     * Si la clase tiene profesor, se rechaza cuando se superpone con otra clase activa del mismo profesor.
+     * @param diaSemana Día de la semana (ej. "Lunes"), o null.
+     * @param idProfesor ID del profesor a cargo, o null.
+     * @param duracionMinutos Duración de la clase en minutos (se ignora si el horario ya indica la hora de fin).
+     * @return El objeto Clase recién creado y con su ID asignado.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public Clase registrarNuevaClase(String nombreClase, String descripcion, String horario, int cupoMaximo,
+                                     boolean activa, String diaSemana, Integer idProfesor, int duracionMinutos) throws Exception {
         
         // --- 1. Validaciones de entrada ---
         if (InputValidator.isNullOrEmpty(nombreClase) || InputValidator.isNullOrEmpty(horario)) {
@@ -41,12 +91,21 @@ public class ClaseController {
 
         // --- 2. Crear el objeto Clase ---
         Clase nuevaClase = new Clase(nombreClase, descripcion, horario, cupoMaximo, activa);
+        nuevaClase.setDiaSemana(diaSemana);
+        nuevaClase.setIdProfesor(idProfesor);
+        nuevaClase.setDuracionMinutos(duracionMinutos);
+        validarHorario(nuevaClase);
+        if (activa) {
+            verificarSuperposicionProfesor(nuevaClase);
+        }
 
         // --- 3. Llamar al DAO para insertar en la BD ---
         try {
             int idGenerado = claseDAO.insertar(nuevaClase);
             if (idGenerado != -1) {
                 nuevaClase.setIdClase(idGenerado);
+                actualizarHorarioSemanal(nuevaClase);
+                BusEventos.getInstancia().publicar(Clase.class, EventoCambio.creado(idGenerado, nuevaClase));
                 return nuevaClase;
             } else {
                 throw new Exception("No se pudo insertar la clase en la base de datos.");
@@ -81,6 +140,10 @@ public class ClaseController {
      * @throws Exception Si ocurre un error de base de datos.
      */
     public List<Clase> obtenerTodasLasClases() throws Exception {
+        List<Clase> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getClases() : null;
+        if (copiaInicial != null) {
+            return copiaInicial;
+        }
         try {
             // Actualmente el DAO trae todas. Aquí se podría filtrar por 'activa' si fuese necesario,
             // o crear un método específico en el DAO para 'obtenerClasesActivas'.
@@ -91,10 +154,23 @@ public class ClaseController {
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodasLasClases()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<Clase>> obtenerTodasLasClasesAsync() {
+        List<Clase> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getClases() : null;
+        if (copiaInicial != null) {
+            return CompletableFuture.completedFuture(copiaInicial); // Sin esperar a la BD
+        }
+        return Asincrono.ejecutar(() -> obtenerTodasLasClases());
+    }
+
     /**
      * Actualiza la información de una clase existente.
      * @param clase El objeto Clase con la información actualizada.
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarInformacionClase(Clase clase) throws Exception {
@@ -111,10 +187,22 @@ public class ClaseController {
         if (clase.getCupoMaximo() <= 0) {
             throw new IllegalArgumentException("El cupo máximo debe ser un número positivo.");
         }
+        validarHorario(clase);
+        if (clase.isActiva()) {
+            verificarSuperposicionProfesor(clase);
+        }
 
         // --- 2. Llamar al DAO para actualizar en la BD ---
         try {
-            return claseDAO.actualizar(clase);
+            boolean exito = claseDAO.actualizar(clase);
+            if (exito) {
+                actualizarHorarioSemanal(clase);
+                BusEventos.getInstancia().publicar(Clase.class, EventoCambio.actualizado(clase.getIdClase(), clase));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar clase con ID " + clase.getIdClase() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar clase: " + e.getMessage());
@@ -137,11 +225,20 @@ public class ClaseController {
                 throw new Exception("Clase no encontrada con ID: " + idClase);
             }
             if (clase.isActiva()) {
-                System.out.println("La clase con ID " + idClase + " ya está activa.");
+                LOGGER.fine(() -> "La clase con ID " + idClase + " ya está activa.");
                 return true; 
             }
             clase.setActiva(true); 
-            return claseDAO.actualizar(clase);
+            verificarSuperposicionProfesor(clase);
+            boolean exito = claseDAO.actualizar(clase);
+            if (exito) {
+                actualizarHorarioSemanal(clase);
+                BusEventos.getInstancia().publicar(Clase.class, EventoCambio.actualizado(clase.getIdClase(), clase));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al activar la clase con ID " + idClase + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al activar clase: " + e.getMessage());
@@ -164,14 +261,201 @@ public class ClaseController {
                 throw new Exception("Clase no encontrada con ID: " + idClase);
             }
             if (!clase.isActiva()) {
-                System.out.println("La clase con ID " + idClase + " ya está inactiva.");
+                LOGGER.fine(() -> "La clase con ID " + idClase + " ya está inactiva.");
                 return true; 
             }
             clase.setActiva(false); 
-            return claseDAO.actualizar(clase);
+            boolean exito = claseDAO.actualizar(clase);
+            if (exito) {
+                actualizarHorarioSemanal(clase);
+                BusEventos.getInstancia().publicar(Clase.class, EventoCambio.actualizado(clase.getIdClase(), clase));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al inactivar la clase con ID " + idClase + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al inactivar clase: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // --- Horario semanal ---
+
+    /**
+     * Obtiene las clases que se están dictando en este momento.
+     * @return Lista de franjas en curso, ordenadas por hora de inicio.
+     * @throws Exception Si ocurre un error de base de datos al cargar el horario.
+     */
+    public List<FranjaHoraria> obtenerClasesEnCurso() throws Exception {
+        return obtenerHorarioSemanal().obtenerEnCurso(LocalDateTime.now());
+    }
+
+    /**
+     * Obtiene la próxima clase que comienza a partir de este momento.
+     * @return La próxima franja, o null si no hay clases activas.
+     * @throws Exception Si ocurre un error de base de datos al cargar el horario.
+     */
+    public FranjaHoraria obtenerProximaClase() throws Exception {
+        return obtenerHorarioSemanal().obtenerProxima(LocalDateTime.now());
+    }
+
+    /**
+     * Obtiene las clases activas de un día, ordenadas por hora de inicio.
+     * @param dia Día de la semana.
+     * @return Lista de franjas del día.
+     * @throws Exception Si ocurre un error de base de datos al cargar el horario.
+     */
+    public List<FranjaHoraria> obtenerClasesDelDia(DayOfWeek dia) throws Exception {
+        if (dia == null) {
+            throw new IllegalArgumentException("El día de la semana es obligatorio.");
+        }
+        return obtenerHorarioSemanal().obtenerClasesDelDia(dia);
+    }
+
+    /**
+     * Versión asíncrona de {@link #obtenerClasesDelDia(DayOfWeek)}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<FranjaHoraria>> obtenerClasesDelDiaAsync(DayOfWeek dia) {
+        return Asincrono.ejecutar(() -> obtenerClasesDelDia(dia));
+    }
+
+    /**
+     * Obtiene la semana de clases de un profesor, ordenada por día y hora.
+     * @param idProfesor ID del profesor.
+     * @return Lista de franjas del profesor.
+     * @throws Exception Si ocurre un error de base de datos al cargar el horario.
+     */
+    public List<FranjaHoraria> obtenerSemanaProfesor(int idProfesor) throws Exception {
+        if (!InputValidator.isPositive(idProfesor)) {
+            throw new IllegalArgumentException("El ID del profesor debe ser un número positivo.");
+        }
+        return obtenerHorarioSemanal().obtenerSemanaProfesor(idProfesor);
+    }
+
+    /**
+     * Aplica un cambio hecho desde otro puesto (ver {@link SincronizadorCambios}): relee la clase de la BD,
+     * actualiza el horario semanal y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idClase ID de la clase modificada.
+     * @param tipo Tipo de cambio registrado.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public void aplicarCambioExterno(int idClase, EventoCambio.Tipo tipo) throws Exception {
+        Clase clase;
+        try {
+            clase = claseDAO.obtenerPorId(idClase);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al releer la clase con ID " + idClase + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al sincronizar clase: " + e.getMessage());
+        }
+        reflejarCambioExterno(idClase, clase, tipo);
+    }
+
+    /**
+     * Refleja un cambio externo ya leído de la BD (ej. al conciliar la copia local del inicio, ver
+     * {@link ArranqueEnCaliente}): actualiza el horario semanal y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idClase ID del registro cambiado.
+     * @param clase Su estado actual, o null si ya no existe.
+     * @param tipo Tipo de cambio.
+     */
+    public void reflejarCambioExterno(int idClase, Clase clase, EventoCambio.Tipo tipo) {
+        if (clase == null) { // Se eliminó (quizás después del cambio anotado)
+            quitarDelHorarioSemanal(idClase);
+            BusEventos.getInstancia().publicar(Clase.class, EventoCambio.eliminado(idClase));
+        } else {
+            actualizarHorarioSemanal(clase);
+            BusEventos.getInstancia().publicar(Clase.class, tipo == EventoCambio.Tipo.CREADO
+                ? EventoCambio.creado(idClase, clase) : EventoCambio.actualizado(idClase, clase));
+        }
+    }
+
+    // Devuelve el horario semanal, cargándolo desde la BD la primera vez
+    private synchronized HorarioSemanal obtenerHorarioSemanal() throws Exception {
+        if (!horarioCargado) {
+            try {
+                horarioSemanal.cargar(claseDAO.obtenerFranjasHorarias());
+                horarioCargado = true;
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error al cargar el horario semanal de la BD: " + e.getMessage(), e);
+                throw new Exception("Error al cargar el horario semanal: " + e.getMessage());
+            }
+        }
+        return horarioSemanal;
+    }
+
+    // Valida el día y la duración de la clase (ambos opcionales en el formulario)
+    private void validarHorario(Clase clase) {
+        if (clase.getDiaSemana() != null && HorarioSemanal.parsearDia(clase.getDiaSemana()) == null) {
+            throw new IllegalArgumentException("Día de la semana no reconocido: " + clase.getDiaSemana());
+        }
+        if (clase.getDuracionMinutos() <= 0) {
+            throw new IllegalArgumentException("La duración de la clase debe ser un número positivo de minutos.");
+        }
+    }
+
+    /**
+     * Rechaza la clase si su profesor ya tiene otra clase activa que se superpone el mismo día.
+     * Si la clase no tiene profesor, día u hora reconocibles, no hay nada que controlar.
+     */
+    private void verificarSuperposicionProfesor(Clase clase) throws Exception {
+        FranjaHoraria franja = construirFranja(clase);
+        if (franja == null || franja.getIdProfesor() == null) {
+            return;
+        }
+        FranjaHoraria conflicto = obtenerHorarioSemanal().buscarSuperposicion(
+            franja.getIdProfesor(), franja.getDia(), franja.getInicio(), franja.getFin(), clase.getIdClase());
+        if (conflicto != null) {
+            throw new IllegalArgumentException("El profesor ya dicta la clase '" + conflicto.getNombreClase() + "' el " +
+                HorarioSemanal.nombreDia(conflicto.getDia()) + " de " + conflicto.getInicio() + " a " + conflicto.getFin() + ".");
+        }
+    }
+
+    // Refleja en el horario en memoria el estado ya guardado de la clase
+    private void actualizarHorarioSemanal(Clase clase) {
+        synchronized (this) {
+            if (!horarioCargado) {
+                return; // Se cargará completo desde la BD en el primer uso
+            }
+        }
+        FranjaHoraria franja = clase.isActiva() ? construirFranja(clase) : null;
+        if (franja != null) {
+            horarioSemanal.agregar(franja);
+        } else {
+            horarioSemanal.quitar(clase.getIdClase());
+        }
+    }
+
+    // Quita del horario en memoria una clase que ya no existe en la BD
+    private synchronized void quitarDelHorarioSemanal(int idClase) {
+        if (horarioCargado) {
+            horarioSemanal.quitar(idClase);
+        }
+    }
+
+    /**
+     * Arma la franja horaria de una clase a partir de su día y su horario.
+     * El horario puede indicar solo la hora de inicio ("18:00") o inicio y fin ("18:00-19:30");
+     * si no indica fin, se usa la duración de la clase.
+     * @return La franja, o null si falta el día o no hay una hora reconocible.
+     */
+    private FranjaHoraria construirFranja(Clase clase) {
+        DayOfWeek dia = HorarioSemanal.parsearDia(clase.getDiaSemana());
+        if (dia == null || clase.getHorario() == null) {
+            return null;
+        }
+        Matcher m = HORA.matcher(clase.getHorario());
+        if (!m.find()) {
+            return null;
+        }
+        try {
+            LocalTime inicio = LocalTime.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+            LocalTime fin = m.find()
+                ? LocalTime.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)))
+                : inicio.plusMinutes(clase.getDuracionMinutos());
+            return new FranjaHoraria(clase.getIdClase(), clase.getNombreClase(), dia, inicio, fin, clase.getIdProfesor());
+        } catch (DateTimeException e) {
+            return null; // Hora fuera de rango (ej. "25:00")
+        }
+    }
+}
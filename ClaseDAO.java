@@ -1,22 +1,39 @@
 package taichi.dao;
 
 import taichi.model.Clase; // Importamos la clase Clase
+import taichi.model.FranjaHoraria;
+import taichi.util.HorarioSemanal;
+import taichi.util.EventoCambio;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement; // Necesario para Statement.RETURN_GENERATED_KEYS
 import java.sql.Time; // Necesario para java.sql.Time
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
 import java.time.LocalTime; // Necesario para LocalTime (si tu modelo Clase usa LocalTime para el horario)
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
 
 // Implementamos la interfaz IDAO, especificando que trabajamos con Clase y su ID es Integer
 public class ClaseDAO implements IDAO<Clase, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(ClaseDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_clase", "nombre_clase", "horario", "dia_semana", "id_profesor", "capacidad_maxima", "activa", "version",
+        "duracion_minutos"
+    };
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Clase crear(Clase clase) throws SQLException {
-        String sql = "INSERT INTO clases (nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa) VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO clases (nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa, duracion_minutos) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -44,6 +61,7 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
             
             pstmt.setInt(5, clase.getCapacidadMaxima());
             pstmt.setBoolean(6, clase.isActiva());
+            pstmt.setInt(7, clase.getDuracionMinutos());
 
             int filasAfectadas = pstmt.executeUpdate();
 
@@ -54,7 +72,8 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     clase.setIdClase(rs.getInt(1)); // Asignar el ID generado al objeto Clase
-                    System.out.println("Clase insertada con ID: " + clase.getIdClase());
+                    RegistroCambiosDAO.registrar(conn, Clase.class, rs.getInt(1), EventoCambio.Tipo.CREADO);
+                    LOGGER.fine(() -> "Clase insertada con ID: " + clase.getIdClase());
                 } else {
                     throw new SQLException("La creación de la clase falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -67,7 +86,7 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Clase obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
-        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa FROM clases WHERE id_clase = ?";
+        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa, version, duracion_minutos FROM clases WHERE id_clase = ?";
         Clase clase = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -76,9 +95,7 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
             pstmt.setInt(1, id);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    clase = mapResultSetToClase(rs); // Usamos el método auxiliar de mapeo
-                }
+                clase = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToClase);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener la clase con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -89,24 +106,67 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public List<Clase> obtenerTodos() throws SQLException {
         List<Clase> clases = new ArrayList<>();
-        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa FROM clases";
+        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa, version, duracion_minutos FROM clases";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                clases.add(mapResultSetToClase(rs)); // Usamos el método auxiliar de mapeo
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToClase, clases);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todas las clases de la base de datos: " + e.getMessage(), e);
         }
         return clases;
     }
 
+    /**
+     * Obtiene las clases creados o modificados desde un momento dado (según fecha_actualizacion),
+     * para poner al día una copia local sin volver a traer la tabla entera.
+     * @param desde Momento de la copia, en la hora del servidor (ver {@link DatabaseConnection#obtenerHoraServidor()}).
+     * @return Lista de las clases cambiados; puede repetir alguno ya copiado si se modificó en ese mismo segundo.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<Clase> obtenerActualizadosDesde(LocalDateTime desde) throws SQLException {
+        List<Clase> clases = new ArrayList<>();
+        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa, version, duracion_minutos FROM clases WHERE fecha_actualizacion >= ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToClase, clases);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener las clases actualizados desde " + desde + ": " + e.getMessage(), e);
+        }
+        return clases;
+    }
+
+    /**
+     * @return Los IDs de todos las clases (para saber cuáles de una copia local se borraron).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Set<Integer> obtenerIds() throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        String sql = "SELECT id_clase FROM clases";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los IDs de las clases: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean actualizar(Clase clase) throws SQLException {
-        String sql = "UPDATE clases SET nombre_clase = ?, horario = ?, dia_semana = ?, id_profesor = ?, capacidad_maxima = ?, activa = ? WHERE id_clase = ?";
+        String sql = "UPDATE clases SET nombre_clase = ?, horario = ?, dia_semana = ?, id_profesor = ?, capacidad_maxima = ?, activa = ?, duracion_minutos = ?, version = version + 1 WHERE id_clase = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -130,13 +190,27 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
             }
             pstmt.setInt(5, clase.getCapacidadMaxima());
             pstmt.setBoolean(6, clase.isActiva());
-            pstmt.setInt(7, clase.getIdClase());
+            pstmt.setInt(7, clase.getDuracionMinutos());
+            pstmt.setInt(8, clase.getIdClase());
+            pstmt.setInt(9, clase.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Clase.class, clase.getIdClase(), EventoCambio.Tipo.ACTUALIZADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al actualizar la clase con ID " + clase.getIdClase() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            Clase actual = obtenerPorId(clase.getIdClase());
+            if (actual != null) {
+                throw new ConflictoVersionException("clase", clase.getIdClase(), actual);
+            }
+            return false;
+        }
+        clase.setVersion(clase.getVersion() + 1);
+        return true;
     }
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
@@ -150,6 +224,9 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
             pstmt.setInt(1, id);
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Clase.class, id, EventoCambio.Tipo.ELIMINADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al eliminar la clase con ID " + id + ": " + e.getMessage(), e);
         }
@@ -166,7 +243,7 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
      */
     public List<Clase> obtenerClasesPorDia(String diaSemana) throws SQLException {
         List<Clase> clasesPorDia = new ArrayList<>();
-        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa FROM clases WHERE dia_semana = ?";
+        String sql = "SELECT id_clase, nombre_clase, horario, dia_semana, id_profesor, capacidad_maxima, activa, version, duracion_minutos FROM clases WHERE dia_semana = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -174,9 +251,7 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
             pstmt.setString(1, diaSemana);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    clasesPorDia.add(mapResultSetToClase(rs)); // Usamos el método auxiliar de mapeo
-                }
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToClase, clasesPorDia);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener clases por día '" + diaSemana + "': " + e.getMessage(), e);
@@ -184,25 +259,96 @@ public class ClaseDAO implements IDAO<Clase, Integer> {
         return clasesPorDia;
     }
 
+    /**
+     * Obtiene las franjas horarias de todas las clases activas, para armar el horario semanal en memoria.
+     * Las clases cuyo 'dia_semana' no se reconoce se omiten.
+     * @return Lista de franjas horarias.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<FranjaHoraria> obtenerFranjasHorarias() throws SQLException {
+        List<FranjaHoraria> franjas = new ArrayList<>();
+        String sql = "SELECT id_clase, nombre_clase, dia_semana, horario, duracion_minutos, id_profesor FROM clases WHERE activa = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                FranjaHoraria franja = mapResultSetToFranja(rs);
+                if (franja != null) {
+                    franjas.add(franja);
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener las franjas horarias de las clases: " + e.getMessage(), e);
+        }
+        return franjas;
+    }
+
+    /**
+     * Obtiene la franja horaria de una clase activa.
+     * @param idClase El ID de la clase.
+     * @return La franja horaria, o null si la clase no existe, está inactiva o su día no se reconoce.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public FranjaHoraria obtenerFranjaHoraria(int idClase) throws SQLException {
+        String sql = "SELECT id_clase, nombre_clase, dia_semana, horario, duracion_minutos, id_profesor FROM clases WHERE id_clase = ? AND activa = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, idClase);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToFranja(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la franja horaria de la clase " + idClase + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Convierte la fila actual (columnas en el orden del SELECT de franjas) en una FranjaHoraria
+    private FranjaHoraria mapResultSetToFranja(ResultSet rs) throws SQLException {
+        int idClase = rs.getInt(1);
+        DayOfWeek dia = HorarioSemanal.parsearDia(rs.getString(3));
+        LocalTime inicio = ResultSetMapper.getLocalTime(rs, 4);
+        if (dia == null || inicio == null) {
+            LOGGER.fine(() -> "Clase " + idClase + " omitida del horario: día u hora no reconocidos.");
+            return null;
+        }
+        int idProfesor = rs.getInt(6);
+        return new FranjaHoraria(
+            idClase,
+            rs.getString(2),
+            dia,
+            inicio,
+            inicio.plusMinutes(rs.getInt(5)),
+            rs.wasNull() ? null : idProfesor
+        );
+    }
+
     /**
      * Método auxiliar para mapear un ResultSet a un objeto Clase.
      * Centraliza la lógica de conversión de datos de la base de datos a objetos Java.
      * @param rs El ResultSet que contiene los datos de la clase.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto Clase con los datos del ResultSet.
      * @throws SQLException Si ocurre un error al leer del ResultSet.
      */
-    private Clase mapResultSetToClase(ResultSet rs) throws SQLException {
-        Time dbTime = rs.getTime("horario");
-        Object horario = (dbTime != null) ? dbTime.toLocalTime() : null; // Convierte a LocalTime
-
-        return new Clase(
-            rs.getInt("id_clase"),
-            rs.getString("nombre_clase"),
-            horario, // Mapeado a LocalTime o String según tu modelo Clase
-            rs.getString("dia_semana"),
-            rs.getInt("id_profesor"),
-            rs.getInt("capacidad_maxima"),
-            rs.getBoolean("activa")
+    private Clase mapResultSetToClase(ResultSet rs, int[] col) throws SQLException {
+        Object horario = ResultSetMapper.getLocalTime(rs, col[2]); // Mapeado a LocalTime según tu modelo Clase
+
+        Clase clase = new Clase(
+            rs.getInt(col[0]),                               // id_clase
+            rs.getString(col[1]),                            // nombre_clase
+            horario,                                         // horario
+            rs.getString(col[3]),                            // dia_semana
+            rs.getInt(col[4]),                               // id_profesor
+            rs.getInt(col[5]),                               // capacidad_maxima
+            rs.getBoolean(col[6])                            // activa
         );
+        clase.setVersion(rs.getInt(col[7]));
+        clase.setDuracionMinutos(rs.getInt(col[8]));
+        return clase;
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package taichi.gui;
 
 import taichi.controller.ClaseController;
+import taichi.dao.ConflictoVersionException;
 import taichi.model.Clase;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -28,6 +31,7 @@ public class ClasePanel extends JPanel {
 
     private JTable claseTable;
     private DefaultTableModel tableModel;
+    private int versionEnEdicion; // Versión del registro cargado en el formulario
 
     public ClasePanel(ClaseController claseController) {
         this.claseController = claseController;
@@ -88,7 +92,7 @@ public class ClasePanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         // --- Configuración de la Tabla ---
-        String[] columnNames = {"ID", "Nombre Clase", "Descripción", "Horario", "Cupo Máximo", "Activa"};
+        String[] columnNames = {"ID", "Nombre Clase", "Descripción", "Horario", "Cupo Máximo", "Activa", DialogoConflicto.COLUMNA_VERSION};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -96,6 +100,7 @@ public class ClasePanel extends JPanel {
             }
         };
         claseTable = new JTable(tableModel);
+        DialogoConflicto.ocultarColumnaVersion(claseTable);
         claseTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(claseTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -115,6 +120,10 @@ public class ClasePanel extends JPanel {
 
         // Cargar clases al iniciar el panel
         cargarClases();
+
+        // Cada alta, modificación o baja confirmada actualiza solo su fila, sin volver a consultar la tabla
+        BusEventos.getInstancia().suscribir(Clase.class, Asincrono.EN_INTERFAZ,
+            evento -> ActualizadorTabla.aplicar(tableModel, evento, this::filaClase));
     }
 
     private void guardarClase() {
@@ -136,7 +145,6 @@ public class ClasePanel extends JPanel {
 
             JOptionPane.showMessageDialog(this, "Clase guardada con éxito. ID: " + nuevaClase.getIdClase(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
             limpiarCampos();
-            cargarClases();
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "El Cupo Máximo debe ser un número entero válido.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException e) {
@@ -170,11 +178,22 @@ public class ClasePanel extends JPanel {
                     chkActiva.isSelected()
             );
 
-            boolean exito = claseController.actualizarInformacionClase(claseActualizar);
+            // Día, profesor y duración no se editan en este formulario: se conservan los guardados
+            Clase guardada = claseController.obtenerClasePorId(idClase);
+            if (guardada != null) {
+                claseActualizar.setDiaSemana(guardada.getDiaSemana());
+                claseActualizar.setIdProfesor(guardada.getIdProfesor());
+                claseActualizar.setDuracionMinutos(guardada.getDuracionMinutos());
+            }
+            claseActualizar.setVersion(versionEnEdicion);
+
+            Boolean exito = guardarCambios(claseActualizar);
+            if (exito == null) {
+                return; // Conflicto sin guardar: el usuario sigue en el formulario
+            }
             if (exito) {
                 JOptionPane.showMessageDialog(this, "Clase actualizada con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 limpiarCampos();
-                cargarClases();
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo actualizar la clase.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -202,7 +221,6 @@ public class ClasePanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Clase inactivada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarClases();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo inactivar la clase.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -229,7 +247,6 @@ public class ClasePanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Clase activada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarClases();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo activar la clase.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -257,14 +274,7 @@ public class ClasePanel extends JPanel {
         try {
             List<Clase> clases = claseController.obtenerTodasLasClases();
             for (Clase clase : clases) {
-                tableModel.addRow(new Object[]{
-                    clase.getIdClase(),
-                    clase.getNombreClase(),
-                    clase.getDescripcion(),
-                    clase.getHorario(),
-                    clase.getCupoMaximo(),
-                    clase.isActiva() ? "Sí" : "No"
-                });
+                tableModel.addRow(filaClase(clase));
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error al cargar clases: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -272,9 +282,42 @@ public class ClasePanel extends JPanel {
         }
     }
 
+    // Guarda los cambios del formulario; si otro usuario guardó el registro mientras tanto, muestra las diferencias y deja elegir
+    private Boolean guardarCambios(Clase clase) throws Exception {
+        try {
+            return claseController.actualizarInformacionClase(clase);
+        } catch (ConflictoVersionException e) {
+            Clase guardado = (Clase) e.getRegistroActual();
+            switch (DialogoConflicto.preguntar(this, tableModel, filaClase(clase), filaClase(guardado))) {
+                case SOBRESCRIBIR:
+                    clase.setVersion(guardado.getVersion());
+                    return guardarCambios(clase);
+                case USAR_GUARDADO:
+                    DialogoConflicto.seleccionarGuardado(claseTable, tableModel, guardado.getIdClase(), filaClase(guardado));
+                    mostrarClaseSeleccionada();
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private Object[] filaClase(Clase clase) {
+        return new Object[]{
+            clase.getIdClase(),
+            clase.getNombreClase(),
+            clase.getDescripcion(),
+            clase.getHorario(),
+            clase.getCupoMaximo(),
+            clase.isActiva() ? "Sí" : "No",
+            clase.getVersion()
+        };
+    }
+
     private void mostrarClaseSeleccionada() {
         int selectedRow = claseTable.getSelectedRow();
         if (selectedRow >= 0) {
+            versionEnEdicion = DialogoConflicto.versionDeFila(tableModel, selectedRow);
             txtIdClase.setText(tableModel.getValueAt(selectedRow, 0).toString());
             txtNombreClase.setText(tableModel.getValueAt(selectedRow, 1).toString());
             txtDescripcion.setText(tableModel.getValueAt(selectedRow, 2).toString());
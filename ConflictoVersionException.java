@@ -0,0 +1,32 @@
+package taichi.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Se lanza al actualizar un registro que otro usuario modificó después de que se leyó
+ * (control de concurrencia optimista con la columna version).
+ *
+ * Lleva el registro tal como está ahora en la base de datos, para que la pantalla pueda mostrar
+ * las diferencias y decidir si se sobrescribe o se descartan los cambios propios.
+ */
+public class ConflictoVersionException extends SQLException {
+
+    private final transient Object registroActual;
+
+    /**
+     * @param entidad Nombre de la entidad para el mensaje (ej. "alumno").
+     * @param id ID del registro.
+     * @param registroActual El registro leído de nuevo de la BD, con su versión actual.
+     */
+    public ConflictoVersionException(String entidad, int id, Object registroActual) {
+        super("El registro de " + entidad + " con ID " + id + " fue modificado por otro usuario después de cargarlo.");
+        this.registroActual = registroActual;
+    }
+
+    /**
+     * @return El registro tal como está ahora en la BD (del mismo tipo que el que se intentó guardar).
+     */
+    public Object getRegistroActual() {
+        return registroActual;
+    }
+}
@@ -0,0 +1,19 @@
+package taichi.dao;
+
+import java.io.IOException;
+
+/**
+ * Recibe, de a una, las filas de una consulta que se recorre sin cargarla entera en memoria
+ * (por ejemplo, para escribirlas directamente en un archivo de exportación).
+ *
+ * @param <T> Tipo de cada fila ya mapeada.
+ */
+@FunctionalInterface
+public interface ConsumidorFila<T> {
+
+    /**
+     * @param fila La fila recién leída. No se conserva: si se necesita después, el consumidor debe copiarla.
+     * @throws IOException Si ocurre un error al procesar la fila (ej. al escribir el archivo); corta el recorrido.
+     */
+    void aceptar(T fila) throws IOException;
+}
@@ -0,0 +1,152 @@
+package taichi.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de contención del control de concurrencia optimista, para correr a mano contra la BD configurada en
+ * {@link DatabaseConnection}: N hilos (cada uno con su conexión, como N puestos) modifican la misma fila durante
+ * unos segundos, de tres formas:
+ * - sin versión: leer y sobrescribir la fila entera (lo que se hacía antes; pierde actualizaciones);
+ * - optimista: "UPDATE ... SET version = version + 1 WHERE id = ? AND version = ?", reintentando si no afecta filas;
+ * - pesimista: "SELECT ... FOR UPDATE" y UPDATE en una transacción (los puestos se esperan entre sí).
+ * Informa commits y conflictos por segundo de cada forma, y cuántas actualizaciones se perdieron.
+ *
+ * Usa una tabla propia (prueba_contencion) que crea al empezar y borra al terminar.
+ * Uso: java taichi.dao.ContencionVersiones [hilos] [segundos por forma]
+ */
+public class ContencionVersiones {
+
+    private static final String SQL_LEER = "SELECT valor, version FROM prueba_contencion WHERE id = 1";
+    private static final String SQL_LEER_BLOQUEANDO = SQL_LEER + " FOR UPDATE";
+    private static final String SQL_SOBRESCRIBIR = "UPDATE prueba_contencion SET valor = ? WHERE id = 1";
+    private static final String SQL_ACTUALIZAR_VERSION =
+        "UPDATE prueba_contencion SET valor = ?, version = version + 1 WHERE id = 1 AND version = ?";
+
+    private enum Forma {
+        SIN_VERSION, OPTIMISTA, PESIMISTA
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS prueba_contencion (id INT PRIMARY KEY, valor INT NOT NULL, version INT NOT NULL)");
+        }
+        try {
+            System.out.println(hilos + " hilos, " + segundos + " s por forma");
+            for (Forma forma : Forma.values()) {
+                medir(forma, hilos, segundos);
+            }
+        } finally {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DROP TABLE prueba_contencion");
+            }
+        }
+    }
+
+    private static void medir(Forma forma, int hilos, int segundos) throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM prueba_contencion");
+            stmt.executeUpdate("INSERT INTO prueba_contencion (id, valor, version) VALUES (1, 0, 0)");
+        }
+
+        AtomicLong commits = new AtomicLong();
+        AtomicLong conflictos = new AtomicLong();
+        List<Exception> errores = new ArrayList<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        long[] limite = new long[1];
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            Thread hilo = new Thread(() -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    largada.await();
+                    while (System.nanoTime() < limite[0]) {
+                        if (incrementar(conn, forma)) {
+                            commits.incrementAndGet();
+                        } else {
+                            conflictos.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    synchronized (errores) {
+                        errores.add(e);
+                    }
+                }
+            });
+            hilo.start();
+            trabajadores.add(hilo);
+        }
+        limite[0] = System.nanoTime() + segundos * 1_000_000_000L;
+        largada.countDown();
+        for (Thread hilo : trabajadores) {
+            hilo.join();
+        }
+        if (!errores.isEmpty()) {
+            throw errores.get(0);
+        }
+
+        int valorFinal;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_LEER);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            valorFinal = rs.getInt(1);
+        }
+        System.out.printf("%-12s %8.0f commits/s %8.0f conflictos/s %8d actualizaciones perdidas%n", forma,
+            commits.get() / (double) segundos, conflictos.get() / (double) segundos, commits.get() - valorFinal);
+    }
+
+    // Suma 1 al valor de la fila; false si otro hilo la modificó entre la lectura y la escritura (solo OPTIMISTA)
+    private static boolean incrementar(Connection conn, Forma forma) throws SQLException {
+        if (forma == Forma.PESIMISTA) {
+            conn.setAutoCommit(false);
+            try {
+                int valor = leer(conn, SQL_LEER_BLOQUEANDO)[0];
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_SOBRESCRIBIR)) {
+                    pstmt.setInt(1, valor + 1);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        int[] leido = leer(conn, SQL_LEER);
+        if (forma == Forma.SIN_VERSION) {
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_SOBRESCRIBIR)) {
+                pstmt.setInt(1, leido[0] + 1);
+                pstmt.executeUpdate();
+            }
+            return true;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_ACTUALIZAR_VERSION)) {
+            pstmt.setInt(1, leido[0] + 1);
+            pstmt.setInt(2, leido[1]);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    private static int[] leer(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+}
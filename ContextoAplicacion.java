@@ -0,0 +1,325 @@
+package taichi.controller;
+
+import taichi.dao.AlmacenLocal;
+import taichi.dao.AlumnoDAO;
+import taichi.dao.ArchivoReferencia;
+import taichi.dao.AsistenciaDAO;
+import taichi.dao.ClaseDAO;
+import taichi.dao.DiarioPagos;
+import taichi.dao.DocumentoEstadoDAO;
+import taichi.dao.FacturacionDAO;
+import taichi.dao.HistorialTareasDAO;
+import taichi.dao.InscripcionClaseDAO;
+import taichi.dao.PagoDAO;
+import taichi.dao.PeriodoCuotaDAO;
+import taichi.dao.ProfesorDAO;
+import taichi.dao.RegistroCambiosDAO;
+import taichi.dao.UsuarioDAO;
+
+import java.nio.file.Paths;
+
+/**
+ * Contexto único de la aplicación: crea una sola instancia de cada DAO y de cada controlador
+ * y la comparte entre todas las ventanas y paneles.
+ *
+ * La escritura diferida de pagos se activa con la propiedad de sistema "taichi.pagos.diferidos"
+ * (ej. -Dtaichi.pagos.diferidos=true); el diario local se guarda en "taichi.pagos.diario"
+ * (por defecto, pagos-pendientes.diario en el directorio de trabajo); los pagos que la BD rechaza se pasan
+ * al mismo nombre terminado en ".rechazados".
+ *
+ * El modo sin conexión guarda su instantánea y su diario en el directorio "taichi.local.dir"
+ * (por defecto, datos-locales en el directorio de trabajo).
+ *
+ * La copia de datos de referencia para el inicio en caliente se guarda en "taichi.referencia.archivo"
+ * (por defecto, datos-referencia.bin en el directorio de trabajo).
+ *
+ * Así los cachés de los controladores (índice de búsqueda de alumnos, horario semanal, etc.) se cargan una vez
+ * y los ven todas las pantallas. Cada instancia se crea recién cuando alguien la pide por primera vez.
+ */
+public final class ContextoAplicacion {
+
+    private static final ContextoAplicacion INSTANCIA = new ContextoAplicacion();
+
+    private static final String DIARIO_PAGOS_POR_DEFECTO = "pagos-pendientes.diario";
+    private static final String DIRECTORIO_LOCAL_POR_DEFECTO = "datos-locales";
+    private static final String ARCHIVO_REFERENCIA_POR_DEFECTO = "datos-referencia.bin";
+
+    // DAOs
+    private AlumnoDAO alumnoDAO;
+    private AsistenciaDAO asistenciaDAO;
+    private ClaseDAO claseDAO;
+    private DocumentoEstadoDAO documentoEstadoDAO;
+    private FacturacionDAO facturacionDAO;
+    private HistorialTareasDAO historialTareasDAO;
+    private InscripcionClaseDAO inscripcionClaseDAO;
+    private PagoDAO pagoDAO;
+    private PeriodoCuotaDAO periodoCuotaDAO;
+    private ProfesorDAO profesorDAO;
+    private RegistroCambiosDAO registroCambiosDAO;
+    private UsuarioDAO usuarioDAO;
+
+    // Controladores
+    private AlumnoController alumnoController;
+    private ArranqueEnCaliente arranqueEnCaliente;
+    private AsistenciaController asistenciaController;
+    private CacheReportes cacheReportes;
+    private ClaseController claseController;
+    private DocumentoEstadoController documentoEstadoController;
+    private EscritorDiferidoPagos escritorDiferidoPagos;
+    private FacturacionController facturacionController;
+    private InscripcionController inscripcionController;
+    private ModoSinConexion modoSinConexion;
+    private PagoController pagoController;
+    private PeriodoCuotaController periodoCuotaController;
+    private ProfesorController profesorController;
+    private SincronizadorCambios sincronizadorCambios;
+    private TareasController tareasController;
+    private UsuarioController usuarioController;
+
+    private ContextoAplicacion() {
+    }
+
+    /**
+     * @return El contexto de la aplicación.
+     */
+    public static ContextoAplicacion getInstancia() {
+        return INSTANCIA;
+    }
+
+    // --- Controladores ---
+
+    public synchronized AlumnoController getAlumnoController() {
+        if (alumnoController == null) {
+            alumnoController = new AlumnoController(getAlumnoDAO(), getPeriodoCuotaDAO(), getFacturacionDAO());
+            alumnoController.setModoSinConexion(getModoSinConexion());
+        }
+        return alumnoController;
+    }
+
+    /**
+     * @return El inicio en caliente (hay que llamar a cargar() antes de pedir los listados, e iniciar() para conciliar).
+     */
+    public synchronized ArranqueEnCaliente getArranqueEnCaliente() {
+        if (arranqueEnCaliente == null) {
+            String archivo = System.getProperty("taichi.referencia.archivo", ARCHIVO_REFERENCIA_POR_DEFECTO);
+            arranqueEnCaliente = new ArranqueEnCaliente(new ArchivoReferencia(Paths.get(archivo)), getAlumnoDAO(),
+                getProfesorDAO(), getClaseDAO(), getPeriodoCuotaDAO(), getAlumnoController(), getProfesorController(),
+                getClaseController());
+            // Los listados completos salen de la copia hasta que termine la conciliación
+            getAlumnoController().setArranqueEnCaliente(arranqueEnCaliente);
+            getProfesorController().setArranqueEnCaliente(arranqueEnCaliente);
+            getClaseController().setArranqueEnCaliente(arranqueEnCaliente);
+            getPeriodoCuotaController().setArranqueEnCaliente(arranqueEnCaliente);
+        }
+        return arranqueEnCaliente;
+    }
+
+    public synchronized AsistenciaController getAsistenciaController() {
+        if (asistenciaController == null) {
+            asistenciaController = new AsistenciaController(getAsistenciaDAO());
+            asistenciaController.setModoSinConexion(getModoSinConexion());
+        }
+        return asistenciaController;
+    }
+
+    public synchronized ClaseController getClaseController() {
+        if (claseController == null) {
+            claseController = new ClaseController(getClaseDAO());
+        }
+        return claseController;
+    }
+
+    public synchronized DocumentoEstadoController getDocumentoEstadoController() {
+        if (documentoEstadoController == null) {
+            documentoEstadoController = new DocumentoEstadoController(getDocumentoEstadoDAO(), getAlumnoDAO());
+            documentoEstadoController.setModoSinConexion(getModoSinConexion());
+        }
+        return documentoEstadoController;
+    }
+
+    public synchronized FacturacionController getFacturacionController() {
+        if (facturacionController == null) {
+            facturacionController = new FacturacionController(getFacturacionDAO());
+        }
+        return facturacionController;
+    }
+
+    public synchronized InscripcionController getInscripcionController() {
+        if (inscripcionController == null) {
+            inscripcionController = new InscripcionController(getInscripcionClaseDAO());
+        }
+        return inscripcionController;
+    }
+
+    public synchronized PagoController getPagoController() {
+        if (pagoController == null) {
+            pagoController = new PagoController(getPagoDAO(), getAlumnoDAO(), getPeriodoCuotaDAO(), getFacturacionDAO());
+            pagoController.setModoSinConexion(getModoSinConexion());
+            if (Boolean.getBoolean("taichi.pagos.diferidos")) {
+                pagoController.setEscritorDiferido(getEscritorDiferidoPagos());
+            }
+        }
+        return pagoController;
+    }
+
+    private EscritorDiferidoPagos getEscritorDiferidoPagos() {
+        if (escritorDiferidoPagos == null) {
+            String archivo = System.getProperty("taichi.pagos.diario", DIARIO_PAGOS_POR_DEFECTO);
+            escritorDiferidoPagos = new EscritorDiferidoPagos(getPagoDAO(), new DiarioPagos(Paths.get(archivo)));
+        }
+        return escritorDiferidoPagos;
+    }
+
+    /**
+     * @return El modo sin conexión (hay que llamar a iniciar() para que revise la conexión y renueve la instantánea).
+     */
+    public synchronized ModoSinConexion getModoSinConexion() {
+        if (modoSinConexion == null) {
+            String directorio = System.getProperty("taichi.local.dir", DIRECTORIO_LOCAL_POR_DEFECTO);
+            modoSinConexion = new ModoSinConexion(new AlmacenLocal(Paths.get(directorio)), getAlumnoDAO(),
+                getPeriodoCuotaDAO(), getPagoDAO(), getAsistenciaDAO(), getDocumentoEstadoDAO());
+        }
+        return modoSinConexion;
+    }
+
+    public synchronized PeriodoCuotaController getPeriodoCuotaController() {
+        if (periodoCuotaController == null) {
+            periodoCuotaController = new PeriodoCuotaController(getPeriodoCuotaDAO());
+            periodoCuotaController.setModoSinConexion(getModoSinConexion());
+        }
+        return periodoCuotaController;
+    }
+
+    public synchronized ProfesorController getProfesorController() {
+        if (profesorController == null) {
+            profesorController = new ProfesorController(getProfesorDAO());
+        }
+        return profesorController;
+    }
+
+    /**
+     * @return El caché de resultados de los reportes de pagos, ya suscripto a los avisos de cambios.
+     */
+    public synchronized CacheReportes getCacheReportes() {
+        if (cacheReportes == null) {
+            cacheReportes = new CacheReportes();
+            cacheReportes.iniciar();
+        }
+        return cacheReportes;
+    }
+
+    /**
+     * @return El sincronizador de cambios entre puestos (hay que llamar a iniciar() para que empiece a consultar).
+     */
+    public synchronized SincronizadorCambios getSincronizadorCambios() {
+        if (sincronizadorCambios == null) {
+            sincronizadorCambios = new SincronizadorCambios(getRegistroCambiosDAO(), getAlumnoController(),
+                getProfesorController(), getClaseController(), getPagoController(), getDocumentoEstadoController(),
+                getPeriodoCuotaController());
+        }
+        return sincronizadorCambios;
+    }
+
+    /**
+     * @return El controlador de tareas en segundo plano (hay que llamar a iniciar() para que programe las tareas).
+     */
+    public synchronized TareasController getTareasController() {
+        if (tareasController == null) {
+            tareasController = new TareasController(getFacturacionController(), getHistorialTareasDAO());
+        }
+        return tareasController;
+    }
+
+    public synchronized UsuarioController getUsuarioController() {
+        if (usuarioController == null) {
+            usuarioController = new UsuarioController(getUsuarioDAO());
+        }
+        return usuarioController;
+    }
+
+    // --- DAOs ---
+
+    private AlumnoDAO getAlumnoDAO() {
+        if (alumnoDAO == null) {
+            alumnoDAO = new AlumnoDAO();
+        }
+        return alumnoDAO;
+    }
+
+    private AsistenciaDAO getAsistenciaDAO() {
+        if (asistenciaDAO == null) {
+            asistenciaDAO = new AsistenciaDAO();
+        }
+        return asistenciaDAO;
+    }
+
+    private ClaseDAO getClaseDAO() {
+        if (claseDAO == null) {
+            claseDAO = new ClaseDAO();
+        }
+        return claseDAO;
+    }
+
+    private DocumentoEstadoDAO getDocumentoEstadoDAO() {
+        if (documentoEstadoDAO == null) {
+            documentoEstadoDAO = new DocumentoEstadoDAO();
+        }
+        return documentoEstadoDAO;
+    }
+
+    private FacturacionDAO getFacturacionDAO() {
+        if (facturacionDAO == null) {
+            facturacionDAO = new FacturacionDAO();
+        }
+        return facturacionDAO;
+    }
+
+    private HistorialTareasDAO getHistorialTareasDAO() {
+        if (historialTareasDAO == null) {
+            historialTareasDAO = new HistorialTareasDAO();
+        }
+        return historialTareasDAO;
+    }
+
+    private InscripcionClaseDAO getInscripcionClaseDAO() {
+        if (inscripcionClaseDAO == null) {
+            inscripcionClaseDAO = new InscripcionClaseDAO();
+        }
+        return inscripcionClaseDAO;
+    }
+
+    private PagoDAO getPagoDAO() {
+        if (pagoDAO == null) {
+            pagoDAO = new PagoDAO();
+        }
+        return pagoDAO;
+    }
+
+    private PeriodoCuotaDAO getPeriodoCuotaDAO() {
+        if (periodoCuotaDAO == null) {
+            periodoCuotaDAO = new PeriodoCuotaDAO();
+        }
+        return periodoCuotaDAO;
+    }
+
+    private ProfesorDAO getProfesorDAO() {
+        if (profesorDAO == null) {
+            profesorDAO = new ProfesorDAO();
+        }
+        return profesorDAO;
+    }
+
+    private RegistroCambiosDAO getRegistroCambiosDAO() {
+        if (registroCambiosDAO == null) {
+            registroCambiosDAO = new RegistroCambiosDAO();
+        }
+        return registroCambiosDAO;
+    }
+
+    private UsuarioDAO getUsuarioDAO() {
+        if (usuarioDAO == null) {
+            usuarioDAO = new UsuarioDAO();
+        }
+        return usuarioDAO;
+    }
+}
@@ -0,0 +1,61 @@
+package taichi.util;
+
+import taichi.model.Dinero;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * Utilidades para escribir archivos CSV (RFC 4180) que se abren correctamente en Excel.
+ * Se usa ';' como separador, que es el que Excel espera con configuración regional en español.
+ */
+public class CsvUtil {
+
+    public static final char SEPARADOR = ';';
+
+    // Marca de orden de bytes: le indica a Excel que el archivo está en UTF-8 (acentos, ñ)
+    public static final char BOM_UTF8 = '\uFEFF';
+
+    private CsvUtil() {
+    }
+
+    /**
+     * Escribe una fila CSV terminada en salto de línea. Los valores null se escriben vacíos.
+     */
+    public static void escribirFila(Writer writer, Object... valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARADOR);
+            }
+            writer.write(escapar(valores[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Escapa un valor para CSV: si contiene separador, comillas o saltos de línea, se encierra entre comillas
+     * y las comillas internas se duplican. Los decimales se escriben con coma, como los espera Excel en español.
+     */
+    public static String escapar(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto;
+        if (valor instanceof BigDecimal) {
+            texto = ((BigDecimal) valor).toPlainString().replace('.', ',');
+        } else if (valor instanceof Dinero) {
+            texto = valor.toString().replace('.', ',');
+        } else if (valor instanceof Double || valor instanceof Float) {
+            texto = BigDecimal.valueOf(((Number) valor).doubleValue()).toPlainString().replace('.', ',');
+        } else {
+            texto = valor.toString();
+        }
+        boolean requiereComillas = false;
+        for (int i = 0; i < texto.length() && !requiereComillas; i++) {
+            char c = texto.charAt(i);
+            requiereComillas = c == SEPARADOR || c == '"' || c == '\n' || c == '\r';
+        }
+        return requiereComillas ? "\"" + texto.replace("\"", "\"\"") + "\"" : texto;
+    }
+}
@@ -0,0 +1,205 @@
+package taichi.gui;
+
+import taichi.controller.DocumentoEstadoController;
+import taichi.model.MatrizCumplimiento;
+import taichi.util.CsvUtil;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reporte de cumplimiento de documentación: alumnos a los que les falta un tipo de documento,
+ * a los que les falta alguno, o que tienen todo completo. Se exporta a CSV.
+ */
+public class CumplimientoDocumentosPanel extends JPanel {
+
+    private static final String FILTRO_FALTA_TIPO = "Les falta el documento...";
+    private static final String FILTRO_FALTA_ALGUNO = "Les falta algún documento";
+    private static final String FILTRO_COMPLETOS = "Documentación completa";
+
+    private DocumentoEstadoController documentoEstadoController;
+
+    // Componentes de la UI
+    private JComboBox<String> cmbFiltro;
+    private JComboBox<String> cmbTipoDocumento;
+    private JLabel lblResumen;
+
+    private JButton btnActualizar;
+    private JButton btnExportarCsv;
+
+    private JTable cumplimientoTable;
+    private DefaultTableModel tableModel;
+
+    // Matriz cargada y alumnos que muestra la tabla (posiciones en la matriz)
+    private MatrizCumplimiento matriz;
+    private BitSet alumnosMostrados = new BitSet();
+
+    public CumplimientoDocumentosPanel(DocumentoEstadoController documentoEstadoController) {
+        this.documentoEstadoController = documentoEstadoController;
+        setLayout(new BorderLayout());
+
+        // --- Panel de Filtros ---
+        JPanel filtroPanel = new JPanel(new GridBagLayout());
+        filtroPanel.setBorder(BorderFactory.createTitledBorder("Cumplimiento de Documentación"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5); // Márgenes
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        cmbFiltro = new JComboBox<>(new String[]{FILTRO_FALTA_TIPO, FILTRO_FALTA_ALGUNO, FILTRO_COMPLETOS});
+        cmbTipoDocumento = new JComboBox<>();
+        lblResumen = new JLabel(" ");
+
+        int row = 0;
+        gbc.gridx = 0; gbc.gridy = row; filtroPanel.add(new JLabel("Mostrar alumnos:"), gbc);
+        gbc.gridx = 1; gbc.gridy = row++; filtroPanel.add(cmbFiltro, gbc);
+
+        gbc.gridx = 0; gbc.gridy = row; filtroPanel.add(new JLabel("Tipo Documento:"), gbc);
+        gbc.gridx = 1; gbc.gridy = row++; filtroPanel.add(cmbTipoDocumento, gbc);
+
+        gbc.gridx = 0; gbc.gridy = row; gbc.gridwidth = 2; filtroPanel.add(lblResumen, gbc);
+        gbc.gridwidth = 1; // Reset gridwidth
+
+        // --- Panel de Botones ---
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        btnActualizar = new JButton("Actualizar");
+        btnExportarCsv = new JButton("Exportar CSV");
+        buttonPanel.add(btnActualizar);
+        buttonPanel.add(btnExportarCsv);
+
+        add(filtroPanel, BorderLayout.NORTH);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // --- Configuración de la Tabla ---
+        String[] columnNames = {"ID Alumno", "Alumno", "DNI", "Documentos Faltantes"};
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Hacer que las celdas de la tabla no sean editables
+            }
+        };
+        cumplimientoTable = new JTable(tableModel);
+        add(new JScrollPane(cumplimientoTable), BorderLayout.CENTER);
+
+        // --- Listeners de Eventos ---
+        cmbFiltro.addActionListener(e -> aplicarFiltro());
+        cmbTipoDocumento.addActionListener(e -> aplicarFiltro());
+        btnActualizar.addActionListener(e -> cargarMatriz());
+        btnExportarCsv.addActionListener(e -> exportarCsv());
+
+        cargarMatriz();
+    }
+
+    // La matriz se arma en segundo plano para no congelar la ventana
+    private void cargarMatriz() {
+        btnActualizar.setEnabled(false);
+        lblResumen.setText("Cargando...");
+        new SwingWorker<MatrizCumplimiento, Void>() {
+            @Override
+            protected MatrizCumplimiento doInBackground() throws Exception {
+                return documentoEstadoController.obtenerMatrizCumplimiento();
+            }
+
+            @Override
+            protected void done() {
+                btnActualizar.setEnabled(true);
+                try {
+                    matriz = get();
+                    Object tipoAnterior = cmbTipoDocumento.getSelectedItem();
+                    cmbTipoDocumento.removeAllItems();
+                    for (String tipo : matriz.getTiposDocumento()) {
+                        cmbTipoDocumento.addItem(tipo);
+                    }
+                    if (tipoAnterior != null) {
+                        cmbTipoDocumento.setSelectedItem(tipoAnterior);
+                    }
+                    aplicarFiltro();
+                } catch (InterruptedException | ExecutionException e) {
+                    lblResumen.setText(" ");
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(CumplimientoDocumentosPanel.this, "Error al cargar el cumplimiento de documentación: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private void aplicarFiltro() {
+        if (matriz == null) {
+            return;
+        }
+        String filtro = (String) cmbFiltro.getSelectedItem();
+        String tipo = (String) cmbTipoDocumento.getSelectedItem();
+        cmbTipoDocumento.setEnabled(FILTRO_FALTA_TIPO.equals(filtro));
+
+        if (FILTRO_FALTA_TIPO.equals(filtro)) {
+            alumnosMostrados = (tipo != null) ? matriz.faltantes(tipo) : new BitSet();
+        } else if (FILTRO_FALTA_ALGUNO.equals(filtro)) {
+            alumnosMostrados = matriz.conAlgunFaltante();
+        } else {
+            alumnosMostrados = matriz.completos();
+        }
+
+        tableModel.setRowCount(0); // Limpiar tabla
+        for (int i = alumnosMostrados.nextSetBit(0); i >= 0; i = alumnosMostrados.nextSetBit(i + 1)) {
+            tableModel.addRow(new Object[]{
+                matriz.getIdAlumno(i),
+                matriz.getNombreAlumno(i),
+                matriz.getDniAlumno(i),
+                String.join(", ", matriz.tiposFaltantes(i))
+            });
+        }
+        lblResumen.setText(alumnosMostrados.cardinality() + " de " + matriz.getCantidadAlumnos() + " alumnos activos.");
+    }
+
+    private void exportarCsv() {
+        if (matriz == null || alumnosMostrados.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No hay alumnos para exportar.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("cumplimiento_documentos.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File archivo = chooser.getSelectedFile();
+
+        // Una columna por tipo de documento con "Sí"/"No", para poder filtrar en la planilla
+        List<String> tipos = matriz.getTiposDocumento();
+        try (Writer writer = Files.newBufferedWriter(archivo.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(CsvUtil.BOM_UTF8);
+            Object[] encabezado = new Object[3 + tipos.size()];
+            encabezado[0] = "ID Alumno";
+            encabezado[1] = "Alumno";
+            encabezado[2] = "DNI";
+            for (int t = 0; t < tipos.size(); t++) {
+                encabezado[3 + t] = tipos.get(t);
+            }
+            CsvUtil.escribirFila(writer, encabezado);
+
+            for (int i = alumnosMostrados.nextSetBit(0); i >= 0; i = alumnosMostrados.nextSetBit(i + 1)) {
+                List<String> faltantes = matriz.tiposFaltantes(i);
+                Object[] fila = new Object[3 + tipos.size()];
+                fila[0] = matriz.getIdAlumno(i);
+                fila[1] = matriz.getNombreAlumno(i);
+                fila[2] = matriz.getDniAlumno(i);
+                for (int t = 0; t < tipos.size(); t++) {
+                    fila[3 + t] = faltantes.contains(tipos.get(t)) ? "No" : "Sí";
+                }
+                CsvUtil.escribirFila(writer, fila);
+            }
+            JOptionPane.showMessageDialog(this, "Archivo exportado con éxito: " + archivo.getName(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error al exportar el archivo: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+}
@@ -2,10 +2,17 @@ package taichi.dao;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class DatabaseConnection {
 
+    private static final Logger LOGGER = Logger.getLogger(DatabaseConnection.class.getName());
+
        // --- Configuración para MySQL ---
     private static final String DB_URL = "jdbc:mysql://localhost:3306/taichi_academia"; // Se cambia 'localhost' y '3306' si el MySQL está en otro lugar/puerto
     private static final String DB_USER = "root"; // Tu usuario de MySQL
@@ -25,12 +32,29 @@ public class DatabaseConnection {
             // Cargar el driver JDBC de MySQL
             Class.forName(JDBC_DRIVER);
         } catch (ClassNotFoundException e) {
-            System.err.println("Error: Driver JDBC de MySQL no encontrado. Asegúrate de que el JAR del driver esté en el classpath.");
+            LOGGER.severe("Error: Driver JDBC de MySQL no encontrado. Asegúrate de que el JAR del driver esté en el classpath.");
             throw new SQLException("Error al cargar el driver de la base de datos.", e);
         }
         // Establecer la conexión
-        // Se añaden parámetros para la zona horaria y el uso de SSL (común en MySQL)
-        return DriverManager.getConnection(DB_URL + "?useSSL=false&serverTimezone=UTC", DB_USER, DB_PASSWORD);
+        // Se añaden parámetros para la zona horaria y el uso de SSL (común en MySQL);
+        // rewriteBatchedStatements hace que los batch de INSERT viajen como una sola sentencia multi-fila
+        return DriverManager.getConnection(DB_URL + "?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true", DB_USER, DB_PASSWORD);
+    }
+
+    /**
+     * Obtiene la hora actual del servidor de base de datos. Sirve de marca para las copias locales que después
+     * se comparan contra fecha_actualizacion, así no influye el reloj de cada puesto.
+     *
+     * @return La hora del servidor.
+     * @throws SQLException Si ocurre un error al consultar.
+     */
+    public static LocalDateTime obtenerHoraServidor() throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT CURRENT_TIMESTAMP");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1).toLocalDateTime();
+        }
     }
 
     /**
@@ -43,8 +67,7 @@ public class DatabaseConnection {
             try {
                 connection.close();
             } catch (SQLException e) {
-                System.err.println("Error al cerrar la conexión a la base de datos: " + e.getMessage());
-                e.printStackTrace();
+                LOGGER.log(Level.WARNING, "Error al cerrar la conexión a la base de datos: " + e.getMessage(), e);
             }
         }
     }
@@ -0,0 +1,58 @@
+package taichi.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Copia de los datos de referencia que usan casi todas las pantallas (alumnos, profesores, clases y períodos
+ * de cuota), tal como estaban en la BD en un momento dado. Se guarda al cerrar la aplicación para mostrar
+ * las tablas y los selectores apenas se abre la siguiente vez.
+ */
+public class DatosReferencia {
+
+    private final LocalDateTime marca; // Hora del servidor en que se tomó la copia
+    private final List<Alumno> alumnos;
+    private final List<Profesor> profesores;
+    private final List<Clase> clases;
+    private final List<PeriodoCuota> periodos;
+
+    public DatosReferencia(LocalDateTime marca, List<Alumno> alumnos, List<Profesor> profesores,
+                           List<Clase> clases, List<PeriodoCuota> periodos) {
+        this.marca = marca;
+        this.alumnos = alumnos;
+        this.profesores = profesores;
+        this.clases = clases;
+        this.periodos = periodos;
+    }
+
+    public LocalDateTime getMarca() {
+        return marca;
+    }
+
+    public List<Alumno> getAlumnos() {
+        return alumnos;
+    }
+
+    public List<Profesor> getProfesores() {
+        return profesores;
+    }
+
+    public List<Clase> getClases() {
+        return clases;
+    }
+
+    public List<PeriodoCuota> getPeriodos() {
+        return periodos;
+    }
+
+    @Override
+    public String toString() {
+        return "DatosReferencia{" +
+               "marca=" + marca +
+               ", alumnos=" + alumnos.size() +
+               ", profesores=" + profesores.size() +
+               ", clases=" + clases.size() +
+               ", periodos=" + periodos.size() +
+               '}';
+    }
+}
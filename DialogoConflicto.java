@@ -0,0 +1,90 @@
+package taichi.gui;
+
+import taichi.dao.ConflictoVersionException;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.Objects;
+
+/**
+ * Resuelve en pantalla un {@link ConflictoVersionException}: otro usuario guardó el registro mientras se lo editaba.
+ *
+ * Muestra los campos en los que difieren los datos del formulario y los guardados, y deja elegir entre
+ * sobrescribir, quedarse con lo guardado o seguir editando. Las tablas de los paneles guardan la versión
+ * de cada registro en una última columna oculta ({@link #COLUMNA_VERSION}); esa es la versión que se envía al guardar.
+ */
+final class DialogoConflicto {
+
+    static final String COLUMNA_VERSION = "Versión";
+
+    enum Decision { SOBRESCRIBIR, USAR_GUARDADO, SEGUIR_EDITANDO }
+
+    private DialogoConflicto() {
+    }
+
+    /**
+     * Quita de la vista la columna de versión (el modelo la conserva).
+     */
+    static void ocultarColumnaVersion(JTable tabla) {
+        tabla.removeColumn(tabla.getColumn(COLUMNA_VERSION));
+    }
+
+    /**
+     * @return La versión del registro de una fila del modelo.
+     */
+    static int versionDeFila(DefaultTableModel modelo, int fila) {
+        return (Integer) modelo.getValueAt(fila, modelo.findColumn(COLUMNA_VERSION));
+    }
+
+    /**
+     * @param padre Componente sobre el que se muestra el diálogo.
+     * @param modelo Modelo de la tabla del panel (de ahí salen los nombres de los campos).
+     * @param filaPropia Fila armada con los datos del formulario.
+     * @param filaGuardada Fila armada con el registro actual de la BD.
+     * @return Lo que eligió el usuario (cerrar el diálogo equivale a seguir editando).
+     */
+    static Decision preguntar(Component padre, DefaultTableModel modelo, Object[] filaPropia, Object[] filaGuardada) {
+        DefaultTableModel diferencias = new DefaultTableModel(
+            new String[]{"Campo", "Sus cambios", "Guardado por el otro usuario"}, 0);
+        for (int columna = 0; columna < filaPropia.length; columna++) {
+            String campo = modelo.getColumnName(columna);
+            if (!COLUMNA_VERSION.equals(campo) && !Objects.equals(filaPropia[columna], filaGuardada[columna])) {
+                diferencias.addRow(new Object[]{campo, filaPropia[columna], filaGuardada[columna]});
+            }
+        }
+
+        JPanel contenido = new JPanel(new BorderLayout(0, 8));
+        contenido.add(new JLabel("Otro usuario guardó este registro mientras usted lo editaba."), BorderLayout.NORTH);
+        if (diferencias.getRowCount() == 0) {
+            contenido.add(new JLabel("Los datos guardados coinciden con los suyos."), BorderLayout.CENTER);
+        } else {
+            JTable tabla = new JTable(diferencias);
+            tabla.setEnabled(false);
+            JScrollPane scroll = new JScrollPane(tabla);
+            scroll.setPreferredSize(new Dimension(560, Math.min(240, 40 + diferencias.getRowCount() * tabla.getRowHeight())));
+            contenido.add(scroll, BorderLayout.CENTER);
+        }
+
+        Object[] opciones = {"Guardar mis cambios", "Usar lo guardado", "Seguir editando"};
+        int opcion = JOptionPane.showOptionDialog(padre, contenido, "Conflicto al guardar",
+            JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE, null, opciones, opciones[2]);
+        switch (opcion) {
+            case 0:
+                return Decision.SOBRESCRIBIR;
+            case 1:
+                return Decision.USAR_GUARDADO;
+            default:
+                return Decision.SEGUIR_EDITANDO;
+        }
+    }
+
+    /**
+     * Actualiza la fila del registro con lo guardado y la deja seleccionada, para volver a cargarla en el formulario.
+     */
+    static void seleccionarGuardado(JTable tabla, DefaultTableModel modelo, int id, Object[] filaGuardada) {
+        ActualizadorTabla.reemplazarOAgregar(modelo, id, filaGuardada);
+        int fila = ActualizadorTabla.buscarFila(modelo, id);
+        tabla.setRowSelectionInterval(fila, fila);
+    }
+}
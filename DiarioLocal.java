@@ -0,0 +1,128 @@
+package taichi.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Diario local de operaciones pendientes de guardar en la BD: un archivo de texto de solo agregado.
+ *
+ * Cada operación se anota con una línea "P" (su clave única y sus campos, separados por tabuladores) y se
+ * marca con una línea "C" cuando quedó guardada. Cada escritura se fuerza a disco, así que lo anotado
+ * sobrevive a un corte de luz o al cierre de la aplicación; al volver a abrir, {@link #pendientes()} devuelve
+ * lo que falta guardar. Cuando no queda nada pendiente, el archivo se vacía con {@link #compactar()}.
+ */
+public class DiarioLocal {
+
+    private static final Logger LOGGER = Logger.getLogger(DiarioLocal.class.getName());
+
+    private static final String PENDIENTE = "P";
+    private static final String CONFIRMADO = "C";
+    private static final String SEPARADOR = "\t";
+
+    private final Path archivo;
+    private int sinConfirmar; // Operaciones anotadas (o recuperadas) que todavía no se marcaron como guardadas
+
+    /**
+     * @param archivo Ruta del archivo del diario (se crea al anotar la primera operación).
+     */
+    public DiarioLocal(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    /**
+     * Anota una operación. Cuando vuelve, la línea ya está en disco.
+     * @param clave Clave única de la operación.
+     * @param campos Datos de la operación (los tabuladores y saltos de línea se reemplazan por espacios; null se guarda vacío).
+     * @throws IOException Si no se pudo escribir el diario (la operación no debe darse por hecha).
+     */
+    public synchronized void anotar(String clave, String... campos) throws IOException {
+        StringBuilder linea = new StringBuilder(PENDIENTE).append(SEPARADOR).append(clave);
+        for (String campo : campos) {
+            linea.append(SEPARADOR).append(limpiar(campo));
+        }
+        agregar(linea.append('\n').toString());
+        sinConfirmar++;
+    }
+
+    /**
+     * Marca como guardadas varias operaciones (una sola escritura a disco para todas).
+     * @param claves Claves de las operaciones ya guardadas en la BD.
+     * @throws IOException Si no se pudo escribir el diario (las operaciones se reenviarán al recuperarlo).
+     */
+    public synchronized void confirmar(Collection<String> claves) throws IOException {
+        if (claves.isEmpty()) {
+            return;
+        }
+        StringBuilder lineas = new StringBuilder();
+        for (String clave : claves) {
+            lineas.append(CONFIRMADO).append(SEPARADOR).append(clave).append('\n');
+        }
+        agregar(lineas.toString());
+        sinConfirmar = Math.max(0, sinConfirmar - claves.size());
+    }
+
+    /**
+     * Lee el diario y devuelve las operaciones anotadas que no se marcaron como guardadas, en el orden en que se anotaron.
+     * Una última línea incompleta (corte a mitad de una escritura) se descarta: esa operación nunca se confirmó al usuario.
+     * @return Los campos de cada operación pendiente, por clave.
+     * @throws IOException Si no se pudo leer el archivo.
+     */
+    public synchronized Map<String, String[]> pendientes() throws IOException {
+        Map<String, String[]> pendientes = new LinkedHashMap<>();
+        if (Files.exists(archivo)) {
+            String contenido = new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8);
+            String[] lineas = contenido.split("\n", -1);
+            // El último elemento es lo que sigue al último salto de línea: vacío, o una línea cortada a medio escribir
+            for (int i = 0; i < lineas.length - 1; i++) {
+                String[] campos = lineas[i].split(SEPARADOR, -1);
+                if (PENDIENTE.equals(campos[0]) && campos.length >= 2) {
+                    pendientes.put(campos[1], Arrays.copyOfRange(campos, 2, campos.length));
+                } else if (CONFIRMADO.equals(campos[0]) && campos.length == 2) {
+                    pendientes.remove(campos[1]);
+                } else if (!lineas[i].isEmpty()) {
+                    LOGGER.warning("Línea del diario " + archivo.getFileName() + " descartada: " + lineas[i]);
+                }
+            }
+        }
+        sinConfirmar = pendientes.size();
+        return pendientes;
+    }
+
+    /**
+     * Vacía el diario si no queda ninguna operación sin confirmar (si queda alguna, no hace nada).
+     * @throws IOException Si no se pudo truncar el archivo.
+     */
+    public synchronized void compactar() throws IOException {
+        if (sinConfirmar == 0 && Files.exists(archivo)) {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+                canal.truncate(0);
+                canal.force(true);
+            }
+        }
+    }
+
+    private void agregar(String texto) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer datos = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+            canal.force(false); // Sin esto la operación podría quedar solo en el caché del sistema operativo
+        }
+    }
+
+    private static String limpiar(String texto) {
+        return texto == null ? "" : texto.replaceAll("[\\t\\r\\n]", " ");
+    }
+}
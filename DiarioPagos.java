@@ -0,0 +1,146 @@
+package taichi.dao;
+
+import taichi.model.Dinero;
+import taichi.model.Pago;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Diario local de los pagos que todavía no se guardaron en la BD (ver {@link DiarioLocal}).
+ *
+ * Cada pago se anota antes de dar el recibo provisorio, con su clave de idempotencia como clave de la
+ * operación, y se marca como guardado cuando llegó a la BD. Los pagos que la BD rechaza (por ejemplo, un
+ * alumno o período que ya no existe) se pasan al archivo de rechazados para revisarlos a mano.
+ */
+public class DiarioPagos {
+
+    private static final Logger LOGGER = Logger.getLogger(DiarioPagos.class.getName());
+
+    private final DiarioLocal diario;
+    private final Path archivoRechazados;
+
+    /**
+     * @param archivo Ruta del archivo del diario (se crea al anotar el primer pago). Los rechazados se guardan
+     *                al lado, con el mismo nombre terminado en ".rechazados".
+     */
+    public DiarioPagos(Path archivo) {
+        this.diario = new DiarioLocal(archivo);
+        this.archivoRechazados = archivo.resolveSibling(archivo.getFileName() + ".rechazados");
+    }
+
+    /**
+     * Anota un pago a guardar. Cuando vuelve, la línea ya está en disco.
+     * @param pago Pago con su clave de idempotencia asignada.
+     * @throws IOException Si no se pudo escribir el diario (el pago no debe darse por recibido).
+     */
+    public void anotar(Pago pago) throws IOException {
+        diario.anotar(pago.getClaveIdempotencia(), campos(pago));
+    }
+
+    /**
+     * Marca como guardados los pagos de un lote (una sola escritura a disco para todo el lote).
+     * @param pagos Pagos ya guardados en la BD.
+     * @throws IOException Si no se pudo escribir el diario (los pagos se reenviarán, sin duplicarse, al recuperarlo).
+     */
+    public void confirmar(Collection<Pago> pagos) throws IOException {
+        List<String> claves = new ArrayList<>();
+        for (Pago pago : pagos) {
+            claves.add(pago.getClaveIdempotencia());
+        }
+        diario.confirmar(claves);
+    }
+
+    /**
+     * Pasa al archivo de rechazados un pago que la BD no acepta y lo marca como resuelto en el diario,
+     * así deja de reenviarse (y de trabar a los que vienen detrás).
+     * @param pago Pago rechazado.
+     * @param motivo Error informado por la BD.
+     * @throws IOException Si no se pudo escribir; en ese caso el pago sigue pendiente en el diario.
+     */
+    public synchronized void rechazar(Pago pago, String motivo) throws IOException {
+        String linea = LocalDateTime.now() + "\t" + pago.getClaveIdempotencia() + "\t" + String.join("\t", campos(pago))
+            + "\t" + String.valueOf(motivo).replace('\n', ' ') + "\n";
+        Files.write(archivoRechazados, linea.getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        diario.confirmar(Collections.singletonList(pago.getClaveIdempotencia()));
+    }
+
+    /**
+     * @return Ruta del archivo de pagos rechazados (para indicarla en pantalla o en el log).
+     */
+    public Path getArchivoRechazados() {
+        return archivoRechazados;
+    }
+
+    /**
+     * Lee el diario y devuelve los pagos anotados que no se marcaron como guardados, en el orden en que se anotaron.
+     * @return Los pagos pendientes (sin ID; con su clave de idempotencia).
+     * @throws IOException Si no se pudo leer el archivo.
+     */
+    public List<Pago> pendientes() throws IOException {
+        List<Pago> pagos = new ArrayList<>();
+        for (Map.Entry<String, String[]> pendiente : diario.pendientes().entrySet()) {
+            try {
+                pagos.add(pago(pendiente.getKey(), pendiente.getValue()));
+            } catch (RuntimeException e) {
+                LOGGER.warning("Pago del diario descartado (" + e.getMessage() + "): " + pendiente.getKey());
+            }
+        }
+        return pagos;
+    }
+
+    /**
+     * Vacía el diario si no queda ningún pago sin confirmar (si queda alguno, no hace nada).
+     * @throws IOException Si no se pudo truncar el archivo.
+     */
+    public void compactar() throws IOException {
+        diario.compactar();
+    }
+
+    /**
+     * @return Los campos con que se anota un pago en un diario local (se vuelve a armar con {@link #pago}).
+     */
+    static String[] campos(Pago pago) {
+        return new String[]{
+            String.valueOf(pago.getIdAlumno()),
+            String.valueOf(pago.getIdPeriodo()),
+            pago.getFechaPago().toString(),
+            String.valueOf(pago.getMontoPagado()),
+            pago.getTipoPago(),
+            String.valueOf(pago.isEsPagoParcial()),
+            String.valueOf(pago.getMontoRecargoAplicado())
+        };
+    }
+
+    /**
+     * Vuelve a armar un pago anotado con {@link #campos}.
+     * @throws IllegalArgumentException Si los campos no corresponden a un pago.
+     */
+    static Pago pago(String clave, String[] campos) {
+        if (campos.length != 7) {
+            throw new IllegalArgumentException("se esperaban 7 campos y hay " + campos.length);
+        }
+        Pago pago = new Pago(
+            Integer.parseInt(campos[0]),
+            Integer.parseInt(campos[1]),
+            LocalDate.parse(campos[2]),
+            Dinero.parsear(campos[3]),
+            campos[4],
+            Boolean.parseBoolean(campos[5]),
+            Dinero.parsear(campos[6]));
+        pago.setClaveIdempotencia(clave);
+        return pago;
+    }
+}
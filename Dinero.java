@@ -0,0 +1,168 @@
+package taichi.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Importe en pesos guardado como cantidad entera de centavos (las columnas de montos son DECIMAL(10,2)).
+ *
+ * Es inmutable: las operaciones devuelven un importe nuevo y las comparaciones son exactas, sin el desvío
+ * de redondeo de sumar double (ej. 0.1 + 0.2). Para acumular muchos importes sin crear objetos
+ * (totales de reportes) están las operaciones estáticas sobre centavos, como {@link #sumar(long, long)}.
+ */
+public final class Dinero implements Comparable<Dinero> {
+
+    public static final Dinero CERO = new Dinero(0);
+
+    // Separador decimal del idioma del equipo, el mismo que usaba String.format("%.2f")
+    private static final char SEPARADOR_DECIMAL = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+    private final long centavos;
+
+    private Dinero(long centavos) {
+        this.centavos = centavos;
+    }
+
+    /**
+     * @param centavos Importe en centavos (ej. 150050 para $1500,50).
+     */
+    public static Dinero deCentavos(long centavos) {
+        return centavos == 0 ? CERO : new Dinero(centavos);
+    }
+
+    /**
+     * @param monto Importe leído de la BD (DECIMAL(10,2)); se redondea a centavos si trae más decimales.
+     * @return El importe, o null si el valor es null.
+     */
+    public static Dinero de(BigDecimal monto) {
+        if (monto == null) {
+            return null;
+        }
+        return deCentavos(monto.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Interpreta un importe escrito por el usuario o guardado como texto: acepta punto o coma decimal
+     * y hasta dos decimales (ej. "1500", "1500.5", "1500,50").
+     * @throws IllegalArgumentException Si el texto no es un importe válido.
+     */
+    public static Dinero parsear(String texto) {
+        if (texto == null || texto.trim().isEmpty()) {
+            throw new IllegalArgumentException("El importe está vacío.");
+        }
+        try {
+            BigDecimal monto = new BigDecimal(texto.trim().replace(',', '.'));
+            if (monto.stripTrailingZeros().scale() > 2) {
+                throw new IllegalArgumentException("El importe no puede tener más de dos decimales: " + texto);
+            }
+            return de(monto);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Importe inválido: " + texto, e);
+        }
+    }
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    /**
+     * @return El importe como BigDecimal con dos decimales (para escribirlo en la BD).
+     */
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    public Dinero mas(Dinero otro) {
+        return otro.centavos == 0 ? this : deCentavos(sumar(centavos, otro.centavos));
+    }
+
+    public Dinero menos(Dinero otro) {
+        return otro.centavos == 0 ? this : deCentavos(restar(centavos, otro.centavos));
+    }
+
+    public boolean esCero() {
+        return centavos == 0;
+    }
+
+    public boolean esPositivo() {
+        return centavos > 0;
+    }
+
+    public boolean esNegativo() {
+        return centavos < 0;
+    }
+
+    public boolean esMenorQue(Dinero otro) {
+        return centavos < otro.centavos;
+    }
+
+    public boolean esMayorQue(Dinero otro) {
+        return centavos > otro.centavos;
+    }
+
+    // --- Operaciones sobre centavos, sin crear objetos ---
+
+    /**
+     * @throws ArithmeticException Si el resultado no entra en un long (nunca con importes reales).
+     */
+    public static long sumar(long centavos, long otrosCentavos) {
+        return Math.addExact(centavos, otrosCentavos);
+    }
+
+    /**
+     * @throws ArithmeticException Si el resultado no entra en un long (nunca con importes reales).
+     */
+    public static long restar(long centavos, long otrosCentavos) {
+        return Math.subtractExact(centavos, otrosCentavos);
+    }
+
+    /**
+     * Formatea un importe en centavos como lo mostraba String.format("%.2f"): sin separador de miles y con el
+     * separador decimal del idioma del equipo. Arma el texto directamente, sin interpretar un patrón en cada fila.
+     */
+    public static String formatear(long centavos) {
+        long enteros = Math.abs(centavos / 100);
+        int resto = (int) Math.abs(centavos % 100);
+        StringBuilder texto = new StringBuilder(24);
+        if (centavos < 0) {
+            texto.append('-');
+        }
+        return texto.append(enteros)
+            .append(SEPARADOR_DECIMAL)
+            .append((char) ('0' + resto / 10))
+            .append((char) ('0' + resto % 10))
+            .toString();
+    }
+
+    /**
+     * @return El importe formateado para mostrar (ver {@link #formatear(long)}).
+     */
+    public String formatear() {
+        return formatear(centavos);
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof Dinero && ((Dinero) otro).centavos == centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    /**
+     * @return El importe con punto decimal y dos decimales (ej. "1500.50"), apto para volver a leerlo con
+     *         {@link #parsear(String)} sin importar el idioma del equipo.
+     */
+    @Override
+    public String toString() {
+        return aBigDecimal().toPlainString();
+    }
+}
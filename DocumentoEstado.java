@@ -11,6 +11,7 @@ public class DocumentoEstado {
     private String tipoDocumento;        // tipo_documento (ej. "Ficha médica", "DNI")
     private String estado;               // estado (ej. "Pendiente", "Entregado", "Vencido")
     private String observaciones;        // observaciones
+    private int version;                 // version (control de concurrencia optimista)
 
     // --- Constructores ---
 
@@ -77,6 +78,14 @@ public class DocumentoEstado {
         this.observaciones = observaciones;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "DocumentoEstado{" +
@@ -2,25 +2,48 @@ package taichi.controller;
 
 import taichi.model.DocumentoEstado;
 import taichi.model.Alumno; // Para validar la existencia del alumno
+import taichi.model.MatrizCumplimiento;
 import taichi.dao.DocumentoEstadoDAO;
 import taichi.dao.AlumnoDAO; // Necesario para verificar existencia del alumno
+import taichi.dao.ConflictoVersionException;
 import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
 
 public class DocumentoEstadoController {
 
     private DocumentoEstadoDAO documentoEstadoDAO;
     private AlumnoDAO alumnoDAO; // Para validar la existencia del alumno
+    private ModoSinConexion modoSinConexion; // null: sin respaldo local
     private static final Logger LOGGER = Logger.getLogger(DocumentoEstadoController.class.getName());
 
     public DocumentoEstadoController() {
-        this.documentoEstadoDAO = new DocumentoEstadoDAO();
-        this.alumnoDAO = new AlumnoDAO();
+        this(new DocumentoEstadoDAO(), new AlumnoDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public DocumentoEstadoController(DocumentoEstadoDAO documentoEstadoDAO, AlumnoDAO alumnoDAO) {
+        this.documentoEstadoDAO = documentoEstadoDAO;
+        this.alumnoDAO = alumnoDAO;
+    }
+
+    /**
+     * Activa el modo sin conexión (ver {@link ModoSinConexion}): si la BD no responde, los documentos nuevos
+     * se anotan en el diario local y se cargan cuando vuelve la conexión.
+     */
+    public void setModoSinConexion(ModoSinConexion modoSinConexion) {
+        this.modoSinConexion = modoSinConexion;
     }
 
     /**
@@ -29,7 +52,7 @@ public class DocumentoEstadoController {
      * @param tipoDocumento Tipo de documento (ej. "DNI", "Certificado Médico", "Ficha de Inscripción").
      * @param estado Estado del documento (ej. "Pendiente", "Entregado", "Vencido").
      * @param observaciones Notas adicionales sobre el documento.
-     * @return El objeto DocumentoEstado recién creado y con su ID asignado.
+     * @return El objeto DocumentoEstado recién creado y con su ID asignado (sin conexión, sin ID: 0).
      * @throws Exception Si ocurre un error lógico (validación) o de base de datos.
      */
     public DocumentoEstado registrarDocumentoEstado(int idAlumno, String tipoDocumento, 
@@ -46,26 +69,46 @@ public class DocumentoEstadoController {
         //     throw new IllegalArgumentException("El estado del documento no es válido.");
         // }
 
-        // --- 2. Validar existencia del Alumno ---
+        // --- 2. Sin conexión: se valida contra la instantánea local y se anota en el diario local ---
+        if (modoSinConexion != null && modoSinConexion.estaSinConexion()) {
+            if (modoSinConexion.getInstantanea().buscarAlumno(idAlumno) == null) {
+                throw new Exception("No se encontró un alumno con el ID: " + idAlumno);
+            }
+            DocumentoEstado documentoSinConexion = new DocumentoEstado(idAlumno, tipoDocumento, estado, observaciones);
+            try {
+                modoSinConexion.anotarDocumento(documentoSinConexion);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error al anotar el documento en el diario local: " + e.getMessage(), e);
+                throw new Exception("Error al registrar estado de documento: " + e.getMessage());
+            }
+            LOGGER.info(() -> "DocumentoEstado anotado sin conexión para el alumno ID: " + idAlumno + ", Tipo: " + tipoDocumento);
+            return documentoSinConexion;
+        }
+
+        // --- 3. Validar existencia del Alumno ---
         try {
             Alumno alumnoExistente = alumnoDAO.obtenerPorId(idAlumno);
             if (alumnoExistente == null) {
                 throw new Exception("No se encontró un alumno con el ID: " + idAlumno);
             }
         } catch (SQLException e) {
+            if (modoSinConexion != null && modoSinConexion.pasarASinConexion(e)) {
+                return registrarDocumentoEstado(idAlumno, tipoDocumento, estado, observaciones);
+            }
             LOGGER.log(Level.SEVERE, "Error al verificar la existencia del alumno: " + e.getMessage(), e);
             throw new Exception("Error al registrar documento: " + e.getMessage());
         }
 
-        // --- 3. Crear el objeto DocumentoEstado ---
+        // --- 4. Crear el objeto DocumentoEstado ---
         DocumentoEstado nuevoDocumentoEstado = new DocumentoEstado(idAlumno, tipoDocumento, estado, observaciones);
 
-        // --- 4. Llamar al DAO para insertar en la BD ---
+        // --- 5. Llamar al DAO para insertar en la BD ---
         try {
             int idGenerado = documentoEstadoDAO.insertar(nuevoDocumentoEstado);
             if (idGenerado != -1) {
                 nuevoDocumentoEstado.setIdDocumentoEstado(idGenerado);
-                System.out.println("DocumentoEstado registrado con éxito para el alumno ID: " + idAlumno + ", Tipo: " + tipoDocumento);
+                BusEventos.getInstancia().publicar(DocumentoEstado.class, EventoCambio.creado(idGenerado, nuevoDocumentoEstado));
+                LOGGER.info(() -> "DocumentoEstado registrado con éxito para el alumno ID: " + idAlumno + ", Tipo: " + tipoDocumento);
                 return nuevoDocumentoEstado;
             } else {
                 throw new Exception("No se pudo insertar el estado del documento en la base de datos.");
@@ -108,6 +151,37 @@ public class DocumentoEstadoController {
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodosLosDocumentosEstado()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<DocumentoEstado>> obtenerTodosLosDocumentosEstadoAsync() {
+        return Asincrono.ejecutar(() -> obtenerTodosLosDocumentosEstado());
+    }
+
+    /**
+     * Obtiene la matriz de cumplimiento de documentación de los alumnos activos,
+     * para consultar en bloque a quién le falta qué documento.
+     * @return La matriz de cumplimiento.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public MatrizCumplimiento obtenerMatrizCumplimiento() throws Exception {
+        try {
+            return documentoEstadoDAO.obtenerMatrizCumplimiento();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener la matriz de cumplimiento de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al obtener el cumplimiento de documentación: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #obtenerMatrizCumplimiento()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<MatrizCumplimiento> obtenerMatrizCumplimientoAsync() {
+        return Asincrono.ejecutar(() -> obtenerMatrizCumplimiento());
+    }
+
     /**
      * Obtiene una lista de registros de estado de documentos para un alumno específico.
      * @param idAlumno ID del alumno.
@@ -135,6 +209,7 @@ public class DocumentoEstadoController {
      * Actualiza la información de un registro de estado de documento existente.
      * @param documentoEstado El objeto DocumentoEstado con la información actualizada.
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarDocumentoEstado(DocumentoEstado documentoEstado) throws Exception {
@@ -158,7 +233,15 @@ public class DocumentoEstadoController {
         // Si pudiera cambiar, se necesitaría una verificación similar a la de 'registrarDocumentoEstado'.
 
         try {
-            return documentoEstadoDAO.actualizar(documentoEstado);
+            boolean exito = documentoEstadoDAO.actualizar(documentoEstado);
+            if (exito) {
+                BusEventos.getInstancia().publicar(DocumentoEstado.class,
+                        EventoCambio.actualizado(documentoEstado.getIdDocumentoEstado(), documentoEstado));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar DocumentoEstado con ID " + documentoEstado.getIdDocumentoEstado() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar estado de documento: " + e.getMessage());
@@ -176,7 +259,11 @@ public class DocumentoEstadoController {
             throw new IllegalArgumentException("El ID del estado de documento debe ser un número positivo.");
         }
         try {
-            return documentoEstadoDAO.eliminar(idDocumentoEstado);
+            boolean exito = documentoEstadoDAO.eliminar(idDocumentoEstado);
+            if (exito) {
+                BusEventos.getInstancia().publicar(DocumentoEstado.class, EventoCambio.eliminado(idDocumentoEstado));
+            }
+            return exito;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al eliminar DocumentoEstado con ID " + idDocumentoEstado + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al eliminar estado de documento: " + e.getMessage());
@@ -189,5 +276,26 @@ public class DocumentoEstadoController {
         throw new UnsupportedOperationException("Unimplemented method 'registrarDocumentoEstado'");
     }
 
-    
-}
\ No newline at end of file
+    /**
+     * Aplica un cambio hecho desde otro puesto (ver {@link SincronizadorCambios}): relee el estado de documento de la BD
+     * y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idDocumentoEstado ID del estado de documento modificado.
+     * @param tipo Tipo de cambio registrado.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public void aplicarCambioExterno(int idDocumentoEstado, EventoCambio.Tipo tipo) throws Exception {
+        DocumentoEstado documentoEstado;
+        try {
+            documentoEstado = documentoEstadoDAO.obtenerPorId(idDocumentoEstado);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al releer el estado de documento con ID " + idDocumentoEstado + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al sincronizar estado de documento: " + e.getMessage());
+        }
+        if (documentoEstado == null) { // Se eliminó (quizás después del cambio anotado)
+            BusEventos.getInstancia().publicar(DocumentoEstado.class, EventoCambio.eliminado(idDocumentoEstado));
+        } else {
+            BusEventos.getInstancia().publicar(DocumentoEstado.class, tipo == EventoCambio.Tipo.CREADO
+                ? EventoCambio.creado(idDocumentoEstado, documentoEstado) : EventoCambio.actualizado(idDocumentoEstado, documentoEstado));
+        }
+    }
+}
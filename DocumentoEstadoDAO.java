@@ -1,6 +1,8 @@
 package taichi.dao;
 
 import taichi.model.DocumentoEstado; // Importamos la clase DocumentoEstado
+import taichi.model.MatrizCumplimiento;
+import taichi.util.EventoCambio;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,13 +12,21 @@ import java.sql.Date;     // Necesario para java.sql.Date
 import java.time.LocalDate; // Necesario para LocalDate
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Logger;
 
 // Implementamos la interfaz IDAO, especificando que trabajamos con DocumentoEstado y su ID es Integer
 public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(DocumentoEstadoDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_documento", "id_alumno", "tipo_documento", "fecha_presentacion", "presentado", "observaciones", "version"
+    };
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public DocumentoEstado crear(DocumentoEstado documentoEstado) throws SQLException {
-        // Columnas en BD: id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones
+        // Columnas en BD: id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones, version
         String sql = "INSERT INTO documentos_estado (id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones) VALUES (?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -45,7 +55,8 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     documentoEstado.setIdDocumento(rs.getInt(1)); // Asignar el ID generado al objeto
-                    System.out.println("DocumentoEstado insertado con ID: " + documentoEstado.getIdDocumento());
+                    RegistroCambiosDAO.registrar(conn, DocumentoEstado.class, rs.getInt(1), EventoCambio.Tipo.CREADO);
+                    LOGGER.fine(() -> "DocumentoEstado insertado con ID: " + documentoEstado.getIdDocumento());
                 } else {
                     throw new SQLException("La creación del registro de documento falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -58,7 +69,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public DocumentoEstado obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
-        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones FROM documentos_estado WHERE id_documento = ?";
+        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones, version FROM documentos_estado WHERE id_documento = ?";
         DocumentoEstado documentoEstado = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -67,9 +78,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    documentoEstado = mapResultSetToDocumentoEstado(rs); // Usamos el método auxiliar de mapeo
-                }
+                documentoEstado = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToDocumentoEstado);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el registro de documento con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -80,15 +89,13 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public List<DocumentoEstado> obtenerTodos() throws SQLException {
         List<DocumentoEstado> documentosEstado = new ArrayList<>();
-        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones FROM documentos_estado";
+        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones, version FROM documentos_estado";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                documentosEstado.add(mapResultSetToDocumentoEstado(rs)); // Usamos el método auxiliar de mapeo
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToDocumentoEstado, documentosEstado);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todos los registros de documentos de la base de datos: " + e.getMessage(), e);
         }
@@ -97,7 +104,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean actualizar(DocumentoEstado documentoEstado) throws SQLException {
-        String sql = "UPDATE documentos_estado SET id_alumno = ?, tipo_documento = ?, fecha_presentacion = ?, presentado = ?, observaciones = ? WHERE id_documento = ?";
+        String sql = "UPDATE documentos_estado SET id_alumno = ?, tipo_documento = ?, fecha_presentacion = ?, presentado = ?, observaciones = ?, version = version + 1 WHERE id_documento = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -113,12 +120,25 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
             pstmt.setBoolean(4, presentado);
             pstmt.setString(5, documentoEstado.getObservaciones());
             pstmt.setInt(6, documentoEstado.getIdDocumento()); 
+            pstmt.setInt(7, documentoEstado.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, DocumentoEstado.class, documentoEstado.getIdDocumentoEstado(), EventoCambio.Tipo.ACTUALIZADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al actualizar el registro de documento con ID " + documentoEstado.getIdDocumento() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            DocumentoEstado actual = obtenerPorId(documentoEstado.getIdDocumentoEstado());
+            if (actual != null) {
+                throw new ConflictoVersionException("documento", documentoEstado.getIdDocumentoEstado(), actual);
+            }
+            return false;
+        }
+        documentoEstado.setVersion(documentoEstado.getVersion() + 1);
+        return true;
     }
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
@@ -132,6 +152,9 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
             pstmt.setInt(1, id);
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, DocumentoEstado.class, id, EventoCambio.Tipo.ELIMINADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al eliminar el registro de documento con ID " + id + ": " + e.getMessage(), e);
         }
@@ -148,7 +171,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
      */
     public List<DocumentoEstado> obtenerDocumentosPendientesPorAlumno(int idAlumno) throws SQLException {
         List<DocumentoEstado> documentosPendientes = new ArrayList<>();
-        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones FROM documentos_estado WHERE id_alumno = ? AND presentado = FALSE";
+        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones, version FROM documentos_estado WHERE id_alumno = ? AND presentado = FALSE";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -156,9 +179,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
             pstmt.setInt(1, idAlumno);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    documentosPendientes.add(mapResultSetToDocumentoEstado(rs)); // Usamos el método auxiliar de mapeo
-                }
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToDocumentoEstado, documentosPendientes);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener documentos pendientes para el alumno con ID " + idAlumno + ": " + e.getMessage(), e);
@@ -175,7 +196,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
      */
     public List<DocumentoEstado> obtenerDocumentosPorAlumno(int idAlumno) throws SQLException {
         List<DocumentoEstado> documentos = new ArrayList<>();
-        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones FROM documentos_estado WHERE id_alumno = ?";
+        String sql = "SELECT id_documento, id_alumno, tipo_documento, fecha_presentacion, presentado, observaciones, version FROM documentos_estado WHERE id_alumno = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -183,9 +204,7 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
             pstmt.setInt(1, idAlumno);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    documentos.add(mapResultSetToDocumentoEstado(rs)); // Usamos el método auxiliar de mapeo
-                }
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToDocumentoEstado, documentos);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener documentos para el alumno con ID " + idAlumno + ": " + e.getMessage(), e);
@@ -193,25 +212,65 @@ public class DocumentoEstadoDAO implements IDAO<DocumentoEstado, Integer> {
         return documentos;
     }
 
+    /**
+     * Arma la matriz de cumplimiento de documentación de todos los alumnos activos en una sola consulta agrupada.
+     * Un tipo de documento cuenta como presentado si el alumno tiene al menos un registro de ese tipo con presentado = TRUE.
+     * @return La matriz de cumplimiento (alumnos activos x tipos de documento).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public MatrizCumplimiento obtenerMatrizCumplimiento() throws SQLException {
+        MatrizCumplimiento matriz = new MatrizCumplimiento();
+        String sql = "SELECT a.id_alumno, CONCAT(a.apellido, ', ', a.nombre) AS nombre_completo, a.dni, " +
+                     "d.tipo_documento, MAX(d.presentado) AS presentado " +
+                     "FROM alumnos a LEFT JOIN documentos_estado d ON d.id_alumno = a.id_alumno " +
+                     "WHERE a.activo = TRUE " +
+                     "GROUP BY a.id_alumno, a.apellido, a.nombre, a.dni, d.tipo_documento " +
+                     "ORDER BY a.apellido, a.nombre, a.id_alumno";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                int posicion = matriz.agregarAlumno(rs.getInt(1), rs.getString(2), rs.getString(3));
+                String tipoDocumento = rs.getString(4);
+                if (tipoDocumento == null) {
+                    continue; // Alumno sin ningún documento cargado
+                }
+                if (rs.getBoolean(5)) {
+                    matriz.marcarPresentado(posicion, tipoDocumento);
+                } else {
+                    matriz.agregarTipo(tipoDocumento);
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la matriz de cumplimiento de documentos: " + e.getMessage(), e);
+        }
+        LOGGER.fine(() -> "Matriz de cumplimiento: " + matriz.getCantidadAlumnos() + " alumnos, " + matriz.getTiposDocumento().size() + " tipos de documento.");
+        return matriz;
+    }
+
     /**
      * Método auxiliar para mapear un ResultSet a un objeto DocumentoEstado.
      * Centraliza la lógica de conversión de datos de la base de datos a objetos Java.
      * @param rs El ResultSet que contiene los datos del registro de documento.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto DocumentoEstado con los datos del ResultSet.
      * @throws SQLException Si ocurre un error al leer del ResultSet.
      */
-    private DocumentoEstado mapResultSetToDocumentoEstado(ResultSet rs) throws SQLException {
-        LocalDate fechaPresentacion = rs.getDate("fecha_presentacion") != null ? rs.getDate("fecha_presentacion").toLocalDate() : null;
-        boolean presentado = rs.getBoolean("presentado");
+    private DocumentoEstado mapResultSetToDocumentoEstado(ResultSet rs, int[] col) throws SQLException {
+        boolean presentado = rs.getBoolean(col[4]);
         String estado = presentado ? "Entregado" : "Pendiente"; // Mapear 'presentado' (boolean) a 'estado' (String)
-        
-        return new DocumentoEstado(
-            rs.getInt("id_documento"), 
-            rs.getInt("id_alumno"),
-            rs.getString("tipo_documento"),
-            estado, // Mapeado de boolean 'presentado'
-            fechaPresentacion, 
-            rs.getString("observaciones")
+
+        DocumentoEstado documentoEstado = new DocumentoEstado(
+            rs.getInt(col[0]),                               // id_documento
+            rs.getInt(col[1]),                               // id_alumno
+            rs.getString(col[2]),                            // tipo_documento
+            estado,                                          // Mapeado de boolean 'presentado'
+            ResultSetMapper.getLocalDate(rs, col[3]),        // fecha_presentacion (puede ser NULL)
+            rs.getString(col[5])                             // observaciones
         );
+        documentoEstado.setVersion(rs.getInt(col[6]));
+        return documentoEstado;
     }
 }
\ No newline at end of file
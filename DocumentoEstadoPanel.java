@@ -2,8 +2,12 @@ package taichi.gui;
 
 import taichi.controller.DocumentoEstadoController;
 import taichi.controller.AlumnoController;
+import taichi.dao.ConflictoVersionException;
 import taichi.model.DocumentoEstado;
 import taichi.model.Alumno;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -11,7 +15,9 @@ import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class DocumentoEstadoPanel extends JPanel {
@@ -21,7 +27,7 @@ public class DocumentoEstadoPanel extends JPanel {
 
     // Componentes de la UI
     private JTextField txtIdDocumentoEstado;
-    private JComboBox<Alumno> cmbAlumno; // ComboBox para seleccionar alumno
+    private SelectorAlumno selectorAlumno; // Búsqueda de alumno por nombre o DNI
     private JTextField txtTipoDocumento;
     private JTextField txtFechaPresentacion; // Formato YYYY-MM-DD
     private JCheckBox chkEntregado;
@@ -35,6 +41,11 @@ public class DocumentoEstadoPanel extends JPanel {
 
     private JTable documentoEstadoTable;
     private DefaultTableModel tableModel;
+    private int versionEnEdicion; // Versión del registro cargado en el formulario
+
+    // Nombres de alumno ya conocidos (para armar filas sin consultar) y alumno por el que se filtró la tabla (null = todos)
+    private final Map<Integer, String> nombresAlumnos = new HashMap<>();
+    private Integer idAlumnoFiltrado;
 
     // Formateador de fechas
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -54,7 +65,7 @@ public class DocumentoEstadoPanel extends JPanel {
         // Inicializar componentes
         txtIdDocumentoEstado = new JTextField(10);
         txtIdDocumentoEstado.setEditable(false);
-        cmbAlumno = new JComboBox<>();
+        selectorAlumno = new SelectorAlumno(alumnoController);
         txtTipoDocumento = new JTextField(20);
         txtFechaPresentacion = new JTextField(10);
         chkEntregado = new JCheckBox("Entregado");
@@ -70,7 +81,7 @@ public class DocumentoEstadoPanel extends JPanel {
         gbc.gridx = 1; gbc.gridy = row++; formPanel.add(txtIdDocumentoEstado, gbc);
 
         gbc.gridx = 0; gbc.gridy = row; formPanel.add(new JLabel("Alumno:"), gbc);
-        gbc.gridx = 1; gbc.gridy = row++; formPanel.add(cmbAlumno, gbc);
+        gbc.gridx = 1; gbc.gridy = row++; formPanel.add(selectorAlumno, gbc);
 
         gbc.gridx = 0; gbc.gridy = row; formPanel.add(new JLabel("Tipo Documento:"), gbc);
         gbc.gridx = 1; gbc.gridy = row++; formPanel.add(txtTipoDocumento, gbc);
@@ -104,7 +115,7 @@ public class DocumentoEstadoPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         // --- Configuración de la Tabla ---
-        String[] columnNames = {"ID", "ID Alumno", "Alumno", "Tipo Documento", "Fecha Presentación", "Entregado", "Notas"};
+        String[] columnNames = {"ID", "ID Alumno", "Alumno", "Tipo Documento", "Fecha Presentación", "Entregado", "Notas", DialogoConflicto.COLUMNA_VERSION};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -112,6 +123,7 @@ public class DocumentoEstadoPanel extends JPanel {
             }
         };
         documentoEstadoTable = new JTable(tableModel);
+        DialogoConflicto.ocultarColumnaVersion(documentoEstadoTable);
         documentoEstadoTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(documentoEstadoTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -120,7 +132,10 @@ public class DocumentoEstadoPanel extends JPanel {
         btnGuardar.addActionListener(e -> guardarDocumentoEstado());
         btnActualizar.addActionListener(e -> actualizarDocumentoEstado());
         btnEliminar.addActionListener(e -> eliminarDocumentoEstado());
-        btnLimpiar.addActionListener(e -> limpiarCampos());
+        btnLimpiar.addActionListener(e -> {
+            limpiarCampos();
+            cargarTodosLosDocumentosEstado(); // Volver a cargar todos los documentos
+        });
         btnConsultarDocumentosAlumno.addActionListener(e -> consultarDocumentosAlumnoSeleccionado());
 
         documentoEstadoTable.getSelectionModel().addListSelectionListener(e -> {
@@ -130,26 +145,16 @@ public class DocumentoEstadoPanel extends JPanel {
         });
 
         // Cargar datos iniciales
-        cargarAlumnosEnComboBox();
         cargarTodosLosDocumentosEstado();
-    }
 
-    private void cargarAlumnosEnComboBox() {
-        cmbAlumno.removeAllItems();
-        try {
-            List<Alumno> alumnos = alumnoController.obtenerTodosLosAlumnos();
-            for (Alumno alumno : alumnos) {
-                cmbAlumno.addItem(alumno);
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al cargar alumnos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
+        // Cada alta, modificación o baja confirmada actualiza solo su fila, sin volver a consultar la tabla
+        BusEventos.getInstancia().suscribir(DocumentoEstado.class, Asincrono.EN_INTERFAZ, this::aplicarCambioDocumento);
+        BusEventos.getInstancia().suscribir(Alumno.class, Asincrono.EN_INTERFAZ, this::aplicarCambioAlumno);
     }
 
     private void guardarDocumentoEstado() {
         try {
-            Alumno selectedAlumno = (Alumno) cmbAlumno.getSelectedItem();
+            Alumno selectedAlumno = selectorAlumno.getAlumnoSeleccionado();
             if (selectedAlumno == null) {
                 JOptionPane.showMessageDialog(this, "Debe seleccionar un Alumno.", "Error de Validación", JOptionPane.WARNING_MESSAGE);
                 return;
@@ -174,7 +179,6 @@ public class DocumentoEstadoPanel extends JPanel {
 
             JOptionPane.showMessageDialog(this, "Documento registrado con éxito. ID: " + nuevoDocumento.getIdDocumentoEstado(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
             limpiarCampos();
-            cargarTodosLosDocumentosEstado();
         } catch (DateTimeParseException e) {
             JOptionPane.showMessageDialog(this, "Formato de fecha inválido. Use YYYY-MM-DD.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException e) {
@@ -193,7 +197,7 @@ public class DocumentoEstadoPanel extends JPanel {
 
         try {
             int idDocumentoEstado = Integer.parseInt(txtIdDocumentoEstado.getText());
-            Alumno selectedAlumno = (Alumno) cmbAlumno.getSelectedItem();
+            Alumno selectedAlumno = selectorAlumno.getAlumnoSeleccionado();
             if (selectedAlumno == null) {
                 JOptionPane.showMessageDialog(this, "Debe seleccionar un Alumno.", "Error de Validación", JOptionPane.WARNING_MESSAGE);
                 return;
@@ -217,11 +221,15 @@ public class DocumentoEstadoPanel extends JPanel {
                     txtNotas.getText()
             );
 
-            boolean exito = documentoEstadoController.actualizarDocumentoEstado(documentoActualizar);
+            documentoActualizar.setVersion(versionEnEdicion);
+
+            Boolean exito = guardarCambios(documentoActualizar);
+            if (exito == null) {
+                return; // Conflicto sin guardar: el usuario sigue en el formulario
+            }
             if (exito) {
                 JOptionPane.showMessageDialog(this, "Documento actualizado con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 limpiarCampos();
-                cargarTodosLosDocumentosEstado();
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo actualizar el documento.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -251,7 +259,6 @@ public class DocumentoEstadoPanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Documento eliminado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarTodosLosDocumentosEstado();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo eliminar el documento.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -266,32 +273,21 @@ public class DocumentoEstadoPanel extends JPanel {
 
     private void limpiarCampos() {
         txtIdDocumentoEstado.setText("");
-        cmbAlumno.setSelectedIndex(-1);
+        selectorAlumno.limpiar();
         txtTipoDocumento.setText("");
         txtFechaPresentacion.setText("");
         chkEntregado.setSelected(false);
         txtNotas.setText("");
         documentoEstadoTable.clearSelection();
-        cargarTodosLosDocumentosEstado(); // Volver a cargar todos los documentos
     }
 
     private void cargarTodosLosDocumentosEstado() {
         tableModel.setRowCount(0);
+        idAlumnoFiltrado = null;
         try {
             List<DocumentoEstado> documentos = documentoEstadoController.obtenerTodosLosDocumentosEstado();
             for (DocumentoEstado doc : documentos) {
-                Alumno alumno = alumnoController.obtenerAlumnoPorId(doc.getIdAlumno());
-                String nombreAlumno = (alumno != null) ? alumno.getNombreCompleto() : "Desconocido";
-
-                tableModel.addRow(new Object[]{
-                    doc.getIdDocumentoEstado(),
-                    doc.getIdAlumno(),
-                    nombreAlumno,
-                    doc.getTipoDocumento(),
-                    (doc.getFechaPresentacion() != null) ? ((LocalDate) doc.getFechaPresentacion()).format(DATE_FORMATTER) : "",
-                    doc.isEntregado() ? "Sí" : "No",
-                    doc.getNotas()
-                });
+                tableModel.addRow(filaDocumento(doc));
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error al cargar documentos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -300,25 +296,19 @@ public class DocumentoEstadoPanel extends JPanel {
     }
 
     private void consultarDocumentosAlumnoSeleccionado() {
-        Alumno selectedAlumno = (Alumno) cmbAlumno.getSelectedItem();
+        Alumno selectedAlumno = selectorAlumno.getAlumnoSeleccionado();
         if (selectedAlumno == null) {
-            JOptionPane.showMessageDialog(this, "Seleccione un alumno del ComboBox para consultar sus documentos.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Busque y seleccione un alumno para consultar sus documentos.", "Advertencia", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
         tableModel.setRowCount(0); // Limpiar tabla
+        idAlumnoFiltrado = selectedAlumno.getIdAlumno();
+        nombresAlumnos.put(selectedAlumno.getIdAlumno(), selectedAlumno.getNombreCompleto()); // Ya tenemos el alumno seleccionado
         try {
             List<DocumentoEstado> documentos = documentoEstadoController.obtenerDocumentosEstadoPorAlumno(selectedAlumno.getIdAlumno());
             for (DocumentoEstado doc : documentos) {
-                tableModel.addRow(new Object[]{
-                    doc.getIdDocumentoEstado(),
-                    doc.getIdAlumno(),
-                    selectedAlumno.getNombreCompleto(), // Ya tenemos el alumno seleccionado
-                    doc.getTipoDocumento(),
-                    (doc.getFechaPresentacion() != null) ? ((LocalDate) doc.getFechaPresentacion()).format(DATE_FORMATTER) : "",
-                    doc.isEntregado() ? "Sí" : "No",
-                    doc.getNotas()
-                });
+                tableModel.addRow(filaDocumento(doc));
             }
             if (documentos.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "El alumno seleccionado no tiene documentos registrados.", "Información", JOptionPane.INFORMATION_MESSAGE);
@@ -330,9 +320,79 @@ public class DocumentoEstadoPanel extends JPanel {
     }
 
 
+    // Guarda los cambios del formulario; si otro usuario guardó el registro mientras tanto, muestra las diferencias y deja elegir
+    private Boolean guardarCambios(DocumentoEstado documento) throws Exception {
+        try {
+            return documentoEstadoController.actualizarDocumentoEstado(documento);
+        } catch (ConflictoVersionException e) {
+            DocumentoEstado guardado = (DocumentoEstado) e.getRegistroActual();
+            switch (DialogoConflicto.preguntar(this, tableModel, filaDocumento(documento), filaDocumento(guardado))) {
+                case SOBRESCRIBIR:
+                    documento.setVersion(guardado.getVersion());
+                    return guardarCambios(documento);
+                case USAR_GUARDADO:
+                    DialogoConflicto.seleccionarGuardado(documentoEstadoTable, tableModel, guardado.getIdDocumentoEstado(), filaDocumento(guardado));
+                    mostrarDocumentoEstadoSeleccionado();
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private Object[] filaDocumento(DocumentoEstado doc) {
+        return new Object[]{
+            doc.getIdDocumentoEstado(),
+            doc.getIdAlumno(),
+            obtenerNombreAlumno(doc.getIdAlumno()),
+            doc.getTipoDocumento(),
+            (doc.getFechaPresentacion() != null) ? ((LocalDate) doc.getFechaPresentacion()).format(DATE_FORMATTER) : "",
+            doc.isEntregado() ? "Sí" : "No",
+            doc.getNotas(),
+            doc.getVersion()
+        };
+    }
+
+    // Nombre del alumno para la tabla: se consulta una sola vez por alumno
+    private String obtenerNombreAlumno(int idAlumno) {
+        String nombre = nombresAlumnos.get(idAlumno);
+        if (nombre == null) {
+            try {
+                Alumno alumno = alumnoController.obtenerAlumnoPorId(idAlumno);
+                nombre = (alumno != null) ? alumno.getNombreCompleto() : "Desconocido";
+            } catch (Exception e) {
+                return "Desconocido";
+            }
+            nombresAlumnos.put(idAlumno, nombre);
+        }
+        return nombre;
+    }
+
+    private void aplicarCambioDocumento(EventoCambio<DocumentoEstado> evento) {
+        // Con la tabla filtrada por alumno, los documentos de otros alumnos no se muestran
+        // (si la fila estaba, es que se pasó a otro alumno desde otro puesto, y se quita)
+        if (evento.getTipo() != EventoCambio.Tipo.ELIMINADO && idAlumnoFiltrado != null
+                && evento.getEntidad().getIdAlumno() != idAlumnoFiltrado) {
+            ActualizadorTabla.eliminar(tableModel, evento.getId());
+            return;
+        }
+        ActualizadorTabla.aplicar(tableModel, evento, this::filaDocumento);
+    }
+
+    // Si cambia el nombre de un alumno, se corrige en sus filas
+    private void aplicarCambioAlumno(EventoCambio<Alumno> evento) {
+        if (evento.getTipo() == EventoCambio.Tipo.ELIMINADO) {
+            return;
+        }
+        String nombre = evento.getEntidad().getNombreCompleto();
+        nombresAlumnos.put(evento.getId(), nombre);
+        ActualizadorTabla.actualizarReferencias(tableModel, 1, evento.getId(), 2, nombre);
+    }
+
     private void mostrarDocumentoEstadoSeleccionado() {
         int selectedRow = documentoEstadoTable.getSelectedRow();
         if (selectedRow >= 0) {
+            versionEnEdicion = DialogoConflicto.versionDeFila(tableModel, selectedRow);
             txtIdDocumentoEstado.setText(tableModel.getValueAt(selectedRow, 0).toString());
             txtTipoDocumento.setText(tableModel.getValueAt(selectedRow, 3).toString());
             
@@ -342,15 +402,9 @@ public class DocumentoEstadoPanel extends JPanel {
             chkEntregado.setSelected(tableModel.getValueAt(selectedRow, 5).equals("Sí"));
             txtNotas.setText(tableModel.getValueAt(selectedRow, 6) != null ? tableModel.getValueAt(selectedRow, 6).toString() : "");
 
-            // Seleccionar el Alumno correcto en el ComboBox
+            // Seleccionar el Alumno correcto en el selector
             int idAlumnoEnTabla = (int) tableModel.getValueAt(selectedRow, 1);
-            for (int i = 0; i < cmbAlumno.getItemCount(); i++) {
-                Alumno alumnoEnCmb = cmbAlumno.getItemAt(i);
-                if (alumnoEnCmb != null && alumnoEnCmb.getIdAlumno() == idAlumnoEnTabla) {
-                    cmbAlumno.setSelectedItem(alumnoEnCmb);
-                    break;
-                }
-            }
+            selectorAlumno.seleccionarPorId(idAlumnoEnTabla);
         }
     }
 }
\ No newline at end of file
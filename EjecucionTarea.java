@@ -0,0 +1,125 @@
+package taichi.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de una ejecución de una tarea en segundo plano (tabla tareas_historial).
+ */
+public class EjecucionTarea {
+
+    public static final String ESTADO_EXITOSA = "EXITOSA";
+    public static final String ESTADO_FALLIDA = "FALLIDA";
+    public static final String ESTADO_OMITIDA = "OMITIDA"; // La ejecución anterior de la misma tarea seguía en curso
+
+    private int idEjecucion;
+    private String tipo;                 // Tipo de tarea; el límite de concurrencia se aplica por tipo
+    private String nombre;
+    private String disparador;           // "CRON", "UNA_VEZ" o "MANUAL"
+    private LocalDateTime fechaProgramada;
+    private LocalDateTime fechaInicio;   // Cuando empezó a correr (después de esperar un lugar libre de su tipo)
+    private LocalDateTime fechaFin;
+    private String estado;
+    private String mensaje;              // Resumen devuelto por la tarea o mensaje de error
+
+    public EjecucionTarea() {
+    }
+
+    public EjecucionTarea(int idEjecucion, String tipo, String nombre, String disparador, LocalDateTime fechaProgramada,
+                          LocalDateTime fechaInicio, LocalDateTime fechaFin, String estado, String mensaje) {
+        this.idEjecucion = idEjecucion;
+        this.tipo = tipo;
+        this.nombre = nombre;
+        this.disparador = disparador;
+        this.fechaProgramada = fechaProgramada;
+        this.fechaInicio = fechaInicio;
+        this.fechaFin = fechaFin;
+        this.estado = estado;
+        this.mensaje = mensaje;
+    }
+
+    public int getIdEjecucion() {
+        return idEjecucion;
+    }
+
+    public void setIdEjecucion(int idEjecucion) {
+        this.idEjecucion = idEjecucion;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getDisparador() {
+        return disparador;
+    }
+
+    public void setDisparador(String disparador) {
+        this.disparador = disparador;
+    }
+
+    public LocalDateTime getFechaProgramada() {
+        return fechaProgramada;
+    }
+
+    public void setFechaProgramada(LocalDateTime fechaProgramada) {
+        this.fechaProgramada = fechaProgramada;
+    }
+
+    public LocalDateTime getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public void setFechaInicio(LocalDateTime fechaInicio) {
+        this.fechaInicio = fechaInicio;
+    }
+
+    public LocalDateTime getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(LocalDateTime fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+
+    @Override
+    public String toString() {
+        return "EjecucionTarea{" +
+               "idEjecucion=" + idEjecucion +
+               ", tipo='" + tipo + '\'' +
+               ", nombre='" + nombre + '\'' +
+               ", disparador='" + disparador + '\'' +
+               ", fechaInicio=" + fechaInicio +
+               ", fechaFin=" + fechaFin +
+               ", estado='" + estado + '\'' +
+               ", mensaje='" + mensaje + '\'' +
+               '}';
+    }
+}
@@ -0,0 +1,34 @@
+package taichi.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exporta filas a CSV (ver {@link CsvUtil}) escribiéndolas directamente en el archivo.
+ */
+public class EscritorCsv implements EscritorFilas {
+
+    private final Writer writer;
+
+    /**
+     * @param salida Flujo de destino; se cierra al cerrar el escritor.
+     */
+    public EscritorCsv(OutputStream salida) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write(CsvUtil.BOM_UTF8);
+    }
+
+    @Override
+    public void escribirFila(Object... valores) throws IOException {
+        CsvUtil.escribirFila(writer, valores);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
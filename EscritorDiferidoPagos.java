@@ -0,0 +1,241 @@
+package taichi.controller;
+
+import taichi.dao.DiarioPagos;
+import taichi.dao.PagoDAO;
+import taichi.model.Dinero;
+import taichi.model.Pago;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
+import taichi.util.HilosVirtuales;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Escritura diferida de pagos: el pago se anota en el {@link DiarioPagos} local y se da un recibo provisorio
+ * sin esperar a que se guarde en la BD; un hilo en segundo plano los junta en lotes y los guarda con un solo commit por lote.
+ *
+ * Los pagos que quedaron en el diario (por un corte o por cerrar la aplicación con pagos en cola) se reenvían
+ * al iniciar; la clave de idempotencia de cada pago evita que se inserten dos veces.
+ *
+ * Lo cobrado y todavía sin guardar se lleva aparte de la cola ({@link #montoPagado}): un pago sale de esa vista
+ * en el mismo bloqueo en que se hace el commit de su lote, así una consulta nunca lo cuenta dos veces (en la BD
+ * y como pendiente) ni deja de contarlo mientras pasa de la cola al lote.
+ *
+ * Si falla la conexión, el lote se reintenta entero más tarde. Si la BD rechaza el lote por otro motivo, se
+ * guarda pago por pago y los que se rechazan pasan al archivo de rechazados del diario, para que un solo pago
+ * con datos inválidos no trabe a los que vienen detrás.
+ */
+public class EscritorDiferidoPagos {
+
+    private static final Logger LOGGER = Logger.getLogger(EscritorDiferidoPagos.class.getName());
+
+    private static final int PAGOS_POR_LOTE = 100;
+    // Cuánto se espera a que lleguen más pagos antes de guardar un lote incompleto
+    private static final long ESPERA_LOTE_MS = 20;
+    // Espera antes de reintentar un lote que falló (por ejemplo, sin conexión a la BD)
+    private static final long ESPERA_REINTENTO_MS = 5000;
+
+    private PagoDAO pagoDAO;
+    private DiarioPagos diario;
+
+    /**
+     * Consulta de lo ya guardado en la BD que se suma a lo pendiente (ver {@link #montoPagado}).
+     */
+    @FunctionalInterface
+    public interface ConsultaMonto {
+        Dinero consultar() throws SQLException;
+    }
+
+    private final BlockingQueue<Pago> cola = new LinkedBlockingQueue<>();
+    private final List<Pago> loteEnCurso = new ArrayList<>(); // Sacado de la cola pero todavía sin guardar (solo lo usa el hilo)
+    // Anotados en el diario y todavía sin commit en la BD; se modifica y se lee bajo su propio bloqueo
+    private final List<Pago> sinGuardar = new ArrayList<>();
+    private Thread hilo;
+
+    public EscritorDiferidoPagos(PagoDAO pagoDAO, DiarioPagos diario) {
+        this.pagoDAO = pagoDAO;
+        this.diario = diario;
+    }
+
+    /**
+     * Reencola los pagos que quedaron pendientes en el diario y arranca el hilo que los guarda.
+     * Llamadas posteriores no hacen nada.
+     * @throws IOException Si no se pudo leer el diario.
+     */
+    public synchronized void iniciar() throws IOException {
+        if (hilo != null) {
+            return;
+        }
+        List<Pago> pendientes = diario.pendientes();
+        if (!pendientes.isEmpty()) {
+            LOGGER.info(() -> "Se reenvían " + pendientes.size() + " pagos que quedaron en el diario local.");
+            synchronized (sinGuardar) {
+                sinGuardar.addAll(pendientes);
+            }
+            cola.addAll(pendientes);
+        }
+        hilo = HilosVirtuales.fabricaDaemon("escritor-pagos").newThread(this::procesar);
+        hilo.start();
+    }
+
+    /**
+     * Detiene el hilo. Lo que quede en la cola sigue anotado en el diario y se guarda al volver a iniciar.
+     */
+    public synchronized void detener() {
+        if (hilo != null) {
+            hilo.interrupt();
+            hilo = null;
+        }
+    }
+
+    /**
+     * Anota el pago en el diario (en disco) y lo deja en cola para guardarlo en la BD.
+     * @param pago Pago con su clave de idempotencia asignada.
+     * @throws IOException Si no se pudo anotar; en ese caso el pago no quedó registrado.
+     */
+    public void encolar(Pago pago) throws IOException {
+        diario.anotar(pago);
+        synchronized (sinGuardar) {
+            sinGuardar.add(pago);
+        }
+        cola.add(pago);
+    }
+
+    /**
+     * Suma lo pagado por un alumno para un período: lo guardado en la BD más los pagos que todavía no llegaron
+     * (para no tomar como deuda lo que ya se cobró). La consulta a la BD se hace sin que se guarde un lote en el
+     * medio, así cada pago se cuenta una sola vez.
+     * @param enBD Consulta de lo ya guardado en la BD.
+     * @throws SQLException Si falla la consulta.
+     */
+    public Dinero montoPagado(int idAlumno, int idPeriodo, ConsultaMonto enBD) throws SQLException {
+        synchronized (sinGuardar) {
+            long centavos = enBD.consultar().getCentavos();
+            for (Pago pago : sinGuardar) {
+                if (pago.getIdAlumno() == idAlumno && pago.getIdPeriodo() == idPeriodo) {
+                    centavos = Dinero.sumar(centavos, pago.getMontoPagado().getCentavos());
+                }
+            }
+            return Dinero.deCentavos(centavos);
+        }
+    }
+
+    /**
+     * @return Cantidad de pagos que todavía no se guardaron en la BD.
+     */
+    public int cantidadPendientes() {
+        synchronized (sinGuardar) {
+            return sinGuardar.size();
+        }
+    }
+
+    private void procesar() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                armarLote();
+                guardarLote();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Espera el primer pago y junta los que lleguen enseguida, hasta completar el lote
+    private void armarLote() throws InterruptedException {
+        if (!loteEnCurso.isEmpty()) {
+            return; // Lote anterior que falló: se reintenta igual
+        }
+        loteEnCurso.add(cola.take());
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_LOTE_MS);
+        while (loteEnCurso.size() < PAGOS_POR_LOTE) {
+            Pago siguiente = cola.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            loteEnCurso.add(siguiente);
+            cola.drainTo(loteEnCurso, PAGOS_POR_LOTE - loteEnCurso.size());
+        }
+    }
+
+    private void guardarLote() throws InterruptedException {
+        List<Pago> lote = new ArrayList<>(loteEnCurso);
+        List<Pago> insertados;
+        try {
+            try {
+                insertados = guardarEnBD(lote);
+            } catch (SQLException e) {
+                if (ModoSinConexion.esErrorDeConexion(e)) {
+                    throw e;
+                }
+                LOGGER.log(Level.WARNING, "La BD rechazó un lote de " + lote.size() + " pagos, se guardan de a uno: " + e.getMessage(), e);
+                insertados = guardarDeAUno(lote);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar un lote de " + lote.size() + " pagos, se reintenta: " + e.getMessage(), e);
+            Thread.sleep(ESPERA_REINTENTO_MS);
+            return;
+        }
+
+        try {
+            diario.confirmar(lote);
+            if (cola.isEmpty()) {
+                diario.compactar();
+            }
+        } catch (IOException e) {
+            // Los pagos ya están en la BD; si se reenvían al recuperar el diario, la clave evita duplicarlos
+            LOGGER.log(Level.WARNING, "No se pudo actualizar el diario de pagos: " + e.getMessage(), e);
+        }
+        loteEnCurso.clear();
+        // Los que ya estaban (diario reenviado después de un corte) se publicaron cuando se guardaron
+        for (Pago pago : insertados) {
+            BusEventos.getInstancia().publicar(Pago.class, EventoCambio.creado(pago.getIdPago(), pago));
+        }
+        LOGGER.fine(() -> "Lote de " + lote.size() + " pagos guardado en la BD.");
+    }
+
+    // Guarda cada pago por separado; los que la BD rechaza salen del lote (y del diario, si se pudieron pasar
+    // a rechazados). Un error de conexión corta y el lote se reintenta entero (los ya guardados no se duplican)
+    private List<Pago> guardarDeAUno(List<Pago> lote) throws SQLException {
+        List<Pago> insertados = new ArrayList<>();
+        for (Pago pago : new ArrayList<>(lote)) {
+            try {
+                insertados.addAll(guardarEnBD(Collections.singletonList(pago)));
+            } catch (SQLException e) {
+                if (ModoSinConexion.esErrorDeConexion(e)) {
+                    throw e;
+                }
+                lote.remove(pago);
+                loteEnCurso.remove(pago);
+                synchronized (sinGuardar) {
+                    sinGuardar.remove(pago); // No se cobró: no cuenta como pagado
+                }
+                try {
+                    diario.rechazar(pago, e.getMessage());
+                    LOGGER.log(Level.SEVERE, "Pago rechazado por la BD, se pasó a " + diario.getArchivoRechazados() + ": " + pago, e);
+                } catch (IOException ex) {
+                    // Queda pendiente en el diario: se vuelve a intentar (y a rechazar) al iniciar la próxima vez
+                    LOGGER.log(Level.SEVERE, "Pago rechazado por la BD que no se pudo pasar a rechazados: " + pago, ex);
+                }
+            }
+        }
+        return insertados;
+    }
+
+    // Hace el commit del lote y lo saca de lo pendiente en el mismo bloqueo que usa montoPagado
+    private List<Pago> guardarEnBD(List<Pago> lote) throws SQLException {
+        synchronized (sinGuardar) {
+            List<Pago> insertados = pagoDAO.crearLote(lote);
+            sinGuardar.removeAll(lote);
+            return insertados;
+        }
+    }
+}
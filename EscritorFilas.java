@@ -0,0 +1,18 @@
+package taichi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destino de una exportación que recibe las filas de a una, a medida que se leen de la base de datos.
+ * Las implementaciones escriben directamente al archivo, sin acumular el reporte en memoria.
+ */
+public interface EscritorFilas extends Closeable {
+
+    /**
+     * Escribe una fila. Los valores null se escriben como celdas vacías.
+     * @param valores Valores de la fila, en el orden de las columnas del encabezado.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    void escribirFila(Object... valores) throws IOException;
+}
@@ -0,0 +1,178 @@
+package taichi.util;
+
+import taichi.model.Dinero;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exporta filas a una planilla de Excel (.xlsx) de una sola hoja, escribiéndolas a medida que llegan.
+ *
+ * Un .xlsx es un ZIP con varios XML. Las partes fijas (tipos, relaciones, libro y estilos) se escriben al abrir;
+ * la hoja se escribe fila por fila dentro de su entrada del ZIP y se cierra en {@link #close()}.
+ * Los textos van como "inlineStr" (dentro de la misma celda), así no hace falta armar la tabla de textos
+ * compartidos del libro, que obligaría a guardar todos los valores en memoria hasta el final.
+ *
+ * Números como números, fechas como fechas de Excel (formato dd/mm/aaaa) y el resto como texto.
+ */
+public class EscritorXlsx implements EscritorFilas {
+
+    // Excel cuenta los días desde el 30/12/1899 (el "1900" con su año bisiesto inexistente)
+    private static final LocalDate ORIGEN_FECHAS = LocalDate.of(1899, 12, 30);
+
+    private static final String CONTENT_TYPES =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+        + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+        + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+        + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+        + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+        + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+        + "</Types>";
+
+    private static final String RELS =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+        + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+        + "</Relationships>";
+
+    private static final String WORKBOOK_RELS =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+        + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+        + "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>"
+        + "</Relationships>";
+
+    // Estilo 0: general; estilo 1: fecha (formato 14); estilo 2: encabezado en negrita
+    private static final String STYLES =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+        + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+        + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+        + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+        + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+        + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+        + "<cellXfs count=\"3\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+        + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+        + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+        + "</styleSheet>";
+
+    private final ZipOutputStream zip;
+    private final Writer hoja;
+    private int filasEscritas = 0;
+
+    /**
+     * @param salida Flujo de destino; se cierra al cerrar el escritor.
+     * @param nombreHoja Nombre de la hoja (Excel admite hasta 31 caracteres).
+     */
+    public EscritorXlsx(OutputStream salida, String nombreHoja) throws IOException {
+        this.zip = new ZipOutputStream(salida, StandardCharsets.UTF_8);
+        this.hoja = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+
+        escribirParte("[Content_Types].xml", CONTENT_TYPES);
+        escribirParte("_rels/.rels", RELS);
+        escribirParte("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+        escribirParte("xl/styles.xml", STYLES);
+        String nombre = nombreHoja.length() > 31 ? nombreHoja.substring(0, 31) : nombreHoja;
+        escribirParte("xl/workbook.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+            + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+            + "<sheets><sheet name=\"" + escaparXml(nombre) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+            + "</workbook>");
+
+        // La hoja queda abierta: las filas se agregan con escribirFila
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        hoja.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews>"
+            + "<sheetData>");
+    }
+
+    /**
+     * Escribe una fila. La primera fila se toma como encabezado: va en negrita y queda fija al desplazarse.
+     */
+    @Override
+    public void escribirFila(Object... valores) throws IOException {
+        boolean encabezado = filasEscritas == 0;
+        filasEscritas++;
+        hoja.write("<row r=\"");
+        hoja.write(Integer.toString(filasEscritas));
+        hoja.write("\">");
+        for (Object valor : valores) {
+            if (valor == null) {
+                hoja.write("<c/>");
+            } else if ((valor instanceof Number || valor instanceof Dinero) && !encabezado) {
+                hoja.write("<c><v>");
+                hoja.write(numero(valor));
+                hoja.write("</v></c>");
+            } else if (valor instanceof LocalDate && !encabezado) {
+                hoja.write("<c s=\"1\"><v>");
+                hoja.write(Long.toString(ChronoUnit.DAYS.between(ORIGEN_FECHAS, (LocalDate) valor)));
+                hoja.write("</v></c>");
+            } else {
+                hoja.write(encabezado ? "<c t=\"inlineStr\" s=\"2\"><is><t>" : "<c t=\"inlineStr\"><is><t>");
+                hoja.write(escaparXml(valor.toString()));
+                hoja.write("</t></is></c>");
+            }
+        }
+        hoja.write("</row>");
+    }
+
+    /**
+     * Cierra la hoja y el ZIP. Hasta que no se cierra, el archivo no es una planilla válida.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            hoja.write("</sheetData></worksheet>");
+            hoja.flush();
+            zip.closeEntry();
+            zip.finish();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void escribirParte(String nombre, String contenido) throws IOException {
+        zip.putNextEntry(new ZipEntry(nombre));
+        zip.write(contenido.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static String numero(Object valor) {
+        if (valor instanceof BigDecimal) {
+            return ((BigDecimal) valor).toPlainString();
+        }
+        // Dinero.toString() ya da el importe con punto decimal, como lo guarda la planilla
+        return valor.toString();
+    }
+
+    // Escapa los caracteres especiales de XML y descarta los de control, que Excel no admite
+    private static String escaparXml(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 8);
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '"': sb.append("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package taichi.util;
+
+/**
+ * Cambio de una entidad ya confirmado en la base de datos, tal como lo publica un controlador en {@link BusEventos}.
+ * @param <T> Tipo de la entidad (Alumno, Pago, ...).
+ */
+public final class EventoCambio<T> {
+
+    public enum Tipo {
+        CREADO,
+        ACTUALIZADO,
+        ELIMINADO
+    }
+
+    private final Tipo tipo;
+    private final int id;
+    private final T entidad;
+
+    private EventoCambio(Tipo tipo, int id, T entidad) {
+        this.tipo = tipo;
+        this.id = id;
+        this.entidad = entidad;
+    }
+
+    public static <T> EventoCambio<T> creado(int id, T entidad) {
+        return new EventoCambio<>(Tipo.CREADO, id, entidad);
+    }
+
+    public static <T> EventoCambio<T> actualizado(int id, T entidad) {
+        return new EventoCambio<>(Tipo.ACTUALIZADO, id, entidad);
+    }
+
+    public static <T> EventoCambio<T> eliminado(int id) {
+        return new EventoCambio<>(Tipo.ELIMINADO, id, null);
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * @return ID de la entidad que cambió.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return La entidad con sus datos actuales, o null si fue eliminada.
+     */
+    public T getEntidad() {
+        return entidad;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoCambio{" + tipo + ", id=" + id + "}";
+    }
+}
@@ -0,0 +1,180 @@
+package taichi.controller;
+
+import taichi.dao.FacturacionDAO;
+import taichi.model.Dinero;
+import taichi.model.ResultadoFacturacion;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class FacturacionController {
+
+    private static final Logger LOGGER = Logger.getLogger(FacturacionController.class.getName());
+
+    // Alumnos por lote: cada lote es una transacción corta, y es lo máximo que se repite si la corrida se corta
+    public static final int TAMANIO_LOTE_PREDETERMINADO = 500;
+
+    /**
+     * Aviso que se publica en {@link BusEventos} cuando cambian las cuotas de un período (cuotas generadas por la
+     * facturación o recargos aplicados). El ID del evento es el del período; no lleva entidad.
+     */
+    public static final class CuotasPeriodo {
+        private CuotasPeriodo() {
+        }
+    }
+
+    private FacturacionDAO facturacionDAO;
+
+    public FacturacionController() {
+        this(new FacturacionDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public FacturacionController(FacturacionDAO facturacionDAO) {
+        this.facturacionDAO = facturacionDAO;
+    }
+
+    /**
+     * Genera la cuota esperada del período para todos los alumnos activos, por lotes.
+     * Si una corrida anterior del mismo período quedó interrumpida, continúa desde su punto de control.
+     * Se puede volver a ejecutar sin riesgo: solo crea las cuotas que faltan (por ejemplo, de alumnos dados de alta después).
+     * @param idPeriodo ID del período a facturar.
+     * @param avance Recibe (alumnos procesados, alumnos a procesar) después de cada lote; puede ser null.
+     * @return El resultado de la corrida, con su throughput.
+     * @throws Exception Si el período no es válido o hay un error de base de datos (lo ya confirmado se conserva).
+     */
+    public ResultadoFacturacion ejecutarFacturacion(int idPeriodo, BiConsumer<Integer, Integer> avance) throws Exception {
+        return ejecutarFacturacion(idPeriodo, TAMANIO_LOTE_PREDETERMINADO, avance);
+    }
+
+    /**
+     * Igual que {@link #ejecutarFacturacion(int, BiConsumer)}, con un tamaño de lote a elección.
+     * @param tamanioLote Cantidad máxima de alumnos por lote.
+     */
+    public ResultadoFacturacion ejecutarFacturacion(int idPeriodo, int tamanioLote, BiConsumer<Integer, Integer> avance) throws Exception {
+        if (idPeriodo <= 0) {
+            throw new IllegalArgumentException("El ID de período debe ser un número positivo.");
+        }
+        if (tamanioLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser un número positivo.");
+        }
+
+        long inicio = System.nanoTime();
+        int procesados = 0;
+        int cuotasGeneradas = 0;
+        int lotes = 0;
+        boolean reanudada;
+        try {
+            if (!facturacionDAO.esPeriodoFacturable(idPeriodo)) {
+                throw new IllegalArgumentException("No existe un período de cuota activo con el ID: " + idPeriodo);
+            }
+            int ultimoIdAlumno = facturacionDAO.iniciarEjecucion(idPeriodo);
+            reanudada = ultimoIdAlumno > 0;
+            int total = facturacionDAO.contarAlumnosActivosDesde(ultimoIdAlumno);
+            if (reanudada) {
+                final int puntoDeControl = ultimoIdAlumno;
+                LOGGER.info(() -> "Reanudando la facturación del período " + idPeriodo + " desde el alumno " + puntoDeControl);
+            }
+
+            int[] lote;
+            while ((lote = facturacionDAO.procesarLote(idPeriodo, ultimoIdAlumno, tamanioLote)) != null) {
+                ultimoIdAlumno = lote[0];
+                procesados += lote[1];
+                cuotasGeneradas += lote[2];
+                lotes++;
+                if (avance != null) {
+                    avance.accept(procesados, Math.max(total, procesados));
+                }
+                final int numeroLote = lotes;
+                final int[] datosLote = lote;
+                LOGGER.fine(() -> "Facturación período " + idPeriodo + ": lote " + numeroLote + " hasta alumno " + datosLote[0]
+                        + " (" + datosLote[1] + " alumnos, " + datosLote[2] + " cuotas nuevas)");
+            }
+            facturacionDAO.finalizarEjecucion(idPeriodo);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Facturación del período " + idPeriodo + " interrumpida tras " + procesados
+                    + " alumnos: " + e.getMessage(), e);
+            throw new Exception("Error en la facturación del período (se puede reanudar volviendo a ejecutarla): " + e.getMessage());
+        } finally {
+            if (cuotasGeneradas > 0) {
+                avisarCambioCuotas(idPeriodo); // Los lotes confirmados quedan aunque la corrida se corte
+            }
+        }
+
+        ResultadoFacturacion resultado = new ResultadoFacturacion(idPeriodo, reanudada, lotes, procesados,
+                cuotasGeneradas, (System.nanoTime() - inicio) / 1_000_000);
+        LOGGER.info(() -> "Facturación del período " + idPeriodo + " completada: " + resultado.getCuotasGeneradas()
+                + " cuotas nuevas, " + resultado.getAlumnosProcesados() + " alumnos en " + resultado.getLotes() + " lotes, "
+                + resultado.getDuracionMillis() + " ms (" + String.format("%.1f", resultado.getAlumnosPorSegundo()) + " alumnos/s)");
+        return resultado;
+    }
+
+    /**
+     * Aplica el recargo de cada período vencido a todas las cuotas con saldo impago a la fecha de vencimiento
+     * y marca como revisadas las demás. Trabaja por lotes de alumnos, con una transacción por lote. Repetirlo no
+     * aplica recargos dos veces ni vuelve a revisar las cuotas ya revisadas.
+     * @param fecha Fecha de referencia: se revisan los períodos con vencimiento anterior a ella.
+     * @return Cantidad total de cuotas a las que se aplicó recargo.
+     * @throws Exception Si ocurre un error de base de datos (los lotes ya aplicados se conservan).
+     */
+    public int aplicarRecargosVencidos(LocalDate fecha) throws Exception {
+        int total = 0;
+        try {
+            List<Integer> periodos = facturacionDAO.obtenerPeriodosConRecargoPendiente(fecha);
+            for (int idPeriodo : periodos) {
+                long inicio = System.nanoTime();
+                int recargadas = 0;
+                int ultimoIdAlumno = 0;
+                int[] lote;
+                try {
+                    while ((lote = facturacionDAO.aplicarRecargosLote(idPeriodo, ultimoIdAlumno, TAMANIO_LOTE_PREDETERMINADO, fecha)) != null) {
+                        ultimoIdAlumno = lote[0];
+                        recargadas += lote[1];
+                        final int[] datosLote = lote;
+                        LOGGER.fine(() -> "Recargos período " + idPeriodo + ": lote hasta alumno " + datosLote[0] + ", " + datosLote[1] + " cuotas recargadas");
+                    }
+                } finally {
+                    if (recargadas > 0) {
+                        avisarCambioCuotas(idPeriodo);
+                    }
+                }
+                total += recargadas;
+                final int recargadasPeriodo = recargadas;
+                final long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+                LOGGER.info(() -> "Recargos aplicados en el período " + idPeriodo + ": " + recargadasPeriodo + " cuotas (" + duracionMs + " ms)");
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al aplicar recargos vencidos: " + e.getMessage(), e);
+            throw new Exception("Error al aplicar recargos vencidos: " + e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene el recargo que el job dejó guardado en la cuota del alumno en el período.
+     * @return El recargo guardado (0 si el job revisó la cuota y no corresponde), o null si el job todavía
+     *         no la revisó o no hay cuota generada.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public Dinero obtenerRecargoAplicado(int idAlumno, int idPeriodo) throws Exception {
+        try {
+            return facturacionDAO.obtenerRecargoCuota(idAlumno, idPeriodo);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener el recargo aplicado: " + e.getMessage(), e);
+            throw new Exception("Error al obtener el recargo aplicado: " + e.getMessage());
+        }
+    }
+
+    // Los reportes guardados que dependen de las cuotas (ver CacheReportes) se descartan con este aviso
+    private void avisarCambioCuotas(int idPeriodo) {
+        BusEventos.getInstancia().publicar(CuotasPeriodo.class, EventoCambio.actualizado(idPeriodo, null));
+    }
+}
@@ -0,0 +1,375 @@
+package taichi.dao;
+
+import taichi.model.Dinero;
+import taichi.model.InstantaneaLocal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Acceso a datos de la facturación mensual: genera las cuotas esperadas (tabla cuotas_alumno) de un período
+ * para todos los alumnos activos y guarda el punto de control de cada corrida (tabla facturacion_ejecuciones).
+ *
+ * Los alumnos se recorren en lotes por rango de id_alumno. Cada lote es un único INSERT ... SELECT y se confirma
+ * en la misma transacción que el avance del punto de control, así que una corrida interrumpida se reanuda
+ * exactamente desde el último lote confirmado. La clave única (id_periodo, id_alumno) hace que repetir un lote
+ * (o toda la corrida) no genere cuotas duplicadas.
+ *
+ * También aplica los recargos por vencimiento: un UPDATE por lote marca con el recargo del período las cuotas
+ * con saldo impago a la fecha de vencimiento, y todas las cuotas del lote quedan marcadas como revisadas
+ * (fecha_revision_recargo). El estado queda guardado en la cuota (monto_recargo, fecha_recargo, fecha_revision_recargo),
+ * de modo que los pagos y los reportes lo leen en lugar de recalcularlo, y el job no vuelve a revisar las cuotas pagadas.
+ */
+public class FacturacionDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(FacturacionDAO.class.getName());
+
+    // Si la corrida anterior quedó EN_CURSO se conserva su punto de control; si terminó, se empieza de nuevo.
+    // MySQL evalúa las asignaciones en orden, por eso 'estado' se asigna al final.
+    private static final String SQL_INICIAR =
+        "INSERT INTO facturacion_ejecuciones (id_periodo, estado, ultimo_id_alumno, cuotas_generadas, fecha_inicio) "
+        + "VALUES (?, 'EN_CURSO', 0, 0, NOW()) "
+        + "ON DUPLICATE KEY UPDATE "
+        + "ultimo_id_alumno = IF(estado = 'EN_CURSO', ultimo_id_alumno, 0), "
+        + "cuotas_generadas = IF(estado = 'EN_CURSO', cuotas_generadas, 0), "
+        + "fecha_inicio = IF(estado = 'EN_CURSO', fecha_inicio, NOW()), "
+        + "fecha_fin = NULL, "
+        + "estado = 'EN_CURSO'";
+
+    // Último id_alumno y cantidad de alumnos del próximo lote
+    private static final String SQL_LIMITES_LOTE =
+        "SELECT MAX(id_alumno), COUNT(*) FROM ("
+        + "SELECT id_alumno FROM alumnos WHERE activo = TRUE AND id_alumno > ? ORDER BY id_alumno LIMIT ?"
+        + ") lote";
+
+    // El no-op del ON DUPLICATE KEY no cuenta como fila afectada: el resultado es la cantidad de cuotas nuevas
+    private static final String SQL_GENERAR_CUOTAS =
+        "INSERT INTO cuotas_alumno (id_periodo, id_alumno, monto_esperado) "
+        + "SELECT pc.id_periodo, a.id_alumno, pc.monto_esperado "
+        + "FROM alumnos a JOIN periodos_cuota pc ON pc.id_periodo = ? "
+        + "WHERE a.activo = TRUE AND a.id_alumno > ? AND a.id_alumno <= ? "
+        + "ON DUPLICATE KEY UPDATE id_cuota_alumno = id_cuota_alumno";
+
+    private static final String SQL_AVANZAR_CHECKPOINT =
+        "UPDATE facturacion_ejecuciones SET ultimo_id_alumno = ?, cuotas_generadas = cuotas_generadas + ? "
+        + "WHERE id_periodo = ?";
+
+    // Último id_alumno del próximo lote de cuotas del período
+    private static final String SQL_LIMITE_LOTE_CUOTAS =
+        "SELECT MAX(id_alumno) FROM ("
+        + "SELECT id_alumno FROM cuotas_alumno WHERE id_periodo = ? AND id_alumno > ? ORDER BY id_alumno LIMIT ?"
+        + ") lote";
+
+    // Recargo a las cuotas del lote aún sin revisar cuyo saldo a la fecha de vencimiento quedó impago.
+    // fecha_revision_recargo IS NULL hace que repetir el lote no vuelva a tocar las cuotas ya revisadas.
+    private static final String SQL_APLICAR_RECARGOS =
+        "UPDATE cuotas_alumno ca "
+        + "JOIN periodos_cuota pc ON pc.id_periodo = ca.id_periodo "
+        + "SET ca.monto_recargo = pc.monto_recargo, ca.fecha_recargo = ?, ca.fecha_revision_recargo = ? "
+        + "WHERE ca.id_periodo = ? AND ca.id_alumno > ? AND ca.id_alumno <= ? "
+        + "AND ca.fecha_revision_recargo IS NULL "
+        + "AND ca.monto_esperado > ("
+        + "SELECT COALESCE(SUM(p.monto_pagado), 0) FROM pagos p "
+        + "WHERE p.id_periodo = ca.id_periodo AND p.id_alumno = ca.id_alumno AND p.fecha_pago <= pc.fecha_vencimiento)";
+
+    // El resto de las cuotas del lote (pagadas al vencimiento) quedan revisadas, sin recargo
+    private static final String SQL_MARCAR_REVISADAS =
+        "UPDATE cuotas_alumno SET fecha_revision_recargo = ? "
+        + "WHERE id_periodo = ? AND id_alumno > ? AND id_alumno <= ? AND fecha_revision_recargo IS NULL";
+
+    /**
+     * Inicia una corrida de facturación para el período o reanuda la que quedó interrumpida.
+     * @param idPeriodo ID del período a facturar.
+     * @return El último id_alumno ya facturado (0 si la corrida empieza desde el principio).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public int iniciarEjecucion(int idPeriodo) throws SQLException {
+        String sqlConsulta = "SELECT ultimo_id_alumno FROM facturacion_ejecuciones WHERE id_periodo = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_INICIAR)) {
+                pstmt.setInt(1, idPeriodo);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlConsulta)) {
+                pstmt.setInt(1, idPeriodo);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int ultimoIdAlumno = rs.next() ? rs.getInt(1) : 0;
+                    LOGGER.fine(() -> "Facturación del período " + idPeriodo + " iniciada desde el alumno " + ultimoIdAlumno);
+                    return ultimoIdAlumno;
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al iniciar la facturación del período " + idPeriodo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Genera las cuotas del siguiente lote de alumnos activos y avanza el punto de control, en una sola transacción.
+     * @param idPeriodo ID del período a facturar.
+     * @param desdeIdAlumno Último id_alumno ya procesado (el lote empieza en el siguiente).
+     * @param tamanioLote Cantidad máxima de alumnos del lote.
+     * @return {último id_alumno del lote, alumnos del lote, cuotas nuevas}; null si no quedan alumnos por procesar.
+     * @throws SQLException Si ocurre un error de base de datos (el lote se deshace completo).
+     */
+    public int[] procesarLote(int idPeriodo, int desdeIdAlumno, int tamanioLote) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int hastaIdAlumno;
+                int alumnos;
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_LIMITES_LOTE)) {
+                    pstmt.setInt(1, desdeIdAlumno);
+                    pstmt.setInt(2, tamanioLote);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                        hastaIdAlumno = rs.getInt(1);
+                        alumnos = rs.getInt(2);
+                    }
+                }
+                if (alumnos == 0) {
+                    conn.commit();
+                    return null; // No quedan alumnos activos después del punto de control
+                }
+
+                int cuotasNuevas;
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_GENERAR_CUOTAS)) {
+                    pstmt.setInt(1, idPeriodo);
+                    pstmt.setInt(2, desdeIdAlumno);
+                    pstmt.setInt(3, hastaIdAlumno);
+                    cuotasNuevas = pstmt.executeUpdate();
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_AVANZAR_CHECKPOINT)) {
+                    pstmt.setInt(1, hastaIdAlumno);
+                    pstmt.setInt(2, cuotasNuevas);
+                    pstmt.setInt(3, idPeriodo);
+                    pstmt.executeUpdate();
+                }
+
+                conn.commit();
+                return new int[]{hastaIdAlumno, alumnos, cuotasNuevas};
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al facturar el lote de alumnos posteriores al ID " + desdeIdAlumno
+                    + " del período " + idPeriodo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marca la corrida del período como completada.
+     * @param idPeriodo ID del período facturado.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public void finalizarEjecucion(int idPeriodo) throws SQLException {
+        String sql = "UPDATE facturacion_ejecuciones SET estado = 'COMPLETADA', fecha_fin = NOW() WHERE id_periodo = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, idPeriodo);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new SQLException("Error al finalizar la facturación del período " + idPeriodo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cuenta los alumnos activos con ID mayor al indicado (los que le faltan a una corrida).
+     * @param desdeIdAlumno Último id_alumno ya procesado.
+     * @return Cantidad de alumnos activos pendientes.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public int contarAlumnosActivosDesde(int desdeIdAlumno) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM alumnos WHERE activo = TRUE AND id_alumno > ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, desdeIdAlumno);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al contar los alumnos activos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Indica si el período existe y está activo (solo se facturan períodos activos).
+     * @param idPeriodo ID del período.
+     * @return true si el período existe y está activo.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public boolean esPeriodoFacturable(int idPeriodo) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM periodos_cuota WHERE id_periodo = ? AND activo = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, idPeriodo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al verificar el período " + idPeriodo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene los períodos activos ya vencidos (vencimiento anterior a la fecha indicada) que tienen recargo
+     * y cuotas todavía sin revisar, es decir, los que el job de recargos tiene que revisar.
+     * @param fecha Fecha de referencia (normalmente hoy).
+     * @return IDs de los períodos a revisar, del más antiguo al más reciente.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<Integer> obtenerPeriodosConRecargoPendiente(LocalDate fecha) throws SQLException {
+        List<Integer> periodos = new ArrayList<>();
+        String sql = "SELECT pc.id_periodo FROM periodos_cuota pc "
+                   + "WHERE pc.activo = TRUE AND pc.monto_recargo > 0 AND pc.fecha_vencimiento < ? "
+                   + "AND EXISTS (SELECT 1 FROM cuotas_alumno ca WHERE ca.id_periodo = pc.id_periodo AND ca.fecha_revision_recargo IS NULL) "
+                   + "ORDER BY pc.fecha_vencimiento";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, fecha);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    periodos.add(rs.getInt(1)); // Única columna del SELECT
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los períodos con recargos pendientes: " + e.getMessage(), e);
+        }
+        return periodos;
+    }
+
+    /**
+     * Aplica el recargo del período a las cuotas impagas del siguiente lote de alumnos y marca todas las cuotas
+     * del lote como revisadas, en una sola transacción. Se puede repetir sin riesgo: las cuotas ya revisadas
+     * no se vuelven a tocar.
+     * @param idPeriodo ID del período vencido.
+     * @param desdeIdAlumno Último id_alumno ya revisado (el lote empieza en el siguiente).
+     * @param tamanioLote Cantidad máxima de cuotas del lote.
+     * @param fechaRecargo Fecha que se registra como fecha de aplicación del recargo y de revisión.
+     * @return {último id_alumno del lote, cuotas recargadas}; null si no quedan cuotas por revisar.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public int[] aplicarRecargosLote(int idPeriodo, int desdeIdAlumno, int tamanioLote, LocalDate fechaRecargo) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int hastaIdAlumno;
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_LIMITE_LOTE_CUOTAS)) {
+                pstmt.setInt(1, idPeriodo);
+                pstmt.setInt(2, desdeIdAlumno);
+                pstmt.setInt(3, tamanioLote);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    hastaIdAlumno = rs.getInt(1);
+                    if (rs.wasNull()) {
+                        return null; // No quedan cuotas después de desdeIdAlumno
+                    }
+                }
+            }
+
+            boolean autoCommitOriginal = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int recargadas;
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_APLICAR_RECARGOS)) {
+                    pstmt.setObject(1, fechaRecargo);
+                    pstmt.setObject(2, fechaRecargo);
+                    pstmt.setInt(3, idPeriodo);
+                    pstmt.setInt(4, desdeIdAlumno);
+                    pstmt.setInt(5, hastaIdAlumno);
+                    recargadas = pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_MARCAR_REVISADAS)) {
+                    pstmt.setObject(1, fechaRecargo);
+                    pstmt.setInt(2, idPeriodo);
+                    pstmt.setInt(3, desdeIdAlumno);
+                    pstmt.setInt(4, hastaIdAlumno);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                return new int[]{hastaIdAlumno, recargadas};
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommitOriginal);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al aplicar recargos del período " + idPeriodo + " a los alumnos posteriores al ID "
+                    + desdeIdAlumno + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene el recargo que el job dejó guardado en la cuota de un alumno en un período.
+     * @param idAlumno ID del alumno.
+     * @param idPeriodo ID del período.
+     * @return El monto del recargo (0 si el job revisó la cuota y no corresponde recargo), o null si el job
+     *         todavía no la revisó o no hay cuota generada para ese alumno y período.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Dinero obtenerRecargoCuota(int idAlumno, int idPeriodo) throws SQLException {
+        String sql = "SELECT monto_recargo FROM cuotas_alumno "
+                   + "WHERE id_alumno = ? AND id_periodo = ? AND fecha_revision_recargo IS NOT NULL";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, idAlumno);
+            pstmt.setInt(2, idPeriodo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Dinero recargo = ResultSetMapper.getDinero(rs, 1);
+                return recargo != null ? recargo : Dinero.CERO;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener el recargo del alumno " + idAlumno + " en el período " + idPeriodo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene los recargos guardados en las cuotas de varios períodos, con una sola consulta
+     * (para los reportes de deuda, que suman el recargo al monto de la cuota).
+     * @param idsPeriodos IDs de los períodos.
+     * @return Recargo de cada cuota recargada, por alumno y período (clave de {@link InstantaneaLocal#claveSaldo}).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Map<Long, Dinero> obtenerRecargosAplicados(List<Integer> idsPeriodos) throws SQLException {
+        Map<Long, Dinero> recargos = new HashMap<>();
+        if (idsPeriodos.isEmpty()) {
+            return recargos;
+        }
+        String sql = "SELECT id_alumno, id_periodo, monto_recargo FROM cuotas_alumno "
+                   + "WHERE id_periodo IN (" + String.join(", ", Collections.nCopies(idsPeriodos.size(), "?")) + ") "
+                   + "AND monto_recargo > 0";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < idsPeriodos.size(); i++) {
+                pstmt.setInt(i + 1, idsPeriodos.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    recargos.put(InstantaneaLocal.claveSaldo(rs.getInt(1), rs.getInt(2)), ResultSetMapper.getDinero(rs, 3));
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los recargos aplicados: " + e.getMessage(), e);
+        }
+        return recargos;
+    }
+}
@@ -0,0 +1,80 @@
+package taichi.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Ocupación semanal de una clase: día, hora de inicio y de fin, y profesor a cargo.
+ * Es inmutable; la usa el horario semanal en memoria (ver taichi.util.HorarioSemanal).
+ */
+public class FranjaHoraria {
+
+    private final int idClase;
+    private final String nombreClase;
+    private final DayOfWeek dia;
+    private final LocalTime inicio;
+    private final LocalTime fin;
+    private final Integer idProfesor; // null si la clase no tiene profesor asignado
+
+    public FranjaHoraria(int idClase, String nombreClase, DayOfWeek dia, LocalTime inicio, LocalTime fin, Integer idProfesor) {
+        this.idClase = idClase;
+        this.nombreClase = nombreClase;
+        this.dia = dia;
+        this.inicio = inicio;
+        // Una clase que pasaría la medianoche se recorta al final del día
+        this.fin = fin.isAfter(inicio) ? fin : LocalTime.MAX;
+        this.idProfesor = idProfesor;
+    }
+
+    // --- Métodos Getters ---
+
+    public int getIdClase() {
+        return idClase;
+    }
+
+    public String getNombreClase() {
+        return nombreClase;
+    }
+
+    public DayOfWeek getDia() {
+        return dia;
+    }
+
+    public LocalTime getInicio() {
+        return inicio;
+    }
+
+    public LocalTime getFin() {
+        return fin;
+    }
+
+    public Integer getIdProfesor() {
+        return idProfesor;
+    }
+
+    /**
+     * Indica si esta franja se superpone con el intervalo [desde, hasta) del mismo día.
+     */
+    public boolean seSuperponeCon(LocalTime desde, LocalTime hasta) {
+        return inicio.isBefore(hasta) && desde.isBefore(fin);
+    }
+
+    /**
+     * Indica si la clase está en curso a la hora indicada.
+     */
+    public boolean estaEnCurso(LocalTime hora) {
+        return !hora.isBefore(inicio) && hora.isBefore(fin);
+    }
+
+    @Override
+    public String toString() {
+        return "FranjaHoraria{" +
+               "idClase=" + idClase +
+               ", nombreClase='" + nombreClase + '\'' +
+               ", dia=" + dia +
+               ", inicio=" + inicio +
+               ", fin=" + fin +
+               ", idProfesor=" + idProfesor +
+               '}';
+    }
+}
@@ -0,0 +1,90 @@
+package taichi.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Crea ejecutores para trabajo en segundo plano (consultas, reportes, exportaciones).
+ *
+ * Con Java 21 o superior usa hilos virtuales (un hilo barato por tarea, que no ocupa un hilo del sistema
+ * mientras espera a la base de datos). En versiones anteriores recurre a un pool de hilos daemon comunes.
+ * La API de hilos virtuales se busca por reflexión para que el código compile con cualquiera de las dos.
+ */
+public final class HilosVirtuales {
+
+    private static final Logger LOGGER = Logger.getLogger(HilosVirtuales.class.getName());
+
+    // Executors.newThreadPerTaskExecutor(ThreadFactory) y Thread.ofVirtual().name(prefijo, 0).factory() (Java 21)
+    private static final MethodHandle NUEVO_EJECUTOR_POR_TAREA;
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle BUILDER_NOMBRE;
+    private static final MethodHandle BUILDER_FACTORY;
+
+    static {
+        MethodHandle ejecutor = null;
+        MethodHandle ofVirtual = null;
+        MethodHandle nombre = null;
+        MethodHandle factory = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builder));
+            nombre = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            ejecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            ejecutor = null; // Java anterior a 21: se usan hilos de plataforma
+        }
+        NUEVO_EJECUTOR_POR_TAREA = ejecutor;
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NOMBRE = nombre;
+        BUILDER_FACTORY = factory;
+    }
+
+    private HilosVirtuales() {
+    }
+
+    /**
+     * @return true si la JVM soporta hilos virtuales.
+     */
+    public static boolean disponibles() {
+        return NUEVO_EJECUTOR_POR_TAREA != null;
+    }
+
+    /**
+     * Crea un ejecutor que corre cada tarea en un hilo virtual propio (o, sin soporte, en un pool de hilos daemon).
+     * @param prefijo Prefijo del nombre de los hilos (aparece en los logs y en los volcados de hilos).
+     * @return El ejecutor; hay que cerrarlo con shutdown() cuando deja de usarse.
+     */
+    public static ExecutorService nuevoEjecutor(String prefijo) {
+        if (NUEVO_EJECUTOR_POR_TAREA != null) {
+            try {
+                Object builder = BUILDER_NOMBRE.invoke(OF_VIRTUAL.invoke(), prefijo + "-", 0L);
+                ThreadFactory fabrica = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+                return (ExecutorService) NUEVO_EJECUTOR_POR_TAREA.invoke(fabrica);
+            } catch (Throwable e) {
+                LOGGER.warning("No se pudieron crear hilos virtuales, se usan hilos comunes: " + e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool(fabricaDaemon(prefijo));
+    }
+
+    /**
+     * Fábrica de hilos de plataforma daemon con nombre numerado (no impiden cerrar la aplicación).
+     */
+    public static ThreadFactory fabricaDaemon(String prefijo) {
+        AtomicInteger numero = new AtomicInteger();
+        return r -> {
+            Thread hilo = new Thread(r, prefijo + "-" + numero.getAndIncrement());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
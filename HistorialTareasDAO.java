@@ -0,0 +1,102 @@
+package taichi.dao;
+
+import taichi.model.EjecucionTarea;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Historial de ejecuciones de las tareas en segundo plano (tabla tareas_historial).
+ */
+public class HistorialTareasDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(HistorialTareasDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_ejecucion", "tipo", "nombre", "disparador", "fecha_programada", "fecha_inicio", "fecha_fin", "estado", "mensaje"
+    };
+
+    // Largo máximo de la columna mensaje
+    private static final int LARGO_MENSAJE = 500;
+
+    /**
+     * Registra una ejecución terminada.
+     * @param ejecucion La ejecución; se le asigna el ID generado.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public void registrar(EjecucionTarea ejecucion) throws SQLException {
+        String sql = "INSERT INTO tareas_historial (tipo, nombre, disparador, fecha_programada, fecha_inicio, fecha_fin, estado, mensaje) "
+                   + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            String mensaje = ejecucion.getMensaje();
+            pstmt.setString(1, ejecucion.getTipo());
+            pstmt.setString(2, ejecucion.getNombre());
+            pstmt.setString(3, ejecucion.getDisparador());
+            pstmt.setObject(4, ejecucion.getFechaProgramada());
+            pstmt.setObject(5, ejecucion.getFechaInicio());
+            pstmt.setObject(6, ejecucion.getFechaFin());
+            pstmt.setString(7, ejecucion.getEstado());
+            pstmt.setString(8, mensaje != null && mensaje.length() > LARGO_MENSAJE ? mensaje.substring(0, LARGO_MENSAJE) : mensaje);
+            pstmt.executeUpdate();
+
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    ejecucion.setIdEjecucion(rs.getInt(1));
+                    LOGGER.fine(() -> "Ejecución de tarea registrada con ID: " + ejecucion.getIdEjecucion());
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al registrar la ejecución de la tarea " + ejecucion.getNombre() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene las últimas ejecuciones registradas, de la más reciente a la más antigua.
+     * @param limite Cantidad máxima de ejecuciones.
+     * @return Lista de ejecuciones.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<EjecucionTarea> obtenerUltimas(int limite) throws SQLException {
+        String sql = "SELECT id_ejecucion, tipo, nombre, disparador, fecha_programada, fecha_inicio, fecha_fin, estado, mensaje "
+                   + "FROM tareas_historial ORDER BY id_ejecucion DESC LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, limite);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToEjecucion);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener el historial de tareas: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Método auxiliar para mapear un ResultSet a un objeto EjecucionTarea.
+     * @param rs El ResultSet del que extraer los datos.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
+     * @return Un objeto EjecucionTarea con los datos de la fila actual.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    private EjecucionTarea mapResultSetToEjecucion(ResultSet rs, int[] col) throws SQLException {
+        return new EjecucionTarea(
+            rs.getInt(col[0]),                                  // id_ejecucion
+            rs.getString(col[1]),                               // tipo
+            rs.getString(col[2]),                               // nombre
+            rs.getString(col[3]),                               // disparador
+            ResultSetMapper.getLocalDateTime(rs, col[4]),       // fecha_programada
+            ResultSetMapper.getLocalDateTime(rs, col[5]),       // fecha_inicio
+            ResultSetMapper.getLocalDateTime(rs, col[6]),       // fecha_fin
+            rs.getString(col[7]),                               // estado
+            rs.getString(col[8])                                // mensaje
+        );
+    }
+}
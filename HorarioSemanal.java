@@ -0,0 +1,251 @@
+package taichi.util;
+
+import taichi.model.FranjaHoraria;
+
+import java.text.Normalizer;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Horario semanal de las clases activas, en memoria.
+ *
+ * Cada día ({@link DayOfWeek}) guarda sus franjas ordenadas por hora de inicio en un {@link TreeSet},
+ * y además hay un índice por profesor y día. Así:
+ * - "qué clase hay ahora / cuál sigue" se responde con floor/ceiling sobre el día, sin recorrer la semana;
+ * - la semana de un profesor sale directamente de su índice;
+ * - una superposición para el mismo profesor se busca en el índice del profesor: la siguiente franja
+ *   por hora de inicio y las anteriores que todavía pueden estar en curso (acotadas por la clase más larga).
+ *
+ * Se construye a partir de la tabla 'clases' y se mantiene de forma incremental con cada alta,
+ * modificación o baja de clase. Los métodos son sincronizados porque lo comparten todos los paneles.
+ */
+public class HorarioSemanal {
+
+    // Orden por hora de inicio; a igual hora, por ID de clase (para que dos clases no "colisionen" en el set)
+    private static final Comparator<FranjaHoraria> POR_INICIO =
+        Comparator.comparing(FranjaHoraria::getInicio).thenComparingInt(FranjaHoraria::getIdClase);
+
+    private static final Locale ES = new Locale("es", "AR");
+
+    private final Map<DayOfWeek, TreeSet<FranjaHoraria>> porDia = new EnumMap<>(DayOfWeek.class);
+    private final Map<Integer, Map<DayOfWeek, TreeSet<FranjaHoraria>>> porProfesor = new HashMap<>();
+    private final Map<Integer, FranjaHoraria> porClase = new HashMap<>();
+
+    // Duración de la clase más larga cargada: acota hacia atrás la búsqueda de clases en curso
+    private Duration duracionMaxima = Duration.ZERO;
+
+    public HorarioSemanal() {
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            porDia.put(dia, new TreeSet<>(POR_INICIO));
+        }
+    }
+
+    /**
+     * Reemplaza todo el contenido del horario.
+     * @param franjas Las franjas de las clases activas.
+     */
+    public synchronized void cargar(Collection<FranjaHoraria> franjas) {
+        for (TreeSet<FranjaHoraria> delDia : porDia.values()) {
+            delDia.clear();
+        }
+        porProfesor.clear();
+        porClase.clear();
+        duracionMaxima = Duration.ZERO;
+        for (FranjaHoraria franja : franjas) {
+            agregar(franja);
+        }
+    }
+
+    /**
+     * Agrega o reemplaza la franja de una clase.
+     */
+    public synchronized void agregar(FranjaHoraria franja) {
+        quitar(franja.getIdClase());
+        porDia.get(franja.getDia()).add(franja);
+        if (franja.getIdProfesor() != null) {
+            porProfesor.computeIfAbsent(franja.getIdProfesor(), k -> new EnumMap<>(DayOfWeek.class))
+                       .computeIfAbsent(franja.getDia(), k -> new TreeSet<>(POR_INICIO))
+                       .add(franja);
+        }
+        porClase.put(franja.getIdClase(), franja);
+        Duration duracion = Duration.between(franja.getInicio(), franja.getFin());
+        if (duracion.compareTo(duracionMaxima) > 0) {
+            duracionMaxima = duracion;
+        }
+    }
+
+    /**
+     * Quita la franja de una clase (por ejemplo, al inactivarla).
+     * @return true si la clase estaba en el horario.
+     */
+    public synchronized boolean quitar(int idClase) {
+        FranjaHoraria franja = porClase.remove(idClase);
+        if (franja == null) {
+            return false;
+        }
+        porDia.get(franja.getDia()).remove(franja);
+        if (franja.getIdProfesor() != null) {
+            Map<DayOfWeek, TreeSet<FranjaHoraria>> semana = porProfesor.get(franja.getIdProfesor());
+            if (semana != null) {
+                TreeSet<FranjaHoraria> delDia = semana.get(franja.getDia());
+                if (delDia != null) {
+                    delDia.remove(franja);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Busca una clase del mismo profesor que se superponga con el intervalo indicado.
+     * @param idProfesor El profesor a controlar.
+     * @param dia El día de la clase.
+     * @param inicio Hora de inicio.
+     * @param fin Hora de fin.
+     * @param idClaseExcluida La clase que se está modificando (no cuenta como conflicto consigo misma); 0 si es nueva.
+     * @return La franja que se superpone, o null si no hay conflicto.
+     */
+    public synchronized FranjaHoraria buscarSuperposicion(int idProfesor, DayOfWeek dia, LocalTime inicio,
+                                                          LocalTime fin, int idClaseExcluida) {
+        Map<DayOfWeek, TreeSet<FranjaHoraria>> semana = porProfesor.get(idProfesor);
+        if (semana == null || semana.get(dia) == null) {
+            return null;
+        }
+        TreeSet<FranjaHoraria> delDia = semana.get(dia);
+        FranjaHoraria sonda = new FranjaHoraria(Integer.MIN_VALUE, null, dia, inicio, fin, idProfesor);
+
+        // La primera que empieza a la misma hora o después es la única de ese lado que puede superponerse
+        FranjaHoraria posterior = siguienteDistinta(delDia.tailSet(sonda, true).iterator(), idClaseExcluida);
+        if (posterior != null && posterior.seSuperponeCon(inicio, fin)) {
+            return posterior;
+        }
+        // De las que empiezan antes no alcanza con mirar la última: las franjas guardadas pueden superponerse
+        // entre sí (datos previos a este control, o dos puestos que guardaron a la vez). Se recorren hacia atrás
+        // hasta donde ninguna clase puede llegar a 'inicio', porque ninguna dura más que 'duracionMaxima'.
+        for (FranjaHoraria anterior : delDia.headSet(sonda, false).descendingSet()) {
+            if (Duration.between(anterior.getInicio(), inicio).compareTo(duracionMaxima) > 0) {
+                break;
+            }
+            if (anterior.getIdClase() != idClaseExcluida && anterior.seSuperponeCon(inicio, fin)) {
+                return anterior;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene las clases que están en curso en el momento indicado.
+     */
+    public synchronized List<FranjaHoraria> obtenerEnCurso(LocalDateTime momento) {
+        List<FranjaHoraria> enCurso = new ArrayList<>();
+        LocalTime hora = momento.toLocalTime();
+        NavigableSet<FranjaHoraria> comenzadas = porDia.get(momento.getDayOfWeek())
+            .headSet(new FranjaHoraria(Integer.MAX_VALUE, null, momento.getDayOfWeek(), hora, LocalTime.MAX, null), true);
+        // Se recorre hacia atrás desde la hora actual; ninguna clase dura más que 'duracionMaxima'
+        long minutosMaximos = duracionMaxima.toMinutes();
+        for (FranjaHoraria franja : comenzadas.descendingSet()) {
+            if (Duration.between(franja.getInicio(), hora).toMinutes() > minutosMaximos) {
+                break;
+            }
+            if (franja.estaEnCurso(hora)) {
+                enCurso.add(0, franja);
+            }
+        }
+        return enCurso;
+    }
+
+    /**
+     * Obtiene la próxima clase que comienza después del momento indicado, buscando hasta una semana hacia adelante.
+     * @return La próxima franja, o null si el horario está vacío.
+     */
+    public synchronized FranjaHoraria obtenerProxima(LocalDateTime momento) {
+        DayOfWeek dia = momento.getDayOfWeek();
+        FranjaHoraria sonda = new FranjaHoraria(Integer.MAX_VALUE, null, dia, momento.toLocalTime(), LocalTime.MAX, null);
+        FranjaHoraria proxima = porDia.get(dia).higher(sonda);
+        for (int i = 1; proxima == null && i <= 7; i++) {
+            TreeSet<FranjaHoraria> delDia = porDia.get(dia.plus(i));
+            proxima = delDia.isEmpty() ? null : delDia.first();
+        }
+        return proxima;
+    }
+
+    /**
+     * Obtiene las clases de un día ordenadas por hora de inicio.
+     */
+    public synchronized List<FranjaHoraria> obtenerClasesDelDia(DayOfWeek dia) {
+        return new ArrayList<>(porDia.get(dia));
+    }
+
+    /**
+     * Obtiene la semana de un profesor, ordenada por día y hora de inicio.
+     */
+    public synchronized List<FranjaHoraria> obtenerSemanaProfesor(int idProfesor) {
+        List<FranjaHoraria> semana = new ArrayList<>();
+        Map<DayOfWeek, TreeSet<FranjaHoraria>> porDiaProfesor = porProfesor.get(idProfesor);
+        if (porDiaProfesor != null) {
+            for (TreeSet<FranjaHoraria> delDia : porDiaProfesor.values()) { // EnumMap itera de lunes a domingo
+                semana.addAll(delDia);
+            }
+        }
+        return semana;
+    }
+
+    // Devuelve el primer elemento del iterador que no sea la clase excluida
+    private static FranjaHoraria siguienteDistinta(Iterator<FranjaHoraria> it, int idClaseExcluida) {
+        while (it.hasNext()) {
+            FranjaHoraria franja = it.next();
+            if (franja.getIdClase() != idClaseExcluida) {
+                return franja;
+            }
+        }
+        return null;
+    }
+
+    // --- Conversión de 'dia_semana' (texto libre en la BD) ---
+
+    /**
+     * Interpreta el texto de 'dia_semana' ("Lunes", "miercoles", "SÁBADO"...) sin distinguir mayúsculas ni acentos.
+     * @param diaSemana El texto guardado en la base de datos.
+     * @return El día correspondiente, o null si no se reconoce.
+     */
+    public static DayOfWeek parsearDia(String diaSemana) {
+        if (diaSemana == null) {
+            return null;
+        }
+        String normalizado = Normalizer.normalize(diaSemana.trim(), Normalizer.Form.NFD)
+                                       .replaceAll("\\p{M}", "")
+                                       .toLowerCase(Locale.ROOT);
+        switch (normalizado) {
+            case "lunes": return DayOfWeek.MONDAY;
+            case "martes": return DayOfWeek.TUESDAY;
+            case "miercoles": return DayOfWeek.WEDNESDAY;
+            case "jueves": return DayOfWeek.THURSDAY;
+            case "viernes": return DayOfWeek.FRIDAY;
+            case "sabado": return DayOfWeek.SATURDAY;
+            case "domingo": return DayOfWeek.SUNDAY;
+            default: return null;
+        }
+    }
+
+    /**
+     * Nombre del día para mostrar (ej. "Miércoles").
+     */
+    public static String nombreDia(DayOfWeek dia) {
+        String nombre = dia.getDisplayName(TextStyle.FULL, ES);
+        return nombre.substring(0, 1).toUpperCase(ES) + nombre.substring(1);
+    }
+}
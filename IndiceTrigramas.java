@@ -0,0 +1,288 @@
+package taichi.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda en memoria por trigramas (grupos de 3 caracteres), para buscar personas
+ * por nombre o DNI mientras se escribe, sin consultas LIKE '%texto%' a la base de datos.
+ *
+ * - El texto se normaliza: sin acentos, en minúsculas, y los DNI con puntos se unen ("30.123.456" = "30123456").
+ * - Cada palabra se indexa con dos espacios delante, de modo que una o dos letras ya coinciden
+ *   con el comienzo de las palabras ("an" encuentra "Ana" y "Andrés").
+ * - La búsqueda cuenta, por entidad, cuántos trigramas de la consulta contiene (tolerando alguno faltante
+ *   por errores de tipeo) y ordena por ese puntaje. Solo se recorren las listas de IDs más cortas;
+ *   a igual puntaje, primero las que contienen todas las palabras buscadas y luego los textos más cortos.
+ *
+ * Se actualiza de forma incremental con {@link #agregar} y {@link #quitar}. Admite lecturas concurrentes.
+ *
+ * @param <T> Tipo de la entidad indexada (ej. Alumno, Profesor).
+ */
+public class IndiceTrigramas<T> {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}");
+    private static final Pattern SEPARADOR_NUMERICO = Pattern.compile("(?<=\\d)[.\\-](?=\\d)");
+    private static final Pattern NO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+
+    // Por cada TOLERANCIA trigramas de la consulta, se admite que un resultado no contenga uno
+    private static final int TOLERANCIA = 3;
+
+    private final Function<T, Integer> obtenerId;
+    private final Function<T, String> obtenerTexto;
+
+    private final Map<Integer, Set<Integer>> idsPorTrigrama = new HashMap<>();
+    private final Map<Integer, int[]> trigramasPorId = new HashMap<>();
+    private final Map<Integer, String> textoPorId = new HashMap<>();
+    private final Map<Integer, T> entidadPorId = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param obtenerId Devuelve el ID de la entidad.
+     * @param obtenerTexto Devuelve el texto a indexar (ej. nombre completo y DNI).
+     */
+    public IndiceTrigramas(Function<T, Integer> obtenerId, Function<T, String> obtenerTexto) {
+        this.obtenerId = obtenerId;
+        this.obtenerTexto = obtenerTexto;
+    }
+
+    /**
+     * Reemplaza todo el contenido del índice.
+     */
+    public void cargar(List<T> entidades) {
+        lock.writeLock().lock();
+        try {
+            idsPorTrigrama.clear();
+            trigramasPorId.clear();
+            textoPorId.clear();
+            entidadPorId.clear();
+            for (T entidad : entidades) {
+                agregarSinBloqueo(entidad);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega una entidad o, si ya estaba indexada, la reemplaza (por ejemplo, tras editar el nombre).
+     */
+    public void agregar(T entidad) {
+        lock.writeLock().lock();
+        try {
+            agregarSinBloqueo(entidad);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita una entidad del índice.
+     */
+    public void quitar(int id) {
+        lock.writeLock().lock();
+        try {
+            quitarSinBloqueo(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las entidades que mejor coinciden con el texto.
+     * @param consulta Texto escrito por el usuario (parte del nombre, apellido o DNI).
+     * @param limite Cantidad máxima de resultados.
+     * @return Entidades ordenadas de mejor a peor coincidencia; vacía si la consulta no tiene letras ni números.
+     */
+    public List<T> buscar(String consulta, int limite) {
+        String normalizada = normalizar(consulta);
+        if (normalizada.isEmpty() || limite <= 0) {
+            return new ArrayList<>();
+        }
+        String[] palabras = normalizada.split(" ");
+        Set<Integer> trigramasConsulta = new HashSet<>();
+        for (String palabra : palabras) {
+            // Sin espacio final: la última palabra puede estar incompleta. Los números (DNI) se buscan
+            // también por la mitad, así que solo se anclan al comienzo si son demasiado cortos.
+            boolean numero = palabra.chars().allMatch(Character::isDigit);
+            agregarTrigramas(numero && palabra.length() >= 3 ? palabra : "  " + palabra, trigramasConsulta);
+        }
+        int total = trigramasConsulta.size();
+        int minimo = total - (total - 1) / TOLERANCIA; // Se admite que falte ~1 de cada 3 trigramas (errores de tipeo)
+
+        lock.readLock().lock();
+        try {
+            // Listas de IDs de cada trigrama de la consulta, de la más corta a la más larga
+            List<Set<Integer>> listas = new ArrayList<>(total);
+            for (Integer trigrama : trigramasConsulta) {
+                listas.add(idsPorTrigrama.getOrDefault(trigrama, Collections.emptySet()));
+            }
+            listas.sort(Comparator.comparingInt(Set::size));
+
+            // Un resultado válido tiene que aparecer en al menos una de las (total - minimo + 1) listas más cortas:
+            // solo esas se recorren; en las demás se consulta la pertenencia de cada candidato.
+            int recorridas = total - minimo + 1;
+            Map<Integer, Integer> coincidencias = new HashMap<>();
+            for (int i = 0; i < recorridas; i++) {
+                for (Integer id : listas.get(i)) {
+                    coincidencias.merge(id, 1, Integer::sum);
+                }
+            }
+            for (int i = recorridas; i < total; i++) {
+                Set<Integer> lista = listas.get(i);
+                for (Map.Entry<Integer, Integer> e : coincidencias.entrySet()) {
+                    if (lista.contains(e.getKey())) {
+                        e.setValue(e.getValue() + 1);
+                    }
+                }
+            }
+
+            List<Candidato> candidatos = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> e : coincidencias.entrySet()) {
+                if (e.getValue() >= minimo) {
+                    String texto = textoPorId.get(e.getKey());
+                    candidatos.add(new Candidato(e.getKey(), e.getValue(), contieneTodas(texto, palabras), texto.length()));
+                }
+            }
+            candidatos.sort(null);
+
+            List<T> resultado = new ArrayList<>(Math.min(limite, candidatos.size()));
+            for (int i = 0; i < candidatos.size() && i < limite; i++) {
+                resultado.add(entidadPorId.get(candidatos.get(i).id));
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de entidades indexadas.
+     */
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return entidadPorId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normaliza un texto para indexar o buscar: sin acentos, minúsculas, solo letras y números separados por un espacio.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        String sinSeparadores = SEPARADOR_NUMERICO.matcher(sinAcentos.toLowerCase(Locale.ROOT)).replaceAll("");
+        return NO_ALFANUMERICO.matcher(sinSeparadores).replaceAll(" ").trim();
+    }
+
+    private void agregarSinBloqueo(T entidad) {
+        int id = obtenerId.apply(entidad);
+        quitarSinBloqueo(id);
+
+        String texto = normalizar(obtenerTexto.apply(entidad));
+        Set<Integer> trigramas = new HashSet<>();
+        if (!texto.isEmpty()) {
+            for (String palabra : texto.split(" ")) {
+                agregarTrigramas("  " + palabra + " ", trigramas);
+            }
+        }
+        int[] lista = new int[trigramas.size()];
+        int i = 0;
+        for (Integer trigrama : trigramas) {
+            idsPorTrigrama.computeIfAbsent(trigrama, k -> new HashSet<>()).add(id);
+            lista[i++] = trigrama;
+        }
+        trigramasPorId.put(id, lista);
+        textoPorId.put(id, texto);
+        entidadPorId.put(id, entidad);
+    }
+
+    private void quitarSinBloqueo(int id) {
+        int[] anteriores = trigramasPorId.remove(id);
+        if (anteriores != null) {
+            for (int trigrama : anteriores) {
+                Set<Integer> ids = idsPorTrigrama.get(trigrama);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        idsPorTrigrama.remove(trigrama);
+                    }
+                }
+            }
+        }
+        textoPorId.remove(id);
+        entidadPorId.remove(id);
+    }
+
+    // Agrega los trigramas de una palabra (ya rellenada con espacios) codificados como enteros
+    private static void agregarTrigramas(String palabra, Set<Integer> destino) {
+        for (int i = 0; i + 3 <= palabra.length(); i++) {
+            destino.add(codigo(palabra.charAt(i)) * 37 * 37 + codigo(palabra.charAt(i + 1)) * 37 + codigo(palabra.charAt(i + 2)));
+        }
+    }
+
+    // Espacio = 0, letras a-z = 1..26, dígitos 0-9 = 27..36
+    private static int codigo(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+
+    private static boolean contieneTodas(String texto, String[] palabras) {
+        for (String palabra : palabras) {
+            if (!texto.contains(palabra)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Resultado parcial de una búsqueda, ordenado de mejor a peor coincidencia
+    private static final class Candidato implements Comparable<Candidato> {
+        final int id;
+        final int coincidencias;
+        final boolean contieneTodas;
+        final int largo;
+
+        Candidato(int id, int coincidencias, boolean contieneTodas, int largo) {
+            this.id = id;
+            this.coincidencias = coincidencias;
+            this.contieneTodas = contieneTodas;
+            this.largo = largo;
+        }
+
+        @Override
+        public int compareTo(Candidato otro) {
+            if (coincidencias != otro.coincidencias) {
+                return Integer.compare(otro.coincidencias, coincidencias);
+            }
+            if (contieneTodas != otro.contieneTodas) {
+                return contieneTodas ? -1 : 1;
+            }
+            if (largo != otro.largo) {
+                return Integer.compare(largo, otro.largo);
+            }
+            return Integer.compare(id, otro.id);
+        }
+    }
+}
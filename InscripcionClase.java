@@ -0,0 +1,99 @@
+package taichi.model;
+
+import java.time.LocalDate; // Necesario para manejar fechas
+
+public class InscripcionClase {
+
+    // Atributos (variables de instancia)
+    // Corresponden a las columnas de la tabla 'inscripciones_clase'
+    private int idInscripcion;             // id_inscripcion (clave primaria)
+    private int idAlumno;                  // id_alumno (clave foránea a alumnos)
+    private int idClase;                   // id_clase (clave foránea a clases)
+    private LocalDate fechaInscripcion;    // fecha_inscripcion
+    private boolean activa;                // activa (TRUE/FALSE)
+    private int version;                   // version (control de concurrencia optimista)
+
+    // --- Constructores ---
+
+    // Constructor vacío
+    public InscripcionClase() {
+    }
+
+    // Constructor sin idInscripcion (para una NUEVA inscripción)
+    public InscripcionClase(int idAlumno, int idClase, LocalDate fechaInscripcion, boolean activa) {
+        this.idAlumno = idAlumno;
+        this.idClase = idClase;
+        this.fechaInscripcion = fechaInscripcion;
+        this.activa = activa;
+    }
+
+    // Constructor con idInscripcion (para cuando recuperas una inscripción de la BD)
+    public InscripcionClase(int idInscripcion, int idAlumno, int idClase, LocalDate fechaInscripcion, boolean activa) {
+        this.idInscripcion = idInscripcion;
+        this.idAlumno = idAlumno;
+        this.idClase = idClase;
+        this.fechaInscripcion = fechaInscripcion;
+        this.activa = activa;
+    }
+
+    // --- Métodos Getters y Setters (Encapsulamiento) ---
+
+    public int getIdInscripcion() {
+        return idInscripcion;
+    }
+
+    public void setIdInscripcion(int idInscripcion) {
+        this.idInscripcion = idInscripcion;
+    }
+
+    public int getIdAlumno() {
+        return idAlumno;
+    }
+
+    public void setIdAlumno(int idAlumno) {
+        this.idAlumno = idAlumno;
+    }
+
+    public int getIdClase() {
+        return idClase;
+    }
+
+    public void setIdClase(int idClase) {
+        this.idClase = idClase;
+    }
+
+    public LocalDate getFechaInscripcion() {
+        return fechaInscripcion;
+    }
+
+    public void setFechaInscripcion(LocalDate fechaInscripcion) {
+        this.fechaInscripcion = fechaInscripcion;
+    }
+
+    public boolean isActiva() { // Para booleanos, el getter suele ser 'isNombre'
+        return activa;
+    }
+
+    public void setActiva(boolean activa) {
+        this.activa = activa;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "InscripcionClase{" +
+               "idInscripcion=" + idInscripcion +
+               ", idAlumno=" + idAlumno +
+               ", idClase=" + idClase +
+               ", fechaInscripcion=" + fechaInscripcion +
+               ", activa=" + activa +
+               '}';
+    }
+}
@@ -0,0 +1,491 @@
+package taichi.dao;
+
+import taichi.model.InscripcionClase; // Importamos la clase InscripcionClase
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Acceso a datos de 'inscripciones_clase' con control de cupo.
+ *
+ * El cupo se controla con el contador 'clases.inscriptos_activos': cada alta reserva su lugar con un
+ * UPDATE condicional ("... WHERE inscriptos_activos < capacidad_maxima") dentro de la misma transacción
+ * que escribe la inscripción. El UPDATE es atómico y bloquea la fila de la clase, así que dos puestos
+ * inscribiendo a la vez nunca superan la capacidad (no hay "leer el conteo y después insertar").
+ * El mismo contador sirve para consultar la ocupación sin contar filas.
+ */
+public class InscripcionClaseDAO implements IDAO<InscripcionClase, Integer> {
+
+    private static final Logger LOGGER = Logger.getLogger(InscripcionClaseDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_inscripcion", "id_alumno", "id_clase", "fecha_inscripcion", "activa", "version"
+    };
+
+    // Reserva lugares en la clase solo si está activa y alcanza el cupo (atómico)
+    private static final String SQL_RESERVAR_CUPO =
+        "UPDATE clases SET inscriptos_activos = inscriptos_activos + ? " +
+        "WHERE id_clase = ? AND activa = TRUE AND inscriptos_activos + ? <= capacidad_maxima";
+    private static final String SQL_LIBERAR_CUPO =
+        "UPDATE clases SET inscriptos_activos = inscriptos_activos - 1 WHERE id_clase = ? AND inscriptos_activos > 0";
+    private static final String SQL_REACTIVAR =
+        "UPDATE inscripciones_clase SET activa = TRUE, fecha_inscripcion = ?, version = version + 1 WHERE id_alumno = ? AND id_clase = ? AND activa = FALSE";
+    private static final String SQL_INSCRIPCION_ACTIVA =
+        "SELECT 1 FROM inscripciones_clase WHERE id_alumno = ? AND id_clase = ? AND activa = TRUE FOR UPDATE";
+    private static final String SQL_INSERTAR =
+        "INSERT INTO inscripciones_clase (id_alumno, id_clase, fecha_inscripcion, activa) VALUES (?, ?, ?, TRUE)";
+
+    /**
+     * Resultado de intentar inscribir a un alumno en una clase.
+     */
+    public enum ResultadoInscripcion {
+        INSCRIPTO,      // Se creó (o reactivó) la inscripción y se ocupó un lugar
+        YA_INSCRIPTO,   // El alumno ya tenía una inscripción activa en la clase
+        SIN_CUPO        // La clase no tiene lugar disponible o está inactiva
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public InscripcionClase crear(InscripcionClase inscripcion) throws SQLException {
+        ResultadoInscripcion resultado = inscribir(inscripcion.getIdAlumno(), inscripcion.getIdClase(), inscripcion.getFechaInscripcion());
+        if (resultado == ResultadoInscripcion.SIN_CUPO) {
+            throw new SQLException("Error: La clase no tiene cupo disponible o está inactiva.");
+        }
+        if (resultado == ResultadoInscripcion.YA_INSCRIPTO) {
+            throw new SQLException("Error: El alumno ya está inscripto en la clase.");
+        }
+
+        String sql = "SELECT id_inscripcion FROM inscripciones_clase WHERE id_alumno = ? AND id_clase = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, inscripcion.getIdAlumno());
+            pstmt.setInt(2, inscripcion.getIdClase());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    inscripcion.setIdInscripcion(rs.getInt(1)); // Asignar el ID de la inscripción al objeto
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener el ID de la inscripción creada: " + e.getMessage(), e);
+        }
+        inscripcion.setActiva(true);
+        return inscripcion;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public InscripcionClase obtenerPorId(Integer id) throws SQLException {
+        String sql = "SELECT id_inscripcion, id_alumno, id_clase, fecha_inscripcion, activa, version FROM inscripciones_clase WHERE id_inscripcion = ?";
+        InscripcionClase inscripcion = null;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                inscripcion = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToInscripcion);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la inscripción con ID " + id + " de la base de datos: " + e.getMessage(), e);
+        }
+        return inscripcion;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public List<InscripcionClase> obtenerTodos() throws SQLException {
+        List<InscripcionClase> inscripciones = new ArrayList<>();
+        String sql = "SELECT id_inscripcion, id_alumno, id_clase, fecha_inscripcion, activa, version FROM inscripciones_clase";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToInscripcion, inscripciones);
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener todas las inscripciones de la base de datos: " + e.getMessage(), e);
+        }
+        return inscripciones;
+    }
+
+    /**
+     * Actualiza la fecha de inscripción. El estado 'activa' no se modifica aquí porque afecta el cupo:
+     * para eso se usan {@link #inscribir} y {@link #darDeBaja}.
+     */
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public boolean actualizar(InscripcionClase inscripcion) throws SQLException {
+        String sql = "UPDATE inscripciones_clase SET fecha_inscripcion = ?, version = version + 1 WHERE id_inscripcion = ? AND version = ?";
+        int filasAfectadas = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setObject(1, inscripcion.getFechaInscripcion());
+            pstmt.setInt(2, inscripcion.getIdInscripcion());
+            pstmt.setInt(3, inscripcion.getVersion());
+
+            filasAfectadas = pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new SQLException("Error al actualizar la inscripción con ID " + inscripcion.getIdInscripcion() + ": " + e.getMessage(), e);
+        }
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            InscripcionClase actual = obtenerPorId(inscripcion.getIdInscripcion());
+            if (actual != null) {
+                throw new ConflictoVersionException("inscripción", inscripcion.getIdInscripcion(), actual);
+            }
+            return false;
+        }
+        inscripcion.setVersion(inscripcion.getVersion() + 1);
+        return true;
+    }
+
+    @Override // Indica que este método implementa un método de la interfaz IDAO
+    public boolean eliminar(Integer id) throws SQLException {
+        String sqlLeer = "SELECT id_clase, activa FROM inscripciones_clase WHERE id_inscripcion = ? FOR UPDATE";
+        String sqlEliminar = "DELETE FROM inscripciones_clase WHERE id_inscripcion = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int idClase;
+                boolean activa;
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlLeer)) {
+                    pstmt.setInt(1, id);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        idClase = rs.getInt(1);
+                        activa = rs.getBoolean(2);
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlEliminar)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                if (activa) {
+                    liberarCupo(conn, idClase);
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al eliminar la inscripción con ID " + id + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- Consultas específicas de la BD ---
+
+    /**
+     * Inscribe a un alumno en una clase respetando la capacidad máxima, aun con varios puestos inscribiendo a la vez.
+     * Si el alumno tenía una inscripción inactiva en la clase, se reactiva.
+     * @param idAlumno El ID del alumno.
+     * @param idClase El ID de la clase.
+     * @param fechaInscripcion La fecha de inscripción.
+     * @return El resultado de la inscripción; ante SIN_CUPO o YA_INSCRIPTO no se modifica nada.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public ResultadoInscripcion inscribir(int idAlumno, int idClase, LocalDate fechaInscripcion) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // 1. Si ya está inscripto no ocupa otro lugar (aunque la clase esté llena)
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSCRIPCION_ACTIVA)) {
+                    pstmt.setInt(1, idAlumno);
+                    pstmt.setInt(2, idClase);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            conn.rollback();
+                            return ResultadoInscripcion.YA_INSCRIPTO;
+                        }
+                    }
+                }
+
+                // 2. Reservar el lugar: si no hay cupo, el UPDATE no afecta filas
+                if (!reservarCupo(conn, idClase, 1)) {
+                    conn.rollback();
+                    return ResultadoInscripcion.SIN_CUPO;
+                }
+
+                // 3. Reactivar una inscripción dada de baja o crear una nueva
+                boolean escrita;
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_REACTIVAR)) {
+                    pstmt.setObject(1, fechaInscripcion);
+                    pstmt.setInt(2, idAlumno);
+                    pstmt.setInt(3, idClase);
+                    escrita = pstmt.executeUpdate() > 0;
+                }
+                if (!escrita) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR)) {
+                        pstmt.setInt(1, idAlumno);
+                        pstmt.setInt(2, idClase);
+                        pstmt.setObject(3, fechaInscripcion);
+                        pstmt.executeUpdate();
+                    } catch (SQLException e) {
+                        // Violación de UNIQUE (id_alumno, id_clase): otro puesto lo inscribió recién
+                        if (e.getErrorCode() == 1062) {
+                            conn.rollback(); // Devuelve el lugar reservado
+                            return ResultadoInscripcion.YA_INSCRIPTO;
+                        }
+                        throw e;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al inscribir al alumno " + idAlumno + " en la clase " + idClase + ": " + e.getMessage(), e);
+        }
+        LOGGER.fine(() -> "Alumno " + idAlumno + " inscripto en la clase " + idClase);
+        return ResultadoInscripcion.INSCRIPTO;
+    }
+
+    /**
+     * Inscribe a varios alumnos en una clase como una única operación: o entran todos los que faltan, o ninguno.
+     * Los alumnos que ya tienen una inscripción activa se omiten y no ocupan cupo.
+     * Los lugares se reservan con un solo UPDATE condicional y las inscripciones se escriben en batch.
+     * @param idClase El ID de la clase.
+     * @param idsAlumnos Los IDs de los alumnos a inscribir (los repetidos se ignoran).
+     * @param fechaInscripcion La fecha de inscripción.
+     * @return La cantidad de alumnos inscriptos, o -1 si la clase no tiene cupo para todos (no se inscribe ninguno).
+     * @throws SQLException Si ocurre un error de base de datos; en ese caso no se inscribe ninguno.
+     */
+    public int inscribirVarios(int idClase, List<Integer> idsAlumnos, LocalDate fechaInscripcion) throws SQLException {
+        Set<Integer> pendientes = new LinkedHashSet<>(idsAlumnos);
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> aReactivar = new ArrayList<>();
+        int inscriptos;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // 1. Inscripciones existentes de estos alumnos en la clase (bloqueadas hasta el commit)
+                String marcadores = String.join(", ", Collections.nCopies(pendientes.size(), "?"));
+                String sqlExistentes = "SELECT id_alumno, activa FROM inscripciones_clase " +
+                                       "WHERE id_clase = ? AND id_alumno IN (" + marcadores + ") FOR UPDATE";
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlExistentes)) {
+                    int i = 1;
+                    pstmt.setInt(i++, idClase);
+                    for (Integer idAlumno : pendientes) {
+                        pstmt.setInt(i++, idAlumno);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            int idAlumno = rs.getInt(1);
+                            pendientes.remove(idAlumno); // Ya existe: no se inserta
+                            if (!rs.getBoolean(2)) {
+                                aReactivar.add(idAlumno);
+                            }
+                        }
+                    }
+                }
+                // Lo que queda en 'pendientes' son inscripciones nuevas
+                inscriptos = aReactivar.size() + pendientes.size();
+                if (inscriptos == 0) {
+                    conn.commit();
+                    return 0;
+                }
+
+                // 2. Reservar todos los lugares de una vez
+                if (!reservarCupo(conn, idClase, inscriptos)) {
+                    conn.rollback();
+                    return -1;
+                }
+
+                // 3. Escribir las inscripciones en batch
+                if (!aReactivar.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(SQL_REACTIVAR)) {
+                        for (Integer idAlumno : aReactivar) {
+                            pstmt.setObject(1, fechaInscripcion);
+                            pstmt.setInt(2, idAlumno);
+                            pstmt.setInt(3, idClase);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                }
+                if (!pendientes.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR)) {
+                        for (Integer idAlumno : pendientes) {
+                            pstmt.setInt(1, idAlumno);
+                            pstmt.setInt(2, idClase);
+                            pstmt.setObject(3, fechaInscripcion);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al inscribir alumnos en la clase " + idClase + ": " + e.getMessage(), e);
+        }
+        final int total = inscriptos;
+        LOGGER.fine(() -> total + " alumnos inscriptos en la clase " + idClase);
+        return inscriptos;
+    }
+
+    /**
+     * Da de baja la inscripción activa de un alumno en una clase y libera su lugar.
+     * @param idAlumno El ID del alumno.
+     * @param idClase El ID de la clase.
+     * @return true si el alumno tenía una inscripción activa y se dio de baja, false de lo contrario.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public boolean darDeBaja(int idAlumno, int idClase) throws SQLException {
+        String sql = "UPDATE inscripciones_clase SET activa = FALSE, version = version + 1 WHERE id_alumno = ? AND id_clase = ? AND activa = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int filasAfectadas;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, idAlumno);
+                    pstmt.setInt(2, idClase);
+                    filasAfectadas = pstmt.executeUpdate();
+                }
+                if (filasAfectadas == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                liberarCupo(conn, idClase);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al dar de baja al alumno " + idAlumno + " de la clase " + idClase + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene las inscripciones activas de una clase.
+     * @param idClase El ID de la clase.
+     * @return Lista de inscripciones activas.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<InscripcionClase> obtenerInscripcionesActivasPorClase(int idClase) throws SQLException {
+        List<InscripcionClase> inscripciones = new ArrayList<>();
+        String sql = "SELECT id_inscripcion, id_alumno, id_clase, fecha_inscripcion, activa, version FROM inscripciones_clase " +
+                     "WHERE id_clase = ? AND activa = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, idClase);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToInscripcion, inscripciones);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener las inscripciones de la clase " + idClase + ": " + e.getMessage(), e);
+        }
+        return inscripciones;
+    }
+
+    /**
+     * Obtiene la ocupación de una clase leyendo el contador, sin contar inscripciones.
+     * @param idClase El ID de la clase.
+     * @return {inscriptosActivos, capacidadMaxima}, o null si la clase no existe.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public int[] obtenerOcupacion(int idClase) throws SQLException {
+        String sql = "SELECT inscriptos_activos, capacidad_maxima FROM clases WHERE id_clase = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, idClase);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new int[]{rs.getInt(1), rs.getInt(2)} : null;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la ocupación de la clase " + idClase + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene la ocupación de todas las clases en una sola consulta sobre 'clases'.
+     * @return Mapa idClase -> {inscriptosActivos, capacidadMaxima}.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Map<Integer, int[]> obtenerOcupacionClases() throws SQLException {
+        Map<Integer, int[]> ocupacion = new HashMap<>();
+        String sql = "SELECT id_clase, inscriptos_activos, capacidad_maxima FROM clases";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                ocupacion.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3)});
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener la ocupación de las clases: " + e.getMessage(), e);
+        }
+        return ocupacion;
+    }
+
+    // Ocupa 'lugares' en la clase si está activa y alcanza el cupo. Debe ejecutarse dentro de la transacción de la inscripción.
+    private boolean reservarCupo(Connection conn, int idClase, int lugares) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_RESERVAR_CUPO)) {
+            pstmt.setInt(1, lugares);
+            pstmt.setInt(2, idClase);
+            pstmt.setInt(3, lugares);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    // Devuelve un lugar a la clase. Debe ejecutarse dentro de la transacción de la baja.
+    private void liberarCupo(Connection conn, int idClase) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_LIBERAR_CUPO)) {
+            pstmt.setInt(1, idClase);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Método auxiliar para mapear un ResultSet a un objeto InscripcionClase.
+     * @param rs El ResultSet que contiene los datos de la inscripción.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
+     * @return Un objeto InscripcionClase con los datos del ResultSet.
+     * @throws SQLException Si ocurre un error al leer del ResultSet.
+     */
+    private InscripcionClase mapResultSetToInscripcion(ResultSet rs, int[] col) throws SQLException {
+        InscripcionClase inscripcion = new InscripcionClase(
+            rs.getInt(col[0]),                               // id_inscripcion
+            rs.getInt(col[1]),                               // id_alumno
+            rs.getInt(col[2]),                               // id_clase
+            ResultSetMapper.getLocalDate(rs, col[3]),        // fecha_inscripcion
+            rs.getBoolean(col[4])                            // activa
+        );
+        inscripcion.setVersion(rs.getInt(col[5]));
+        return inscripcion;
+    }
+}
@@ -0,0 +1,174 @@
+package taichi.controller;
+import taichi.dao.InscripcionClaseDAO;
+import taichi.dao.InscripcionClaseDAO.ResultadoInscripcion;
+import taichi.model.InscripcionClase;
+import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
+
+public class InscripcionController {
+
+    private InscripcionClaseDAO inscripcionClaseDAO;
+    private static final Logger LOGGER = Logger.getLogger(InscripcionController.class.getName());
+
+    public InscripcionController() {
+        this(new InscripcionClaseDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public InscripcionController(InscripcionClaseDAO inscripcionClaseDAO) {
+        this.inscripcionClaseDAO = inscripcionClaseDAO;
+    }
+
+    /**
+     * Inscribe a un alumno en una clase con la fecha de hoy, respetando la capacidad máxima.
+     * @param idAlumno ID del alumno.
+     * @param idClase ID de la clase.
+     * @throws IllegalStateException Si la clase no tiene cupo o el alumno ya está inscripto.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public void inscribirAlumno(int idAlumno, int idClase) throws Exception {
+        if (!InputValidator.isPositive(idAlumno) || !InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID del alumno y el de la clase deben ser números positivos.");
+        }
+        ResultadoInscripcion resultado;
+        try {
+            resultado = inscripcionClaseDAO.inscribir(idAlumno, idClase, LocalDate.now());
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al inscribir alumno " + idAlumno + " en la clase " + idClase + ": " + e.getMessage(), e);
+            throw new Exception("Error al inscribir alumno: " + e.getMessage());
+        }
+        if (resultado == ResultadoInscripcion.SIN_CUPO) {
+            throw new IllegalStateException("La clase no tiene cupo disponible o está inactiva.");
+        }
+        if (resultado == ResultadoInscripcion.YA_INSCRIPTO) {
+            throw new IllegalStateException("El alumno ya está inscripto en esta clase.");
+        }
+        LOGGER.info(() -> "Alumno " + idAlumno + " inscripto con éxito en la clase " + idClase);
+    }
+
+    /**
+     * Inscribe a una lista de alumnos en una clase: entran todos los que faltan o ninguno.
+     * @param idClase ID de la clase.
+     * @param idsAlumnos IDs de los alumnos a inscribir.
+     * @return La cantidad de alumnos inscriptos (los ya inscriptos no se cuentan).
+     * @throws IllegalStateException Si la clase no tiene cupo para todos.
+     * @throws Exception Si ocurre un error lógico o de base de datos.
+     */
+    public int inscribirAlumnos(int idClase, List<Integer> idsAlumnos) throws Exception {
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        if (idsAlumnos == null || idsAlumnos.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un alumno para inscribir.");
+        }
+        for (Integer idAlumno : idsAlumnos) {
+            if (idAlumno == null || !InputValidator.isPositive(idAlumno)) {
+                throw new IllegalArgumentException("Todos los IDs de alumno deben ser números positivos.");
+            }
+        }
+        int inscriptos;
+        try {
+            inscriptos = inscripcionClaseDAO.inscribirVarios(idClase, idsAlumnos, LocalDate.now());
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al inscribir alumnos en la clase " + idClase + ": " + e.getMessage(), e);
+            throw new Exception("Error al inscribir alumnos: " + e.getMessage());
+        }
+        if (inscriptos == -1) {
+            throw new IllegalStateException("La clase no tiene cupo para todos los alumnos indicados (o está inactiva). No se inscribió ninguno.");
+        }
+        LOGGER.info(() -> inscriptos + " alumnos inscriptos con éxito en la clase " + idClase);
+        return inscriptos;
+    }
+
+    /**
+     * Da de baja la inscripción de un alumno en una clase, liberando su lugar.
+     * @param idAlumno ID del alumno.
+     * @param idClase ID de la clase.
+     * @return true si se dio de baja, false si el alumno no estaba inscripto.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public boolean darDeBajaAlumno(int idAlumno, int idClase) throws Exception {
+        if (!InputValidator.isPositive(idAlumno) || !InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID del alumno y el de la clase deben ser números positivos.");
+        }
+        try {
+            return inscripcionClaseDAO.darDeBaja(idAlumno, idClase);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al dar de baja alumno " + idAlumno + " de la clase " + idClase + ": " + e.getMessage(), e);
+            throw new Exception("Error al dar de baja la inscripción: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene las inscripciones activas de una clase.
+     * @param idClase ID de la clase.
+     * @return Lista de inscripciones activas.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public List<InscripcionClase> obtenerInscripcionesActivas(int idClase) throws Exception {
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        try {
+            return inscripcionClaseDAO.obtenerInscripcionesActivasPorClase(idClase);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener inscripciones de la clase " + idClase + ": " + e.getMessage(), e);
+            throw new Exception("Error al obtener inscripciones: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene la ocupación de una clase.
+     * @param idClase ID de la clase.
+     * @return {inscriptosActivos, capacidadMaxima}.
+     * @throws Exception Si la clase no existe o hay un error de base de datos.
+     */
+    public int[] obtenerOcupacion(int idClase) throws Exception {
+        if (!InputValidator.isPositive(idClase)) {
+            throw new IllegalArgumentException("El ID de la clase debe ser un número positivo.");
+        }
+        int[] ocupacion;
+        try {
+            ocupacion = inscripcionClaseDAO.obtenerOcupacion(idClase);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener ocupación de la clase " + idClase + ": " + e.getMessage(), e);
+            throw new Exception("Error al obtener ocupación: " + e.getMessage());
+        }
+        if (ocupacion == null) {
+            throw new Exception("Clase no encontrada con ID: " + idClase);
+        }
+        return ocupacion;
+    }
+
+    /**
+     * Obtiene la ocupación de todas las clases.
+     * @return Mapa idClase -> {inscriptosActivos, capacidadMaxima}.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public Map<Integer, int[]> obtenerOcupacionClases() throws Exception {
+        try {
+            return inscripcionClaseDAO.obtenerOcupacionClases();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener ocupación de las clases: " + e.getMessage(), e);
+            throw new Exception("Error al obtener ocupación de las clases: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #obtenerOcupacionClases()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<Map<Integer, int[]>> obtenerOcupacionClasesAsync() {
+        return Asincrono.ejecutar(() -> obtenerOcupacionClases());
+    }
+}
@@ -0,0 +1,80 @@
+package taichi.model;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copia local de los datos que se necesitan para seguir atendiendo sin conexión a la BD:
+ * alumnos, períodos de cuota y lo pagado por cada alumno en cada período.
+ */
+public class InstantaneaLocal {
+
+    private final LocalDateTime fecha;
+    private final List<Alumno> alumnos;
+    private final List<PeriodoCuota> periodos;
+    private final Map<Long, Dinero> saldos; // Total pagado, por clave (ver claveSaldo)
+
+    public InstantaneaLocal(LocalDateTime fecha, List<Alumno> alumnos, List<PeriodoCuota> periodos, Map<Long, Dinero> saldos) {
+        this.fecha = fecha;
+        this.alumnos = alumnos;
+        this.periodos = periodos;
+        this.saldos = saldos;
+    }
+
+    /**
+     * @return La clave con que se guarda lo pagado por un alumno en un período.
+     */
+    public static long claveSaldo(int idAlumno, int idPeriodo) {
+        return ((long) idAlumno << 32) | (idPeriodo & 0xFFFFFFFFL);
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public List<Alumno> getAlumnos() {
+        return alumnos;
+    }
+
+    public List<PeriodoCuota> getPeriodos() {
+        return periodos;
+    }
+
+    public synchronized Map<Long, Dinero> getSaldos() {
+        return new HashMap<>(saldos);
+    }
+
+    public Alumno buscarAlumno(int idAlumno) {
+        for (Alumno alumno : alumnos) {
+            if (alumno.getIdAlumno() == idAlumno) {
+                return alumno;
+            }
+        }
+        return null;
+    }
+
+    public PeriodoCuota buscarPeriodo(int idPeriodo) {
+        for (PeriodoCuota periodo : periodos) {
+            if (periodo.getIdPeriodo() == idPeriodo) {
+                return periodo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Lo pagado por el alumno en el período según la copia (0 si no había pagos).
+     */
+    public synchronized Dinero getMontoPagado(int idAlumno, int idPeriodo) {
+        return saldos.getOrDefault(claveSaldo(idAlumno, idPeriodo), Dinero.CERO);
+    }
+
+    /**
+     * Suma a la copia un pago que se guardó en la BD después de tomarla.
+     */
+    public synchronized void sumarPago(int idAlumno, int idPeriodo, Dinero monto) {
+        saldos.merge(claveSaldo(idAlumno, idPeriodo), monto, Dinero::mas);
+    }
+}
@@ -0,0 +1,74 @@
+package taichi.util;
+
+import java.io.IOException;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Configuración centralizada del logging de la aplicación.
+ * Todos los loggers del paquete "taichi" escriben a través de un {@link AsyncLogHandler},
+ * por lo que registrar un mensaje nunca bloquea al hilo que lo emite.
+ *
+ * El nivel se puede ajustar con la propiedad de sistema "taichi.log.level" (ej. -Dtaichi.log.level=FINE)
+ * y se puede agregar un archivo de log con "taichi.log.file" (ej. -Dtaichi.log.file=taichi.log).
+ */
+public class LogConfig {
+
+    private static final String LOGGER_RAIZ = "taichi";
+    private static boolean configurado = false;
+
+    /**
+     * Instala el handler asíncrono en el logger raíz de la aplicación.
+     * Es seguro llamarlo más de una vez; solo la primera llamada tiene efecto.
+     */
+    public static synchronized void configurar() {
+        if (configurado) {
+            return;
+        }
+        Logger raiz = Logger.getLogger(LOGGER_RAIZ);
+        Level nivel = parsearNivel(System.getProperty("taichi.log.level"), Level.INFO);
+
+        Handler destino = crearHandlerDestino(System.getProperty("taichi.log.file"));
+        destino.setLevel(Level.ALL);
+
+        AsyncLogHandler asyncHandler = new AsyncLogHandler(destino, 4096);
+        asyncHandler.setLevel(nivel);
+
+        raiz.setUseParentHandlers(false); // Evita que el ConsoleHandler global escriba de forma sincrónica
+        raiz.addHandler(asyncHandler);
+        raiz.setLevel(nivel);
+
+        // Al cerrar la JVM vaciamos lo pendiente para no perder los últimos registros
+        Runtime.getRuntime().addShutdownHook(new Thread(asyncHandler::close, "taichi-log-shutdown"));
+        configurado = true;
+    }
+
+    private static Handler crearHandlerDestino(String archivo) {
+        if (archivo != null && !archivo.trim().isEmpty()) {
+            try {
+                FileHandler fileHandler = new FileHandler(archivo.trim(), true);
+                fileHandler.setFormatter(new SimpleFormatter());
+                return fileHandler;
+            } catch (IOException e) {
+                Logger.getLogger(LogConfig.class.getName())
+                      .log(Level.WARNING, "No se pudo abrir el archivo de log, se usará la consola.", e);
+            }
+        }
+        return new ConsoleHandler();
+    }
+
+    private static Level parsearNivel(String valor, Level porDefecto) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return porDefecto;
+        }
+        try {
+            return Level.parse(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return porDefecto;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package taichi.gui;
 
+import taichi.controller.ContextoAplicacion;
 import taichi.controller.UsuarioController;
-import taichi.model.Usuario; // Opcional, solo si quieres pasar el objeto Usuario logueado
+import taichi.model.Usuario;
 
 import javax.swing.*;
 import java.awt.*;
@@ -109,17 +110,9 @@ public class LoginFrame extends JFrame {
                 this.dispose(); 
                 
                 // Abrir la ventana principal de la aplicación
-                // NOTA: MainFrame debe ser inicializada con los controladores necesarios.
-                // Aquí se asume que los controladores ya están instanciados en algún lugar (ej. en la clase principal App)
-                // Se debe pasar el usuario logueado para que MainFrame pueda ajustar la interfaz según el rol
-                MainFrame mainFrame = new MainFrame(usuarioController.getAlumnoController(), 
-                                                    usuarioController.getProfesorController(), 
-                                                    usuarioController.getClaseController(),
-                                                    usuarioController.getPeriodoCuotaController(),
-                                                    usuarioController.getPagoController(),
-                                                    usuarioController.getDocumentoEstadoController(),
-                                                    usuarioController, // Pasamos el propio usuarioController
-                                                    usuarioLogueado); // Pasamos el usuario que se acaba de loguear
+                // Los controladores vienen del contexto de la aplicación: son los mismos que usa el login.
+                // Se pasa el usuario logueado para que MainFrame ajuste la interfaz según el rol
+                MainFrame mainFrame = new MainFrame(ContextoAplicacion.getInstancia(), usuarioLogueado);
                 mainFrame.setVisible(true);
 
             } else {
@@ -2,10 +2,19 @@ package taichi.gui;
 
 import javax.swing.SwingUtilities;
 import taichi.gui.MainFrame; 
+import taichi.util.LogConfig;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class MainApp {
 
+    private static final Logger LOGGER = Logger.getLogger(MainApp.class.getName());
+
     public static void main(String[] args) {
+        // El logging asíncrono se configura antes que nada para que ningún mensaje escriba de forma sincrónica
+        LogConfig.configurar();
+
         // Asegúrate de que la GUI se ejecute en el Event Dispatch Thread (EDT)
         // Esto es una buena práctica en Swing para evitar problemas de concurrencia.
         SwingUtilities.invokeLater(new Runnable() {
@@ -18,11 +27,10 @@ public class MainApp {
                     // Crea y muestra la ventana principal
                     MainFrame mainFrame = new MainFrame();
                     mainFrame.setVisible(true);
-                    System.out.println("Aplicación Taichi Academy iniciada.");
+                    LOGGER.info("Aplicación Taichi Academy iniciada.");
                 } catch (Exception e) {
                     // Loggea cualquier error que impida el inicio de la aplicación
-                    e.printStackTrace();
-                    System.err.println("Error al iniciar la aplicación: " + e.getMessage());
+                    LOGGER.log(Level.SEVERE, "Error al iniciar la aplicación: " + e.getMessage(), e);
                     javax.swing.JOptionPane.showMessageDialog(null, 
                         "Error al iniciar la aplicación: " + e.getMessage(), 
                         "Error Crítico", javax.swing.JOptionPane.ERROR_MESSAGE);
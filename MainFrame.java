@@ -2,6 +2,16 @@ package taichi.gui;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 // Importa los controladores que se pasarán a los paneles específicos
 import taichi.controller.AlumnoController;
@@ -11,11 +21,28 @@ import taichi.controller.PeriodoCuotaController;
 import taichi.controller.PagoController;
 import taichi.controller.DocumentoEstadoController;
 import taichi.controller.UsuarioController;
+import taichi.controller.AsistenciaController;
+import taichi.controller.FacturacionController;
+import taichi.controller.TareasController;
+import taichi.controller.CacheReportes;
+import taichi.controller.ArranqueEnCaliente;
+import taichi.controller.ContextoAplicacion;
+import taichi.controller.ModoSinConexion;
+import taichi.model.Alumno;
 import taichi.model.Usuario;
+import taichi.model.ResultadoResincronizacion;
+import taichi.util.Asincrono;
 
 public class MainFrame extends JFrame {
 
+    private static final Logger LOGGER = Logger.getLogger(MainFrame.class.getName());
+
     private JTabbedPane tabbedPane;
+    // Pestañas cuyo panel todavía no se construyó, con la fábrica que lo crea
+    private final Map<Component, Supplier<JComponent>> pestaniasPendientes = new HashMap<>();
+    private CompletableFuture<List<Alumno>> alumnosPrecargados;
+    private ArranqueEnCaliente arranqueEnCaliente;
+    private boolean precargaDeCopia; // La precarga de alumnos salió de la copia guardada al cerrar
 
     // Instancias de los controladores
     private AlumnoController alumnoController;
@@ -25,67 +52,270 @@ public class MainFrame extends JFrame {
     private PagoController pagoController;
     private DocumentoEstadoController documentoEstadoController;
     private UsuarioController usuarioController;
+    private AsistenciaController asistenciaController;
+    private FacturacionController facturacionController;
+    private TareasController tareasController;
+    private CacheReportes cacheReportes;
+    private Usuario usuarioLogueado; // null: se abrió sin pasar por el login
 
     public MainFrame() {
-        setTitle("Sistema de Gestión Taichi Academy");
+        this(ContextoAplicacion.getInstancia(), null);
+    }
+
+    /**
+     * @param contexto Contexto de la aplicación, del que se toman los controladores compartidos.
+     * @param usuarioLogueado Usuario que inició sesión (la interfaz se ajusta a su rol), o null sin login.
+     */
+    public MainFrame(ContextoAplicacion contexto, Usuario usuarioLogueado) {
+        long inicio = System.nanoTime();
+        this.usuarioLogueado = usuarioLogueado;
+        setTitle("Sistema de Gestión Taichi Academy" + (usuarioLogueado != null
+            ? " - " + usuarioLogueado.getNombreUsuario() + " (" + usuarioLogueado.getRol() + ")" : ""));
         setSize(1000, 700); // Tamaño inicial de la ventana
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Cierra la aplicación al cerrar la ventana
         setLocationRelativeTo(null); // Centra la ventana en la pantalla
 
-        // Inicializar los controladores
-        alumnoController = new AlumnoController();
-        profesorController = new ProfesorController();
-        claseController = new ClaseController();
-        periodoCuotaController = new PeriodoCuotaController();
-        pagoController = new PagoController();
-        documentoEstadoController = new DocumentoEstadoController();
-        usuarioController = new UsuarioController();
+        // Obtener los controladores (una sola instancia de cada uno, compartida por toda la aplicación)
+        alumnoController = contexto.getAlumnoController();
+        profesorController = contexto.getProfesorController();
+        claseController = contexto.getClaseController();
+        periodoCuotaController = contexto.getPeriodoCuotaController();
+        pagoController = contexto.getPagoController();
+        documentoEstadoController = contexto.getDocumentoEstadoController();
+        usuarioController = contexto.getUsuarioController();
+        asistenciaController = contexto.getAsistenciaController();
+        facturacionController = contexto.getFacturacionController();
+        tareasController = contexto.getTareasController();
+        cacheReportes = contexto.getCacheReportes(); // Se suscribe a los cambios antes de que empiecen a llegar
+        arranqueEnCaliente = contexto.getArranqueEnCaliente();
+        ModoSinConexion modoSinConexion = contexto.getModoSinConexion();
+        long finControladores = System.nanoTime();
 
         // Inicializar JTabbedPane
         tabbedPane = new JTabbedPane();
         add(tabbedPane, BorderLayout.CENTER);
 
         // Crear e añadir los paneles individuales a las pestañas
-        // Cada panel recibirá las instancias de los controladores que necesite
-        
+        // Cada panel recibirá las instancias de los controladores que necesite.
+        // Los paneles se construyen recién la primera vez que se selecciona su pestaña (ver agregarPestania),
+        // así la ventana aparece sin esperar a que carguen las tablas.
+
         // 1. Panel de Gestión de Alumnos
-        AlumnoPanel alumnoPanel = new AlumnoPanel(alumnoController); // AlumnoPanel aún no existe
-        tabbedPane.addTab("Alumnos", alumnoPanel);
+        agregarPestania("Alumnos", () -> new AlumnoPanel(alumnoController, precargaVigente()));
 
         // 2. Panel de Gestión de Profesores
-        ProfesorPanel profesorPanel = new ProfesorPanel(profesorController); // ProfesorPanel aún no existe
-        tabbedPane.addTab("Profesores", profesorPanel);
+        agregarPestania("Profesores", () -> new ProfesorPanel(profesorController));
 
         // 3. Panel de Gestión de Clases
-        ClasePanel clasePanel = new ClasePanel(claseController); // ClasePanel aún no existe
-        tabbedPane.addTab("Clases", clasePanel);
+        agregarPestania("Clases", () -> new ClasePanel(claseController));
 
         // 4. Panel de Gestión de Cuotas y Pagos
         // Este panel podría necesitar varios controladores para su lógica
-        PagoPanel pagoPanel = new PagoPanel(pagoController, alumnoController, periodoCuotaController); // PagoPanel aún no existe
-        tabbedPane.addTab("Pagos", pagoPanel);
+        agregarPestania("Pagos", () -> new PagoPanel(pagoController, alumnoController, periodoCuotaController));
 
         // 5. Panel de Gestión de Períodos de Cuota
-        PeriodoCuotaPanel periodoCuotaPanel = new PeriodoCuotaPanel(periodoCuotaController); // PeriodoCuotaPanel aún no existe
-        tabbedPane.addTab("Períodos Cuota", periodoCuotaPanel);
+        agregarPestania("Períodos Cuota", () -> new PeriodoCuotaPanel(periodoCuotaController, facturacionController));
 
         // 6. Panel de Gestión de Documentos de Alumnos
-        DocumentoEstadoPanel documentoEstadoPanel = new DocumentoEstadoPanel(documentoEstadoController, alumnoController); // DocumentoEstadoPanel aún no existe
-        tabbedPane.addTab("Documentos Alumnos", documentoEstadoPanel);
+        agregarPestania("Documentos Alumnos", () -> new DocumentoEstadoPanel(documentoEstadoController, alumnoController));
 
         // 7. Panel de Gestión de Usuarios (para administradores)
-        UsuarioPanel usuarioPanel = new UsuarioPanel(usuarioController); // UsuarioPanel aún no existe
-        tabbedPane.addTab("Usuarios", usuarioPanel);
+        if (esAdministrador()) {
+            agregarPestania("Usuarios", () -> new UsuarioPanel(usuarioController));
+        }
+
+        // 8. Panel de Toma de Asistencia
+        agregarPestania("Asistencia", () -> new AsistenciaPanel(asistenciaController, claseController));
+
+        // 9. Panel de Cumplimiento de Documentación
+        agregarPestania("Cumplimiento Docs", () -> new CumplimientoDocumentosPanel(documentoEstadoController));
+
+        // 10. Panel de Reportes de Pagos (con exportación del detalle a CSV/Excel)
+        agregarPestania("Reportes", () -> new ReportesPagosPanel(pagoController, alumnoController, cacheReportes));
+
+        // 11. Panel de Retención de Alumnos por cohorte (retención, bajas y reactivaciones)
+        agregarPestania("Retención", () -> new RetencionPanel(alumnoController));
 
         // NOTA: Podemos añadir un panel de "Bienvenida" o "Dashboard" si es necesario.
         // DashboardPanel dashboardPanel = new DashboardPanel(alumnoController, pagoController);
         // tabbedPane.addTab("Dashboard", dashboardPanel);
+
+        tabbedPane.addChangeListener(e -> construirPestaniaSeleccionada());
+        long finVentana = System.nanoTime();
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                arranqueEnCaliente.detener();
+                arranqueEnCaliente.guardar(); // Para que el próximo inicio muestre los datos sin esperar a la BD
+            }
+
+            @Override
+            public void windowOpened(WindowEvent e) {
+                long finApertura = System.nanoTime();
+                LOGGER.info(() -> "Inicio: controladores " + milisegundos(inicio, finControladores) + " ms, ventana "
+                        + milisegundos(finControladores, finVentana) + " ms, visible a los " + milisegundos(inicio, finApertura) + " ms");
+                iniciarServicios(contexto, modoSinConexion);
+            }
+        });
+    }
+
+    // Con la ventana ya visible, lo que lee archivos locales o arranca hilos se hace en segundo plano:
+    // el tiempo hasta ver la ventana no depende del tamaño de los diarios ni de la copia de datos de referencia
+    private void iniciarServicios(ContextoAplicacion contexto, ModoSinConexion modoSinConexion) {
+        // Primero la copia guardada al cerrar; con ella se piden los listados y se arma la primera pestaña
+        Asincrono.ejecutar(() -> arranqueEnCaliente.cargar())
+            .whenCompleteAsync((hayCopia, error) -> {
+                if (error != null) {
+                    LOGGER.log(Level.WARNING, "Error al leer la copia de datos de referencia: " + error.getMessage(), error);
+                }
+                iniciarPrecarga();
+                construirPestaniaSeleccionada();
+            }, Asincrono.EN_INTERFAZ);
+
+        Asincrono.ejecutar(() -> {
+            tareasController.iniciar(); // Tareas en segundo plano (recargos de cuotas vencidas y otros trabajos nocturnos)
+            contexto.getSincronizadorCambios().iniciar(tareasController); // Cambios hechos desde otros puestos
+            return null;
+        }).exceptionally(error -> {
+            LOGGER.log(Level.SEVERE, "Error al iniciar las tareas en segundo plano: " + Asincrono.causa(error).getMessage(), error);
+            return null;
+        });
+
+        Asincrono.ejecutar(() -> {
+            pagoController.iniciarEscrituraDiferida(); // Reenvía los pagos que quedaron en el diario local
+            return null;
+        }).exceptionally(error -> {
+            Asincrono.EN_INTERFAZ.execute(() -> JOptionPane.showMessageDialog(this,
+                Asincrono.causa(error).getMessage() + "\nLos pagos siguen anotados en el diario local.",
+                "Pagos pendientes", JOptionPane.WARNING_MESSAGE));
+            return null;
+        });
+
+        iniciarModoSinConexion(modoSinConexion);
+    }
+
+    /**
+     * @return El usuario que inició sesión, o null si la ventana se abrió sin login.
+     */
+    public Usuario getUsuarioLogueado() {
+        return usuarioLogueado;
+    }
+
+    // Sin login (ej. al abrir la ventana directamente) no se restringe nada
+    private boolean esAdministrador() {
+        return usuarioLogueado == null || "Administrador".equalsIgnoreCase(usuarioLogueado.getRol());
+    }
+
+    // Agrega una pestaña cuyo panel se crea la primera vez que se la selecciona
+    private void agregarPestania(String titulo, Supplier<JComponent> fabricaPanel) {
+        JPanel contenedor = new JPanel(new BorderLayout());
+        contenedor.add(new JLabel("Cargando...", SwingConstants.CENTER), BorderLayout.CENTER);
+        pestaniasPendientes.put(contenedor, fabricaPanel);
+        tabbedPane.addTab(titulo, contenedor);
+    }
+
+    // Construye el panel de la pestaña seleccionada si todavía no se creó
+    private void construirPestaniaSeleccionada() {
+        int indice = tabbedPane.getSelectedIndex();
+        if (indice < 0) {
+            return;
+        }
+        JPanel contenedor = (JPanel) tabbedPane.getComponentAt(indice);
+        Supplier<JComponent> fabricaPanel = pestaniasPendientes.remove(contenedor);
+        if (fabricaPanel == null) {
+            return;
+        }
+        String titulo = tabbedPane.getTitleAt(indice);
+        long inicio = System.nanoTime();
+        contenedor.removeAll();
+        try {
+            contenedor.add(fabricaPanel.get(), BorderLayout.CENTER);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error al crear la pestaña '" + titulo + "': " + e.getMessage(), e);
+            contenedor.add(new JLabel("No se pudo abrir la pestaña: " + e.getMessage(), SwingConstants.CENTER), BorderLayout.CENTER);
+        }
+        contenedor.revalidate();
+        contenedor.repaint();
+        long fin = System.nanoTime();
+        LOGGER.info(() -> "Pestaña '" + titulo + "' construida en " + milisegundos(inicio, fin) + " ms");
+    }
+
+    // Si la BD deja de responder se sigue trabajando con la instantánea local; el título lo indica
+    private void iniciarModoSinConexion(ModoSinConexion modoSinConexion) {
+        String titulo = getTitle();
+        modoSinConexion.alCambiarEstado(sinConexion -> Asincrono.EN_INTERFAZ.execute(() -> setTitle(sinConexion
+            ? titulo + " — SIN CONEXIÓN (datos del " + modoSinConexion.getInstantanea().getFecha().toLocalDate() + ")"
+            : titulo)));
+        modoSinConexion.alResincronizar(resultado -> Asincrono.EN_INTERFAZ.execute(() -> informarResincronizacion(
+            resultado, modoSinConexion)));
+        // Lee la instantánea y el diario local: en segundo plano
+        Asincrono.ejecutar(() -> {
+            modoSinConexion.iniciar();
+            return null;
+        }).exceptionally(error -> {
+            Throwable causa = Asincrono.causa(error);
+            LOGGER.log(Level.SEVERE, "Error al iniciar el modo sin conexión: " + causa.getMessage(), causa);
+            Asincrono.EN_INTERFAZ.execute(() -> JOptionPane.showMessageDialog(this,
+                causa.getMessage() + "\nLas operaciones hechas sin conexión siguen en el diario local.",
+                "Operaciones sin conexión pendientes", JOptionPane.WARNING_MESSAGE));
+            return null;
+        });
+    }
+
+    private void informarResincronizacion(ResultadoResincronizacion resultado, ModoSinConexion modoSinConexion) {
+        if (resultado.getConflictos().isEmpty()) {
+            return;
+        }
+        StringBuilder mensaje = new StringBuilder("Se enviaron las operaciones hechas sin conexión (")
+            .append(resultado.getPagos()).append(" pagos, ")
+            .append(resultado.getAsistencias()).append(" asistencias, ")
+            .append(resultado.getDocumentos()).append(" documentos), con conflictos para revisar:\n");
+        int mostrados = 0;
+        for (String conflicto : resultado.getConflictos()) {
+            if (mostrados++ == 10) {
+                mensaje.append("... y ").append(resultado.getConflictos().size() - 10).append(" más.\n");
+                break;
+            }
+            mensaje.append("- ").append(conflicto).append('\n');
+        }
+        mensaje.append("\nEl detalle quedó en ").append(modoSinConexion.getArchivoConflictos().toAbsolutePath());
+        JOptionPane.showMessageDialog(this, mensaje.toString(), "Conflictos de resincronización", JOptionPane.WARNING_MESSAGE);
+    }
+
+    // Pide en paralelo los datos que se usan apenas se abre la aplicación
+    private void iniciarPrecarga() {
+        precargaDeCopia = arranqueEnCaliente.estaSirviendoCopia();
+        alumnosPrecargados = precargar("alumnos", () -> alumnoController.obtenerTodosLosAlumnosAsync());
+        // El mismo listado alimenta el índice de búsqueda de alumnos (selector de Pagos, Documentos y Reportes)
+        alumnosPrecargados.thenAccept(alumnoController::cargarIndiceBusqueda);
+        // Si salió de la copia, el índice ya está cargado y la conciliación lo corrige junto con las tablas
+        arranqueEnCaliente.iniciar();
+        precargar("horario semanal", () -> claseController.obtenerClasesDelDiaAsync(LocalDate.now().getDayOfWeek()));
+    }
+
+    // La precarga que salió de la copia queda vieja una vez conciliada: entonces el panel vuelve a pedir el listado
+    private CompletableFuture<List<Alumno>> precargaVigente() {
+        return precargaDeCopia && !arranqueEnCaliente.estaSirviendoCopia() ? null : alumnosPrecargados;
+    }
+
+    private <T> CompletableFuture<T> precargar(String nombre, Supplier<CompletableFuture<T>> consulta) {
+        long inicio = System.nanoTime();
+        CompletableFuture<T> futuro = consulta.get();
+        futuro.whenComplete((resultado, error) -> {
+            long fin = System.nanoTime();
+            if (error != null) {
+                LOGGER.warning(() -> "Precarga de " + nombre + " fallida tras " + milisegundos(inicio, fin) + " ms: "
+                        + Asincrono.causa(error).getMessage());
+            } else {
+                LOGGER.info(() -> "Precarga de " + nombre + " lista en " + milisegundos(inicio, fin) + " ms");
+            }
+        });
+        return futuro;
     }
 
-    public MainFrame(String alumnoController2, GraphicsConfiguration profesorController2, Object claseController2,
-            Object periodoCuotaController2, Object pagoController2, Object documentoEstadoController2,
-            UsuarioController usuarioController2, Usuario usuarioLogueado) {
-        
+    private static long milisegundos(long desdeNanos, long hastaNanos) {
+        return (hastaNanos - desdeNanos) / 1_000_000;
     }
 
     public static void main(String[] args) {
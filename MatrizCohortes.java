@@ -0,0 +1,260 @@
+package taichi.model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Matriz de cohortes para medir retención: los alumnos se agrupan por mes de alta (cohorte) y se cuenta
+ * cuántos de cada cohorte estuvieron activos (pagaron la cuota) en cada mes del rango.
+ *
+ * Todo se guarda en arreglos primitivos, sin un objeto por alumno ni por pago, para poder armarla recorriendo
+ * una sola vez los pagos de 100.000 alumnos:
+ * - cada alumno ocupa una posición (0..n-1), y su cohorte y sus meses activos (un bit por mes) van en arreglos
+ *   indexados por esa posición;
+ * - los conteos por cohorte y mes van en arreglos planos de cohortes x meses.
+ *
+ * Para cada cohorte y mes (a partir del mes de alta) se calcula:
+ * - activos: pagaron ese mes;
+ * - bajas: pagaron el mes anterior y este no;
+ * - reactivados: este mes pagaron, el anterior no, pero habían pagado algún mes antes.
+ */
+public class MatrizCohortes {
+
+    private static final int SIN_POSICION = -1;
+
+    private final YearMonth desde;
+    private final int cantidadMeses;
+    private final int palabrasPorAlumno; // longs que ocupan los bits de meses activos de un alumno
+
+    // Por alumno (posición)
+    private int cantidadAlumnos;
+    private int[] cohorteAlumno = new int[1024];
+    private long[] mesesActivos;
+    private int[] posicionPorId = new int[1024]; // Indexado por id_alumno
+
+    // Por cohorte y mes: índice cohorte * cantidadMeses + mes
+    private int[] tamanioCohorte;
+    private int[] activos;
+    private int[] bajas;
+    private int[] reactivados;
+    private int[] inactivosConPagos; // Pueden reactivarse: no pagaron el mes anterior pero sí alguno antes
+    private boolean calculada;
+
+    /**
+     * @param desde Primer mes del rango (cohorte y mes de actividad).
+     * @param hasta Último mes del rango (incluido).
+     */
+    public MatrizCohortes(YearMonth desde, YearMonth hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("El mes final no puede ser anterior al inicial.");
+        }
+        this.desde = desde;
+        this.cantidadMeses = indice(hasta) + 1;
+        this.palabrasPorAlumno = (cantidadMeses + 63) >>> 6;
+        this.mesesActivos = new long[cohorteAlumno.length * palabrasPorAlumno];
+        Arrays.fill(posicionPorId, SIN_POSICION);
+    }
+
+    // --- Construcción (la usa el DAO al recorrer las consultas) ---
+
+    /**
+     * Agrega un alumno en la cohorte de su mes de alta. Los dados de alta fuera del rango (o sin fecha)
+     * no forman parte de ninguna cohorte y sus pagos se ignoran.
+     */
+    public void agregarAlumno(int idAlumno, LocalDate fechaAlta) {
+        int cohorte = fechaAlta != null ? indiceMes(YearMonth.from(fechaAlta)) : SIN_POSICION;
+        if (cohorte < 0 || idAlumno < 0) {
+            return;
+        }
+        if (idAlumno >= posicionPorId.length) {
+            int anterior = posicionPorId.length;
+            posicionPorId = Arrays.copyOf(posicionPorId, Math.max(idAlumno + 1, anterior * 2));
+            Arrays.fill(posicionPorId, anterior, posicionPorId.length, SIN_POSICION);
+        }
+        if (posicionPorId[idAlumno] != SIN_POSICION) {
+            return;
+        }
+        if (cantidadAlumnos == cohorteAlumno.length) {
+            cohorteAlumno = Arrays.copyOf(cohorteAlumno, cantidadAlumnos * 2);
+            mesesActivos = Arrays.copyOf(mesesActivos, cohorteAlumno.length * palabrasPorAlumno);
+        }
+        posicionPorId[idAlumno] = cantidadAlumnos;
+        cohorteAlumno[cantidadAlumnos] = cohorte;
+        cantidadAlumnos++;
+        calculada = false;
+    }
+
+    /**
+     * Marca al alumno como activo en un mes. Se llama una vez por pago, así que no crea objetos.
+     * @param mes Índice del mes (ver {@link #indiceMes(YearMonth)}); si está fuera del rango se ignora.
+     */
+    public void registrarActividad(int idAlumno, int mes) {
+        if (idAlumno < 0 || idAlumno >= posicionPorId.length || mes < 0 || mes >= cantidadMeses) {
+            return;
+        }
+        int posicion = posicionPorId[idAlumno];
+        if (posicion != SIN_POSICION) {
+            mesesActivos[posicion * palabrasPorAlumno + (mes >>> 6)] |= 1L << mes;
+            calculada = false;
+        }
+    }
+
+    /**
+     * @return El índice del mes dentro del rango (0 es el primero), o -1 si está fuera.
+     */
+    public int indiceMes(YearMonth mes) {
+        int indice = indice(mes);
+        return indice >= 0 && indice < cantidadMeses ? indice : -1;
+    }
+
+    // --- Consultas ---
+
+    public int getCantidadMeses() {
+        return cantidadMeses;
+    }
+
+    public YearMonth getMes(int indice) {
+        return desde.plusMonths(indice);
+    }
+
+    public int getCantidadAlumnos() {
+        return cantidadAlumnos;
+    }
+
+    /**
+     * @return Cantidad de alumnos dados de alta en el mes de la cohorte.
+     */
+    public int getTamanioCohorte(int cohorte) {
+        calcular();
+        return tamanioCohorte[cohorte];
+    }
+
+    /**
+     * @return Alumnos de la cohorte que pagaron en el mes indicado (0 si el mes es anterior a la cohorte).
+     */
+    public int getActivos(int cohorte, int mes) {
+        calcular();
+        return activos[cohorte * cantidadMeses + mes];
+    }
+
+    /**
+     * @return Proporción (0 a 1) de la cohorte activa {@code mesesDesdeAlta} meses después del alta,
+     *         o NaN si ese mes queda fuera del rango o la cohorte está vacía.
+     */
+    public double getRetencion(int cohorte, int mesesDesdeAlta) {
+        int mes = cohorte + mesesDesdeAlta;
+        if (mes >= cantidadMeses) {
+            return Double.NaN;
+        }
+        return proporcion(getActivos(cohorte, mes), getTamanioCohorte(cohorte));
+    }
+
+    /**
+     * @return Alumnos de la cohorte que pagaron el mes anterior y en este no.
+     */
+    public int getBajas(int cohorte, int mes) {
+        calcular();
+        return bajas[cohorte * cantidadMeses + mes];
+    }
+
+    /**
+     * @return Proporción de los activos del mes anterior que no pagaron este mes, o NaN si no había activos.
+     */
+    public double getTasaBajas(int cohorte, int mes) {
+        return mes == 0 ? Double.NaN : proporcion(getBajas(cohorte, mes), getActivos(cohorte, mes - 1));
+    }
+
+    /**
+     * @return Alumnos de la cohorte que volvieron a pagar este mes después de al menos un mes sin pagar.
+     */
+    public int getReactivados(int cohorte, int mes) {
+        calcular();
+        return reactivados[cohorte * cantidadMeses + mes];
+    }
+
+    /**
+     * @return Proporción de los que estaban sin pagar (habiendo pagado antes) que volvieron este mes,
+     *         o NaN si no había ninguno en esa situación.
+     */
+    public double getTasaReactivacion(int cohorte, int mes) {
+        calcular();
+        return proporcion(reactivados[cohorte * cantidadMeses + mes], inactivosConPagos[cohorte * cantidadMeses + mes]);
+    }
+
+    /**
+     * @return Tasa de bajas del mes sumando todas las cohortes, o NaN si el mes anterior no hubo activos.
+     */
+    public double getTasaBajasMes(int mes) {
+        if (mes == 0) {
+            return Double.NaN;
+        }
+        calcular();
+        return proporcion(sumarCohortes(bajas, mes), sumarCohortes(activos, mes - 1));
+    }
+
+    /**
+     * @return Tasa de reactivación del mes sumando todas las cohortes, o NaN si no había a quién reactivar.
+     */
+    public double getTasaReactivacionMes(int mes) {
+        calcular();
+        return proporcion(sumarCohortes(reactivados, mes), sumarCohortes(inactivosConPagos, mes));
+    }
+
+    // Recorre los bits de cada alumno una vez y acumula los conteos de su cohorte
+    private void calcular() {
+        if (calculada) {
+            return;
+        }
+        int celdas = cantidadMeses * cantidadMeses;
+        tamanioCohorte = new int[cantidadMeses];
+        activos = new int[celdas];
+        bajas = new int[celdas];
+        reactivados = new int[celdas];
+        inactivosConPagos = new int[celdas];
+
+        for (int posicion = 0; posicion < cantidadAlumnos; posicion++) {
+            int cohorte = cohorteAlumno[posicion];
+            int base = cohorte * cantidadMeses;
+            int inicioBits = posicion * palabrasPorAlumno;
+            tamanioCohorte[cohorte]++;
+            boolean activoAntes = false;
+            boolean pagoAlgunaVez = false;
+            for (int mes = cohorte; mes < cantidadMeses; mes++) {
+                boolean activo = (mesesActivos[inicioBits + (mes >>> 6)] & (1L << mes)) != 0;
+                if (activo) {
+                    activos[base + mes]++;
+                }
+                if (mes > cohorte) {
+                    if (activoAntes && !activo) {
+                        bajas[base + mes]++;
+                    } else if (!activoAntes && pagoAlgunaVez) {
+                        inactivosConPagos[base + mes]++;
+                        if (activo) {
+                            reactivados[base + mes]++;
+                        }
+                    }
+                }
+                pagoAlgunaVez |= activo;
+                activoAntes = activo;
+            }
+        }
+        calculada = true;
+    }
+
+    private int sumarCohortes(int[] conteos, int mes) {
+        int total = 0;
+        for (int cohorte = 0; cohorte <= mes; cohorte++) {
+            total += conteos[cohorte * cantidadMeses + mes];
+        }
+        return total;
+    }
+
+    private int indice(YearMonth mes) {
+        return (mes.getYear() - desde.getYear()) * 12 + mes.getMonthValue() - desde.getMonthValue();
+    }
+
+    private static double proporcion(int parte, int total) {
+        return total == 0 ? Double.NaN : (double) parte / total;
+    }
+}
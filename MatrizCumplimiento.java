@@ -0,0 +1,164 @@
+package taichi.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matriz de cumplimiento de documentación: qué alumno presentó qué tipo de documento.
+ *
+ * Cada alumno ocupa una posición (0..n-1) y cada tipo de documento tiene un {@link BitSet}
+ * con un bit encendido por alumno que lo presentó. Las consultas son operaciones de bits:
+ * - falta el tipo X: todos AND NOT presentados(X)
+ * - completos: AND de los presentados de todos los tipos
+ * - falta alguno: todos AND NOT completos
+ *
+ * Los tipos se agrupan sin distinguir mayúsculas ni espacios sobrantes ("Ficha médica " = "Ficha Médica").
+ */
+public class MatrizCumplimiento {
+
+    private final List<Integer> idsAlumno = new ArrayList<>();
+    private final List<String> nombresAlumno = new ArrayList<>();
+    private final List<String> dnisAlumno = new ArrayList<>();
+    private final Map<Integer, Integer> posicionPorId = new HashMap<>();
+
+    // Clave normalizada -> nombre para mostrar (el primero encontrado) y bits de presentados
+    private final Map<String, String> nombresTipo = new LinkedHashMap<>();
+    private final Map<String, BitSet> presentadosPorTipo = new HashMap<>();
+
+    // --- Construcción (la usa el DAO al recorrer la consulta agrupada) ---
+
+    /**
+     * Agrega un alumno a la matriz (si ya estaba, no hace nada).
+     * @return La posición del alumno en la matriz.
+     */
+    public int agregarAlumno(int idAlumno, String nombreCompleto, String dni) {
+        Integer posicion = posicionPorId.get(idAlumno);
+        if (posicion != null) {
+            return posicion;
+        }
+        posicion = idsAlumno.size();
+        idsAlumno.add(idAlumno);
+        nombresAlumno.add(nombreCompleto);
+        dnisAlumno.add(dni);
+        posicionPorId.put(idAlumno, posicion);
+        return posicion;
+    }
+
+    /**
+     * Registra un tipo de documento (aunque ningún alumno lo haya presentado todavía).
+     */
+    public void agregarTipo(String tipoDocumento) {
+        String clave = clave(tipoDocumento);
+        if (!clave.isEmpty() && !nombresTipo.containsKey(clave)) {
+            nombresTipo.put(clave, tipoDocumento.trim());
+            presentadosPorTipo.put(clave, new BitSet());
+        }
+    }
+
+    /**
+     * Marca que el alumno de la posición indicada presentó el tipo de documento.
+     */
+    public void marcarPresentado(int posicion, String tipoDocumento) {
+        agregarTipo(tipoDocumento);
+        BitSet presentados = presentadosPorTipo.get(clave(tipoDocumento));
+        if (presentados != null) {
+            presentados.set(posicion);
+        }
+    }
+
+    // --- Consultas ---
+
+    public int getCantidadAlumnos() {
+        return idsAlumno.size();
+    }
+
+    /**
+     * @return Los tipos de documento, con el nombre con que se muestran.
+     */
+    public List<String> getTiposDocumento() {
+        return new ArrayList<>(nombresTipo.values());
+    }
+
+    public int getIdAlumno(int posicion) {
+        return idsAlumno.get(posicion);
+    }
+
+    public String getNombreAlumno(int posicion) {
+        return nombresAlumno.get(posicion);
+    }
+
+    public String getDniAlumno(int posicion) {
+        return dnisAlumno.get(posicion);
+    }
+
+    /**
+     * @return Posiciones de los alumnos a los que les falta el tipo de documento indicado.
+     */
+    public BitSet faltantes(String tipoDocumento) {
+        BitSet resultado = todos();
+        BitSet presentados = presentadosPorTipo.get(clave(tipoDocumento));
+        if (presentados != null) {
+            resultado.andNot(presentados);
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Posiciones de los alumnos que presentaron todos los tipos de documento.
+     */
+    public BitSet completos() {
+        BitSet resultado = todos();
+        for (BitSet presentados : presentadosPorTipo.values()) {
+            resultado.and(presentados);
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Posiciones de los alumnos a los que les falta al menos un tipo de documento.
+     */
+    public BitSet conAlgunFaltante() {
+        BitSet resultado = todos();
+        resultado.andNot(completos());
+        return resultado;
+    }
+
+    /**
+     * @return Los tipos de documento que le faltan al alumno de la posición indicada.
+     */
+    public List<String> tiposFaltantes(int posicion) {
+        List<String> faltantes = new ArrayList<>();
+        for (Map.Entry<String, String> tipo : nombresTipo.entrySet()) {
+            if (!presentadosPorTipo.get(tipo.getKey()).get(posicion)) {
+                faltantes.add(tipo.getValue());
+            }
+        }
+        return faltantes;
+    }
+
+    /**
+     * @return Los IDs de alumno correspondientes a las posiciones encendidas.
+     */
+    public List<Integer> idsAlumno(BitSet posiciones) {
+        List<Integer> ids = new ArrayList<>(posiciones.cardinality());
+        for (int i = posiciones.nextSetBit(0); i >= 0; i = posiciones.nextSetBit(i + 1)) {
+            ids.add(idsAlumno.get(i));
+        }
+        return ids;
+    }
+
+    // Conjunto con todos los alumnos de la matriz
+    private BitSet todos() {
+        BitSet resultado = new BitSet(idsAlumno.size());
+        resultado.set(0, idsAlumno.size());
+        return resultado;
+    }
+
+    private static String clave(String tipoDocumento) {
+        return tipoDocumento == null ? "" : tipoDocumento.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,479 @@
+package taichi.controller;
+
+import taichi.dao.AlmacenLocal;
+import taichi.dao.AlumnoDAO;
+import taichi.dao.AsistenciaDAO;
+import taichi.dao.DatabaseConnection;
+import taichi.dao.DocumentoEstadoDAO;
+import taichi.dao.PagoDAO;
+import taichi.dao.PeriodoCuotaDAO;
+import taichi.model.Asistencia;
+import taichi.model.Dinero;
+import taichi.model.DocumentoEstado;
+import taichi.model.InstantaneaLocal;
+import taichi.model.OperacionSinConexion;
+import taichi.model.Pago;
+import taichi.model.ResultadoResincronizacion;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
+import taichi.util.HilosVirtuales;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Modo sin conexión: si la BD no responde, el puesto sigue atendiendo con el {@link AlmacenLocal}.
+ *
+ * Las consultas de alumnos, períodos y saldos se responden con la última instantánea local (que se renueva
+ * cada pocos minutos mientras hay conexión), y los pagos, la asistencia y los documentos se anotan en el diario
+ * local. Cada pocos segundos se prueba la conexión; cuando vuelve, lo anotado se envía en lotes y los conflictos
+ * (operaciones que la BD rechaza o que conviene revisar) se informan en pantalla y en el archivo de conflictos.
+ */
+public class ModoSinConexion {
+
+    private static final Logger LOGGER = Logger.getLogger(ModoSinConexion.class.getName());
+
+    private static final long INTERVALO_SEGUNDOS = 15;
+    private static final long MINUTOS_ENTRE_INSTANTANEAS = 10;
+    private static final int PAGOS_POR_LOTE = 100;
+    private static final int SEGUNDOS_PRUEBA_CONEXION = 2;
+
+    private AlmacenLocal almacen;
+    private AlumnoDAO alumnoDAO;
+    private PeriodoCuotaDAO periodoCuotaDAO;
+    private PagoDAO pagoDAO;
+    private AsistenciaDAO asistenciaDAO;
+    private DocumentoEstadoDAO documentoEstadoDAO;
+
+    private volatile boolean sinConexion;
+    private volatile InstantaneaLocal instantanea; // Se lee del disco la primera vez que hace falta
+    private long ultimaInstantanea = Long.MIN_VALUE; // System.nanoTime() de la última instantánea guardada
+    // Lo anotado en el diario y todavía no enviado (copia en memoria para sumar saldos sin leer el archivo)
+    private final List<OperacionSinConexion> anotadas = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<Boolean>> oyentesEstado = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ResultadoResincronizacion>> oyentesResincronizacion = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService ejecutor;
+    private final Object envio = new Object(); // Una sola resincronización a la vez (sin bloquear al resto)
+
+    public ModoSinConexion(AlmacenLocal almacen, AlumnoDAO alumnoDAO, PeriodoCuotaDAO periodoCuotaDAO, PagoDAO pagoDAO,
+                           AsistenciaDAO asistenciaDAO, DocumentoEstadoDAO documentoEstadoDAO) {
+        this.almacen = almacen;
+        this.alumnoDAO = alumnoDAO;
+        this.periodoCuotaDAO = periodoCuotaDAO;
+        this.pagoDAO = pagoDAO;
+        this.asistenciaDAO = asistenciaDAO;
+        this.documentoEstadoDAO = documentoEstadoDAO;
+    }
+
+    /**
+     * @return true si el error (o alguna de sus causas) indica que no se pudo hablar con la BD,
+     *         a diferencia de un error de la consulta en sí.
+     */
+    public static boolean esErrorDeConexion(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLNonTransientConnectionException || causa instanceof SQLTransientConnectionException
+                    || causa instanceof ConnectException || causa instanceof SocketTimeoutException) {
+                return true;
+            }
+            if (causa instanceof SQLException) {
+                String estado = ((SQLException) causa).getSQLState();
+                if (estado != null && estado.startsWith("08")) { // Clase 08: excepción de conexión
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recupera lo que quedó anotado de una sesión anterior y empieza a revisar la conexión en segundo plano
+     * (y a renovar la instantánea mientras haya conexión). Llamadas posteriores no hacen nada.
+     * @throws IOException Si no se pudo leer el diario local.
+     */
+    public synchronized void iniciar() throws IOException {
+        if (ejecutor != null) {
+            return;
+        }
+        anotadas.addAll(almacen.pendientes());
+        if (!anotadas.isEmpty()) {
+            LOGGER.info(() -> "Hay " + anotadas.size() + " operaciones hechas sin conexión pendientes de enviar.");
+        }
+        ejecutor = Executors.newSingleThreadScheduledExecutor(HilosVirtuales.fabricaDaemon("modo-sin-conexion"));
+        ejecutor.scheduleWithFixedDelay(this::revisar, 0, INTERVALO_SEGUNDOS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene la revisión en segundo plano (al cerrar la aplicación). Lo anotado queda en el diario.
+     */
+    public synchronized void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdownNow();
+            ejecutor = null;
+        }
+    }
+
+    /**
+     * @param oyente Recibe true al pasar a trabajar sin conexión y false al volver (en el hilo del modo sin conexión).
+     */
+    public void alCambiarEstado(Consumer<Boolean> oyente) {
+        oyentesEstado.add(oyente);
+    }
+
+    /**
+     * @param oyente Recibe el resultado de cada resincronización (en el hilo del modo sin conexión).
+     */
+    public void alResincronizar(Consumer<ResultadoResincronizacion> oyente) {
+        oyentesResincronizacion.add(oyente);
+    }
+
+    public boolean estaSinConexion() {
+        return sinConexion;
+    }
+
+    /**
+     * Pasa a trabajar sin conexión si el error es de conexión y hay una instantánea local para responder.
+     * @param causa El error que dio la BD.
+     * @return true si ahora se trabaja sin conexión (el que llamó puede reintentar la operación);
+     *         false si el error no es de conexión o no hay datos locales.
+     */
+    public synchronized boolean pasarASinConexion(Exception causa) {
+        if (sinConexion) {
+            return true;
+        }
+        if (!esErrorDeConexion(causa)) {
+            return false;
+        }
+        try {
+            if (instantanea == null) {
+                instantanea = almacen.leerInstantanea();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer la instantánea local: " + e.getMessage(), e);
+        }
+        if (instantanea == null) {
+            LOGGER.warning("Sin conexión a la BD y sin instantánea local: no se puede trabajar sin conexión.");
+            return false;
+        }
+        sinConexion = true;
+        LOGGER.warning(() -> "Sin conexión a la BD (" + causa.getMessage() + "). Se trabaja con los datos locales del "
+            + instantanea.getFecha() + ".");
+        for (Consumer<Boolean> oyente : oyentesEstado) {
+            oyente.accept(true);
+        }
+        return true;
+    }
+
+    /**
+     * @return Ruta del informe de conflictos de las resincronizaciones.
+     */
+    public Path getArchivoConflictos() {
+        return almacen.getArchivoConflictos();
+    }
+
+    /**
+     * @return La instantánea con la que se responde sin conexión (null si no hay ninguna).
+     */
+    public InstantaneaLocal getInstantanea() {
+        return instantanea;
+    }
+
+    /**
+     * @return Lo pagado por un alumno en un período según la instantánea, más lo cobrado sin conexión desde entonces.
+     */
+    public Dinero montoPagado(int idAlumno, int idPeriodo) {
+        Dinero monto = instantanea != null ? instantanea.getMontoPagado(idAlumno, idPeriodo) : Dinero.CERO;
+        for (OperacionSinConexion operacion : anotadas) {
+            if (operacion.getTipo() == OperacionSinConexion.Tipo.PAGO && operacion.getPago().getIdAlumno() == idAlumno
+                    && operacion.getPago().getIdPeriodo() == idPeriodo) {
+                monto = monto.mas(operacion.getPago().getMontoPagado());
+            }
+        }
+        return monto;
+    }
+
+    /**
+     * Anota un pago para enviarlo cuando vuelva la conexión.
+     * @param pago Pago con su clave de idempotencia asignada.
+     * @throws IOException Si no se pudo anotar (el pago no quedó registrado).
+     */
+    public void anotarPago(Pago pago) throws IOException {
+        anotar(OperacionSinConexion.pago(pago));
+    }
+
+    /**
+     * Anota la planilla de asistencia de una clase para enviarla cuando vuelva la conexión.
+     * @throws IOException Si no se pudo anotar.
+     */
+    public void anotarAsistencia(int idClase, LocalDate fecha, List<Asistencia> marcas) throws IOException {
+        anotar(OperacionSinConexion.asistencia(UUID.randomUUID().toString(), idClase, fecha, marcas));
+    }
+
+    /**
+     * Anota un documento para cargarlo cuando vuelva la conexión.
+     * @throws IOException Si no se pudo anotar.
+     */
+    public void anotarDocumento(DocumentoEstado documento) throws IOException {
+        anotar(OperacionSinConexion.documento(UUID.randomUUID().toString(), documento));
+    }
+
+    /**
+     * @return Cantidad de operaciones hechas sin conexión que todavía no se enviaron.
+     */
+    public int cantidadPendientes() {
+        return anotadas.size();
+    }
+
+    /**
+     * Toma una instantánea nueva de alumnos, períodos y saldos y la guarda en el almacén local.
+     * @throws Exception Si ocurre un error de base de datos o al escribir el archivo.
+     */
+    public void actualizarInstantanea() throws Exception {
+        InstantaneaLocal nueva;
+        try {
+            nueva = new InstantaneaLocal(LocalDateTime.now(), alumnoDAO.obtenerTodos(), periodoCuotaDAO.obtenerTodos(),
+                pagoDAO.obtenerTotalesPagadosPorAlumnoYCuota());
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error al leer los datos para la instantánea local: " + e.getMessage(), e);
+            throw e; // Se conserva el SQLException para que se pueda reconocer un error de conexión
+        }
+        try {
+            almacen.guardarInstantanea(nueva);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error al guardar la instantánea local: " + e.getMessage(), e);
+            throw new Exception("Error al guardar la instantánea local: " + e.getMessage());
+        }
+        instantanea = nueva;
+        ultimaInstantanea = System.nanoTime();
+    }
+
+    /**
+     * Envía a la BD lo anotado sin conexión: primero los pagos en lotes, después la asistencia y los documentos.
+     * Si un lote de pagos falla por un error que no es de conexión, se reintenta pago por pago para aislar el que
+     * la BD rechaza. Si se vuelve a perder la conexión, se corta y lo que falta queda anotado para la próxima vez.
+     * @return Qué se envió y qué conflictos hubo (también se agregan al archivo de conflictos).
+     * @throws Exception Si no se pudo leer o escribir el almacén local.
+     */
+    public ResultadoResincronizacion resincronizar() throws Exception {
+        synchronized (envio) {
+            return enviarPendientes();
+        }
+    }
+
+    private ResultadoResincronizacion enviarPendientes() throws Exception {
+        long inicio = System.nanoTime();
+        List<OperacionSinConexion> pendientes = new ArrayList<>(anotadas);
+        List<String> conflictos = new ArrayList<>();
+        int pagos = 0;
+        int asistencias = 0;
+        int documentos = 0;
+
+        try {
+            List<OperacionSinConexion> operacionesPago = new ArrayList<>();
+            for (OperacionSinConexion operacion : pendientes) {
+                if (operacion.getTipo() == OperacionSinConexion.Tipo.PAGO) {
+                    operacionesPago.add(operacion);
+                }
+            }
+            if (!operacionesPago.isEmpty()) {
+                revisarPagosConcurrentes(operacionesPago, conflictos);
+            }
+            for (int desde = 0; desde < operacionesPago.size(); desde += PAGOS_POR_LOTE) {
+                List<OperacionSinConexion> lote = operacionesPago.subList(desde, Math.min(desde + PAGOS_POR_LOTE, operacionesPago.size()));
+                pagos += enviarPagos(lote, conflictos);
+                cerrar(lote);
+            }
+
+            for (OperacionSinConexion operacion : pendientes) {
+                if (operacion.getTipo() == OperacionSinConexion.Tipo.ASISTENCIA) {
+                    try {
+                        asistenciaDAO.registrarAsistenciaClase(operacion.getIdClase(), operacion.getFecha(), operacion.getMarcas());
+                        asistencias++;
+                    } catch (SQLException e) {
+                        if (esErrorDeConexion(e)) {
+                            throw e;
+                        }
+                        conflictos.add(operacion.describir() + ": no se pudo guardar (" + e.getMessage() + ")");
+                    }
+                    cerrar(Collections.singletonList(operacion));
+                } else if (operacion.getTipo() == OperacionSinConexion.Tipo.DOCUMENTO) {
+                    if (enviarDocumento(operacion, conflictos)) {
+                        documentos++;
+                    }
+                    cerrar(Collections.singletonList(operacion));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Se perdió la conexión durante la resincronización: " + e.getMessage(), e);
+        } finally {
+            almacen.registrarConflictos(conflictos);
+        }
+
+        ResultadoResincronizacion resultado = new ResultadoResincronizacion(pagos, asistencias, documentos, conflictos,
+            anotadas.size(), (System.nanoTime() - inicio) / 1_000_000);
+        LOGGER.info(() -> "Resincronización terminada: " + resultado);
+        return resultado;
+    }
+
+    // Cada pocos segundos: sin conexión, prueba si volvió y resincroniza; con conexión, envía lo que haya quedado
+    // de antes y renueva la instantánea si es vieja
+    private void revisar() {
+        try {
+            if (sinConexion) {
+                if (!hayConexion()) {
+                    return;
+                }
+                ResultadoResincronizacion resultado = resincronizar();
+                avisar(resultado);
+                if (resultado.isCompleta()) {
+                    sinConexion = false;
+                    LOGGER.info("Volvió la conexión a la BD.");
+                    for (Consumer<Boolean> oyente : oyentesEstado) {
+                        oyente.accept(false);
+                    }
+                    actualizarInstantanea();
+                }
+            } else {
+                if (!anotadas.isEmpty()) {
+                    avisar(resincronizar());
+                }
+                if (ultimaInstantanea == Long.MIN_VALUE
+                        || System.nanoTime() - ultimaInstantanea > TimeUnit.MINUTES.toNanos(MINUTOS_ENTRE_INSTANTANEAS)) {
+                    actualizarInstantanea();
+                }
+            }
+        } catch (Exception e) {
+            if (!pasarASinConexion(e)) {
+                LOGGER.log(Level.WARNING, "Error en la revisión del modo sin conexión: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private boolean hayConexion() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return conn.isValid(SEGUNDOS_PRUEBA_CONEXION);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Los pagos cobrados sin conexión se guardan igual (el dinero ya se recibió), pero si mientras tanto otro puesto
+    // registró pagos del mismo alumno y período, se avisa para revisar un posible cobro doble
+    private void revisarPagosConcurrentes(List<OperacionSinConexion> operacionesPago, List<String> conflictos) throws SQLException {
+        if (instantanea == null) {
+            return;
+        }
+        Map<Long, Dinero> totalesActuales = pagoDAO.obtenerTotalesPagadosPorAlumnoYCuota();
+        for (OperacionSinConexion operacion : operacionesPago) {
+            Pago pago = operacion.getPago();
+            long clave = InstantaneaLocal.claveSaldo(pago.getIdAlumno(), pago.getIdPeriodo());
+            Dinero antes = instantanea.getSaldos().getOrDefault(clave, Dinero.CERO);
+            Dinero ahora = totalesActuales.getOrDefault(clave, Dinero.CERO);
+            if (ahora.esMayorQue(antes)) {
+                conflictos.add(operacion.describir() + ": revisar, mientras tanto se registraron $"
+                    + ahora.menos(antes).formatear() + " desde otro puesto para el mismo alumno y período");
+            }
+        }
+    }
+
+    private int enviarPagos(List<OperacionSinConexion> lote, List<String> conflictos) throws SQLException {
+        List<Pago> pagos = new ArrayList<>();
+        for (OperacionSinConexion operacion : lote) {
+            pagos.add(operacion.getPago());
+        }
+        try {
+            publicarPagos(pagoDAO.crearLote(pagos));
+            return pagos.size();
+        } catch (SQLException e) {
+            if (esErrorDeConexion(e)) {
+                throw e;
+            }
+        }
+        int guardados = 0;
+        for (OperacionSinConexion operacion : lote) {
+            try {
+                publicarPagos(pagoDAO.crearLote(Collections.singletonList(operacion.getPago())));
+                guardados++;
+            } catch (SQLException e) {
+                if (esErrorDeConexion(e)) {
+                    throw e;
+                }
+                conflictos.add(operacion.describir() + ": no se pudo guardar (" + e.getMessage() + ")");
+            }
+        }
+        return guardados;
+    }
+
+    // Un documento del mismo tipo ya cargado para el alumno (desde otro puesto, o en un envío anterior que se cortó)
+    // no se vuelve a cargar
+    private boolean enviarDocumento(OperacionSinConexion operacion, List<String> conflictos) throws SQLException {
+        DocumentoEstado documento = operacion.getDocumento();
+        try {
+            for (DocumentoEstado existente : documentoEstadoDAO.obtenerDocumentosPorAlumno(documento.getIdAlumno())) {
+                if (documento.getTipoDocumento().equalsIgnoreCase(existente.getTipoDocumento())) {
+                    conflictos.add(operacion.describir() + ": ya estaba cargado (estado \"" + existente.getEstado()
+                        + "\"), no se volvió a cargar");
+                    return false;
+                }
+            }
+            documentoEstadoDAO.crear(documento);
+            BusEventos.getInstancia().publicar(DocumentoEstado.class,
+                EventoCambio.creado(documento.getIdDocumentoEstado(), documento));
+            return true;
+        } catch (SQLException e) {
+            if (esErrorDeConexion(e)) {
+                throw e;
+            }
+            conflictos.add(operacion.describir() + ": no se pudo guardar (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    // Los pagos insertados pasan a contar en los saldos de la instantánea (ya no están entre los anotados).
+    // Los que ya estaban en la BD (envío anterior cortado) se sumaron y publicaron cuando se guardaron
+    private void publicarPagos(List<Pago> pagos) {
+        for (Pago pago : pagos) {
+            if (instantanea != null) {
+                instantanea.sumarPago(pago.getIdAlumno(), pago.getIdPeriodo(), pago.getMontoPagado());
+            }
+            BusEventos.getInstancia().publicar(Pago.class, EventoCambio.creado(pago.getIdPago(), pago));
+        }
+    }
+
+    private void anotar(OperacionSinConexion operacion) throws IOException {
+        almacen.anotar(operacion);
+        anotadas.add(operacion);
+    }
+
+    // Marca operaciones como enviadas (guardadas o informadas como conflicto)
+    private void cerrar(List<OperacionSinConexion> operaciones) throws IOException {
+        almacen.confirmar(operaciones);
+        anotadas.removeAll(operaciones);
+    }
+
+    private void avisar(ResultadoResincronizacion resultado) {
+        for (Consumer<ResultadoResincronizacion> oyente : oyentesResincronizacion) {
+            oyente.accept(resultado);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package taichi.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Operación hecha sin conexión a la BD y anotada en el diario local, a la espera de la resincronización:
+ * un pago, la planilla de asistencia de una clase o un documento entregado.
+ */
+public class OperacionSinConexion {
+
+    public enum Tipo { PAGO, ASISTENCIA, DOCUMENTO }
+
+    private final Tipo tipo;
+    private final String clave;             // Clave única en el diario (en los pagos, su clave de idempotencia)
+    private final Pago pago;                // Solo PAGO
+    private final int idClase;              // Solo ASISTENCIA
+    private final LocalDate fecha;          // Solo ASISTENCIA
+    private final List<Asistencia> marcas;  // Solo ASISTENCIA
+    private final DocumentoEstado documento; // Solo DOCUMENTO
+
+    private OperacionSinConexion(Tipo tipo, String clave, Pago pago, int idClase, LocalDate fecha,
+                                 List<Asistencia> marcas, DocumentoEstado documento) {
+        this.tipo = tipo;
+        this.clave = clave;
+        this.pago = pago;
+        this.idClase = idClase;
+        this.fecha = fecha;
+        this.marcas = marcas;
+        this.documento = documento;
+    }
+
+    /**
+     * @param pago Pago con su clave de idempotencia asignada (se usa como clave de la operación).
+     */
+    public static OperacionSinConexion pago(Pago pago) {
+        return new OperacionSinConexion(Tipo.PAGO, pago.getClaveIdempotencia(), pago, 0, null, null, null);
+    }
+
+    public static OperacionSinConexion asistencia(String clave, int idClase, LocalDate fecha, List<Asistencia> marcas) {
+        return new OperacionSinConexion(Tipo.ASISTENCIA, clave, null, idClase, fecha, marcas, null);
+    }
+
+    public static OperacionSinConexion documento(String clave, DocumentoEstado documento) {
+        return new OperacionSinConexion(Tipo.DOCUMENTO, clave, null, 0, null, null, documento);
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public Pago getPago() {
+        return pago;
+    }
+
+    public int getIdClase() {
+        return idClase;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public List<Asistencia> getMarcas() {
+        return marcas;
+    }
+
+    public DocumentoEstado getDocumento() {
+        return documento;
+    }
+
+    /**
+     * @return Descripción breve para el informe de conflictos de la resincronización.
+     */
+    public String describir() {
+        switch (tipo) {
+            case PAGO:
+                return "Pago de $" + pago.getMontoPagado().formatear() + " del alumno " + pago.getIdAlumno()
+                    + " (período " + pago.getIdPeriodo() + ", " + pago.getFechaPago() + ")";
+            case ASISTENCIA:
+                return "Asistencia de la clase " + idClase + " del " + fecha + " (" + marcas.size() + " alumnos)";
+            default:
+                return "Documento \"" + documento.getTipoDocumento() + "\" del alumno " + documento.getIdAlumno();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OperacionSinConexion{" +
+               "tipo=" + tipo +
+               ", clave='" + clave + '\'' +
+               ", " + describir() +
+               '}';
+    }
+}
@@ -10,20 +10,22 @@ public class Pago {
     private int idAlumno;                   // id_alumno (clave foránea a Alumnos)
     private int idPeriodo;                  // id_periodo (clave foránea a PeriodosCuota)
     private LocalDate fechaPago;            // fecha_pago
-    private double montoPagado;             // monto_pagado
+    private Dinero montoPagado = Dinero.CERO; // monto_pagado
     private String tipoPago;                // tipo_pago (ej. "Efectivo", "Transferencia")
     private boolean esPagoParcial;          // es_pago_parcial (TRUE/FALSE)
-    private double montoRecargoAplicado;    // monto_recargo_aplicado
+    private Dinero montoRecargoAplicado = Dinero.CERO; // monto_recargo_aplicado
+    private int version;                    // version (control de concurrencia optimista)
+    private String claveIdempotencia;       // clave_idempotencia (evita duplicar un pago al reenviarlo)
 
     // --- Constructores ---
 
     // Constructor vacío
-    public Pago(int idPago2, int i, int j, double montoPagado2, LocalDate fechaPago2, String string) {
+    public Pago(int idPago2, int i, int j, Dinero montoPagado2, LocalDate fechaPago2, String string) {
     }
 
     // Constructor sin idPago (para crear un NUEVO pago antes de insertarlo en la BD)
-    public Pago(int idAlumno, int idPeriodo, LocalDate fechaPago, double montoPagado,
-                String tipoPago, boolean esPagoParcial, double montoRecargoAplicado) {
+    public Pago(int idAlumno, int idPeriodo, LocalDate fechaPago, Dinero montoPagado,
+                String tipoPago, boolean esPagoParcial, Dinero montoRecargoAplicado) {
         this.idAlumno = idAlumno;
         this.idPeriodo = idPeriodo;
         this.fechaPago = fechaPago;
@@ -34,8 +36,8 @@ public class Pago {
     }
 
     // Constructor con idPago (para cuando recuperas un pago de la BD)
-    public Pago(int idPago, int idAlumno, int idPeriodo, LocalDate fechaPago, double montoPagado,
-                String tipoPago, boolean esPagoParcial, double montoRecargoAplicado) {
+    public Pago(int idPago, int idAlumno, int idPeriodo, LocalDate fechaPago, Dinero montoPagado,
+                String tipoPago, boolean esPagoParcial, Dinero montoRecargoAplicado) {
         this.idPago = idPago;
         this.idAlumno = idAlumno;
         this.idPeriodo = idPeriodo;
@@ -80,11 +82,11 @@ public class Pago {
         this.fechaPago = fechaPago;
     }
 
-    public double getMontoPagado() {
+    public Dinero getMontoPagado() {
         return montoPagado;
     }
 
-    public void setMontoPagado(double montoPagado) {
+    public void setMontoPagado(Dinero montoPagado) {
         this.montoPagado = montoPagado;
     }
 
@@ -104,14 +106,30 @@ public class Pago {
         this.esPagoParcial = esPagoParcial;
     }
 
-    public double getMontoRecargoAplicado() {
+    public Dinero getMontoRecargoAplicado() {
         return montoRecargoAplicado;
     }
 
-    public void setMontoRecargoAplicado(double montoRecargoAplicado) {
+    public void setMontoRecargoAplicado(Dinero montoRecargoAplicado) {
         this.montoRecargoAplicado = montoRecargoAplicado;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public String getClaveIdempotencia() {
+        return claveIdempotencia;
+    }
+
+    public void setClaveIdempotencia(String claveIdempotencia) {
+        this.claveIdempotencia = claveIdempotencia;
+    }
+
     @Override
     public String toString() {
         return "Pago{" +
@@ -2,32 +2,95 @@ package taichi.controller;
 
 import taichi.model.Pago;
 import taichi.model.Alumno;
+import taichi.model.Dinero;
 import taichi.model.PeriodoCuota;
 import taichi.dao.PagoDAO;
 import taichi.dao.AlumnoDAO; // Necesario para verificar existencia del alumno
 import taichi.dao.PeriodoCuotaDAO; // Necesario para obtener detalles del periodo
+import taichi.dao.FacturacionDAO; // Recargos ya aplicados por el job de recargos
+import taichi.dao.ConflictoVersionException;
+import taichi.util.EscritorFilas;
 import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
 
 public class PagoController {
 
     private PagoDAO pagoDAO;
     private AlumnoDAO alumnoDAO; // Para validar la existencia del alumno
     private PeriodoCuotaDAO periodoCuotaDAO; // Para obtener los detalles del período y calcular recargos
+    private FacturacionDAO facturacionDAO; // Para leer el recargo guardado en la cuota del alumno
+    private EscritorDiferidoPagos escritorDiferido; // null: cada pago se inserta en el momento
+    private ModoSinConexion modoSinConexion; // null: sin respaldo local
     private static final Logger LOGGER = Logger.getLogger(PagoController.class.getName());
 
+    // Encabezado del detalle de pagos exportado (mismo orden que las filas de PagoDAO.recorrerPagosEntre)
+    private static final String[] ENCABEZADO_EXPORTACION = {
+        "Fecha", "ID Pago", "ID Alumno", "Alumno", "DNI", "Período", "Monto", "Método de Pago"
+    };
+    private static final int FILAS_POR_AVANCE = 500; // Cada cuántas filas se informa el avance de una exportación
+
     public PagoController() {
-        this.pagoDAO = new PagoDAO();
-        this.alumnoDAO = new AlumnoDAO();
-        this.periodoCuotaDAO = new PeriodoCuotaDAO();
+        this(new PagoDAO(), new AlumnoDAO(), new PeriodoCuotaDAO(), new FacturacionDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public PagoController(PagoDAO pagoDAO, AlumnoDAO alumnoDAO, PeriodoCuotaDAO periodoCuotaDAO, FacturacionDAO facturacionDAO) {
+        this.pagoDAO = pagoDAO;
+        this.alumnoDAO = alumnoDAO;
+        this.periodoCuotaDAO = periodoCuotaDAO;
+        this.facturacionDAO = facturacionDAO;
+    }
+
+    /**
+     * Activa la escritura diferida: desde ahora {@link #registrarNuevoPago} anota el pago en el diario local
+     * y devuelve un recibo provisorio, y el escritor lo guarda en la BD en segundo plano. Lo que no se espera es el
+     * insert: las consultas de validación (alumno, período, recargo y lo ya pagado) se siguen haciendo antes.
+     * @param escritorDiferido El escritor de pagos (ver {@link ContextoAplicacion}).
+     */
+    public void setEscritorDiferido(EscritorDiferidoPagos escritorDiferido) {
+        this.escritorDiferido = escritorDiferido;
+    }
+
+    /**
+     * Activa el modo sin conexión (ver {@link ModoSinConexion}): si la BD no responde, los pagos se validan contra
+     * la instantánea local y se anotan en el diario local hasta que vuelva la conexión.
+     */
+    public void setModoSinConexion(ModoSinConexion modoSinConexion) {
+        this.modoSinConexion = modoSinConexion;
+    }
+
+    /**
+     * Si la escritura diferida está activa, reenvía los pagos que quedaron en el diario local y empieza a guardar
+     * los nuevos. Sin escritura diferida no hace nada.
+     * @throws Exception Si no se pudo leer el diario.
+     */
+    public void iniciarEscrituraDiferida() throws Exception {
+        if (escritorDiferido == null) {
+            return;
+        }
+        try {
+            escritorDiferido.iniciar();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error al leer el diario de pagos pendientes: " + e.getMessage(), e);
+            throw new Exception("Error al recuperar los pagos pendientes: " + e.getMessage());
+        }
     }
 
     /**
@@ -37,63 +100,93 @@ public class PagoController {
      * @param idPeriodo ID del período de cuota al que corresponde el pago.
      * @param montoPagado Monto que el alumno está pagando.
      * @param tipoPago Tipo de pago (ej. "Efectivo", "Transferencia", "Tarjeta").
-     * @return El objeto Pago recién creado y con su ID asignado.
+     * @return El objeto Pago recién creado y con su ID asignado. Con escritura diferida, un recibo provisorio:
+     *         el pago sin ID (0) y con su clave de idempotencia; el ID llega después con el evento CREADO.
+     *         Sin conexión se devuelve el mismo recibo provisorio.
      * @throws Exception Si ocurre un error lógico (validación) o de base de datos.
      */
-    public Pago registrarNuevoPago(int idAlumno, int idPeriodo, double montoPagado, String tipoPago) throws Exception {
+    public Pago registrarNuevoPago(int idAlumno, int idPeriodo, Dinero montoPagado, String tipoPago) throws Exception {
         // --- 1. Validaciones de entrada ---
         if (!InputValidator.isPositive(idAlumno) || !InputValidator.isPositive(idPeriodo)) {
             throw new IllegalArgumentException("Los IDs de Alumno y Período deben ser números positivos.");
         }
-        if (montoPagado <= 0) {
+        if (montoPagado == null || !montoPagado.esPositivo()) {
             throw new IllegalArgumentException("El monto a pagar debe ser un valor positivo.");
         }
         if (InputValidator.isNullOrEmpty(tipoPago)) {
             throw new IllegalArgumentException("El tipo de pago es obligatorio.");
         }
 
-        // --- 2. Validar existencia de Alumno y Período de Cuota ---
+        // --- 2. Validar existencia de Alumno y Período de Cuota (sin conexión, contra la instantánea local) ---
+        boolean sinConexion = modoSinConexion != null && modoSinConexion.estaSinConexion();
         Alumno alumnoExistente;
         PeriodoCuota periodoExistente;
         try {
-            alumnoExistente = alumnoDAO.obtenerPorId(idAlumno);
+            alumnoExistente = sinConexion ? modoSinConexion.getInstantanea().buscarAlumno(idAlumno) : alumnoDAO.obtenerPorId(idAlumno);
             if (alumnoExistente == null) {
                 throw new Exception("No se encontró un alumno con el ID: " + idAlumno);
             }
-            periodoExistente = periodoCuotaDAO.obtenerPorId(idPeriodo);
+            periodoExistente = sinConexion ? modoSinConexion.getInstantanea().buscarPeriodo(idPeriodo) : periodoCuotaDAO.obtenerPorId(idPeriodo);
             if (periodoExistente == null) {
                 throw new Exception("No se encontró un período de cuota con el ID: " + idPeriodo);
             }
         } catch (SQLException e) {
+            if (modoSinConexion != null && modoSinConexion.pasarASinConexion(e)) {
+                return registrarNuevoPago(idAlumno, idPeriodo, montoPagado, tipoPago);
+            }
             LOGGER.log(Level.SEVERE, "Error al verificar alumno o período de cuota: " + e.getMessage(), e);
             throw new Exception("Error al procesar pago: " + e.getMessage());
         }
 
         // --- 3. Lógica de Negocio: Calcular recargo y determinar pago parcial ---
         LocalDate fechaActual = LocalDate.now();
-        double montoBasePeriodo = periodoExistente.getMontoBase();
-        double montoRecargoPeriodo = periodoExistente.getMontoRecargo();
-        double montoTotalAPagar = montoBasePeriodo;
-        double montoRecargoAplicado = 0.0;
+        Dinero montoBasePeriodo = periodoExistente.getMontoBase();
+        Dinero montoRecargoPeriodo = periodoExistente.getMontoRecargo();
+        Dinero montoTotalAPagar = montoBasePeriodo;
+        Dinero montoRecargoAplicado = Dinero.CERO;
         boolean esPagoParcial = false;
 
-        // Verificar si aplica recargo
-        if (fechaActual.isAfter(periodoExistente.getFechaVencimiento())) {
-            montoTotalAPagar += montoRecargoPeriodo;
+        // Recargo guardado por el job de recargos y monto ya pagado para este período (pagos parciales previos).
+        // Si la conexión se corta en estas consultas, el pago se registra sin conexión como en el paso 2
+        Dinero recargoGuardado;
+        Dinero montoPrevioPagado;
+        try {
+            recargoGuardado = sinConexion ? null : facturacionDAO.obtenerRecargoCuota(idAlumno, idPeriodo);
+            EscritorDiferidoPagos.ConsultaMonto pagadoGuardado = sinConexion
+                ? () -> modoSinConexion.montoPagado(idAlumno, idPeriodo) // Instantánea más lo cobrado sin conexión
+                : () -> pagoDAO.obtenerMontoTotalPagadoPorAlumnoYPeriodo(idAlumno, idPeriodo);
+            montoPrevioPagado = escritorDiferido != null
+                ? escritorDiferido.montoPagado(idAlumno, idPeriodo, pagadoGuardado) // Más lo cobrado pero aún no guardado
+                : pagadoGuardado.consultar();
+        } catch (SQLException e) {
+            if (modoSinConexion != null && modoSinConexion.pasarASinConexion(e)) {
+                return registrarNuevoPago(idAlumno, idPeriodo, montoPagado, tipoPago);
+            }
+            LOGGER.log(Level.SEVERE, "Error al consultar recargo o monto pagado: " + e.getMessage(), e);
+            throw new Exception("Error al procesar pago: " + e.getMessage());
+        }
+
+        // Verificar si aplica recargo: si el job de recargos ya revisó la cuota del alumno, vale lo que dejó guardado
+        // (0 si estaba pagada al vencimiento); si todavía no la revisó (o no hay conexión para saberlo),
+        // se decide por la fecha de vencimiento
+        if (recargoGuardado != null) {
+            montoTotalAPagar = montoTotalAPagar.mas(recargoGuardado);
+            montoRecargoAplicado = recargoGuardado;
+            LOGGER.fine(() -> "La cuota del alumno ya fue revisada por el job de recargos. Recargo guardado: " + recargoGuardado);
+        } else if (fechaActual.isAfter(periodoExistente.getFechaVencimiento())) {
+            montoTotalAPagar = montoTotalAPagar.mas(montoRecargoPeriodo);
             montoRecargoAplicado = montoRecargoPeriodo;
-            System.out.println("Pago realizado después de la fecha de vencimiento. Se aplica recargo de: " + montoRecargoPeriodo);
+            LOGGER.fine(() -> "Pago realizado después de la fecha de vencimiento. Se aplica recargo de: " + montoRecargoPeriodo);
         }
 
-        // Obtener el monto ya pagado para este período (en caso de pagos parciales previos)
-        double montoPrevioPagado = pagoDAO.obtenerMontoTotalPagadoPorAlumnoYPeriodo(idAlumno, idPeriodo);
-        double montoPendienteAntesDeEstePago = montoTotalAPagar - montoPrevioPagado;
+        Dinero montoPendienteAntesDeEstePago = montoTotalAPagar.menos(montoPrevioPagado);
 
-        if (montoPagado < montoPendienteAntesDeEstePago) {
+        if (montoPagado.esMenorQue(montoPendienteAntesDeEstePago)) {
             esPagoParcial = true;
-            System.out.println("Pago parcial detectado. Monto pagado: " + montoPagado + ", Monto pendiente: " + (montoPendienteAntesDeEstePago - montoPagado));
-        } else if (montoPagado > montoPendienteAntesDeEstePago && montoPendienteAntesDeEstePago > 0) {
+            LOGGER.fine(() -> "Pago parcial detectado. Monto pagado: " + montoPagado + ", Monto pendiente: " + montoPendienteAntesDeEstePago.menos(montoPagado));
+        } else if (montoPagado.esMayorQue(montoPendienteAntesDeEstePago) && montoPendienteAntesDeEstePago.esPositivo()) {
              // Si paga más de lo que debe pero aún quedaba algo, se considera que cubre el pendiente y quizás sobra (a decidir cómo manejar excedentes)
-             System.out.println("El alumno pagó un excedente de: " + (montoPagado - montoPendienteAntesDeEstePago));
+             LOGGER.fine(() -> "El alumno pagó un excedente de: " + montoPagado.menos(montoPendienteAntesDeEstePago));
              // Para este caso, registramos el pago como no parcial si cubre o excede lo que debe.
              // En un sistema real, un excedente podría generar un crédito a favor. Aquí, simplemente se cubre la deuda.
              esPagoParcial = false; // Ya no es parcial si cubrió la deuda completa
@@ -105,12 +198,41 @@ public class PagoController {
         // --- 4. Crear el objeto Pago ---
         Pago nuevoPago = new Pago(idAlumno, idPeriodo, fechaActual, montoPagado, tipoPago, esPagoParcial, montoRecargoAplicado);
 
-        // --- 5. Llamar al DAO para insertar en la BD ---
+        // --- 5. Sin conexión: se anota en el diario local y se envía cuando vuelva la conexión ---
+        if (sinConexion) {
+            nuevoPago.setClaveIdempotencia(UUID.randomUUID().toString());
+            try {
+                modoSinConexion.anotarPago(nuevoPago);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error al anotar el pago sin conexión: " + e.getMessage(), e);
+                throw new Exception("Error al registrar pago: " + e.getMessage());
+            }
+            LOGGER.info(() -> "Pago anotado sin conexión para el alumno ID: " + idAlumno + ", Período ID: " + idPeriodo
+                + " (recibo provisorio " + nuevoPago.getClaveIdempotencia() + ")");
+            return nuevoPago;
+        }
+
+        // --- 6. Escritura diferida: se anota en el diario local y se devuelve el recibo provisorio ---
+        if (escritorDiferido != null) {
+            nuevoPago.setClaveIdempotencia(UUID.randomUUID().toString());
+            try {
+                escritorDiferido.encolar(nuevoPago);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error al anotar el pago en el diario local: " + e.getMessage(), e);
+                throw new Exception("Error al registrar pago: " + e.getMessage());
+            }
+            LOGGER.info(() -> "Pago en cola para el alumno ID: " + idAlumno + ", Período ID: " + idPeriodo
+                + " (recibo provisorio " + nuevoPago.getClaveIdempotencia() + ")");
+            return nuevoPago;
+        }
+
+        // --- 7. Llamar al DAO para insertar en la BD ---
         try {
             int idGenerado = pagoDAO.insertar(nuevoPago);
             if (idGenerado != -1) {
                 nuevoPago.setIdPago(idGenerado);
-                System.out.println("Pago registrado con éxito para el alumno ID: " + idAlumno + ", Período ID: " + idPeriodo);
+                LOGGER.info(() -> "Pago registrado con éxito para el alumno ID: " + idAlumno + ", Período ID: " + idPeriodo);
+                BusEventos.getInstancia().publicar(Pago.class, EventoCambio.creado(idGenerado, nuevoPago));
                 return nuevoPago;
             } else {
                 throw new Exception("No se pudo insertar el pago en la base de datos.");
@@ -153,6 +275,14 @@ public class PagoController {
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodosLosPagos()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<Pago>> obtenerTodosLosPagosAsync() {
+        return Asincrono.ejecutar(() -> obtenerTodosLosPagos());
+    }
+
     /**
      * Obtiene una lista de pagos realizados por un alumno específico.
      * @param idAlumno ID del alumno.
@@ -217,6 +347,7 @@ public class PagoController {
      * Considera si esta operación es necesaria o si se deberían registrar ajustes/reversiones.
      * @param pago El objeto Pago con la información actualizada.
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarInformacionPago(Pago pago) throws Exception {
@@ -230,7 +361,7 @@ public class PagoController {
         if (!InputValidator.isPositive(pago.getIdAlumno()) || !InputValidator.isPositive(pago.getIdPeriodo())) {
             throw new IllegalArgumentException("Los IDs de Alumno y Período son obligatorios para la actualización.");
         }
-        if (pago.getMontoPagado() <= 0) {
+        if (pago.getMontoPagado() == null || !pago.getMontoPagado().esPositivo()) {
             throw new IllegalArgumentException("El monto pagado debe ser un valor positivo.");
         }
         if (InputValidator.isNullOrEmpty(pago.getTipoPago())) {
@@ -242,7 +373,14 @@ public class PagoController {
         // Asumiendo que idAlumno e idPeriodo no cambian en una actualización típica de pago.
 
         try {
-            return pagoDAO.actualizar(pago);
+            boolean exito = pagoDAO.actualizar(pago);
+            if (exito) {
+                BusEventos.getInstancia().publicar(Pago.class, EventoCambio.actualizado(pago.getIdPago(), pago));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar pago con ID " + pago.getIdPago() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar pago: " + e.getMessage());
@@ -264,7 +402,11 @@ public class PagoController {
         try {
             // Lógica de negocio: antes de eliminar, ¿qué pasa si el pago era el único para un período?
             // ¿El alumno vuelve a ser deudor? Esta lógica podría ir aquí.
-            return pagoDAO.eliminar(idPago);
+            boolean exito = pagoDAO.eliminar(idPago);
+            if (exito) {
+                BusEventos.getInstancia().publicar(Pago.class, EventoCambio.eliminado(idPago));
+            }
+            return exito;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al eliminar pago con ID " + idPago + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al eliminar pago: " + e.getMessage());
@@ -309,22 +451,26 @@ public class PagoController {
             throw new Exception("Error al verificar deuda: " + e.getMessage());
         }
 
-        double montoTotalRequerido = periodoExistente.getMontoBase();
-        // Asume que si ya venció la fecha, el monto requerido incluye el recargo para ser considerado al día
-        if (LocalDate.now().isAfter(periodoExistente.getFechaVencimiento())) {
-            montoTotalRequerido += periodoExistente.getMontoRecargo();
-        }
-
+        Dinero montoTotalRequerido = periodoExistente.getMontoBase();
         try {
-            double montoPagado = pagoDAO.obtenerMontoTotalPagadoPorAlumnoYPeriodo(idAlumno, idPeriodo);
-            return montoPagado < montoTotalRequerido; // Es deudor si lo pagado es menor a lo requerido
+            // El recargo que el job dejó guardado en la cuota; si todavía no la revisó, se asume que vencida
+            // la fecha corresponde el recargo del período
+            Dinero recargoGuardado = facturacionDAO.obtenerRecargoCuota(idAlumno, idPeriodo);
+            if (recargoGuardado != null) {
+                montoTotalRequerido = montoTotalRequerido.mas(recargoGuardado);
+            } else if (LocalDate.now().isAfter(periodoExistente.getFechaVencimiento())) {
+                montoTotalRequerido = montoTotalRequerido.mas(periodoExistente.getMontoRecargo());
+            }
+
+            Dinero montoPagado = pagoDAO.obtenerMontoTotalPagadoPorAlumnoYPeriodo(idAlumno, idPeriodo);
+            return montoPagado.esMenorQue(montoTotalRequerido); // Es deudor si lo pagado es menor a lo requerido
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al verificar el estado de deuda del alumno " + idAlumno + " para el período " + idPeriodo + ": " + e.getMessage(), e);
             throw new Exception("Error al verificar deuda del alumno: " + e.getMessage());
         }
     }
 
-    public Pago registrarPago(int idAlumno, int idPeriodo, double montoPagado, LocalDate fechaPago, String text) {
+    public Pago registrarPago(int idAlumno, int idPeriodo, Dinero montoPagado, LocalDate fechaPago, String text) {
         
         throw new UnsupportedOperationException("Unimplemented method 'registrarPago'");
     }
@@ -338,23 +484,117 @@ public class PagoController {
      * Obtiene los pagos agrupados por alumno para un mes específico.
      * Retorna un mapa donde la clave es el Alumno y el valor es el monto total pagado por ese alumno en el mes.
      */
-    public Map<Alumno, Double> obtenerPagosAgrupadosPorAlumnoYMes(YearMonth mes) throws Exception {
+    public Map<Alumno, Dinero> obtenerPagosAgrupadosPorAlumnoYMes(YearMonth mes) throws Exception {
         List<Pago> pagosEnMes = pagoDAO.obtenerPagosPorMes(mes); // Este método lo crearemos en PagoDAO
 
-        Map<Alumno, Double> pagosPorAlumno = new HashMap<>();
+        Map<Alumno, Dinero> pagosPorAlumno = new HashMap<>();
         for (Pago pago : pagosEnMes) {
             Alumno alumno = alumnoDAO.obtenerPorId(pago.getIdAlumno());
             if (alumno != null) {
-                pagosPorAlumno.merge(alumno, pago.getMontoPagado(), Double::sum);
+                pagosPorAlumno.merge(alumno, pago.getMontoPagado(), Dinero::mas);
             }
         }
         return pagosPorAlumno;
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerPagosAgrupadosPorAlumnoYMes(YearMonth)}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<Map<Alumno, Dinero>> obtenerPagosAgrupadosPorAlumnoYMesAsync(YearMonth mes) {
+        return Asincrono.ejecutar(() -> obtenerPagosAgrupadosPorAlumnoYMes(mes));
+    }
+
     /**
      * Obtiene el monto total de ganancias para un mes específico.
      */
-    public double obtenerGananciasPorMes(YearMonth mes) throws Exception {
+    public Dinero obtenerGananciasPorMes(YearMonth mes) throws Exception {
         return pagoDAO.obtenerSumaPagosPorMes(mes); // Este método lo crearemos en PagoDAO
     }
-}
\ No newline at end of file
+
+    /**
+     * Versión asíncrona de {@link #obtenerGananciasPorMes(YearMonth)}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<Dinero> obtenerGananciasPorMesAsync(YearMonth mes) {
+        return Asincrono.ejecutar(() -> obtenerGananciasPorMes(mes));
+    }
+
+    /**
+     * Cuenta los pagos de un rango de fechas, para poder mostrar el avance de su exportación.
+     * @throws Exception Si el rango es inválido o hay un error de base de datos.
+     */
+    public long contarPagosParaExportar(LocalDate desde, LocalDate hasta) throws Exception {
+        validarRangoExportacion(desde, hasta);
+        try {
+            return pagoDAO.contarPagosEntre(desde, hasta);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al contar pagos para exportar: " + e.getMessage(), e);
+            throw new Exception("Error al contar los pagos a exportar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exporta el detalle de los pagos de un rango de fechas, escribiendo cada fila en el destino a medida que se lee
+     * de la base de datos (no se arma el reporte completo en memoria). El destino no se cierra aquí.
+     * @param desde Fecha inicial (incluida).
+     * @param hasta Fecha final (incluida).
+     * @param escritor Destino de las filas (CSV, XLSX).
+     * @param avance Recibe periódicamente la cantidad de filas ya escritas; puede ser null.
+     * @return Cantidad de pagos exportados.
+     * @throws Exception Si el rango es inválido, hay un error de base de datos o de escritura.
+     */
+    public long exportarPagos(LocalDate desde, LocalDate hasta, EscritorFilas escritor, LongConsumer avance) throws Exception {
+        validarRangoExportacion(desde, hasta);
+        escritor.escribirFila((Object[]) ENCABEZADO_EXPORTACION);
+        long[] escritas = {0};
+        try {
+            long total = pagoDAO.recorrerPagosEntre(desde, hasta, fila -> {
+                escritor.escribirFila(fila);
+                if (++escritas[0] % FILAS_POR_AVANCE == 0 && avance != null) {
+                    avance.accept(escritas[0]);
+                }
+            });
+            if (avance != null) {
+                avance.accept(total);
+            }
+            LOGGER.info(() -> "Exportados " + total + " pagos entre " + desde + " y " + hasta);
+            return total;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al exportar pagos: " + e.getMessage(), e);
+            throw new Exception("Error al exportar los pagos: " + e.getMessage());
+        }
+    }
+
+    private void validarRangoExportacion(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            throw new IllegalArgumentException("Las fechas desde y hasta son obligatorias.");
+        }
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a la fecha hasta.");
+        }
+    }
+
+    /**
+     * Aplica un cambio hecho desde otro puesto (ver {@link SincronizadorCambios}): relee el pago de la BD
+     * y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idPago ID del pago modificado.
+     * @param tipo Tipo de cambio registrado.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public void aplicarCambioExterno(int idPago, EventoCambio.Tipo tipo) throws Exception {
+        Pago pago;
+        try {
+            pago = pagoDAO.obtenerPorId(idPago);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al releer el pago con ID " + idPago + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al sincronizar pago: " + e.getMessage());
+        }
+        if (pago == null) { // Se eliminó (quizás después del cambio anotado)
+            BusEventos.getInstancia().publicar(Pago.class, EventoCambio.eliminado(idPago));
+        } else {
+            BusEventos.getInstancia().publicar(Pago.class, tipo == EventoCambio.Tipo.CREADO
+                ? EventoCambio.creado(idPago, pago) : EventoCambio.actualizado(idPago, pago));
+        }
+    }
+}
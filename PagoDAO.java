@@ -1,6 +1,10 @@
 package taichi.dao;
 
+import taichi.model.Dinero;
+import taichi.model.InstantaneaLocal;
 import taichi.model.Pago;     // Importamos la clase Pago
+import taichi.util.EventoCambio;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,15 +14,32 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter; // No se usa directamente en este DAO, pero es útil.
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 
 // Implementamos la interfaz IDAO, especificando que trabajamos con Pago y su ID es Integer
 public class PagoDAO implements IDAO<Pago, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(PagoDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_pago", "id_alumno", "id_cuota", "fecha_pago", "monto_pagado", "tipo_pago", "tiene_recargo", "monto_recargo", "version"
+    };
+
+    // Columnas del detalle de pagos para exportar, en el orden de las columnas del archivo
+    private static final String[] COLUMNAS_EXPORTACION = {
+        "fecha_pago", "id_pago", "id_alumno", "nombre_alumno", "dni", "nombre_periodo", "monto_pagado", "metodo_pago"
+    };
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Pago crear(Pago pago) throws SQLException {
-        // Columnas en BD: id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo
-        String sql = "INSERT INTO pagos (id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        // Columnas en BD: id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo, version
+        String sql = "INSERT INTO pagos (id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo, clave_idempotencia) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -26,13 +47,14 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             pstmt.setInt(1, pago.getIdAlumno());
             pstmt.setInt(2, pago.getIdCuota()); 
             pstmt.setDate(3, java.sql.Date.valueOf(pago.getFechaPago())); // LocalDate a java.sql.Date
-            pstmt.setDouble(4, pago.getMontoPagado());
+            pstmt.setBigDecimal(4, pago.getMontoPagado().aBigDecimal());
             pstmt.setString(5, pago.getTipoPago());
             
             // Mapeo directo: si el monto de recargo es > 0, tiene_recargo es TRUE
-            boolean tieneRecargo = pago.getMontoRecargoAplicado() > 0;
+            boolean tieneRecargo = pago.getMontoRecargoAplicado().esPositivo();
             pstmt.setBoolean(6, tieneRecargo); 
-            pstmt.setDouble(7, pago.getMontoRecargoAplicado());
+            pstmt.setBigDecimal(7, pago.getMontoRecargoAplicado().aBigDecimal());
+            pstmt.setString(8, pago.getClaveIdempotencia()); // null si el pago no pasó por el diario local
 
             int filasAfectadas = pstmt.executeUpdate();
 
@@ -43,7 +65,8 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     pago.setIdPago(rs.getInt(1)); // Asignar el ID al objeto Pago
-                    System.out.println("Pago insertado con ID: " + pago.getIdPago());
+                    RegistroCambiosDAO.registrar(conn, Pago.class, rs.getInt(1), EventoCambio.Tipo.CREADO);
+                    LOGGER.fine(() -> "Pago insertado con ID: " + pago.getIdPago());
                 } else {
                     throw new SQLException("La creación del pago falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -56,7 +79,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Pago obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
-        String sql = "SELECT id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo FROM pagos WHERE id_pago = ?";
+        String sql = "SELECT id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo, version FROM pagos WHERE id_pago = ?";
         Pago pago = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -65,9 +88,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    pago = mapResultSetToPago(rs); // Usamos el método auxiliar
-                }
+                pago = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToPago);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el pago con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -78,15 +99,13 @@ public class PagoDAO implements IDAO<Pago, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public List<Pago> obtenerTodos() throws SQLException {
         List<Pago> pagos = new ArrayList<>();
-        String sql = "SELECT id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo FROM pagos";
+        String sql = "SELECT id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo, version FROM pagos";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                pagos.add(mapResultSetToPago(rs)); // Usamos el método auxiliar
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToPago, pagos);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todos los pagos de la base de datos: " + e.getMessage(), e);
         }
@@ -95,7 +114,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean actualizar(Pago pago) throws SQLException {
-        String sql = "UPDATE pagos SET id_alumno = ?, id_cuota = ?, fecha_pago = ?, monto_pagado = ?, tipo_pago = ?, tiene_recargo = ?, monto_recargo = ? WHERE id_pago = ?";
+        String sql = "UPDATE pagos SET id_alumno = ?, id_cuota = ?, fecha_pago = ?, monto_pagado = ?, tipo_pago = ?, tiene_recargo = ?, monto_recargo = ?, version = version + 1 WHERE id_pago = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -104,19 +123,32 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             pstmt.setInt(1, pago.getIdAlumno());
             pstmt.setInt(2, pago.getIdCuota()); 
             pstmt.setDate(3, java.sql.Date.valueOf(pago.getFechaPago()));
-            pstmt.setDouble(4, pago.getMontoPagado());
+            pstmt.setBigDecimal(4, pago.getMontoPagado().aBigDecimal());
             pstmt.setString(5, pago.getTipoPago());
             
-            boolean tieneRecargo = pago.getMontoRecargoAplicado() > 0;
+            boolean tieneRecargo = pago.getMontoRecargoAplicado().esPositivo();
             pstmt.setBoolean(6, tieneRecargo); 
-            pstmt.setDouble(7, pago.getMontoRecargoAplicado());
+            pstmt.setBigDecimal(7, pago.getMontoRecargoAplicado().aBigDecimal());
             pstmt.setInt(8, pago.getIdPago()); 
+            pstmt.setInt(9, pago.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Pago.class, pago.getIdPago(), EventoCambio.Tipo.ACTUALIZADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al actualizar el pago con ID " + pago.getIdPago() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            Pago actual = obtenerPorId(pago.getIdPago());
+            if (actual != null) {
+                throw new ConflictoVersionException("pago", pago.getIdPago(), actual);
+            }
+            return false;
+        }
+        pago.setVersion(pago.getVersion() + 1);
+        return true;
     }
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
@@ -130,13 +162,119 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             pstmt.setInt(1, id);
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Pago.class, id, EventoCambio.Tipo.ELIMINADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al eliminar el pago con ID " + id + ": " + e.getMessage(), e);
         }
         return filasAfectadas > 0;
     }
 
+    /**
+     * Inserta un lote de pagos en una sola transacción (un solo commit para todo el lote).
+     * Cada pago debe traer su clave de idempotencia: si ya hay un pago con esa clave (porque el lote se
+     * reenvía después de un corte), no se vuelve a insertar. En ambos casos el pago queda con su ID asignado.
+     *
+     * Las claves que ya estaban se buscan antes de insertar: con rewriteBatchedStatements el driver informa
+     * SUCCESS_NO_INFO para cada fila del lote, así que los conteos no distinguen un pago nuevo de uno repetido.
+     * @param pagos Los pagos a insertar.
+     * @return Los pagos insertados ahora (sin los que ya estaban), en el orden del lote.
+     * @throws SQLException Si ocurre un error de base de datos; en ese caso no se inserta ningún pago del lote.
+     */
+    public List<Pago> crearLote(List<Pago> pagos) throws SQLException {
+        if (pagos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlInsertar = "INSERT INTO pagos (id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo, clave_idempotencia) "
+                           + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                           + "ON DUPLICATE KEY UPDATE clave_idempotencia = clave_idempotencia"; // Otro puesto la insertó recién: no cambia nada
+        List<Pago> insertados = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean autoCommitOriginal = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                // Claves que ya estaban (lote reenviado): esos pagos solo toman su ID
+                Map<String, Integer> existentes = obtenerIdsPorClave(conn, pagos);
+                Map<String, Pago> faltantes = new LinkedHashMap<>(); // Por clave: una clave repetida en el lote se inserta una vez
+                for (Pago pago : pagos) {
+                    Integer id = existentes.get(pago.getClaveIdempotencia());
+                    if (id != null) {
+                        pago.setIdPago(id);
+                    } else {
+                        faltantes.putIfAbsent(pago.getClaveIdempotencia(), pago);
+                    }
+                }
 
+                if (!faltantes.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sqlInsertar)) {
+                        for (Pago pago : faltantes.values()) {
+                            pstmt.setInt(1, pago.getIdAlumno());
+                            pstmt.setInt(2, pago.getIdPeriodo());
+                            pstmt.setDate(3, java.sql.Date.valueOf(pago.getFechaPago()));
+                            pstmt.setBigDecimal(4, pago.getMontoPagado().aBigDecimal());
+                            pstmt.setString(5, pago.getTipoPago());
+                            pstmt.setBoolean(6, pago.getMontoRecargoAplicado().esPositivo());
+                            pstmt.setBigDecimal(7, pago.getMontoRecargoAplicado().aBigDecimal());
+                            pstmt.setString(8, pago.getClaveIdempotencia());
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch(); // Los conteos no se usan (ver arriba)
+                    }
+
+                    // Los IDs se leen por clave: las claves repetidas no generan ID y desalinearían getGeneratedKeys()
+                    List<Pago> nuevos = new ArrayList<>(faltantes.values());
+                    Map<String, Integer> idsPorClave = obtenerIdsPorClave(conn, nuevos);
+                    for (Pago pago : nuevos) {
+                        Integer id = idsPorClave.get(pago.getClaveIdempotencia());
+                        if (id == null) {
+                            throw new SQLException("No se encontró el pago con clave " + pago.getClaveIdempotencia() + " después de insertarlo.");
+                        }
+                        pago.setIdPago(id);
+                        RegistroCambiosDAO.registrar(conn, Pago.class, id, EventoCambio.Tipo.CREADO);
+                        insertados.add(pago);
+                    }
+                }
+                // Una clave repetida dentro del lote queda con el ID del pago insertado
+                for (Pago pago : pagos) {
+                    Pago insertado = faltantes.get(pago.getClaveIdempotencia());
+                    if (insertado != null && insertado != pago) {
+                        pago.setIdPago(insertado.getIdPago());
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommitOriginal);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al insertar un lote de " + pagos.size() + " pagos: " + e.getMessage(), e);
+        }
+        int insertadosLote = insertados.size();
+        LOGGER.fine(() -> "Lote de pagos guardado: " + insertadosLote + " insertados de " + pagos.size() + ".");
+        return insertados;
+    }
+
+    // ID de los pagos que ya están en la BD, por clave de idempotencia
+    private static Map<String, Integer> obtenerIdsPorClave(Connection conn, List<Pago> pagos) throws SQLException {
+        String sql = "SELECT id_pago, clave_idempotencia FROM pagos WHERE clave_idempotencia IN ("
+                   + String.join(", ", Collections.nCopies(pagos.size(), "?")) + ")";
+        Map<String, Integer> idsPorClave = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < pagos.size(); i++) {
+                pstmt.setString(i + 1, pagos.get(i).getClaveIdempotencia());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    idsPorClave.put(rs.getString(2), rs.getInt(1));
+                }
+            }
+        }
+        return idsPorClave;
+    }
 
     // Consultas Específicas de la Base de Datos
 
@@ -202,9 +340,9 @@ public class PagoDAO implements IDAO<Pago, Integer> {
      * @return El monto total pagado por el alumno para esa cuota.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    public double obtenerMontoTotalPagadoPorAlumnoYCuota(int idAlumno, int idCuota) throws SQLException {
-        double montoTotal = 0.0;
-        String sql = "SELECT SUM(monto_pagado) FROM pagos WHERE id_alumno = ? AND id_cuota = ?";
+    public Dinero obtenerMontoTotalPagadoPorAlumnoYCuota(int idAlumno, int idCuota) throws SQLException {
+        Dinero montoTotal = Dinero.CERO;
+        String sql = "SELECT COALESCE(SUM(monto_pagado), 0) FROM pagos WHERE id_alumno = ? AND id_cuota = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -214,7 +352,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    montoTotal = rs.getDouble(1);
+                    montoTotal = ResultSetMapper.getDinero(rs, 1);
                 }
             }
         } catch (SQLException e) {
@@ -231,7 +369,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
      */
     public List<Pago> obtenerPagosPorMes(YearMonth mes) throws SQLException {
         List<Pago> pagos = new ArrayList<>();
-        String sql = "SELECT id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo FROM pagos WHERE MONTH(fecha_pago) = ? AND YEAR(fecha_pago) = ?";
+        String sql = "SELECT id_pago, id_alumno, id_cuota, fecha_pago, monto_pagado, tipo_pago, tiene_recargo, monto_recargo, version FROM pagos WHERE MONTH(fecha_pago) = ? AND YEAR(fecha_pago) = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -239,9 +377,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             pstmt.setInt(2, mes.getYear());       
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    pagos.add(mapResultSetToPago(rs));
-                }
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToPago, pagos);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener pagos para el mes " + mes + ": " + e.getMessage(), e);
@@ -255,9 +391,9 @@ public class PagoDAO implements IDAO<Pago, Integer> {
      * @return La suma total de los montos pagados en el mes.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    public double obtenerSumaPagosPorMes(YearMonth mes) throws SQLException {
-        double total = 0.0;
-        String sql = "SELECT SUM(monto_pagado) FROM pagos WHERE MONTH(fecha_pago) = ? AND YEAR(fecha_pago) = ?";
+    public Dinero obtenerSumaPagosPorMes(YearMonth mes) throws SQLException {
+        Dinero total = Dinero.CERO;
+        String sql = "SELECT COALESCE(SUM(monto_pagado), 0) FROM pagos WHERE MONTH(fecha_pago) = ? AND YEAR(fecha_pago) = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -266,7 +402,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    total = rs.getDouble(1);
+                    total = ResultSetMapper.getDinero(rs, 1);
                 }
             }
         } catch (SQLException e) {
@@ -292,7 +428,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    alumnoIds.add(rs.getInt("id_alumno"));
+                    alumnoIds.add(rs.getInt(1)); // Única columna del SELECT
                 }
             }
         } catch (SQLException e) {
@@ -308,9 +444,9 @@ public class PagoDAO implements IDAO<Pago, Integer> {
      * @return El monto total pagado por el alumno para esa cuota.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    public double obtenerSumaPagosPorAlumnoYCuota(int idAlumno, int idCuota) throws SQLException {
-        double totalPagado = 0.0;
-        String sql = "SELECT SUM(monto_pagado) FROM pagos WHERE id_alumno = ? AND id_cuota = ?";
+    public Dinero obtenerSumaPagosPorAlumnoYCuota(int idAlumno, int idCuota) throws SQLException {
+        Dinero totalPagado = Dinero.CERO;
+        String sql = "SELECT COALESCE(SUM(monto_pagado), 0) FROM pagos WHERE id_alumno = ? AND id_cuota = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -318,7 +454,7 @@ public class PagoDAO implements IDAO<Pago, Integer> {
             pstmt.setInt(2, idCuota);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    totalPagado = rs.getDouble(1);
+                    totalPagado = ResultSetMapper.getDinero(rs, 1);
                 }
             }
         } catch (SQLException e) {
@@ -327,32 +463,127 @@ public class PagoDAO implements IDAO<Pago, Integer> {
         return totalPagado;
     }
 
+    /**
+     * Cuenta los pagos con fecha dentro del rango indicado (ambos extremos incluidos).
+     * Se usa para mostrar el avance de una exportación.
+     * @param desde Fecha inicial.
+     * @param hasta Fecha final.
+     * @return Cantidad de pagos del rango.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public long contarPagosEntre(LocalDate desde, LocalDate hasta) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM pagos WHERE fecha_pago BETWEEN ? AND ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, desde);
+            pstmt.setObject(2, hasta);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al contar los pagos entre " + desde + " y " + hasta + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Suma lo pagado por cada alumno en cada período, en una sola consulta (para la instantánea local).
+     * @return Total pagado por clave (ver {@link InstantaneaLocal#claveSaldo}).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Map<Long, Dinero> obtenerTotalesPagadosPorAlumnoYCuota() throws SQLException {
+        Map<Long, Dinero> totales = new HashMap<>();
+        String sql = "SELECT id_alumno, id_cuota, SUM(monto_pagado) FROM pagos GROUP BY id_alumno, id_cuota";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                totales.put(InstantaneaLocal.claveSaldo(rs.getInt(1), rs.getInt(2)), ResultSetMapper.getDinero(rs, 3));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los totales pagados por alumno y cuota: " + e.getMessage(), e);
+        }
+        return totales;
+    }
+
+    /**
+     * Recorre el detalle de los pagos de un rango de fechas, ordenado por fecha, entregando cada fila al consumidor
+     * a medida que llega del servidor. El resultado no se carga entero en memoria (fetch size Integer.MIN_VALUE:
+     * el driver de MySQL lee fila por fila del cursor), así que sirve para exportar años de pagos.
+     *
+     * Cada fila es un arreglo con: fecha_pago (LocalDate), id_pago, id_alumno, nombre del alumno ("Apellido, Nombre"),
+     * DNI, nombre del período, monto_pagado (Dinero) y método de pago.
+     *
+     * @param desde Fecha inicial (incluida).
+     * @param hasta Fecha final (incluida).
+     * @param consumidor Recibe cada fila; si lanza IOException se corta el recorrido.
+     * @return Cantidad de filas recorridas.
+     * @throws SQLException Si ocurre un error de base de datos.
+     * @throws IOException Si el consumidor falla al procesar una fila.
+     */
+    public long recorrerPagosEntre(LocalDate desde, LocalDate hasta, ConsumidorFila<Object[]> consumidor)
+            throws SQLException, IOException {
+        String sql = "SELECT p.fecha_pago, p.id_pago, p.id_alumno, CONCAT(a.apellido, ', ', a.nombre) AS nombre_alumno, a.dni, "
+                   + "pc.nombre_periodo, p.monto_pagado, p.metodo_pago "
+                   + "FROM pagos p "
+                   + "JOIN alumnos a ON a.id_alumno = p.id_alumno "
+                   + "JOIN periodos_cuota pc ON pc.id_periodo = p.id_periodo "
+                   + "WHERE p.fecha_pago BETWEEN ? AND ? "
+                   + "ORDER BY p.fecha_pago, p.id_pago";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE); // Modo streaming del driver de MySQL
+            pstmt.setObject(1, desde);
+            pstmt.setObject(2, hasta);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long filas = ResultSetMapper.recorrer(rs, COLUMNAS_EXPORTACION, this::mapResultSetToFilaExportacion, consumidor);
+                LOGGER.fine(() -> "Pagos recorridos entre " + desde + " y " + hasta + ": " + filas);
+                return filas;
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al recorrer los pagos entre " + desde + " y " + hasta + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Fila del detalle de pagos para exportar (ver COLUMNAS_EXPORTACION)
+    private Object[] mapResultSetToFilaExportacion(ResultSet rs, int[] col) throws SQLException {
+        return new Object[]{
+            ResultSetMapper.getLocalDate(rs, col[0]),        // fecha_pago
+            rs.getInt(col[1]),                               // id_pago
+            rs.getInt(col[2]),                               // id_alumno
+            rs.getString(col[3]),                            // nombre_alumno
+            rs.getString(col[4]),                            // dni
+            rs.getString(col[5]),                            // nombre_periodo
+            ResultSetMapper.getDinero(rs, col[6]),           // monto_pagado
+            rs.getString(col[7])                             // metodo_pago
+        };
+    }
+
     /**
      * Método auxiliar para mapear un ResultSet a un objeto Pago.
      * Extrae los datos de la fila actual del ResultSet y crea un objeto Pago.
      * Se alinea con los campos de la tabla `pagos` en la base de datos.
      * @param rs El ResultSet del que extraer los datos.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto Pago con los datos de la fila actual.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    private Pago mapResultSetToPago(ResultSet rs) throws SQLException {
-        // Asegúrate de que el constructor de Pago tenga estos campos en este orden o ajusta la llamada.
-        // Se asume que el modelo Pago ahora tiene un campo `boolean tieneRecargo` en lugar de `esPagoParcial`.
-        // Si tu modelo Pago aún usa `esPagoParcial`, deberás decidir cómo se mapea desde `tiene_recargo` y `monto_recargo`.
-        // Para este ejemplo, si `Pago` tiene `boolean esPagoParcial`, se le pasa `rs.getBoolean("tiene_recargo")`
-        // o `rs.getDouble("monto_recargo") > 0`, dependiendo de tu lógica de negocio para `esPagoParcial`.
-        
-        // Asumiendo que el constructor de Pago es similar a:
-        // Pago(int idPago, int idAlumno, int idCuota, LocalDate fechaPago, double montoPagado, String tipoPago, boolean tieneRecargo, double montoRecargoAplicado)
-        return new Pago(
-            rs.getInt("id_pago"),
-            rs.getInt("id_alumno"),
-            rs.getInt("id_cuota"), 
-            rs.getDate("fecha_pago").toLocalDate(),
-            rs.getDouble("monto_pagado"),
-            rs.getString("tipo_pago"),
-            rs.getBoolean("tiene_recargo"), // Directamente desde la columna de la DB
-            rs.getDouble("monto_recargo") 
+    private Pago mapResultSetToPago(ResultSet rs, int[] col) throws SQLException {
+        Pago pago = new Pago(
+            rs.getInt(col[0]),                               // id_pago
+            rs.getInt(col[1]),                               // id_alumno
+            rs.getInt(col[2]),                               // id_cuota
+            ResultSetMapper.getLocalDate(rs, col[3]),        // fecha_pago
+            ResultSetMapper.getDinero(rs, col[4]),           // monto_pagado
+            rs.getString(col[5]),                            // tipo_pago
+            rs.getBoolean(col[6]),                           // tiene_recargo
+            ResultSetMapper.getDinero(rs, col[7])            // monto_recargo
         );
+        pago.setVersion(rs.getInt(col[8]));
+        return pago;
     }
 }
\ No newline at end of file
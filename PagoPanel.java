@@ -3,9 +3,14 @@ package taichi.gui;
 import taichi.controller.PagoController;
 import taichi.controller.AlumnoController;
 import taichi.controller.PeriodoCuotaController;
+import taichi.dao.ConflictoVersionException;
+import taichi.model.Dinero;
 import taichi.model.Pago;
 import taichi.model.Alumno;
 import taichi.model.PeriodoCuota;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -13,8 +18,11 @@ import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects; // Para el combobox de Alumno
+import java.util.concurrent.CompletableFuture;
 
 public class PagoPanel extends JPanel {
 
@@ -24,7 +32,7 @@ public class PagoPanel extends JPanel {
 
     // Componentes de la UI
     private JTextField txtIdPago;
-    private JComboBox<Alumno> cmbAlumno; // ComboBox para seleccionar alumno
+    private SelectorAlumno selectorAlumno; // Búsqueda de alumno por nombre o DNI
     private JComboBox<PeriodoCuota> cmbPeriodoCuota; // ComboBox para seleccionar período
     private JTextField txtMontoPagado;
     private JTextField txtFechaPago; // Formato YYYY-MM-DD
@@ -38,6 +46,12 @@ public class PagoPanel extends JPanel {
 
     private JTable pagoTable;
     private DefaultTableModel tableModel;
+    private int versionEnEdicion; // Versión del registro cargado en el formulario
+
+    // Nombres ya conocidos (para armar filas sin consultar) y alumno por el que se filtró la tabla (null = todos)
+    private final Map<Integer, String> nombresAlumnos = new HashMap<>();
+    private final Map<Integer, String> nombresPeriodos = new HashMap<>();
+    private Integer idAlumnoFiltrado;
 
     // Formateador de fechas
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -58,7 +72,7 @@ public class PagoPanel extends JPanel {
         // Inicializar componentes
         txtIdPago = new JTextField(10);
         txtIdPago.setEditable(false);
-        cmbAlumno = new JComboBox<>();
+        selectorAlumno = new SelectorAlumno(alumnoController);
         cmbPeriodoCuota = new JComboBox<>();
         txtMontoPagado = new JTextField(10);
         txtFechaPago = new JTextField(10);
@@ -73,7 +87,7 @@ public class PagoPanel extends JPanel {
         gbc.gridx = 1; gbc.gridy = row++; formPanel.add(txtIdPago, gbc);
 
         gbc.gridx = 0; gbc.gridy = row; formPanel.add(new JLabel("Alumno:"), gbc);
-        gbc.gridx = 1; gbc.gridy = row++; formPanel.add(cmbAlumno, gbc);
+        gbc.gridx = 1; gbc.gridy = row++; formPanel.add(selectorAlumno, gbc);
 
         gbc.gridx = 0; gbc.gridy = row; formPanel.add(new JLabel("Período Cuota:"), gbc);
         gbc.gridx = 1; gbc.gridy = row++; formPanel.add(cmbPeriodoCuota, gbc);
@@ -107,7 +121,7 @@ public class PagoPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         // --- Configuración de la Tabla ---
-        String[] columnNames = {"ID Pago", "ID Alumno", "Alumno", "ID Período", "Período", "Monto", "Fecha Pago", "Observaciones"};
+        String[] columnNames = {"ID Pago", "ID Alumno", "Alumno", "ID Período", "Período", "Monto", "Fecha Pago", "Observaciones", DialogoConflicto.COLUMNA_VERSION};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -115,6 +129,7 @@ public class PagoPanel extends JPanel {
             }
         };
         pagoTable = new JTable(tableModel);
+        DialogoConflicto.ocultarColumnaVersion(pagoTable);
         pagoTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(pagoTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -123,7 +138,10 @@ public class PagoPanel extends JPanel {
         btnRegistrarPago.addActionListener(e -> registrarPago());
         btnActualizarPago.addActionListener(e -> actualizarPago());
         btnEliminarPago.addActionListener(e -> eliminarPago());
-        btnLimpiar.addActionListener(e -> limpiarCampos());
+        btnLimpiar.addActionListener(e -> {
+            limpiarCampos();
+            cargarTodosLosPagos(); // Vuelve a cargar todos los pagos después de limpiar
+        });
         btnConsultarPagosAlumno.addActionListener(e -> consultarPagosAlumnoSeleccionado());
 
         pagoTable.getSelectionModel().addListSelectionListener(e -> {
@@ -133,22 +151,13 @@ public class PagoPanel extends JPanel {
         });
 
         // Cargar datos iniciales
-        cargarAlumnosEnComboBox();
         cargarPeriodosCuotaEnComboBox();
         cargarTodosLosPagos(); // Carga todos los pagos al inicio
-    }
 
-    private void cargarAlumnosEnComboBox() {
-        cmbAlumno.removeAllItems();
-        try {
-            List<Alumno> alumnos = alumnoController.obtenerTodosLosAlumnos();
-            for (Alumno alumno : alumnos) {
-                cmbAlumno.addItem(alumno);
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al cargar alumnos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
+        // Cada alta, modificación o baja confirmada actualiza solo su fila, sin volver a consultar la tabla
+        BusEventos.getInstancia().suscribir(Pago.class, Asincrono.EN_INTERFAZ, this::aplicarCambioPago);
+        BusEventos.getInstancia().suscribir(Alumno.class, Asincrono.EN_INTERFAZ, this::aplicarCambioAlumno);
+        BusEventos.getInstancia().suscribir(PeriodoCuota.class, Asincrono.EN_INTERFAZ, this::aplicarCambioPeriodo);
     }
 
     private void cargarPeriodosCuotaEnComboBox() {
@@ -157,6 +166,7 @@ public class PagoPanel extends JPanel {
             List<PeriodoCuota> periodos = periodoCuotaController.obtenerTodosLosPeriodosCuota();
             for (PeriodoCuota periodo : periodos) {
                 cmbPeriodoCuota.addItem(periodo);
+                nombresPeriodos.put(periodo.getIdPeriodo(), periodo.getNombrePeriodo());
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error al cargar períodos de cuota: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -166,7 +176,7 @@ public class PagoPanel extends JPanel {
 
     private void registrarPago() {
         try {
-            Alumno selectedAlumno = (Alumno) cmbAlumno.getSelectedItem();
+            Alumno selectedAlumno = selectorAlumno.getAlumnoSeleccionado();
             PeriodoCuota selectedPeriodo = (PeriodoCuota) cmbPeriodoCuota.getSelectedItem();
 
             if (selectedAlumno == null || selectedPeriodo == null) {
@@ -178,7 +188,7 @@ public class PagoPanel extends JPanel {
                 return;
             }
 
-            double montoPagado = Double.parseDouble(txtMontoPagado.getText());
+            Dinero montoPagado = Dinero.parsear(txtMontoPagado.getText());
             LocalDate fechaPago = LocalDate.parse(txtFechaPago.getText(), DATE_FORMATTER);
 
             Pago nuevoPago = pagoController.registrarPago(
@@ -189,9 +199,12 @@ public class PagoPanel extends JPanel {
                     txtObservaciones.getText()
             );
 
-            JOptionPane.showMessageDialog(this, "Pago registrado con éxito. ID: " + nuevoPago.getIdPago(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+            if (nuevoPago.getIdPago() > 0) {
+                JOptionPane.showMessageDialog(this, "Pago registrado con éxito. ID: " + nuevoPago.getIdPago(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+            } else { // Escritura diferida: el pago aparece en la tabla cuando se guarda en la BD
+                JOptionPane.showMessageDialog(this, "Pago recibido. Recibo provisorio: " + nuevoPago.getClaveIdempotencia(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+            }
             limpiarCampos();
-            cargarTodosLosPagos(); // Recargar la tabla con todos los pagos
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Monto Pagado debe ser un valor numérico válido.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
         } catch (DateTimeParseException e) {
@@ -212,7 +225,7 @@ public class PagoPanel extends JPanel {
 
         try {
             int idPago = Integer.parseInt(txtIdPago.getText());
-            Alumno selectedAlumno = (Alumno) cmbAlumno.getSelectedItem();
+            Alumno selectedAlumno = selectorAlumno.getAlumnoSeleccionado();
             PeriodoCuota selectedPeriodo = (PeriodoCuota) cmbPeriodoCuota.getSelectedItem();
 
             if (selectedAlumno == null || selectedPeriodo == null) {
@@ -224,7 +237,7 @@ public class PagoPanel extends JPanel {
                 return;
             }
 
-            double montoPagado = Double.parseDouble(txtMontoPagado.getText());
+            Dinero montoPagado = Dinero.parsear(txtMontoPagado.getText());
             LocalDate fechaPago = LocalDate.parse(txtFechaPago.getText(), DATE_FORMATTER);
 
             Pago pagoActualizar = new Pago(
@@ -236,11 +249,15 @@ public class PagoPanel extends JPanel {
                     txtObservaciones.getText()
             );
 
-            boolean exito = pagoController.actualizarPago(pagoActualizar);
+            pagoActualizar.setVersion(versionEnEdicion);
+
+            Boolean exito = guardarCambios(pagoActualizar);
+            if (exito == null) {
+                return; // Conflicto sin guardar: el usuario sigue en el formulario
+            }
             if (exito) {
                 JOptionPane.showMessageDialog(this, "Pago actualizado con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 limpiarCampos();
-                cargarTodosLosPagos();
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo actualizar el pago.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -270,7 +287,6 @@ public class PagoPanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Pago eliminado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarTodosLosPagos();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo eliminar el pago.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -285,68 +301,60 @@ public class PagoPanel extends JPanel {
 
     private void limpiarCampos() {
         txtIdPago.setText("");
-        cmbAlumno.setSelectedIndex(-1); // Desseleccionar
+        selectorAlumno.limpiar();
         cmbPeriodoCuota.setSelectedIndex(-1); // Desseleccionar
         txtMontoPagado.setText("");
         txtFechaPago.setText("");
         txtObservaciones.setText("");
         pagoTable.clearSelection();
-        cargarTodosLosPagos(); // Vuelve a cargar todos los pagos después de limpiar
     }
 
     private void cargarTodosLosPagos() {
         tableModel.setRowCount(0);
-        try {
-            List<Pago> pagos = pagoController.obtenerTodosLosPagos();
-            for (Pago pago : pagos) {
-                // Para mostrar los nombres en la tabla, necesitamos obtener el Alumno y PeriodoCuota
-                Alumno alumno = alumnoController.obtenerAlumnoPorId(pago.getIdAlumno());
-                PeriodoCuota periodoCuota = periodoCuotaController.obtenerPeriodoCuotaPorId(pago.getIdPeriodo());
-
-                String nombreAlumno = (alumno != null) ? alumno.getNombreCompleto() : "Desconocido";
-                String nombrePeriodo = (periodoCuota != null) ? periodoCuota.getNombrePeriodo() : "Desconocido";
-
-                tableModel.addRow(new Object[]{
-                    pago.getIdPago(),
-                    pago.getIdAlumno(),
-                    nombreAlumno,
-                    pago.getIdPeriodo(),
-                    nombrePeriodo,
-                    String.format("%.2f", pago.getMontoPagado()),
-                    pago.getFechaPago().format(DATE_FORMATTER),
-                    pago.getObservaciones()
-                });
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al cargar pagos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
+        idAlumnoFiltrado = null;
+        // Pagos, alumnos y períodos son consultas independientes: se lanzan a la vez y la tabla se arma
+        // cuando terminan las tres (antes se buscaban el alumno y el período de cada pago, uno por uno)
+        CompletableFuture<List<Pago>> pagosFuturo = pagoController.obtenerTodosLosPagosAsync();
+        CompletableFuture<List<Alumno>> alumnosFuturo = alumnoController.obtenerTodosLosAlumnosAsync();
+        CompletableFuture<List<PeriodoCuota>> periodosFuturo = periodoCuotaController.obtenerTodosLosPeriodosCuotaAsync();
+        CompletableFuture.allOf(pagosFuturo, alumnosFuturo, periodosFuturo)
+            .whenCompleteAsync((sinValor, error) -> {
+                if (error != null) {
+                    Throwable causa = Asincrono.causa(error);
+                    JOptionPane.showMessageDialog(this, "Error al cargar pagos: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    causa.printStackTrace();
+                    return;
+                }
+                for (Alumno alumno : alumnosFuturo.join()) {
+                    nombresAlumnos.put(alumno.getIdAlumno(), alumno.getNombreCompleto());
+                }
+                for (PeriodoCuota periodo : periodosFuturo.join()) {
+                    nombresPeriodos.put(periodo.getIdPeriodo(), periodo.getNombrePeriodo());
+                }
+                if (idAlumnoFiltrado != null) {
+                    return; // Mientras tanto se consultaron los pagos de un alumno: no se pisa esa vista
+                }
+                tableModel.setRowCount(0);
+                for (Pago pago : pagosFuturo.join()) {
+                    tableModel.addRow(filaPago(pago));
+                }
+            }, Asincrono.EN_INTERFAZ);
     }
 
     private void consultarPagosAlumnoSeleccionado() {
-        Alumno selectedAlumno = (Alumno) cmbAlumno.getSelectedItem();
+        Alumno selectedAlumno = selectorAlumno.getAlumnoSeleccionado();
         if (selectedAlumno == null) {
-            JOptionPane.showMessageDialog(this, "Seleccione un alumno del ComboBox para consultar sus pagos.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Busque y seleccione un alumno para consultar sus pagos.", "Advertencia", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
         tableModel.setRowCount(0); // Limpiar tabla
+        idAlumnoFiltrado = selectedAlumno.getIdAlumno();
+        nombresAlumnos.put(selectedAlumno.getIdAlumno(), selectedAlumno.getNombreCompleto()); // Ya tenemos el alumno seleccionado
         try {
             List<Pago> pagos = pagoController.obtenerPagosPorAlumno(selectedAlumno.getIdAlumno());
             for (Pago pago : pagos) {
-                PeriodoCuota periodoCuota = periodoCuotaController.obtenerPeriodoCuotaPorId(pago.getIdPeriodo());
-                String nombrePeriodo = (periodoCuota != null) ? periodoCuota.getNombrePeriodo() : "Desconocido";
-
-                tableModel.addRow(new Object[]{
-                    pago.getIdPago(),
-                    pago.getIdAlumno(),
-                    selectedAlumno.getNombreCompleto(), // Ya tenemos el alumno seleccionado
-                    pago.getIdPeriodo(),
-                    nombrePeriodo,
-                    String.format("%.2f", pago.getMontoPagado()),
-                    pago.getFechaPago().format(DATE_FORMATTER),
-                    pago.getObservaciones()
-                });
+                tableModel.addRow(filaPago(pago));
             }
             if (pagos.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "El alumno seleccionado no tiene pagos registrados.", "Información", JOptionPane.INFORMATION_MESSAGE);
@@ -358,23 +366,134 @@ public class PagoPanel extends JPanel {
     }
 
 
+    // Guarda los cambios del formulario; si otro usuario guardó el registro mientras tanto, muestra las diferencias y deja elegir
+    private Boolean guardarCambios(Pago pago) throws Exception {
+        try {
+            return pagoController.actualizarInformacionPago(pago);
+        } catch (ConflictoVersionException e) {
+            Pago guardado = (Pago) e.getRegistroActual();
+            switch (DialogoConflicto.preguntar(this, tableModel, filaPago(pago), filaPago(guardado))) {
+                case SOBRESCRIBIR:
+                    pago.setVersion(guardado.getVersion());
+                    return guardarCambios(pago);
+                case USAR_GUARDADO:
+                    DialogoConflicto.seleccionarGuardado(pagoTable, tableModel, guardado.getIdPago(), filaPago(guardado));
+                    mostrarPagoSeleccionado();
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private Object[] filaPago(Pago pago) {
+        return new Object[]{
+            pago.getIdPago(),
+            pago.getIdAlumno(),
+            obtenerNombreAlumno(pago.getIdAlumno()),
+            pago.getIdPeriodo(),
+            obtenerNombrePeriodo(pago.getIdPeriodo()),
+            pago.getMontoPagado().formatear(),
+            pago.getFechaPago().format(DATE_FORMATTER),
+            pago.getObservaciones(),
+            pago.getVersion()
+        };
+    }
+
+    // Nombre del alumno para la tabla: se consulta una sola vez por alumno
+    private String obtenerNombreAlumno(int idAlumno) {
+        String nombre = nombresAlumnos.get(idAlumno);
+        if (nombre == null) {
+            try {
+                Alumno alumno = alumnoController.obtenerAlumnoPorId(idAlumno);
+                nombre = (alumno != null) ? alumno.getNombreCompleto() : "Desconocido";
+            } catch (Exception e) {
+                return "Desconocido";
+            }
+            nombresAlumnos.put(idAlumno, nombre);
+        }
+        return nombre;
+    }
+
+    // Nombre del período para la tabla: se consulta una sola vez por período
+    private String obtenerNombrePeriodo(int idPeriodo) {
+        String nombre = nombresPeriodos.get(idPeriodo);
+        if (nombre == null) {
+            try {
+                PeriodoCuota periodoCuota = periodoCuotaController.obtenerPeriodoCuotaPorId(idPeriodo);
+                nombre = (periodoCuota != null) ? periodoCuota.getNombrePeriodo() : "Desconocido";
+            } catch (Exception e) {
+                return "Desconocido";
+            }
+            nombresPeriodos.put(idPeriodo, nombre);
+        }
+        return nombre;
+    }
+
+    private void aplicarCambioPago(EventoCambio<Pago> evento) {
+        // Con la tabla filtrada por alumno, los pagos de otros alumnos no se muestran
+        // (si la fila estaba, es que se pasó a otro alumno desde otro puesto, y se quita)
+        if (evento.getTipo() != EventoCambio.Tipo.ELIMINADO && idAlumnoFiltrado != null
+                && evento.getEntidad().getIdAlumno() != idAlumnoFiltrado) {
+            ActualizadorTabla.eliminar(tableModel, evento.getId());
+            return;
+        }
+        ActualizadorTabla.aplicar(tableModel, evento, this::filaPago);
+    }
+
+    // Si cambia el nombre de un alumno, se corrige en las filas de sus pagos
+    private void aplicarCambioAlumno(EventoCambio<Alumno> evento) {
+        if (evento.getTipo() == EventoCambio.Tipo.ELIMINADO) {
+            return;
+        }
+        String nombre = evento.getEntidad().getNombreCompleto();
+        nombresAlumnos.put(evento.getId(), nombre);
+        ActualizadorTabla.actualizarReferencias(tableModel, 1, evento.getId(), 2, nombre);
+    }
+
+    // Reemplaza, agrega o quita el período en el combo sin perder la selección
+    private void aplicarCambioPeriodo(EventoCambio<PeriodoCuota> evento) {
+        Object seleccionado = cmbPeriodoCuota.getSelectedItem();
+        int posicion = -1;
+        for (int i = 0; i < cmbPeriodoCuota.getItemCount(); i++) {
+            if (cmbPeriodoCuota.getItemAt(i).getIdPeriodo() == evento.getId()) {
+                posicion = i;
+                break;
+            }
+        }
+        PeriodoCuota periodo = evento.getEntidad();
+        if (posicion >= 0) {
+            cmbPeriodoCuota.removeItemAt(posicion);
+        }
+        if (periodo == null) {
+            nombresPeriodos.remove(evento.getId());
+            return;
+        }
+        nombresPeriodos.put(periodo.getIdPeriodo(), periodo.getNombrePeriodo());
+        if (posicion >= 0) {
+            cmbPeriodoCuota.insertItemAt(periodo, posicion);
+        } else {
+            cmbPeriodoCuota.addItem(periodo);
+        }
+        if (seleccionado instanceof PeriodoCuota && ((PeriodoCuota) seleccionado).getIdPeriodo() == periodo.getIdPeriodo()) {
+            cmbPeriodoCuota.setSelectedItem(periodo);
+        } else {
+            cmbPeriodoCuota.setSelectedItem(seleccionado);
+        }
+    }
+
     private void mostrarPagoSeleccionado() {
         int selectedRow = pagoTable.getSelectedRow();
         if (selectedRow >= 0) {
+            versionEnEdicion = DialogoConflicto.versionDeFila(tableModel, selectedRow);
             txtIdPago.setText(tableModel.getValueAt(selectedRow, 0).toString());
             txtMontoPagado.setText(tableModel.getValueAt(selectedRow, 5).toString().replace(",", "."));
             txtFechaPago.setText(tableModel.getValueAt(selectedRow, 6).toString());
             txtObservaciones.setText(tableModel.getValueAt(selectedRow, 7) != null ? tableModel.getValueAt(selectedRow, 7).toString() : "");
 
-            // Seleccionar el Alumno correcto en el ComboBox
+            // Seleccionar el Alumno correcto en el selector
             int idAlumnoEnTabla = (int) tableModel.getValueAt(selectedRow, 1);
-            for (int i = 0; i < cmbAlumno.getItemCount(); i++) {
-                Alumno alumnoEnCmb = cmbAlumno.getItemAt(i);
-                if (alumnoEnCmb != null && alumnoEnCmb.getIdAlumno() == idAlumnoEnTabla) {
-                    cmbAlumno.setSelectedItem(alumnoEnCmb);
-                    break;
-                }
-            }
+            selectorAlumno.seleccionarPorId(idAlumnoEnTabla);
             
             // Seleccionar el Período de Cuota correcto en el ComboBox
             int idPeriodoEnTabla = (int) tableModel.getValueAt(selectedRow, 3);
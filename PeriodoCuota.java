@@ -11,18 +11,19 @@ public class PeriodoCuota {
     private LocalDate fechaInicio;       // fecha_inicio
     private LocalDate fechaFin;          // fecha_fin
     private LocalDate fechaVencimiento;  // fecha_vencimiento (para pago sin recargo)
-    private double montoBase;            // monto_base (monto de la cuota sin recargo)
-    private double montoRecargo;         // monto_recargo (monto fijo del recargo)
+    private Dinero montoBase = Dinero.CERO;    // monto_base (monto de la cuota sin recargo)
+    private Dinero montoRecargo = Dinero.CERO; // monto_recargo (monto fijo del recargo)
+    private int version;                 // version (control de concurrencia optimista)
 
     // --- Constructores ---
 
     // Constructor vacío
-    public PeriodoCuota(int idPeriodo2, String string, double montoBase2, LocalDate fechaVencimiento2, boolean b) {
+    public PeriodoCuota(int idPeriodo2, String string, Dinero montoBase2, LocalDate fechaVencimiento2, boolean b) {
     }
 
     // Constructor sin idPeriodo (para crear un NUEVO período antes de insertarlo en la BD)
     public PeriodoCuota(String nombrePeriodo2, LocalDate fechaInicio2, LocalDate fechaFin2,
-                        LocalDate fechaVencimiento2, double montoBase2, double montoRecargo2) {
+                        LocalDate fechaVencimiento2, Dinero montoBase2, Dinero montoRecargo2) {
         this.nombrePeriodo = nombrePeriodo2;
         this.fechaInicio = fechaInicio2;
         this.fechaFin = fechaFin2;
@@ -33,7 +34,7 @@ public class PeriodoCuota {
 
     // Constructor con idPeriodo (para cuando recuperas un período de la BD)
     public PeriodoCuota(int idPeriodo, String nombrePeriodo, LocalDate fechaInicio, LocalDate fechaFin,
-                        LocalDate fechaVencimiento, double montoBase, double montoRecargo) {
+                        LocalDate fechaVencimiento, Dinero montoBase, Dinero montoRecargo) {
         this.idPeriodo = idPeriodo;
         this.nombrePeriodo = nombrePeriodo;
         this.fechaInicio = fechaInicio;
@@ -85,22 +86,30 @@ public class PeriodoCuota {
         this.fechaVencimiento = fechaVencimiento;
     }
 
-    public double getMontoBase() {
+    public Dinero getMontoBase() {
         return montoBase;
     }
 
-    public void setMontoBase(double montoBase) {
+    public void setMontoBase(Dinero montoBase) {
         this.montoBase = montoBase;
     }
 
-    public double getMontoRecargo() {
+    public Dinero getMontoRecargo() {
         return montoRecargo;
     }
 
-    public void setMontoRecargo(double montoRecargo) {
+    public void setMontoRecargo(Dinero montoRecargo) {
         this.montoRecargo = montoRecargo;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "PeriodoCuota{" +
@@ -1,22 +1,54 @@
 package taichi.controller;
 
+import taichi.model.Dinero;
 import taichi.model.PeriodoCuota;
 import taichi.dao.PeriodoCuotaDAO;
+import taichi.dao.ConflictoVersionException;
 import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
 
 public class PeriodoCuotaController {
 
     private PeriodoCuotaDAO periodoCuotaDAO;
+    private ArranqueEnCaliente arranqueEnCaliente; // null: los listados siempre se piden a la BD
+    private ModoSinConexion modoSinConexion; // null: sin respaldo local
     private static final Logger LOGGER = Logger.getLogger(PeriodoCuotaController.class.getName());
 
     public PeriodoCuotaController() {
-        this.periodoCuotaDAO = new PeriodoCuotaDAO();
+        this(new PeriodoCuotaDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public PeriodoCuotaController(PeriodoCuotaDAO periodoCuotaDAO) {
+        this.periodoCuotaDAO = periodoCuotaDAO;
+    }
+
+    /**
+     * Activa el modo sin conexión (ver {@link ModoSinConexion}): si la BD no responde, el listado de períodos
+     * se responde con la instantánea local.
+     */
+    public void setModoSinConexion(ModoSinConexion modoSinConexion) {
+        this.modoSinConexion = modoSinConexion;
+    }
+
+    /**
+     * Mientras no se concilie la copia de datos de referencia del inicio (ver {@link ArranqueEnCaliente}),
+     * el listado completo de períodos de cuota sale de ella; las diferencias llegan después por el {@link BusEventos}.
+     */
+    public void setArranqueEnCaliente(ArranqueEnCaliente arranqueEnCaliente) {
+        this.arranqueEnCaliente = arranqueEnCaliente;
     }
 
     /**
@@ -33,7 +65,7 @@ public class PeriodoCuotaController {
      */
     public PeriodoCuota registrarNuevoPeriodoCuota(String nombrePeriodo, LocalDate fechaInicio,
                                                  LocalDate fechaFin, LocalDate fechaVencimiento,
-                                                 double montoBase, double montoRecargo) throws Exception {
+                                                 Dinero montoBase, Dinero montoRecargo) throws Exception {
         
         // --- 1. Validaciones de entrada ---
         if (InputValidator.isNullOrEmpty(nombrePeriodo)) {
@@ -48,10 +80,10 @@ public class PeriodoCuotaController {
         if (fechaVencimiento.isAfter(fechaFin)) {
             throw new IllegalArgumentException("La fecha de vencimiento no puede ser posterior a la fecha de fin del período.");
         }
-        if (montoBase <= 0) {
+        if (montoBase == null || !montoBase.esPositivo()) {
             throw new IllegalArgumentException("El monto base de la cuota debe ser un valor positivo.");
         }
-        if (montoRecargo < 0) {
+        if (montoRecargo == null || montoRecargo.esNegativo()) {
             throw new IllegalArgumentException("El monto de recargo no puede ser negativo.");
         }
         
@@ -66,6 +98,7 @@ public class PeriodoCuotaController {
             int idGenerado = periodoCuotaDAO.insertar(nuevoPeriodo);
             if (idGenerado != -1) {
                 nuevoPeriodo.setIdPeriodo(idGenerado);
+                BusEventos.getInstancia().publicar(PeriodoCuota.class, EventoCambio.creado(idGenerado, nuevoPeriodo));
                 return nuevoPeriodo;
             } else {
                 throw new Exception("No se pudo insertar el período de cuota en la base de datos.");
@@ -100,18 +133,41 @@ public class PeriodoCuotaController {
      * @throws Exception Si ocurre un error de base de datos.
      */
     public List<PeriodoCuota> obtenerTodosLosPeriodosCuota() throws Exception {
+        if (modoSinConexion != null && modoSinConexion.estaSinConexion()) {
+            return new ArrayList<>(modoSinConexion.getInstantanea().getPeriodos());
+        }
+        List<PeriodoCuota> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getPeriodos() : null;
+        if (copiaInicial != null) {
+            return copiaInicial;
+        }
         try {
             return periodoCuotaDAO.obtenerTodos(); 
         } catch (SQLException e) {
+            if (modoSinConexion != null && modoSinConexion.pasarASinConexion(e)) {
+                return obtenerTodosLosPeriodosCuota();
+            }
             LOGGER.log(Level.SEVERE, "Error al obtener todos los períodos de cuota de la BD: " + e.getMessage(), e);
             throw new Exception("Error al obtener listado de períodos de cuota: " + e.getMessage());
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodosLosPeriodosCuota()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<PeriodoCuota>> obtenerTodosLosPeriodosCuotaAsync() {
+        List<PeriodoCuota> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getPeriodos() : null;
+        if (copiaInicial != null) {
+            return CompletableFuture.completedFuture(copiaInicial); // Sin esperar a la BD
+        }
+        return Asincrono.ejecutar(() -> obtenerTodosLosPeriodosCuota());
+    }
+
     /**
      * Actualiza la información de un período de cuota existente.
      * @param periodo El objeto PeriodoCuota con la información actualizada.
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarInformacionPeriodoCuota(PeriodoCuota periodo) throws Exception {
@@ -134,16 +190,23 @@ public class PeriodoCuotaController {
         if (periodo.getFechaVencimiento().isAfter(periodo.getFechaFin())) {
             throw new IllegalArgumentException("La fecha de vencimiento no puede ser posterior a la fecha de fin del período.");
         }
-        if (periodo.getMontoBase() <= 0) {
+        if (periodo.getMontoBase() == null || !periodo.getMontoBase().esPositivo()) {
             throw new IllegalArgumentException("El monto base de la cuota debe ser un valor positivo.");
         }
-        if (periodo.getMontoRecargo() < 0) {
+        if (periodo.getMontoRecargo() == null || periodo.getMontoRecargo().esNegativo()) {
             throw new IllegalArgumentException("El monto de recargo no puede ser negativo.");
         }
 
         // --- 2. Llamar al DAO para actualizar en la BD ---
         try {
-            return periodoCuotaDAO.actualizar(periodo);
+            boolean exito = periodoCuotaDAO.actualizar(periodo);
+            if (exito) {
+                BusEventos.getInstancia().publicar(PeriodoCuota.class, EventoCambio.actualizado(periodo.getIdPeriodo(), periodo));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar período de cuota con ID " + periodo.getIdPeriodo() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar período de cuota: " + e.getMessage());
@@ -172,14 +235,41 @@ public class PeriodoCuotaController {
             
             // Por simplicidad para el prototipo, se permite la eliminación directa, pero tenlo en cuenta.
             
-            return periodoCuotaDAO.eliminar(idPeriodo);
+            boolean exito = periodoCuotaDAO.eliminar(idPeriodo);
+            if (exito) {
+                BusEventos.getInstancia().publicar(PeriodoCuota.class, EventoCambio.eliminado(idPeriodo));
+            }
+            return exito;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al eliminar período de cuota con ID " + idPeriodo + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al eliminar período de cuota: " + e.getMessage());
         }
     }
 
-    public PeriodoCuota registrarNuevoPeriodoCuota(String text, double montoBase, double montoRecargo,
+    /**
+     * Aplica un cambio hecho desde otro puesto (ver {@link SincronizadorCambios}): relee el período de la BD
+     * y avisa a las vistas y cachés abiertos por el {@link BusEventos}.
+     * @param idPeriodo ID del período modificado.
+     * @param tipo Tipo de cambio registrado.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public void aplicarCambioExterno(int idPeriodo, EventoCambio.Tipo tipo) throws Exception {
+        PeriodoCuota periodo;
+        try {
+            periodo = periodoCuotaDAO.obtenerPorId(idPeriodo);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al releer el período de cuota con ID " + idPeriodo + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al sincronizar período de cuota: " + e.getMessage());
+        }
+        if (periodo == null) { // Se eliminó (quizás después del cambio anotado)
+            BusEventos.getInstancia().publicar(PeriodoCuota.class, EventoCambio.eliminado(idPeriodo));
+        } else {
+            BusEventos.getInstancia().publicar(PeriodoCuota.class, tipo == EventoCambio.Tipo.CREADO
+                ? EventoCambio.creado(idPeriodo, periodo) : EventoCambio.actualizado(idPeriodo, periodo));
+        }
+    }
+
+    public PeriodoCuota registrarNuevoPeriodoCuota(String text, Dinero montoBase, Dinero montoRecargo,
             LocalDate fechaVencimiento, boolean selected) {
         
         throw new UnsupportedOperationException("Unimplemented method 'registrarNuevoPeriodoCuota'");
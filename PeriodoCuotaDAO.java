@@ -1,23 +1,36 @@
 package taichi.dao;
 
 import taichi.model.PeriodoCuota; // Importamos la clase PeriodoCuota
+import taichi.util.EventoCambio;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement; // Necesario para Statement.RETURN_GENERATED_KEYS
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
 
 // Implementamos la interfaz IDAO, especificando que trabajamos con PeriodoCuota y su ID es Integer
 public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(PeriodoCuotaDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_periodo_cuota", "nombre_periodo", "fecha_inicio", "fecha_fin", "fecha_vencimiento", "monto_base", "monto_recargo", "version"
+    };
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public PeriodoCuota crear(PeriodoCuota periodo) throws SQLException {
-        // Columnas en BD: id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo
+        // Columnas en BD: id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version
         String sql = "INSERT INTO periodos_cuotas (nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo) VALUES (?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -27,8 +40,8 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             pstmt.setDate(2, java.sql.Date.valueOf(periodo.getFechaInicio())); // Convertir LocalDate a java.sql.Date
             pstmt.setDate(3, java.sql.Date.valueOf(periodo.getFechaFin()));
             pstmt.setDate(4, java.sql.Date.valueOf(periodo.getFechaVencimiento()));
-            pstmt.setDouble(5, periodo.getMontoBase());
-            pstmt.setDouble(6, periodo.getMontoRecargo());
+            pstmt.setBigDecimal(5, periodo.getMontoBase().aBigDecimal());
+            pstmt.setBigDecimal(6, periodo.getMontoRecargo().aBigDecimal());
 
             int filasAfectadas = pstmt.executeUpdate();
 
@@ -39,7 +52,8 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     periodo.setIdPeriodo(rs.getInt(1)); // Asignar el ID al objeto PeriodoCuota
-                    System.out.println("Período de cuota insertado con ID: " + periodo.getIdPeriodo());
+                    RegistroCambiosDAO.registrar(conn, PeriodoCuota.class, rs.getInt(1), EventoCambio.Tipo.CREADO);
+                    LOGGER.fine(() -> "Período de cuota insertado con ID: " + periodo.getIdPeriodo());
                 } else {
                     throw new SQLException("La creación del período de cuota falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -52,7 +66,7 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public PeriodoCuota obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
-        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo FROM periodos_cuotas WHERE id_periodo_cuota = ?";
+        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version FROM periodos_cuotas WHERE id_periodo_cuota = ?";
         PeriodoCuota periodo = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -61,9 +75,7 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    periodo = mapResultSetToPeriodoCuota(rs); // Usamos el método auxiliar
-                }
+                periodo = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToPeriodoCuota);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el período de cuota con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -74,24 +86,67 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public List<PeriodoCuota> obtenerTodos() throws SQLException {
         List<PeriodoCuota> periodos = new ArrayList<>();
-        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo FROM periodos_cuotas";
+        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version FROM periodos_cuotas";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                periodos.add(mapResultSetToPeriodoCuota(rs)); // Usamos el método auxiliar
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToPeriodoCuota, periodos);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todos los períodos de cuota de la base de datos: " + e.getMessage(), e);
         }
         return periodos;
     }
 
+    /**
+     * Obtiene los períodos de cuota creados o modificados desde un momento dado (según fecha_actualizacion),
+     * para poner al día una copia local sin volver a traer la tabla entera.
+     * @param desde Momento de la copia, en la hora del servidor (ver {@link DatabaseConnection#obtenerHoraServidor()}).
+     * @return Lista de los períodos de cuota cambiados; puede repetir alguno ya copiado si se modificó en ese mismo segundo.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<PeriodoCuota> obtenerActualizadosDesde(LocalDateTime desde) throws SQLException {
+        List<PeriodoCuota> periodos = new ArrayList<>();
+        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version FROM periodos_cuotas WHERE fecha_actualizacion >= ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToPeriodoCuota, periodos);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los períodos de cuota actualizados desde " + desde + ": " + e.getMessage(), e);
+        }
+        return periodos;
+    }
+
+    /**
+     * @return Los IDs de todos los períodos de cuota (para saber cuáles de una copia local se borraron).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Set<Integer> obtenerIds() throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        String sql = "SELECT id_periodo_cuota FROM periodos_cuotas";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los IDs de los períodos de cuota: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean actualizar(PeriodoCuota periodo) throws SQLException {
-        String sql = "UPDATE periodos_cuotas SET nombre_periodo = ?, fecha_inicio = ?, fecha_fin = ?, fecha_vencimiento = ?, monto_base = ?, monto_recargo = ? WHERE id_periodo_cuota = ?";
+        String sql = "UPDATE periodos_cuotas SET nombre_periodo = ?, fecha_inicio = ?, fecha_fin = ?, fecha_vencimiento = ?, monto_base = ?, monto_recargo = ?, version = version + 1 WHERE id_periodo_cuota = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -101,15 +156,28 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             pstmt.setDate(2, java.sql.Date.valueOf(periodo.getFechaInicio()));
             pstmt.setDate(3, java.sql.Date.valueOf(periodo.getFechaFin()));
             pstmt.setDate(4, java.sql.Date.valueOf(periodo.getFechaVencimiento()));
-            pstmt.setDouble(5, periodo.getMontoBase());
-            pstmt.setDouble(6, periodo.getMontoRecargo());
+            pstmt.setBigDecimal(5, periodo.getMontoBase().aBigDecimal());
+            pstmt.setBigDecimal(6, periodo.getMontoRecargo().aBigDecimal());
             pstmt.setInt(7, periodo.getIdPeriodo()); 
+            pstmt.setInt(8, periodo.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, PeriodoCuota.class, periodo.getIdPeriodo(), EventoCambio.Tipo.ACTUALIZADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al actualizar el período de cuota con ID " + periodo.getIdPeriodo() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            PeriodoCuota actual = obtenerPorId(periodo.getIdPeriodo());
+            if (actual != null) {
+                throw new ConflictoVersionException("período de cuota", periodo.getIdPeriodo(), actual);
+            }
+            return false;
+        }
+        periodo.setVersion(periodo.getVersion() + 1);
+        return true;
     }
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
@@ -123,6 +191,9 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             pstmt.setInt(1, id);
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, PeriodoCuota.class, id, EventoCambio.Tipo.ELIMINADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al eliminar el período de cuota con ID " + id + ": " + e.getMessage(), e);
         }
@@ -140,7 +211,7 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
      */
     public List<PeriodoCuota> obtenerPeriodosAnterioresA(YearMonth mesActual) throws SQLException {
         List<PeriodoCuota> periodos = new ArrayList<>();
-        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo FROM periodos_cuotas WHERE YEAR(fecha_fin) < ? OR (YEAR(fecha_fin) = ? AND MONTH(fecha_fin) < ?)";
+        String sql = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version FROM periodos_cuotas WHERE YEAR(fecha_fin) < ? OR (YEAR(fecha_fin) = ? AND MONTH(fecha_fin) < ?)";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -150,9 +221,7 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             pstmt.setInt(3, mesActual.getMonthValue());
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    periodos.add(mapResultSetToPeriodoCuota(rs));
-                }
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToPeriodoCuota, periodos);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener períodos de cuota anteriores a " + mesActual + ": " + e.getMessage(), e);
@@ -179,7 +248,7 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
         LocalDate hoy = LocalDate.now(); 
 
         // Primero, intentamos encontrar un período que esté activo hoy
-        String sqlActivo = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo " +
+        String sqlActivo = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version " +
                             "FROM periodos_cuotas " +
                             "WHERE ? BETWEEN fecha_inicio AND fecha_fin " + 
                             "LIMIT 1"; // Solo necesitamos uno si hay múltiples activos (ej. solapamiento, aunque no deseable)
@@ -190,9 +259,7 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
             pstmtActivo.setDate(1, java.sql.Date.valueOf(hoy));
             
             try (ResultSet rsActivo = pstmtActivo.executeQuery()) {
-                if (rsActivo.next()) {
-                    periodo = mapResultSetToPeriodoCuota(rsActivo);
-                }
+                periodo = ResultSetMapper.mapearPrimero(rsActivo, COLUMNAS, this::mapResultSetToPeriodoCuota);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al buscar el período de cuota activo: " + e.getMessage(), e);
@@ -200,16 +267,14 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
 
         // Si no se encontró un período activo, buscamos el más reciente finalizado o por iniciar
         if (periodo == null) {
-            String sqlMasReciente = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo " +
+            String sqlMasReciente = "SELECT id_periodo_cuota, nombre_periodo, fecha_inicio, fecha_fin, fecha_vencimiento, monto_base, monto_recargo, version " +
                                     "FROM periodos_cuotas " +
                                     "ORDER BY fecha_fin DESC, fecha_inicio DESC " +
                                     "LIMIT 1";
             try (Connection conn = DatabaseConnection.getConnection(); // Abrir una nueva conexión o reutilizar si es seguro.
                  PreparedStatement pstmtMasReciente = conn.prepareStatement(sqlMasReciente);
                  ResultSet rsMasReciente = pstmtMasReciente.executeQuery()) {
-                if (rsMasReciente.next()) {
-                    periodo = mapResultSetToPeriodoCuota(rsMasReciente);
-                }
+                periodo = ResultSetMapper.mapearPrimero(rsMasReciente, COLUMNAS, this::mapResultSetToPeriodoCuota);
             } catch (SQLException e) {
                 throw new SQLException("Error al buscar el período de cuota más reciente (fallback): " + e.getMessage(), e);
             }
@@ -222,21 +287,22 @@ public class PeriodoCuotaDAO implements IDAO<PeriodoCuota, Integer> {
      * Método auxiliar para mapear un ResultSet a un objeto PeriodoCuota.
      * Extrae los datos de la fila actual del ResultSet y crea un objeto PeriodoCuota.
      * @param rs El ResultSet del que extraer los datos.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto PeriodoCuota con los datos de la fila actual.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    private PeriodoCuota mapResultSetToPeriodoCuota(ResultSet rs) throws SQLException {
-        // Asegúrate de que los nombres de las columnas coincidan con tu base de datos.
+    private PeriodoCuota mapResultSetToPeriodoCuota(ResultSet rs, int[] col) throws SQLException {
         // En tu esquema DB, la PK es 'id_periodo_cuota'
-        int idPeriodo = rs.getInt("id_periodo_cuota"); 
-        String nombrePeriodo = rs.getString("nombre_periodo");
-        LocalDate fechaInicio = rs.getDate("fecha_inicio").toLocalDate();
-        LocalDate fechaFin = rs.getDate("fecha_fin").toLocalDate();
-        LocalDate fechaVencimiento = rs.getDate("fecha_vencimiento").toLocalDate();
-        double montoBase = rs.getDouble("monto_base");
-        double montoRecargo = rs.getDouble("monto_recargo");
-
-        // Asegúrate de que el constructor de PeriodoCuota sea compatible.
-        return new PeriodoCuota(idPeriodo, nombrePeriodo, fechaInicio, fechaFin, fechaVencimiento, montoBase, montoRecargo);
+        PeriodoCuota periodo = new PeriodoCuota(
+            rs.getInt(col[0]),                               // id_periodo_cuota
+            rs.getString(col[1]),                            // nombre_periodo
+            ResultSetMapper.getLocalDate(rs, col[2]),        // fecha_inicio
+            ResultSetMapper.getLocalDate(rs, col[3]),        // fecha_fin
+            ResultSetMapper.getLocalDate(rs, col[4]),        // fecha_vencimiento
+            ResultSetMapper.getDinero(rs, col[5]),           // monto_base
+            ResultSetMapper.getDinero(rs, col[6])            // monto_recargo
+        );
+        periodo.setVersion(rs.getInt(col[7]));
+        return periodo;
     }
 }
\ No newline at end of file
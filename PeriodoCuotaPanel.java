@@ -1,7 +1,11 @@
 package taichi.gui;
 
+import taichi.controller.FacturacionController;
 import taichi.controller.PeriodoCuotaController;
+import taichi.dao.ConflictoVersionException;
+import taichi.model.Dinero;
 import taichi.model.PeriodoCuota;
+import taichi.model.ResultadoFacturacion;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -11,10 +15,12 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class PeriodoCuotaPanel extends JPanel {
 
     private PeriodoCuotaController periodoCuotaController;
+    private FacturacionController facturacionController;
 
     // Componentes de la UI
     private JTextField txtIdPeriodo;
@@ -29,15 +35,19 @@ public class PeriodoCuotaPanel extends JPanel {
     private JButton btnInactivar;
     private JButton btnActivar;
     private JButton btnLimpiar;
+    private JButton btnGenerarCuotas;
+    private JProgressBar barraFacturacion;
 
     private JTable periodoCuotaTable;
     private DefaultTableModel tableModel;
+    private int versionEnEdicion; // Versión del registro cargado en el formulario
 
     // Formateador de fechas
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    public PeriodoCuotaPanel(PeriodoCuotaController periodoCuotaController) {
+    public PeriodoCuotaPanel(PeriodoCuotaController periodoCuotaController, FacturacionController facturacionController) {
         this.periodoCuotaController = periodoCuotaController;
+        this.facturacionController = facturacionController;
         setLayout(new BorderLayout());
 
         // --- Panel de Formulario ---
@@ -83,19 +93,25 @@ public class PeriodoCuotaPanel extends JPanel {
         btnInactivar = new JButton("Inactivar Período");
         btnActivar = new JButton("Activar Período");
         btnLimpiar = new JButton("Limpiar Campos");
+        btnGenerarCuotas = new JButton("Generar Cuotas del Período");
+        barraFacturacion = new JProgressBar();
+        barraFacturacion.setStringPainted(true);
+        barraFacturacion.setString("");
 
         buttonPanel.add(btnGuardar);
         buttonPanel.add(btnActualizar);
         buttonPanel.add(btnInactivar);
         buttonPanel.add(btnActivar);
         buttonPanel.add(btnLimpiar);
+        buttonPanel.add(btnGenerarCuotas);
+        buttonPanel.add(barraFacturacion);
 
         // Añadir paneles de formulario y botones al panel principal
         add(formPanel, BorderLayout.NORTH);
         add(buttonPanel, BorderLayout.SOUTH);
 
         // --- Configuración de la Tabla ---
-        String[] columnNames = {"ID", "Nombre Período", "Monto Base", "Monto Recargo", "Fecha Venc.", "Activo"};
+        String[] columnNames = {"ID", "Nombre Período", "Monto Base", "Monto Recargo", "Fecha Venc.", "Activo", DialogoConflicto.COLUMNA_VERSION};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -103,6 +119,7 @@ public class PeriodoCuotaPanel extends JPanel {
             }
         };
         periodoCuotaTable = new JTable(tableModel);
+        DialogoConflicto.ocultarColumnaVersion(periodoCuotaTable);
         periodoCuotaTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(periodoCuotaTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -113,6 +130,7 @@ public class PeriodoCuotaPanel extends JPanel {
         btnInactivar.addActionListener(e -> inactivarPeriodoCuota());
         btnActivar.addActionListener(e -> activarPeriodoCuota());
         btnLimpiar.addActionListener(e -> limpiarCampos());
+        btnGenerarCuotas.addActionListener(e -> generarCuotasPeriodo());
 
         periodoCuotaTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting() && periodoCuotaTable.getSelectedRow() != -1) {
@@ -132,8 +150,8 @@ public class PeriodoCuotaPanel extends JPanel {
                 return;
             }
 
-            double montoBase = Double.parseDouble(txtMontoBase.getText());
-            double montoRecargo = Double.parseDouble(txtMontoRecargo.getText());
+            Dinero montoBase = Dinero.parsear(txtMontoBase.getText());
+            Dinero montoRecargo = Dinero.parsear(txtMontoRecargo.getText());
             LocalDate fechaVencimiento = LocalDate.parse(txtFechaVencimiento.getText(), DATE_FORMATTER);
 
             PeriodoCuota nuevoPeriodo = periodoCuotaController.registrarNuevoPeriodoCuota(
@@ -173,8 +191,8 @@ public class PeriodoCuotaPanel extends JPanel {
                 return;
             }
 
-            double montoBase = Double.parseDouble(txtMontoBase.getText());
-            double montoRecargo = Double.parseDouble(txtMontoRecargo.getText());
+            Dinero montoBase = Dinero.parsear(txtMontoBase.getText());
+            Dinero montoRecargo = Dinero.parsear(txtMontoRecargo.getText());
             LocalDate fechaVencimiento = LocalDate.parse(txtFechaVencimiento.getText(), DATE_FORMATTER);
 
             PeriodoCuota periodoActualizar = new PeriodoCuota(
@@ -185,7 +203,12 @@ public class PeriodoCuotaPanel extends JPanel {
                     chkActivo.isSelected()
             );
 
-            boolean exito = periodoCuotaController.actualizarInformacionPeriodoCuota(periodoActualizar);
+            periodoActualizar.setVersion(versionEnEdicion);
+
+            Boolean exito = guardarCambios(periodoActualizar);
+            if (exito == null) {
+                return; // Conflicto sin guardar: el usuario sigue en el formulario
+            }
             if (exito) {
                 JOptionPane.showMessageDialog(this, "Período de Cuota actualizado con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 limpiarCampos();
@@ -259,6 +282,71 @@ public class PeriodoCuotaPanel extends JPanel {
         }
     }
 
+    /**
+     * Genera la cuota del período seleccionado para todos los alumnos activos, en segundo plano.
+     * Si una corrida anterior se cortó, continúa desde donde quedó; repetirla no duplica cuotas.
+     */
+    private void generarCuotasPeriodo() {
+        if (txtIdPeriodo.getText().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Seleccione un período de cuota de la tabla para generar sus cuotas.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int idPeriodo;
+        try {
+            idPeriodo = Integer.parseInt(txtIdPeriodo.getText());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "ID de período inválido.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this, "¿Generar la cuota de este período para todos los alumnos activos?", "Confirmar Facturación", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        btnGenerarCuotas.setEnabled(false);
+        barraFacturacion.setIndeterminate(true);
+        barraFacturacion.setString("Facturando...");
+
+        new SwingWorker<ResultadoFacturacion, int[]>() {
+            @Override
+            protected ResultadoFacturacion doInBackground() throws Exception {
+                return facturacionController.ejecutarFacturacion(idPeriodo, (procesados, total) -> publish(new int[]{procesados, total}));
+            }
+
+            @Override
+            protected void process(List<int[]> avances) {
+                int[] ultimo = avances.get(avances.size() - 1);
+                barraFacturacion.setIndeterminate(false);
+                barraFacturacion.setMaximum(Math.max(1, ultimo[1]));
+                barraFacturacion.setValue(ultimo[0]);
+                barraFacturacion.setString(ultimo[0] + " / " + ultimo[1] + " alumnos");
+            }
+
+            @Override
+            protected void done() {
+                btnGenerarCuotas.setEnabled(true);
+                barraFacturacion.setIndeterminate(false);
+                try {
+                    ResultadoFacturacion resultado = get();
+                    barraFacturacion.setValue(barraFacturacion.getMaximum());
+                    barraFacturacion.setString(resultado.getCuotasGeneradas() + " cuotas generadas");
+                    JOptionPane.showMessageDialog(PeriodoCuotaPanel.this,
+                        (resultado.isReanudada() ? "Facturación reanudada y completada.\n" : "Facturación completada.\n")
+                        + "Cuotas nuevas: " + resultado.getCuotasGeneradas() + "\n"
+                        + "Alumnos procesados: " + resultado.getAlumnosProcesados() + " en " + resultado.getLotes() + " lotes\n"
+                        + String.format("Tiempo: %.1f s (%.0f alumnos/s)", resultado.getDuracionMillis() / 1000.0, resultado.getAlumnosPorSegundo()),
+                        "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    barraFacturacion.setString("Facturación interrumpida");
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(PeriodoCuotaPanel.this, "Error al generar las cuotas: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
     private void limpiarCampos() {
         txtIdPeriodo.setText("");
         txtNombrePeriodo.setText("");
@@ -274,14 +362,7 @@ public class PeriodoCuotaPanel extends JPanel {
         try {
             List<PeriodoCuota> periodos = periodoCuotaController.obtenerTodosLosPeriodosCuota();
             for (PeriodoCuota periodo : periodos) {
-                tableModel.addRow(new Object[]{
-                    periodo.getIdPeriodo(),
-                    periodo.getNombrePeriodo(),
-                    String.format("%.2f", periodo.getMontoBase()), // Formato para decimales
-                    String.format("%.2f", periodo.getMontoRecargo()), // Formato para decimales
-                    periodo.getFechaVencimiento().format(DATE_FORMATTER),
-                    periodo.isActivo() ? "Sí" : "No"
-                });
+                tableModel.addRow(filaPeriodoCuota(periodo));
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error al cargar períodos de cuota: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -289,9 +370,42 @@ public class PeriodoCuotaPanel extends JPanel {
         }
     }
 
+    // Guarda los cambios del formulario; si otro usuario guardó el registro mientras tanto, muestra las diferencias y deja elegir
+    private Boolean guardarCambios(PeriodoCuota periodo) throws Exception {
+        try {
+            return periodoCuotaController.actualizarInformacionPeriodoCuota(periodo);
+        } catch (ConflictoVersionException e) {
+            PeriodoCuota guardado = (PeriodoCuota) e.getRegistroActual();
+            switch (DialogoConflicto.preguntar(this, tableModel, filaPeriodoCuota(periodo), filaPeriodoCuota(guardado))) {
+                case SOBRESCRIBIR:
+                    periodo.setVersion(guardado.getVersion());
+                    return guardarCambios(periodo);
+                case USAR_GUARDADO:
+                    DialogoConflicto.seleccionarGuardado(periodoCuotaTable, tableModel, guardado.getIdPeriodo(), filaPeriodoCuota(guardado));
+                    mostrarPeriodoCuotaSeleccionado();
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private Object[] filaPeriodoCuota(PeriodoCuota periodo) {
+        return new Object[]{
+            periodo.getIdPeriodo(),
+            periodo.getNombrePeriodo(),
+            periodo.getMontoBase().formatear(),
+            periodo.getMontoRecargo().formatear(),
+            periodo.getFechaVencimiento().format(DATE_FORMATTER),
+            periodo.isActivo() ? "Sí" : "No",
+            periodo.getVersion()
+        };
+    }
+
     private void mostrarPeriodoCuotaSeleccionado() {
         int selectedRow = periodoCuotaTable.getSelectedRow();
         if (selectedRow >= 0) {
+            versionEnEdicion = DialogoConflicto.versionDeFila(tableModel, selectedRow);
             txtIdPeriodo.setText(tableModel.getValueAt(selectedRow, 0).toString());
             txtNombrePeriodo.setText(tableModel.getValueAt(selectedRow, 1).toString());
             txtMontoBase.setText(tableModel.getValueAt(selectedRow, 2).toString().replace(",", ".")); // Asegurarse de usar punto como decimal
@@ -0,0 +1,227 @@
+package taichi.util;
+
+import taichi.model.EjecucionTarea;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Planificador de tareas en segundo plano dentro de la aplicación.
+ *
+ * - Disparadores tipo cron ({@link ProgramacionCron}), tareas de una sola vez (con demora) y ejecuciones inmediatas.
+ * - Cada tarea corre en su propio hilo virtual (ver {@link HilosVirtuales}); un único hilo liviano solo se encarga
+ *   de los disparos, así que ninguna tarea pesada corre en el hilo de la interfaz ni demora a las demás.
+ * - Límite de tareas simultáneas por tipo: las que exceden el límite esperan su turno sin ocupar hilos del sistema.
+ * - Una tarea cron no se superpone consigo misma: si el disparo llega mientras la anterior sigue corriendo, se omite.
+ * - Cada ejecución terminada se informa al consumidor de historial (normalmente, la tabla tareas_historial).
+ */
+public class PlanificadorTareas {
+
+    private static final Logger LOGGER = Logger.getLogger(PlanificadorTareas.class.getName());
+
+    public static final String DISPARADOR_CRON = "CRON";
+    public static final String DISPARADOR_UNA_VEZ = "UNA_VEZ";
+    public static final String DISPARADOR_MANUAL = "MANUAL";
+
+    /**
+     * Trabajo a ejecutar. Devuelve un resumen corto que queda en el historial (ej. "152 cuotas recargadas").
+     */
+    @FunctionalInterface
+    public interface Tarea {
+        String ejecutar() throws Exception;
+    }
+
+    private final ScheduledExecutorService disparos;
+    private final ExecutorService ejecutor;
+    private final Consumer<EjecucionTarea> historial;
+    private final Map<String, Semaphore> limitesPorTipo = new ConcurrentHashMap<>();
+    private final Set<String> cronEnEjecucion = ConcurrentHashMap.newKeySet();
+    private final Map<String, LocalDateTime> proximasEjecuciones = new ConcurrentHashMap<>();
+    private volatile boolean detenido = false;
+
+    /**
+     * @param historial Recibe cada ejecución terminada (exitosa, fallida u omitida); puede ser null.
+     */
+    public PlanificadorTareas(Consumer<EjecucionTarea> historial) {
+        this.historial = historial;
+        this.disparos = Executors.newSingleThreadScheduledExecutor(HilosVirtuales.fabricaDaemon("planificador-disparos"));
+        this.ejecutor = HilosVirtuales.nuevoEjecutor("tarea");
+    }
+
+    /**
+     * Define cuántas tareas de un tipo pueden correr a la vez. Los tipos sin límite definido no se restringen.
+     * Debe llamarse antes de programar tareas de ese tipo.
+     */
+    public void definirLimite(String tipo, int maximoSimultaneas) {
+        if (maximoSimultaneas <= 0) {
+            throw new IllegalArgumentException("El límite de tareas simultáneas debe ser un número positivo.");
+        }
+        limitesPorTipo.put(tipo, new Semaphore(maximoSimultaneas, true));
+    }
+
+    /**
+     * Programa una tarea recurrente según una expresión cron.
+     * @param tipo Tipo de tarea (para el límite de concurrencia).
+     * @param nombre Nombre único de la tarea (aparece en el historial).
+     * @param expresionCron Expresión de cinco campos, ej. "15 0 * * *".
+     * @param tarea Trabajo a ejecutar.
+     * @throws IllegalArgumentException Si la expresión cron no es válida.
+     */
+    public void programarCron(String tipo, String nombre, String expresionCron, Tarea tarea) {
+        ProgramacionCron cron = new ProgramacionCron(expresionCron);
+        programarSiguienteCron(tipo, nombre, cron, tarea, LocalDateTime.now());
+        LOGGER.info(() -> "Tarea '" + nombre + "' programada (" + cron + "), próxima ejecución: " + proximasEjecuciones.get(nombre));
+    }
+
+    /**
+     * Programa una tarea para que corra una sola vez, después de la demora indicada.
+     * @return Futuro que se completa con la ejecución registrada (también si la tarea falla).
+     */
+    public CompletableFuture<EjecucionTarea> programarUnaVez(String tipo, String nombre, Duration demora, Tarea tarea) {
+        CompletableFuture<EjecucionTarea> resultado = new CompletableFuture<>();
+        LocalDateTime programada = LocalDateTime.now().plus(demora);
+        disparos.schedule(() -> despachar(tipo, nombre, DISPARADOR_UNA_VEZ, programada, tarea, resultado),
+                Math.max(0, demora.toMillis()), TimeUnit.MILLISECONDS);
+        return resultado;
+    }
+
+    /**
+     * Ejecuta una tarea ahora mismo en segundo plano (respetando el límite de su tipo).
+     * @return Futuro que se completa con la ejecución registrada (también si la tarea falla).
+     */
+    public CompletableFuture<EjecucionTarea> ejecutarAhora(String tipo, String nombre, Tarea tarea) {
+        CompletableFuture<EjecucionTarea> resultado = new CompletableFuture<>();
+        despachar(tipo, nombre, DISPARADOR_MANUAL, LocalDateTime.now(), tarea, resultado);
+        return resultado;
+    }
+
+    /**
+     * @return Próxima ejecución de cada tarea cron programada, por nombre.
+     */
+    public Map<String, LocalDateTime> getProximasEjecuciones() {
+        return new ConcurrentHashMap<>(proximasEjecuciones);
+    }
+
+    /**
+     * Detiene los disparos y deja de aceptar tareas. Las tareas en curso terminan normalmente.
+     */
+    public void detener() {
+        detenido = true;
+        disparos.shutdownNow();
+        ejecutor.shutdown();
+    }
+
+    private void programarSiguienteCron(String tipo, String nombre, ProgramacionCron cron, Tarea tarea, LocalDateTime despues) {
+        if (detenido) {
+            return;
+        }
+        LocalDateTime siguiente = cron.siguienteEjecucion(despues);
+        proximasEjecuciones.put(nombre, siguiente);
+        long demoraMs = Math.max(0, ChronoUnit.MILLIS.between(LocalDateTime.now(), siguiente));
+        disparos.schedule(() -> {
+            // Se reprograma a partir de la hora prevista (no de "ahora") para no saltear ni repetir disparos
+            programarSiguienteCron(tipo, nombre, cron, tarea, siguiente);
+            if (!cronEnEjecucion.add(nombre)) {
+                LOGGER.warning(() -> "Tarea '" + nombre + "' omitida: la ejecución anterior sigue en curso.");
+                LocalDateTime ahora = LocalDateTime.now();
+                EjecucionTarea omitida = new EjecucionTarea(0, tipo, nombre, DISPARADOR_CRON, siguiente, ahora, ahora,
+                        EjecucionTarea.ESTADO_OMITIDA, "La ejecución anterior seguía en curso.");
+                ejecutor.execute(() -> registrar(omitida)); // El historial escribe en la BD: fuera del hilo de disparos
+                return;
+            }
+            CompletableFuture<EjecucionTarea> resultado = new CompletableFuture<>();
+            resultado.whenComplete((ejecucion, error) -> cronEnEjecucion.remove(nombre));
+            despachar(tipo, nombre, DISPARADOR_CRON, siguiente, tarea, resultado);
+        }, demoraMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Pasa la tarea al ejecutor de hilos virtuales; ahí espera su lugar según el límite del tipo y corre
+    private void despachar(String tipo, String nombre, String disparador, LocalDateTime programada, Tarea tarea,
+                           CompletableFuture<EjecucionTarea> resultado) {
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    resultado.complete(correr(tipo, nombre, disparador, programada, tarea));
+                } catch (Throwable e) {
+                    // El futuro se completa igual: si no, una tarea cron quedaría "en curso" para siempre
+                    resultado.completeExceptionally(e);
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            resultado.completeExceptionally(new IllegalStateException("El planificador de tareas está detenido.", e));
+        }
+    }
+
+    private EjecucionTarea correr(String tipo, String nombre, String disparador, LocalDateTime programada, Tarea tarea) {
+        Semaphore limite = limitesPorTipo.get(tipo);
+        EjecucionTarea ejecucion = new EjecucionTarea();
+        ejecucion.setTipo(tipo);
+        ejecucion.setNombre(nombre);
+        ejecucion.setDisparador(disparador);
+        ejecucion.setFechaProgramada(programada);
+        boolean adquirido = false;
+        try {
+            if (limite != null) {
+                limite.acquire();
+                adquirido = true;
+            }
+            ejecucion.setFechaInicio(LocalDateTime.now());
+            long inicio = System.nanoTime();
+            String resumen = tarea.ejecutar();
+            long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+            ejecucion.setEstado(EjecucionTarea.ESTADO_EXITOSA);
+            ejecucion.setMensaje(resumen);
+            LOGGER.info(() -> "Tarea '" + nombre + "' terminada en " + duracionMs + " ms" + (resumen != null ? ": " + resumen : ""));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ejecucion.setEstado(EjecucionTarea.ESTADO_FALLIDA);
+            ejecucion.setMensaje("Interrumpida");
+        } catch (Exception e) {
+            ejecucion.setEstado(EjecucionTarea.ESTADO_FALLIDA);
+            ejecucion.setMensaje(e.getMessage());
+            LOGGER.log(Level.WARNING, "La tarea '" + nombre + "' falló: " + e.getMessage(), e);
+        } catch (Error e) {
+            // Ej. StackOverflowError: cuenta como fallida y el planificador sigue con las demás tareas
+            ejecucion.setEstado(EjecucionTarea.ESTADO_FALLIDA);
+            ejecucion.setMensaje(e.toString());
+            LOGGER.log(Level.SEVERE, "La tarea '" + nombre + "' falló con un error grave: " + e, e);
+        } finally {
+            if (adquirido) {
+                limite.release();
+            }
+            if (ejecucion.getFechaInicio() == null) {
+                ejecucion.setFechaInicio(LocalDateTime.now());
+            }
+            ejecucion.setFechaFin(LocalDateTime.now());
+        }
+        registrar(ejecucion);
+        return ejecucion;
+    }
+
+    private void registrar(EjecucionTarea ejecucion) {
+        if (historial == null) {
+            return;
+        }
+        try {
+            historial.accept(ejecucion);
+        } catch (RuntimeException e) {
+            // El historial es informativo: si no se puede guardar, la tarea igual cuenta como ejecutada
+            LOGGER.log(Level.WARNING, "No se pudo registrar la ejecución de '" + ejecucion.getNombre() + "': " + e.getMessage(), e);
+        }
+    }
+}
@@ -15,6 +15,7 @@ public class Profesor {
     private String email;                 // email
     private LocalDate fechaContratacion;  // fecha_contratacion
     private boolean activo;               // activo (para saber si el profesor está activo o dado de baja)
+    private int version;                  // version (control de concurrencia optimista)
 
     // --- Constructores ---
 
@@ -125,6 +126,14 @@ public class Profesor {
         this.activo = activo;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Profesor{" +
@@ -2,21 +2,48 @@ package taichi.controller;
 
 import taichi.model.Profesor;
 import taichi.dao.ProfesorDAO;
+import taichi.dao.ConflictoVersionException;
+import taichi.util.IndiceTrigramas;
 import taichi.util.InputValidator;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
+import taichi.util.EventoCambio;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
 
 public class ProfesorController {
 
     private ProfesorDAO profesorDAO;
+    private ArranqueEnCaliente arranqueEnCaliente; // null: los listados siempre se piden a la BD
     private static final Logger LOGGER = Logger.getLogger(ProfesorController.class.getName());
 
+    // Índice de búsqueda por nombre y DNI; se carga desde la BD en la primera búsqueda y luego se mantiene con cada cambio
+    private final IndiceTrigramas<Profesor> indiceBusqueda =
+        new IndiceTrigramas<>(Profesor::getIdProfesor, profesor -> profesor.getNombreCompleto() + " " + profesor.getDni());
+    private boolean indiceCargado = false;
+
     public ProfesorController() {
-        this.profesorDAO = new ProfesorDAO();
+        this(new ProfesorDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public ProfesorController(ProfesorDAO profesorDAO) {
+        this.profesorDAO = profesorDAO;
+    }
+
+    /**
+     * Mientras no se concilie la copia de datos de referencia del inicio (ver {@link ArranqueEnCaliente}),
+     * el listado completo de profesores sale de ella; las diferencias llegan después por el {@link BusEventos}.
+     */
+    public void setArranqueEnCaliente(ArranqueEnCaliente arranqueEnCaliente) {
+        this.arranqueEnCaliente = arranqueEnCaliente;
     }
 
     /**
@@ -68,6 +95,8 @@ public class ProfesorController {
             int idGenerado = profesorDAO.insertar(nuevoProfesor);
             if (idGenerado != -1) {
                 nuevoProfesor.setIdProfesor(idGenerado);
+                actualizarIndiceBusqueda(nuevoProfesor);
+                BusEventos.getInstancia().publicar(Profesor.class, EventoCambio.creado(idGenerado, nuevoProfesor));
                 return nuevoProfesor;
             } else {
                 throw new Exception("No se pudo insertar el profesor en la base de datos.");
@@ -102,6 +131,10 @@ public class ProfesorController {
      * @throws Exception Si ocurre un error de base de datos.
      */
     public List<Profesor> obtenerTodosLosProfesores() throws Exception {
+        List<Profesor> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getProfesores() : null;
+        if (copiaInicial != null) {
+            return copiaInicial;
+        }
         try {
             // El DAO ya trae todos. Si en el futuro quieres filtrar solo activos,
             // lo harías aquí o añadirías un método específico en el DAO.
@@ -112,10 +145,23 @@ public class ProfesorController {
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodosLosProfesores()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<Profesor>> obtenerTodosLosProfesoresAsync() {
+        List<Profesor> copiaInicial = arranqueEnCaliente != null ? arranqueEnCaliente.getProfesores() : null;
+        if (copiaInicial != null) {
+            return CompletableFuture.completedFuture(copiaInicial); // Sin esperar a la BD
+        }
+        return Asincrono.ejecutar(() -> obtenerTodosLosProfesores());
+    }
+
     /**
      * Actualiza la información de un profesor existente.
      * @param profesor El objeto Profesor con la información actualizada.
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarInformacionProfesor(Profesor profesor) throws Exception {
@@ -145,7 +191,15 @@ public class ProfesorController {
 
         // --- 2. Llamar al DAO para actualizar en la BD ---
         try {
-            return profesorDAO.actualizar(profesor);
+            boolean exito = profesorDAO.actualizar(profesor);
+            if (exito) {
+                actualizarIndiceBusqueda(profesor);
+                BusEventos.getInstancia().publicar(Profesor.class, EventoCambio.actualizado(profesor.getIdProfesor(), profesor));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar profesor con ID " + profesor.getIdProfesor() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar profesor: " + e.getMessage());
@@ -168,11 +222,19 @@ public class ProfesorController {
                 throw new Exception("Profesor no encontrado con ID: " + idProfesor);
             }
             if (!profesor.isActivo()) {
-                System.out.println("El profesor con ID " + idProfesor + " ya está inactivo.");
+                LOGGER.fine(() -> "El profesor con ID " + idProfesor + " ya está inactivo.");
                 return true; 
             }
             profesor.setActivo(false); 
-            return profesorDAO.actualizar(profesor);
+            boolean exito = profesorDAO.actualizar(profesor);
+            if (exito) {
+                actualizarIndiceBusqueda(profesor);
+                BusEventos.getInstancia().publicar(Profesor.class, EventoCambio.actualizado(profesor.getIdProfesor(), profesor));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al dar de baja al profesor con ID " + idProfesor + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al dar de baja profesor: " + e.getMessage());
@@ -195,14 +257,101 @@ public class ProfesorController {
                 throw new Exception("Profesor no encontrado con ID: " + idProfesor);
             }
             if (profesor.isActivo()) {
-                System.out.println("El profesor con ID " + idProfesor + " ya está activo.");
+                LOGGER.fine(() -> "El profesor con ID " + idProfesor + " ya está activo.");
                 return true; 
             }
             profesor.setActivo(true); 
-            return profesorDAO.actualizar(profesor);
+            boolean exito = profesorDAO.actualizar(profesor);
+            if (exito) {
+                actualizarIndiceBusqueda(profesor);
+                BusEventos.getInstancia().publicar(Profesor.class, EventoCambio.actualizado(profesor.getIdProfesor(), profesor));
+            }
+            return exito;
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al activar al profesor con ID " + idProfesor + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al activar profesor: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Busca profesores por parte del nombre o del DNI, sin distinguir mayúsculas ni acentos.
+     * Pensado para búsqueda mientras se escribe: no consulta la base de datos salvo la primera vez.
+     * @param texto Texto a buscar.
+     * @param limite Cantidad máxima de resultados.
+     * @return Lista de profesores ordenada de mejor a peor coincidencia.
+     * @throws Exception Si ocurre un error de base de datos al cargar el índice.
+     */
+    public List<Profesor> buscarProfesores(String texto, int limite) throws Exception {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite de resultados debe ser un número positivo.");
+        }
+        return obtenerIndiceBusqueda().buscar(texto, limite);
+    }
+
+    /**
+     * Aplica un cambio hecho desde otro puesto (ver {@link SincronizadorCambios}): relee el profesor de la BD,
+     * actualiza el índice de búsqueda y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idProfesor ID del profesor modificado.
+     * @param tipo Tipo de cambio registrado.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public void aplicarCambioExterno(int idProfesor, EventoCambio.Tipo tipo) throws Exception {
+        Profesor profesor;
+        try {
+            profesor = profesorDAO.obtenerPorId(idProfesor);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al releer el profesor con ID " + idProfesor + " de la BD: " + e.getMessage(), e);
+            throw new Exception("Error al sincronizar profesor: " + e.getMessage());
+        }
+        reflejarCambioExterno(idProfesor, profesor, tipo);
+    }
+
+    /**
+     * Refleja un cambio externo ya leído de la BD (ej. al conciliar la copia local del inicio, ver
+     * {@link ArranqueEnCaliente}): actualiza el índice de búsqueda y avisa a las vistas abiertas por el {@link BusEventos}.
+     * @param idProfesor ID del registro cambiado.
+     * @param profesor Su estado actual, o null si ya no existe.
+     * @param tipo Tipo de cambio.
+     */
+    public void reflejarCambioExterno(int idProfesor, Profesor profesor, EventoCambio.Tipo tipo) {
+        if (profesor == null) { // Se eliminó (quizás después del cambio anotado)
+            quitarDelIndiceBusqueda(idProfesor);
+            BusEventos.getInstancia().publicar(Profesor.class, EventoCambio.eliminado(idProfesor));
+        } else {
+            actualizarIndiceBusqueda(profesor);
+            BusEventos.getInstancia().publicar(Profesor.class, tipo == EventoCambio.Tipo.CREADO
+                ? EventoCambio.creado(idProfesor, profesor) : EventoCambio.actualizado(idProfesor, profesor));
+        }
+    }
+
+    // Devuelve el índice de búsqueda, cargándolo desde la BD la primera vez
+    private synchronized IndiceTrigramas<Profesor> obtenerIndiceBusqueda() throws Exception {
+        if (!indiceCargado) {
+            try {
+                indiceBusqueda.cargar(profesorDAO.obtenerTodos());
+                indiceCargado = true;
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error al cargar el índice de búsqueda de profesores: " + e.getMessage(), e);
+                throw new Exception("Error al preparar la búsqueda de profesores: " + e.getMessage());
+            }
+        }
+        return indiceBusqueda;
+    }
+
+    // Refleja en el índice de búsqueda un profesor ya guardado en la BD
+    private synchronized void actualizarIndiceBusqueda(Profesor profesor) {
+        if (indiceCargado) { // Si aún no se cargó, se cargará completo en la primera búsqueda
+            indiceBusqueda.agregar(profesor);
+        }
+    }
+
+    // Quita del índice de búsqueda un profesor que ya no existe en la BD
+    private synchronized void quitarDelIndiceBusqueda(int idProfesor) {
+        if (indiceCargado) {
+            indiceBusqueda.quitar(idProfesor);
+        }
+    }
+}
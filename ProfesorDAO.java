@@ -1,21 +1,34 @@
 package taichi.dao;
 
 import taichi.model.Profesor; // Importamos la clase Profesor
+import taichi.util.EventoCambio;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement; // Necesario para Statement.RETURN_GENERATED_KEYS
+import java.sql.Timestamp;
 import java.time.LocalDate; // Importación correcta
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
 
 // Implementamos la interfaz IDAO, especificando que trabajamos con Profesor y su ID es Integer
 public class ProfesorDAO implements IDAO<Profesor, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(ProfesorDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_profesor", "nombre_completo", "dni", "fecha_nacimiento", "direccion", "telefono", "email", "fecha_contratacion", "activo", "version"
+    };
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Profesor crear(Profesor profesor) throws SQLException {
-        // Columnas en BD: id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo
+        // Columnas en BD: id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo, version
         String sql = "INSERT INTO profesores (nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -39,7 +52,8 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     profesor.setIdProfesor(rs.getInt(1)); // Asignar el ID al objeto Profesor
-                    System.out.println("Profesor insertado con ID: " + profesor.getIdProfesor());
+                    RegistroCambiosDAO.registrar(conn, Profesor.class, rs.getInt(1), EventoCambio.Tipo.CREADO);
+                    LOGGER.fine(() -> "Profesor insertado con ID: " + profesor.getIdProfesor());
                 } else {
                     throw new SQLException("La creación del profesor falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -53,8 +67,8 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Profesor obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
         // Seleccionamos las columnas según el esquema MySQL
-        // id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo
-        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo FROM profesores WHERE id_profesor = ?";
+        // id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo, version
+        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo, version FROM profesores WHERE id_profesor = ?";
         Profesor profesor = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -63,9 +77,7 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    profesor = mapResultSetToProfesor(rs); // Usamos el método auxiliar
-                }
+                profesor = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToProfesor);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el profesor con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -77,25 +89,68 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
     public List<Profesor> obtenerTodos() throws SQLException {
         List<Profesor> profesores = new ArrayList<>();
         // Seleccionamos las columnas según el esquema MySQL
-        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo FROM profesores";
+        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo, version FROM profesores";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                profesores.add(mapResultSetToProfesor(rs)); // Usamos el método auxiliar
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToProfesor, profesores);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todos los profesores de la base de datos: " + e.getMessage(), e);
         }
         return profesores;
     }
 
+    /**
+     * Obtiene los profesores creados o modificados desde un momento dado (según fecha_actualizacion),
+     * para poner al día una copia local sin volver a traer la tabla entera.
+     * @param desde Momento de la copia, en la hora del servidor (ver {@link DatabaseConnection#obtenerHoraServidor()}).
+     * @return Lista de los profesores cambiados; puede repetir alguno ya copiado si se modificó en ese mismo segundo.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<Profesor> obtenerActualizadosDesde(LocalDateTime desde) throws SQLException {
+        List<Profesor> profesores = new ArrayList<>();
+        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo, version FROM profesores WHERE fecha_actualizacion >= ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(desde));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToProfesor, profesores);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los profesores actualizados desde " + desde + ": " + e.getMessage(), e);
+        }
+        return profesores;
+    }
+
+    /**
+     * @return Los IDs de todos los profesores (para saber cuáles de una copia local se borraron).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public Set<Integer> obtenerIds() throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        String sql = "SELECT id_profesor FROM profesores";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los IDs de los profesores: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public boolean actualizar(Profesor profesor) throws SQLException {
         // Ajustamos la sentencia SQL para que coincida con la tabla 'profesores' en MySQL.
-        String sql = "UPDATE profesores SET nombre_completo = ?, dni = ?, fecha_nacimiento = ?, direccion = ?, telefono = ?, email = ?, fecha_contratacion = ?, activo = ? WHERE id_profesor = ?";
+        String sql = "UPDATE profesores SET nombre_completo = ?, dni = ?, fecha_nacimiento = ?, direccion = ?, telefono = ?, email = ?, fecha_contratacion = ?, activo = ?, version = version + 1 WHERE id_profesor = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -110,12 +165,25 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
             pstmt.setDate(7, java.sql.Date.valueOf(profesor.getFechaContratacion()));
             pstmt.setBoolean(8, profesor.isActivo());
             pstmt.setInt(9, profesor.getIdProfesor()); // Cláusula WHERE
+            pstmt.setInt(10, profesor.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Profesor.class, profesor.getIdProfesor(), EventoCambio.Tipo.ACTUALIZADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al actualizar el profesor con ID " + profesor.getIdProfesor() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            Profesor actual = obtenerPorId(profesor.getIdProfesor());
+            if (actual != null) {
+                throw new ConflictoVersionException("profesor", profesor.getIdProfesor(), actual);
+            }
+            return false;
+        }
+        profesor.setVersion(profesor.getVersion() + 1);
+        return true;
     }
 
     @Override // Indica que este método implementa un método de la interfaz IDAO
@@ -129,6 +197,9 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
             pstmt.setInt(1, id);
 
             filasAfectadas = pstmt.executeUpdate();
+            if (filasAfectadas > 0) {
+                RegistroCambiosDAO.registrar(conn, Profesor.class, id, EventoCambio.Tipo.ELIMINADO);
+            }
         } catch (SQLException e) {
             throw new SQLException("Error al eliminar el profesor con ID " + id + ": " + e.getMessage(), e);
         }
@@ -144,64 +215,40 @@ public class ProfesorDAO implements IDAO<Profesor, Integer> {
      */
     public List<Profesor> obtenerProfesoresActivos() throws SQLException {
         List<Profesor> profesoresActivos = new ArrayList<>();
-        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo FROM profesores WHERE activo = TRUE";
+        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo, version FROM profesores WHERE activo = TRUE";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                profesoresActivos.add(mapResultSetToProfesor(rs));
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToProfesor, profesoresActivos);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener profesores activos: " + e.getMessage(), e);
         }
         return profesoresActivos;
     }
 
-    /**
-     * Busca profesores por su nombre completo o parte de él.
-     * @param nombre El nombre o parte del nombre a buscar.
-     * @return Una lista de profesores que coinciden con la búsqueda.
-     * @throws SQLException Si ocurre un error de base de datos.
-     */
-    public List<Profesor> buscarPorNombre(String nombre) throws SQLException {
-        List<Profesor> profesoresEncontrados = new ArrayList<>();
-        String sql = "SELECT id_profesor, nombre_completo, dni, fecha_nacimiento, direccion, telefono, email, fecha_contratacion, activo FROM profesores WHERE nombre_completo LIKE ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + nombre + "%"); // Búsqueda parcial con comodines
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    profesoresEncontrados.add(mapResultSetToProfesor(rs));
-                }
-            }
-        } catch (SQLException e) {
-            throw new SQLException("Error al buscar profesores por nombre: " + e.getMessage(), e);
-        }
-        return profesoresEncontrados;
-    }
-
     /**
      * Método auxiliar para mapear un ResultSet a un objeto Profesor.
      * Extrae los datos de la fila actual del ResultSet y crea un objeto Profesor.
      * @param rs El ResultSet del que extraer los datos.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto Profesor con los datos de la fila actual.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    private Profesor mapResultSetToProfesor(ResultSet rs) throws SQLException {
-        return new Profesor(
-            rs.getInt("id_profesor"),
-            rs.getString("nombre_completo"),
-            rs.getString("dni"),
-            rs.getDate("fecha_nacimiento").toLocalDate(), // Convertir java.sql.Date a LocalDate
-            rs.getString("direccion"),
-            rs.getString("telefono"),
-            rs.getString("email"),
-            rs.getDate("fecha_contratacion").toLocalDate(), // Convertir java.sql.Date a LocalDate
-            rs.getBoolean("activo")
+    private Profesor mapResultSetToProfesor(ResultSet rs, int[] col) throws SQLException {
+        Profesor profesor = new Profesor(
+            rs.getInt(col[0]),                               // id_profesor
+            rs.getString(col[1]),                            // nombre_completo
+            rs.getString(col[2]),                            // dni
+            ResultSetMapper.getLocalDate(rs, col[3]),        // fecha_nacimiento
+            rs.getString(col[4]),                            // direccion
+            rs.getString(col[5]),                            // telefono
+            rs.getString(col[6]),                            // email
+            ResultSetMapper.getLocalDate(rs, col[7]),        // fecha_contratacion
+            rs.getBoolean(col[8])                            // activo
         );
+        profesor.setVersion(rs.getInt(col[9]));
+        return profesor;
     }
 }
\ No newline at end of file
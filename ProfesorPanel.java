@@ -1,7 +1,10 @@
 package taichi.gui;
 
 import taichi.controller.ProfesorController;
+import taichi.dao.ConflictoVersionException;
 import taichi.model.Profesor;
+import taichi.util.Asincrono;
+import taichi.util.BusEventos;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -34,6 +37,7 @@ public class ProfesorPanel extends JPanel {
 
     private JTable profesorTable;
     private DefaultTableModel tableModel;
+    private int versionEnEdicion; // Versión del registro cargado en el formulario
 
     // Formateador de fechas
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -109,7 +113,7 @@ public class ProfesorPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         // --- Configuración de la Tabla ---
-        String[] columnNames = {"ID", "Nombre Completo", "DNI", "Fecha Nac.", "Dirección", "Teléfono", "Email", "Fecha Contr.", "Activo"};
+        String[] columnNames = {"ID", "Nombre Completo", "DNI", "Fecha Nac.", "Dirección", "Teléfono", "Email", "Fecha Contr.", "Activo", DialogoConflicto.COLUMNA_VERSION};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -117,6 +121,7 @@ public class ProfesorPanel extends JPanel {
             }
         };
         profesorTable = new JTable(tableModel);
+        DialogoConflicto.ocultarColumnaVersion(profesorTable);
         profesorTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         JScrollPane scrollPane = new JScrollPane(profesorTable);
         add(scrollPane, BorderLayout.CENTER);
@@ -136,6 +141,10 @@ public class ProfesorPanel extends JPanel {
 
         // Cargar profesores al iniciar el panel
         cargarProfesores();
+
+        // Cada alta, modificación o baja confirmada actualiza solo su fila, sin volver a consultar la tabla
+        BusEventos.getInstancia().suscribir(Profesor.class, Asincrono.EN_INTERFAZ,
+            evento -> ActualizadorTabla.aplicar(tableModel, evento, this::filaProfesor));
     }
 
     private void guardarProfesor() {
@@ -162,7 +171,6 @@ public class ProfesorPanel extends JPanel {
 
             JOptionPane.showMessageDialog(this, "Profesor guardado con éxito. ID: " + nuevoProfesor.getIdProfesor(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
             limpiarCampos();
-            cargarProfesores();
         } catch (DateTimeParseException e) {
             JOptionPane.showMessageDialog(this, "Formato de fecha inválido. Use YYYY-MM-DD.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException e) {
@@ -202,11 +210,15 @@ public class ProfesorPanel extends JPanel {
                     chkActivo.isSelected()
             );
 
-            boolean exito = profesorController.actualizarInformacionProfesor(profesorActualizar);
+            profesorActualizar.setVersion(versionEnEdicion);
+
+            Boolean exito = guardarCambios(profesorActualizar);
+            if (exito == null) {
+                return; // Conflicto sin guardar: el usuario sigue en el formulario
+            }
             if (exito) {
                 JOptionPane.showMessageDialog(this, "Profesor actualizado con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 limpiarCampos();
-                cargarProfesores();
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo actualizar el profesor.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -236,7 +248,6 @@ public class ProfesorPanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Profesor dado de baja exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarProfesores();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo dar de baja al profesor.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -263,7 +274,6 @@ public class ProfesorPanel extends JPanel {
                 if (exito) {
                     JOptionPane.showMessageDialog(this, "Profesor activado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     limpiarCampos();
-                    cargarProfesores();
                 } else {
                     JOptionPane.showMessageDialog(this, "No se pudo activar al profesor.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -294,17 +304,7 @@ public class ProfesorPanel extends JPanel {
         try {
             List<Profesor> profesores = profesorController.obtenerTodosLosProfesores();
             for (Profesor profesor : profesores) {
-                tableModel.addRow(new Object[]{
-                    profesor.getIdProfesor(),
-                    profesor.getNombreCompleto(),
-                    profesor.getDni(),
-                    profesor.getFechaNacimiento().format(DATE_FORMATTER),
-                    profesor.getDireccion(),
-                    profesor.getTelefono(),
-                    profesor.getEmail(),
-                    profesor.getFechaContratacion().format(DATE_FORMATTER),
-                    profesor.isActivo() ? "Sí" : "No"
-                });
+                tableModel.addRow(filaProfesor(profesor));
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error al cargar profesores: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -312,9 +312,45 @@ public class ProfesorPanel extends JPanel {
         }
     }
 
+    // Guarda los cambios del formulario; si otro usuario guardó el registro mientras tanto, muestra las diferencias y deja elegir
+    private Boolean guardarCambios(Profesor profesor) throws Exception {
+        try {
+            return profesorController.actualizarInformacionProfesor(profesor);
+        } catch (ConflictoVersionException e) {
+            Profesor guardado = (Profesor) e.getRegistroActual();
+            switch (DialogoConflicto.preguntar(this, tableModel, filaProfesor(profesor), filaProfesor(guardado))) {
+                case SOBRESCRIBIR:
+                    profesor.setVersion(guardado.getVersion());
+                    return guardarCambios(profesor);
+                case USAR_GUARDADO:
+                    DialogoConflicto.seleccionarGuardado(profesorTable, tableModel, guardado.getIdProfesor(), filaProfesor(guardado));
+                    mostrarProfesorSeleccionado();
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private Object[] filaProfesor(Profesor profesor) {
+        return new Object[]{
+            profesor.getIdProfesor(),
+            profesor.getNombreCompleto(),
+            profesor.getDni(),
+            profesor.getFechaNacimiento().format(DATE_FORMATTER),
+            profesor.getDireccion(),
+            profesor.getTelefono(),
+            profesor.getEmail(),
+            profesor.getFechaContratacion().format(DATE_FORMATTER),
+            profesor.isActivo() ? "Sí" : "No",
+            profesor.getVersion()
+        };
+    }
+
     private void mostrarProfesorSeleccionado() {
         int selectedRow = profesorTable.getSelectedRow();
         if (selectedRow >= 0) {
+            versionEnEdicion = DialogoConflicto.versionDeFila(tableModel, selectedRow);
             txtIdProfesor.setText(tableModel.getValueAt(selectedRow, 0).toString());
             txtNombreCompleto.setText(tableModel.getValueAt(selectedRow, 1).toString());
             txtDni.setText(tableModel.getValueAt(selectedRow, 2).toString());
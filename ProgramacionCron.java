@@ -0,0 +1,134 @@
+package taichi.util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Disparador tipo cron de cinco campos: "minuto hora día-del-mes mes día-de-la-semana".
+ *
+ * Cada campo admite '*', valores sueltos, listas ("1,15"), rangos ("1-5") y pasos ("*&#47;10", "8-20/2").
+ * El día de la semana va de 0 a 7 (0 y 7 son domingo). Como en cron, si se restringen tanto el día del mes
+ * como el de la semana, alcanza con que coincida uno de los dos.
+ *
+ * Ejemplos: "15 0 * * *" (todos los días a las 00:15), "0 3 * * 1" (los lunes a las 3), "0 2 1 * *" (el 1° de cada mes).
+ */
+public class ProgramacionCron {
+
+    // Límite de búsqueda de la próxima ejecución (evita ciclos infinitos con expresiones como "0 0 30 2 *")
+    private static final int MAX_ANIOS_BUSQUEDA = 5;
+
+    private final String expresion;
+    private final BitSet minutos;
+    private final BitSet horas;
+    private final BitSet diasMes;
+    private final BitSet meses;
+    private final BitSet diasSemana;
+    private final boolean diaMesLibre;
+    private final boolean diaSemanaLibre;
+
+    /**
+     * @param expresion Expresión cron de cinco campos.
+     * @throws IllegalArgumentException Si la expresión no es válida.
+     */
+    public ProgramacionCron(String expresion) {
+        if (expresion == null) {
+            throw new IllegalArgumentException("La expresión cron no puede ser nula.");
+        }
+        String[] campos = expresion.trim().split("\\s+");
+        if (campos.length != 5) {
+            throw new IllegalArgumentException("La expresión cron debe tener 5 campos (minuto hora día mes día-semana): " + expresion);
+        }
+        this.expresion = expresion.trim();
+        this.minutos = parsearCampo(campos[0], 0, 59, "minuto");
+        this.horas = parsearCampo(campos[1], 0, 23, "hora");
+        this.diasMes = parsearCampo(campos[2], 1, 31, "día del mes");
+        this.meses = parsearCampo(campos[3], 1, 12, "mes");
+        BitSet semana = parsearCampo(campos[4], 0, 7, "día de la semana");
+        if (semana.get(7)) {
+            semana.set(0); // 7 también es domingo
+        }
+        this.diasSemana = semana;
+        this.diaMesLibre = campos[2].equals("*");
+        this.diaSemanaLibre = campos[4].equals("*");
+    }
+
+    /**
+     * Calcula la próxima ejecución estrictamente posterior al instante indicado.
+     * @param despues Instante de referencia.
+     * @return La próxima fecha y hora (al minuto) en que corresponde ejecutar.
+     * @throws IllegalStateException Si la expresión no coincide con ninguna fecha en los próximos años.
+     */
+    public LocalDateTime siguienteEjecucion(LocalDateTime despues) {
+        LocalDateTime t = despues.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        LocalDateTime limite = t.plusYears(MAX_ANIOS_BUSQUEDA);
+        while (t.isBefore(limite)) {
+            if (!meses.get(t.getMonthValue())) {
+                t = t.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!coincideDia(t)) {
+                t = t.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!horas.get(t.getHour())) {
+                t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutos.get(t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t;
+            }
+        }
+        throw new IllegalStateException("La expresión cron '" + expresion + "' no tiene próximas ejecuciones.");
+    }
+
+    public String getExpresion() {
+        return expresion;
+    }
+
+    @Override
+    public String toString() {
+        return expresion;
+    }
+
+    private boolean coincideDia(LocalDateTime t) {
+        boolean mes = diasMes.get(t.getDayOfMonth());
+        boolean semana = diasSemana.get(t.getDayOfWeek().getValue() % 7); // Lunes=1 ... Domingo=0
+        if (diaMesLibre || diaSemanaLibre) {
+            return mes && semana;
+        }
+        return mes || semana;
+    }
+
+    private static BitSet parsearCampo(String campo, int minimo, int maximo, String nombre) {
+        BitSet valores = new BitSet(maximo + 1);
+        for (String parte : campo.split(",")) {
+            try {
+                int paso = 1;
+                String rango = parte;
+                int barra = parte.indexOf('/');
+                if (barra >= 0) {
+                    paso = Integer.parseInt(parte.substring(barra + 1));
+                    rango = parte.substring(0, barra);
+                }
+                int desde;
+                int hasta;
+                if (rango.equals("*")) {
+                    desde = minimo;
+                    hasta = maximo;
+                } else if (rango.indexOf('-') > 0) {
+                    desde = Integer.parseInt(rango.substring(0, rango.indexOf('-')));
+                    hasta = Integer.parseInt(rango.substring(rango.indexOf('-') + 1));
+                } else {
+                    desde = Integer.parseInt(rango);
+                    hasta = barra >= 0 ? maximo : desde; // "5/15" = desde 5 cada 15
+                }
+                if (paso <= 0 || desde < minimo || hasta > maximo || desde > hasta) {
+                    throw new IllegalArgumentException("Valor fuera de rango en el campo " + nombre + ": " + parte);
+                }
+                for (int v = desde; v <= hasta; v += paso) {
+                    valores.set(v);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor inválido en el campo " + nombre + ": " + parte, e);
+            }
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,121 @@
+package taichi.dao;
+
+import taichi.model.CambioRegistrado;
+import taichi.util.EventoCambio;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registro de cambios compartido entre puestos (tabla cambios_registro).
+ *
+ * Los DAOs anotan cada alta, modificación o baja con {@link #registrar} usando la misma conexión de la escritura;
+ * cada cliente consulta periódicamente los cambios posteriores al último que vio ({@link #obtenerDesde})
+ * y actualiza sus cachés y tablas abiertas. Es solo un aviso: si una anotación se perdiera, ese dato quedaría
+ * desactualizado en los otros puestos hasta la próxima recarga, sin afectar a los datos en sí.
+ */
+public class RegistroCambiosDAO {
+
+    /**
+     * Identifica a este puesto (a esta ejecución de la aplicación) en el registro.
+     */
+    public static final String ORIGEN = UUID.randomUUID().toString();
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_cambio", "entidad", "id_entidad", "operacion", "origen", "fecha"
+    };
+
+    /**
+     * Anota un cambio en el registro, en la misma conexión de la escritura que lo produjo.
+     * @param conn Conexión usada para la escritura.
+     * @param entidad Clase de la entidad (se guarda su nombre simple).
+     * @param idEntidad ID de la entidad.
+     * @param operacion Tipo de cambio.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public static void registrar(Connection conn, Class<?> entidad, int idEntidad, EventoCambio.Tipo operacion) throws SQLException {
+        String sql = "INSERT INTO cambios_registro (entidad, id_entidad, operacion, origen) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, entidad.getSimpleName());
+            pstmt.setInt(2, idEntidad);
+            pstmt.setString(3, operacion.name());
+            pstmt.setString(4, ORIGEN);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @return El ID del último cambio registrado (0 si no hay ninguno).
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public long obtenerUltimoId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id_cambio), 0) FROM cambios_registro";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener el último cambio registrado: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene los cambios posteriores a uno dado, en orden.
+     * @param idCambio ID del último cambio ya procesado.
+     * @param limite Cantidad máxima de cambios a devolver.
+     * @return Lista de cambios, del más antiguo al más reciente.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public List<CambioRegistrado> obtenerDesde(long idCambio, int limite) throws SQLException {
+        String sql = "SELECT id_cambio, entidad, id_entidad, operacion, origen, fecha FROM cambios_registro "
+                   + "WHERE id_cambio > ? ORDER BY id_cambio LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, idCambio);
+            pstmt.setInt(2, limite);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToCambio);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error al obtener los cambios registrados: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Borra los cambios anteriores a una fecha (los clientes conectados ya los procesaron).
+     * @param fecha Fecha límite.
+     * @return Cantidad de cambios borrados.
+     * @throws SQLException Si ocurre un error de base de datos.
+     */
+    public int eliminarAnterioresA(LocalDateTime fecha) throws SQLException {
+        String sql = "DELETE FROM cambios_registro WHERE fecha < ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, fecha);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new SQLException("Error al depurar el registro de cambios: " + e.getMessage(), e);
+        }
+    }
+
+    private CambioRegistrado mapResultSetToCambio(ResultSet rs, int[] col) throws SQLException {
+        return new CambioRegistrado(
+            rs.getLong(col[0]),                                 // id_cambio
+            rs.getString(col[1]),                               // entidad
+            rs.getInt(col[2]),                                  // id_entidad
+            rs.getString(col[3]),                               // operacion
+            rs.getString(col[4]),                               // origen
+            ResultSetMapper.getLocalDateTime(rs, col[5])        // fecha
+        );
+    }
+}
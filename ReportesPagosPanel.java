@@ -2,37 +2,68 @@ package taichi.gui;
 
 import taichi.controller.PagoController;
 import taichi.controller.AlumnoController;
+import taichi.controller.CacheReportes;
+import taichi.controller.CacheReportes.TipoReporte;
+import taichi.model.Dinero;
 import taichi.model.Pago;
 import taichi.model.Alumno;
 import taichi.model.PeriodoCuota;
+import taichi.util.EscritorCsv;
+import taichi.util.EscritorFilas;
+import taichi.util.EscritorXlsx;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map; // Para el reporte de deudas
+import java.util.concurrent.ExecutionException;
 
 public class ReportesPagosPanel extends JPanel {
 
     private PagoController pagoController;
     private AlumnoController alumnoController;
+    private CacheReportes cacheReportes;
 
     // Componentes de la UI
     private JComboBox<String> cmbTipoReporte;
     private JButton btnGenerarReporte;
+    private JButton btnRecalcular;
+    private JLabel lblEstadoCache;
+    private Timer temporizadorEstado; // Actualiza la antigüedad mostrada del reporte
+    private CacheReportes.Resultado reporteMostrado;
 
     private JTable reportesTable;
     private DefaultTableModel tableModel;
 
+    // Exportación del detalle de pagos
+    private JTextField txtExportarDesde;
+    private JTextField txtExportarHasta;
+    private JButton btnExportarCsv;
+    private JButton btnExportarXlsx;
+    private JButton btnCancelarExportacion;
+    private JProgressBar barraExportacion;
+    private SwingWorker<Long, Long> exportacionEnCurso;
+    // El worker corta en la próxima fila; no se usa cancel() porque dispararía done() con el archivo todavía abierto
+    private volatile boolean cancelacionPedida;
+
     // Formateador de fechas
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    public ReportesPagosPanel(PagoController pagoController, AlumnoController alumnoController) {
+    public ReportesPagosPanel(PagoController pagoController, AlumnoController alumnoController, CacheReportes cacheReportes) {
         this.pagoController = pagoController;
         this.alumnoController = alumnoController;
+        this.cacheReportes = cacheReportes;
         setLayout(new BorderLayout());
 
         // --- Panel de Controles ---
@@ -47,10 +78,15 @@ public class ReportesPagosPanel extends JPanel {
         };
         cmbTipoReporte = new JComboBox<>(tiposReporte);
         btnGenerarReporte = new JButton("Generar Reporte");
+        btnRecalcular = new JButton("Recalcular");
+        btnRecalcular.setToolTipText("Vuelve a calcular el reporte sin usar el resultado guardado");
+        lblEstadoCache = new JLabel(" ");
 
         controlPanel.add(new JLabel("Seleccione Tipo de Reporte:"));
         controlPanel.add(cmbTipoReporte);
         controlPanel.add(btnGenerarReporte);
+        controlPanel.add(btnRecalcular);
+        controlPanel.add(lblEstadoCache);
 
         add(controlPanel, BorderLayout.NORTH);
 
@@ -66,35 +102,96 @@ public class ReportesPagosPanel extends JPanel {
         JScrollPane scrollPane = new JScrollPane(reportesTable);
         add(scrollPane, BorderLayout.CENTER);
 
+        // --- Panel de Exportación del Detalle de Pagos ---
+        JPanel exportPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        exportPanel.setBorder(BorderFactory.createTitledBorder("Exportar Detalle de Pagos"));
+        LocalDate hoy = LocalDate.now();
+        txtExportarDesde = new JTextField(hoy.withDayOfYear(1).format(DATE_FORMATTER), 10);
+        txtExportarHasta = new JTextField(hoy.format(DATE_FORMATTER), 10);
+        btnExportarCsv = new JButton("Exportar CSV");
+        btnExportarXlsx = new JButton("Exportar Excel");
+        btnCancelarExportacion = new JButton("Cancelar");
+        btnCancelarExportacion.setEnabled(false);
+        barraExportacion = new JProgressBar();
+        barraExportacion.setStringPainted(true);
+        barraExportacion.setString("");
+
+        exportPanel.add(new JLabel("Desde (YYYY-MM-DD):"));
+        exportPanel.add(txtExportarDesde);
+        exportPanel.add(new JLabel("Hasta:"));
+        exportPanel.add(txtExportarHasta);
+        exportPanel.add(btnExportarCsv);
+        exportPanel.add(btnExportarXlsx);
+        exportPanel.add(barraExportacion);
+        exportPanel.add(btnCancelarExportacion);
+
+        add(exportPanel, BorderLayout.SOUTH);
+
         // --- Listener de Eventos ---
-        btnGenerarReporte.addActionListener(e -> generarReporteSeleccionado());
+        btnGenerarReporte.addActionListener(e -> generarReporteSeleccionado(false));
+        btnRecalcular.addActionListener(e -> generarReporteSeleccionado(true));
+        temporizadorEstado = new Timer(30_000, e -> mostrarEstadoCache());
+        btnExportarCsv.addActionListener(e -> exportarDetallePagos(false));
+        btnExportarXlsx.addActionListener(e -> exportarDetallePagos(true));
+        btnCancelarExportacion.addActionListener(e -> {
+            if (exportacionEnCurso != null) {
+                cancelacionPedida = true; // El escritor corta en la próxima fila
+                btnCancelarExportacion.setEnabled(false);
+                barraExportacion.setString("Cancelando...");
+            }
+        });
 
         // Cargar un reporte por defecto al inicio (opcional, podrías dejarla vacía)
         // generarReporteAlumnosPagaronEsteMes();
     }
 
-    private void generarReporteSeleccionado() {
+    /**
+     * Genera el reporte elegido. Si ya se calculó para el mes actual y nada de lo que usa cambió desde entonces,
+     * se muestra el resultado guardado en el {@link CacheReportes}.
+     * @param recalcular true para descartar el resultado guardado y volver a calcularlo.
+     */
+    private void generarReporteSeleccionado(boolean recalcular) {
         String tipoSeleccionado = (String) cmbTipoReporte.getSelectedItem();
         if (tipoSeleccionado == null) {
             JOptionPane.showMessageDialog(this, "Por favor, seleccione un tipo de reporte.", "Advertencia", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
+        TipoReporte tipo;
         switch (tipoSeleccionado) {
             case "Alumnos que Pagaron este Mes":
-                generarReporteAlumnosPagaronEsteMes();
+                tipo = TipoReporte.ALUMNOS_PAGARON_MES;
                 break;
             case "Alumnos que No Pagaron este Mes":
-                generarReporteAlumnosNoPagaronEsteMes();
+                tipo = TipoReporte.ALUMNOS_NO_PAGARON_MES;
                 break;
             case "Alumnos con Deuda (Meses Anteriores)":
-                generarReporteAlumnosConDeudaAnterior();
+                tipo = TipoReporte.DEUDA_ANTERIOR;
                 break;
             case "Ganancias de este Mes":
-                generarReporteGananciasMensuales();
+                tipo = TipoReporte.GANANCIAS_MES;
                 break;
             default:
                 JOptionPane.showMessageDialog(this, "Tipo de reporte no reconocido.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+        }
+        YearMonth currentMonth = YearMonth.now();
+        if (recalcular) {
+            cacheReportes.descartar(tipo, currentMonth, null);
+        }
+
+        switch (tipo) {
+            case ALUMNOS_PAGARON_MES:
+                generarReporteAlumnosPagaronEsteMes(currentMonth);
+                break;
+            case ALUMNOS_NO_PAGARON_MES:
+                generarReporteAlumnosNoPagaronEsteMes(currentMonth);
+                break;
+            case DEUDA_ANTERIOR:
+                generarReporteAlumnosConDeudaAnterior(currentMonth);
+                break;
+            default:
+                generarReporteGananciasMensuales(currentMonth);
         }
     }
 
@@ -103,120 +200,270 @@ public class ReportesPagosPanel extends JPanel {
         tableModel.setRowCount(0); // Limpiar filas existentes
     }
 
-    private void generarReporteAlumnosPagaronEsteMes() {
+    // Muestra las filas del reporte e indica si salieron del caché y hace cuánto se calcularon
+    private void mostrarReporte(CacheReportes.Resultado resultado) {
+        for (Object[] fila : resultado.getFilas()) {
+            tableModel.addRow(fila);
+        }
+        reporteMostrado = resultado;
+        mostrarEstadoCache();
+        temporizadorEstado.restart();
+    }
+
+    private void mostrarEstadoCache() {
+        if (reporteMostrado == null) {
+            lblEstadoCache.setText(" ");
+            return;
+        }
+        long minutos = reporteMostrado.getAntiguedad().toMinutes();
+        String antiguedad = minutos == 0 ? "hace menos de un minuto"
+            : minutos < 60 ? "hace " + minutos + " min"
+            : "hace " + minutos / 60 + " h " + minutos % 60 + " min";
+        lblEstadoCache.setText((reporteMostrado.isDesdeCache() ? "Desde caché (calculado " : "Calculado ahora (")
+            + antiguedad + ")");
+        lblEstadoCache.setToolTipText(reporteMostrado.isDesdeCache()
+            ? "Nada de lo que usa el reporte cambió desde entonces. Use Recalcular para forzar el cálculo." : null);
+    }
+
+    // Si falla el cálculo, la tabla queda vacía y sin estado de caché
+    private void limpiarEstadoCache() {
+        reporteMostrado = null;
+        temporizadorEstado.stop();
+        mostrarEstadoCache();
+    }
+
+    private void generarReporteAlumnosPagaronEsteMes(YearMonth currentMonth) {
         setTableColumns(new String[]{"ID Alumno", "Nombre Alumno", "Monto Total Pagado (este mes)"});
-        YearMonth currentMonth = YearMonth.now();
 
         try {
-            // Suponemos que PagoController tiene un método para esto.
-            // Si no, lo crearemos en la siguiente sección.
-            Map<Alumno, Double> pagosEsteMes = pagoController.obtenerPagosAgrupadosPorAlumnoYMes(currentMonth);
+            CacheReportes.Resultado resultado = cacheReportes.obtener(TipoReporte.ALUMNOS_PAGARON_MES, currentMonth, null, () -> {
+                Map<Alumno, Dinero> pagosEsteMes = pagoController.obtenerPagosAgrupadosPorAlumnoYMes(currentMonth);
+                List<Object[]> filas = new ArrayList<>(pagosEsteMes.size());
+                for (Map.Entry<Alumno, Dinero> entry : pagosEsteMes.entrySet()) {
+                    Alumno alumno = entry.getKey();
+                    Dinero montoPagado = entry.getValue();
+                    filas.add(new Object[]{
+                        alumno.getIdAlumno(),
+                        alumno.getNombreCompleto(),
+                        montoPagado.formatear()
+                    });
+                }
+                return filas;
+            });
+            mostrarReporte(resultado);
 
-            if (pagosEsteMes.isEmpty()) {
+            if (resultado.getFilas().isEmpty()) {
                 JOptionPane.showMessageDialog(this, "Ningún alumno ha realizado pagos este mes.", "Información", JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-
-            for (Map.Entry<Alumno, Double> entry : pagosEsteMes.entrySet()) {
-                Alumno alumno = entry.getKey();
-                Double montoPagado = entry.getValue();
-                tableModel.addRow(new Object[]{
-                    alumno.getIdAlumno(),
-                    alumno.getNombreCompleto(),
-                    String.format("%.2f", montoPagado)
-                });
             }
         } catch (Exception e) {
+            limpiarEstadoCache();
             JOptionPane.showMessageDialog(this, "Error al generar reporte de alumnos que pagaron: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
         }
     }
 
-    private void generarReporteAlumnosNoPagaronEsteMes() {
+    private void generarReporteAlumnosNoPagaronEsteMes(YearMonth currentMonth) {
         setTableColumns(new String[]{"ID Alumno", "Nombre Alumno"});
-        YearMonth currentMonth = YearMonth.now();
 
         try {
-            // Suponemos que AlumnoController tiene un método para esto,
-            // que internamente usa PagoController.
-            List<Alumno> alumnosNoPagaron = alumnoController.obtenerAlumnosNoPagaronEnMes(currentMonth);
+            CacheReportes.Resultado resultado = cacheReportes.obtener(TipoReporte.ALUMNOS_NO_PAGARON_MES, currentMonth, null, () -> {
+                List<Alumno> alumnosNoPagaron = alumnoController.obtenerAlumnosNoPagaronEnMes(currentMonth);
+                List<Object[]> filas = new ArrayList<>(alumnosNoPagaron.size());
+                for (Alumno alumno : alumnosNoPagaron) {
+                    filas.add(new Object[]{
+                        alumno.getIdAlumno(),
+                        alumno.getNombreCompleto()
+                    });
+                }
+                return filas;
+            });
+            mostrarReporte(resultado);
 
-            if (alumnosNoPagaron.isEmpty()) {
+            if (resultado.getFilas().isEmpty()) {
                 JOptionPane.showMessageDialog(this, "Todos los alumnos han pagado este mes (o no hay alumnos registrados).", "Información", JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-
-            for (Alumno alumno : alumnosNoPagaron) {
-                tableModel.addRow(new Object[]{
-                    alumno.getIdAlumno(),
-                    alumno.getNombreCompleto()
-                });
             }
         } catch (Exception e) {
+            limpiarEstadoCache();
             JOptionPane.showMessageDialog(this, "Error al generar reporte de alumnos que no pagaron: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
         }
     }
 
-    private void generarReporteAlumnosConDeudaAnterior() {
+    private void generarReporteAlumnosConDeudaAnterior(YearMonth currentMonth) {
         setTableColumns(new String[]{"ID Alumno", "Nombre Alumno", "Períodos Adeudados", "Monto Total Adeudado"});
-        YearMonth currentMonth = YearMonth.now();
 
         try {
-            // Suponemos que AlumnoController tiene un método que devuelve un mapa de alumnos y sus deudas.
-            Map<Alumno, Map<PeriodoCuota, Double>> alumnosConDeuda = alumnoController.obtenerAlumnosConDeudaAnteriorA(currentMonth);
+            CacheReportes.Resultado resultado = cacheReportes.obtener(TipoReporte.DEUDA_ANTERIOR, currentMonth, null,
+                () -> filasDeudaAnterior(alumnoController.obtenerAlumnosConDeudaAnteriorA(currentMonth)));
+            mostrarReporte(resultado);
 
-            if (alumnosConDeuda.isEmpty()) {
+            if (resultado.getFilas().isEmpty()) {
                 JOptionPane.showMessageDialog(this, "No hay alumnos con deudas de meses anteriores.", "Información", JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-
-            for (Map.Entry<Alumno, Map<PeriodoCuota, Double>> entry : alumnosConDeuda.entrySet()) {
-                Alumno alumno = entry.getKey();
-                Map<PeriodoCuota, Double> deudas = entry.getValue();
-
-                StringBuilder periodosAdeudados = new StringBuilder();
-                double montoTotalAdeudado = 0.0;
-
-                for (Map.Entry<PeriodoCuota, Double> deudaEntry : deudas.entrySet()) {
-                    periodosAdeudados.append(deudaEntry.getKey().getNombrePeriodo())
-                                     .append(" ($")
-                                     .append(String.format("%.2f", deudaEntry.getValue()))
-                                     .append("), ");
-                    montoTotalAdeudado += deudaEntry.getValue();
-                }
-                // Eliminar la última coma y espacio si hay períodos
-                if (periodosAdeudados.length() > 0) {
-                    periodosAdeudados.setLength(periodosAdeudados.length() - 2);
-                }
-
-                tableModel.addRow(new Object[]{
-                    alumno.getIdAlumno(),
-                    alumno.getNombreCompleto(),
-                    periodosAdeudados.toString(),
-                    String.format("%.2f", montoTotalAdeudado)
-                });
             }
         } catch (Exception e) {
+            limpiarEstadoCache();
             JOptionPane.showMessageDialog(this, "Error al generar reporte de deudas: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
         }
     }
 
-    private void generarReporteGananciasMensuales() {
+    // Una fila por alumno con los períodos adeudados y el total
+    private List<Object[]> filasDeudaAnterior(Map<Alumno, Map<PeriodoCuota, Dinero>> alumnosConDeuda) {
+        List<Object[]> filas = new ArrayList<>(alumnosConDeuda.size());
+        for (Map.Entry<Alumno, Map<PeriodoCuota, Dinero>> entry : alumnosConDeuda.entrySet()) {
+            Alumno alumno = entry.getKey();
+            Map<PeriodoCuota, Dinero> deudas = entry.getValue();
+
+            StringBuilder periodosAdeudados = new StringBuilder();
+            long centavosAdeudados = 0; // Se acumula en centavos, sin crear un importe por período
+
+            for (Map.Entry<PeriodoCuota, Dinero> deudaEntry : deudas.entrySet()) {
+                periodosAdeudados.append(deudaEntry.getKey().getNombrePeriodo())
+                                 .append(" ($")
+                                 .append(deudaEntry.getValue().formatear())
+                                 .append("), ");
+                centavosAdeudados = Dinero.sumar(centavosAdeudados, deudaEntry.getValue().getCentavos());
+            }
+            // Eliminar la última coma y espacio si hay períodos
+            if (periodosAdeudados.length() > 0) {
+                periodosAdeudados.setLength(periodosAdeudados.length() - 2);
+            }
+
+            filas.add(new Object[]{
+                alumno.getIdAlumno(),
+                alumno.getNombreCompleto(),
+                periodosAdeudados.toString(),
+                Dinero.formatear(centavosAdeudados)
+            });
+        }
+        return filas;
+    }
+
+    private void generarReporteGananciasMensuales(YearMonth currentMonth) {
         setTableColumns(new String[]{"Mes/Año", "Ganancia Total"});
-        YearMonth currentMonth = YearMonth.now();
 
         try {
-            double ganancias = pagoController.obtenerGananciasPorMes(currentMonth);
-            tableModel.addRow(new Object[]{
-                currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy")),
-                String.format("%.2f", ganancias)
+            CacheReportes.Resultado resultado = cacheReportes.obtener(TipoReporte.GANANCIAS_MES, currentMonth, null, () -> {
+                Dinero ganancias = pagoController.obtenerGananciasPorMes(currentMonth);
+                List<Object[]> filas = new ArrayList<>(1);
+                filas.add(new Object[]{
+                    currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy")),
+                    ganancias.formatear()
+                });
+                return filas;
             });
+            mostrarReporte(resultado);
             JOptionPane.showMessageDialog(this, "Reporte de ganancias generado con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
         } catch (Exception e) {
+            limpiarEstadoCache();
             JOptionPane.showMessageDialog(this, "Error al generar reporte de ganancias: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exporta el detalle de pagos del rango elegido a CSV o Excel. Las filas van del cursor de la base de datos
+     * directo al archivo en segundo plano, así que el tamaño del rango no afecta la memoria ni congela la ventana.
+     */
+    private void exportarDetallePagos(boolean excel) {
+        LocalDate desde;
+        LocalDate hasta;
+        try {
+            desde = LocalDate.parse(txtExportarDesde.getText().trim(), DATE_FORMATTER);
+            hasta = LocalDate.parse(txtExportarHasta.getText().trim(), DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Formato de fecha inválido. Use YYYY-MM-DD.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (desde.isAfter(hasta)) {
+            JOptionPane.showMessageDialog(this, "La fecha desde no puede ser posterior a la fecha hasta.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        String extension = excel ? ".xlsx" : ".csv";
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("pagos_" + desde + "_" + hasta + extension));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File elegido = chooser.getSelectedFile();
+        File archivo = elegido.getName().toLowerCase().endsWith(extension) ? elegido : new File(elegido.getPath() + extension);
+
+        setExportando(true);
+        cancelacionPedida = false;
+        barraExportacion.setIndeterminate(true);
+        barraExportacion.setString("Contando pagos...");
+
+        exportacionEnCurso = new SwingWorker<Long, Long>() {
+            private long total;
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                total = pagoController.contarPagosParaExportar(desde, hasta);
+                publish(0L);
+                try {
+                    try (OutputStream salida = new FileOutputStream(archivo);
+                         EscritorFilas destino = excel ? new EscritorXlsx(salida, "Pagos") : new EscritorCsv(salida)) {
+                        // Corta la exportación en la próxima fila si el usuario la canceló
+                        EscritorFilas escritor = new EscritorFilas() {
+                            @Override
+                            public void escribirFila(Object... valores) throws IOException {
+                                if (cancelacionPedida) {
+                                    throw new InterruptedIOException("Exportación cancelada por el usuario.");
+                                }
+                                destino.escribirFila(valores);
+                            }
+
+                            @Override
+                            public void close() {
+                                // destino lo cierra el try
+                            }
+                        };
+                        return pagoController.exportarPagos(desde, hasta, escritor, this::publish);
+                    }
+                } catch (Exception e) {
+                    archivo.delete(); // Quedó incompleto; el try ya cerró el archivo, así que se puede borrar
+                    throw e;
+                }
+            }
+
+            @Override
+            protected void process(List<Long> avances) {
+                long escritas = avances.get(avances.size() - 1);
+                barraExportacion.setIndeterminate(false);
+                barraExportacion.setMaximum((int) Math.max(1, Math.min(total, Integer.MAX_VALUE)));
+                barraExportacion.setValue((int) Math.min(escritas, Integer.MAX_VALUE));
+                barraExportacion.setString(escritas + " / " + total + " pagos");
+            }
+
+            @Override
+            protected void done() {
+                setExportando(false);
+                barraExportacion.setIndeterminate(false);
+                try {
+                    long exportados = get();
+                    barraExportacion.setValue(barraExportacion.getMaximum());
+                    barraExportacion.setString(exportados + " pagos exportados");
+                    JOptionPane.showMessageDialog(ReportesPagosPanel.this, "Se exportaron " + exportados + " pagos a " + archivo.getName(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    barraExportacion.setValue(0);
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    if (cancelacionPedida) { // El worker cortó y ya borró el archivo
+                        barraExportacion.setString("Exportación cancelada");
+                        return;
+                    }
+                    barraExportacion.setString("");
+                    JOptionPane.showMessageDialog(ReportesPagosPanel.this, "Error al exportar los pagos: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    e.printStackTrace();
+                }
+            }
+        };
+        exportacionEnCurso.execute();
+    }
+
+    private void setExportando(boolean exportando) {
+        btnExportarCsv.setEnabled(!exportando);
+        btnExportarXlsx.setEnabled(!exportando);
+        btnCancelarExportacion.setEnabled(exportando);
+    }
+}
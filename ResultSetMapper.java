@@ -0,0 +1,152 @@
+package taichi.dao;
+
+import taichi.model.Dinero;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utilidades compartidas por todos los DAOs para recorrer un ResultSet con un {@link RowMapper}.
+ *
+ * - Los índices de columna se resuelven una única vez por ResultSet con {@code findColumn}.
+ * - Cada columna se lee una sola vez (nada de {@code rs.getDate(x) != null ? rs.getDate(x)... : null}).
+ * - Las fechas se leen directamente como {@link LocalDate}/{@link LocalTime} mediante
+ *   {@code getObject(indice, Clase)} (JDBC 4.2), evitando el objeto intermedio {@code java.sql.Date}.
+ *   Si el driver no lo soporta se recurre a la conversión clásica.
+ */
+public final class ResultSetMapper {
+
+    // Se desactiva la primera vez que el driver rechaza getObject(int, Class)
+    private static volatile boolean getObjectSoportado = true;
+
+    private ResultSetMapper() {
+    }
+
+    /**
+     * Resuelve los índices JDBC de las columnas indicadas.
+     * @param rs El ResultSet recién ejecutado.
+     * @param columnas Nombres (o alias) de las columnas, en el orden que espera el mapper.
+     * @return Arreglo con el índice de cada columna, en el mismo orden.
+     * @throws SQLException Si alguna columna no existe en el ResultSet.
+     */
+    public static int[] resolverColumnas(ResultSet rs, String[] columnas) throws SQLException {
+        int[] indices = new int[columnas.length];
+        for (int i = 0; i < columnas.length; i++) {
+            indices[i] = rs.findColumn(columnas[i]);
+        }
+        return indices;
+    }
+
+    /**
+     * Mapea todas las filas restantes del ResultSet.
+     */
+    public static <T> List<T> mapearLista(ResultSet rs, String[] columnas, RowMapper<T> mapper) throws SQLException {
+        return mapearLista(rs, columnas, mapper, new ArrayList<>());
+    }
+
+    /**
+     * Mapea todas las filas restantes del ResultSet agregándolas a la lista destino.
+     * @return La misma lista destino, para poder encadenar.
+     */
+    public static <T> List<T> mapearLista(ResultSet rs, String[] columnas, RowMapper<T> mapper,
+                                          List<T> resultado) throws SQLException {
+        if (!rs.next()) {
+            return resultado; // Sin filas: no hace falta resolver columnas
+        }
+        int[] col = resolverColumnas(rs, columnas);
+        do {
+            resultado.add(mapper.mapRow(rs, col));
+        } while (rs.next());
+        return resultado;
+    }
+
+    /**
+     * Recorre las filas restantes del ResultSet entregándolas de a una al consumidor, sin acumularlas.
+     * @return Cantidad de filas recorridas.
+     */
+    public static <T> long recorrer(ResultSet rs, String[] columnas, RowMapper<T> mapper,
+                                    ConsumidorFila<? super T> consumidor) throws SQLException, IOException {
+        if (!rs.next()) {
+            return 0;
+        }
+        int[] col = resolverColumnas(rs, columnas);
+        long filas = 0;
+        do {
+            consumidor.aceptar(mapper.mapRow(rs, col));
+            filas++;
+        } while (rs.next());
+        return filas;
+    }
+
+    /**
+     * Mapea la primera fila del ResultSet, o devuelve null si no hay filas.
+     */
+    public static <T> T mapearPrimero(ResultSet rs, String[] columnas, RowMapper<T> mapper) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        return mapper.mapRow(rs, resolverColumnas(rs, columnas));
+    }
+
+    /**
+     * Lee una columna DATE como LocalDate (null si la columna es NULL), leyéndola una sola vez.
+     */
+    public static LocalDate getLocalDate(ResultSet rs, int indice) throws SQLException {
+        if (getObjectSoportado) {
+            try {
+                return rs.getObject(indice, LocalDate.class);
+            } catch (SQLFeatureNotSupportedException e) {
+                getObjectSoportado = false;
+            }
+        }
+        Date fecha = rs.getDate(indice);
+        return fecha != null ? fecha.toLocalDate() : null;
+    }
+
+    /**
+     * Lee una columna TIME como LocalTime (null si la columna es NULL), leyéndola una sola vez.
+     */
+    public static LocalTime getLocalTime(ResultSet rs, int indice) throws SQLException {
+        if (getObjectSoportado) {
+            try {
+                return rs.getObject(indice, LocalTime.class);
+            } catch (SQLFeatureNotSupportedException e) {
+                getObjectSoportado = false;
+            }
+        }
+        Time hora = rs.getTime(indice);
+        return hora != null ? hora.toLocalTime() : null;
+    }
+
+    /**
+     * Lee una columna DATETIME/TIMESTAMP como LocalDateTime (null si la columna es NULL), leyéndola una sola vez.
+     */
+    public static LocalDateTime getLocalDateTime(ResultSet rs, int indice) throws SQLException {
+        if (getObjectSoportado) {
+            try {
+                return rs.getObject(indice, LocalDateTime.class);
+            } catch (SQLFeatureNotSupportedException e) {
+                getObjectSoportado = false;
+            }
+        }
+        Timestamp instante = rs.getTimestamp(indice);
+        return instante != null ? instante.toLocalDateTime() : null;
+    }
+
+    /**
+     * Lee una columna DECIMAL de importe como {@link Dinero} (null si la columna es NULL), sin pasar por double.
+     */
+    public static Dinero getDinero(ResultSet rs, int indice) throws SQLException {
+        return Dinero.de(rs.getBigDecimal(indice));
+    }
+}
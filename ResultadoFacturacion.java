@@ -0,0 +1,69 @@
+package taichi.model;
+
+/**
+ * Resultado de una corrida de facturación mensual: cuántas cuotas se generaron para un período,
+ * en cuántos lotes y a qué velocidad.
+ */
+public class ResultadoFacturacion {
+
+    private final int idPeriodo;
+    private final boolean reanudada;      // true si continuó desde el punto de control de una corrida interrumpida
+    private final int lotes;
+    private final int alumnosProcesados;
+    private final int cuotasGeneradas;    // Cuotas nuevas; las que ya existían no se vuelven a crear
+    private final long duracionMillis;
+
+    public ResultadoFacturacion(int idPeriodo, boolean reanudada, int lotes, int alumnosProcesados,
+                                int cuotasGeneradas, long duracionMillis) {
+        this.idPeriodo = idPeriodo;
+        this.reanudada = reanudada;
+        this.lotes = lotes;
+        this.alumnosProcesados = alumnosProcesados;
+        this.cuotasGeneradas = cuotasGeneradas;
+        this.duracionMillis = duracionMillis;
+    }
+
+    public int getIdPeriodo() {
+        return idPeriodo;
+    }
+
+    public boolean isReanudada() {
+        return reanudada;
+    }
+
+    public int getLotes() {
+        return lotes;
+    }
+
+    public int getAlumnosProcesados() {
+        return alumnosProcesados;
+    }
+
+    public int getCuotasGeneradas() {
+        return cuotasGeneradas;
+    }
+
+    public long getDuracionMillis() {
+        return duracionMillis;
+    }
+
+    /**
+     * @return Alumnos procesados por segundo (throughput de la corrida).
+     */
+    public double getAlumnosPorSegundo() {
+        return duracionMillis > 0 ? alumnosProcesados * 1000.0 / duracionMillis : alumnosProcesados;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoFacturacion{" +
+               "idPeriodo=" + idPeriodo +
+               ", reanudada=" + reanudada +
+               ", lotes=" + lotes +
+               ", alumnosProcesados=" + alumnosProcesados +
+               ", cuotasGeneradas=" + cuotasGeneradas +
+               ", duracionMillis=" + duracionMillis +
+               ", alumnosPorSegundo=" + String.format("%.1f", getAlumnosPorSegundo()) +
+               '}';
+    }
+}
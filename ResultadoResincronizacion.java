@@ -0,0 +1,70 @@
+package taichi.model;
+
+import java.util.List;
+
+/**
+ * Resultado de enviar a la BD lo que se anotó sin conexión: cuántas operaciones de cada tipo se guardaron
+ * y cuáles tuvieron conflictos (no se pudieron guardar, o se guardaron pero conviene revisarlas).
+ */
+public class ResultadoResincronizacion {
+
+    private final int pagos;
+    private final int asistencias;        // Planillas de asistencia (una por clase y fecha)
+    private final int documentos;
+    private final List<String> conflictos;
+    private final int pendientes;         // Quedaron sin enviar porque se volvió a perder la conexión
+    private final long duracionMillis;
+
+    public ResultadoResincronizacion(int pagos, int asistencias, int documentos, List<String> conflictos,
+                                     int pendientes, long duracionMillis) {
+        this.pagos = pagos;
+        this.asistencias = asistencias;
+        this.documentos = documentos;
+        this.conflictos = conflictos;
+        this.pendientes = pendientes;
+        this.duracionMillis = duracionMillis;
+    }
+
+    public int getPagos() {
+        return pagos;
+    }
+
+    public int getAsistencias() {
+        return asistencias;
+    }
+
+    public int getDocumentos() {
+        return documentos;
+    }
+
+    public List<String> getConflictos() {
+        return conflictos;
+    }
+
+    public int getPendientes() {
+        return pendientes;
+    }
+
+    public long getDuracionMillis() {
+        return duracionMillis;
+    }
+
+    /**
+     * @return true si se envió todo lo anotado.
+     */
+    public boolean isCompleta() {
+        return pendientes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoResincronizacion{" +
+               "pagos=" + pagos +
+               ", asistencias=" + asistencias +
+               ", documentos=" + documentos +
+               ", conflictos=" + conflictos.size() +
+               ", pendientes=" + pendientes +
+               ", duracionMillis=" + duracionMillis +
+               '}';
+    }
+}
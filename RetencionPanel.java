@@ -0,0 +1,239 @@
+package taichi.gui;
+
+import taichi.controller.AlumnoController;
+import taichi.model.MatrizCohortes;
+import taichi.util.CsvUtil;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reporte de retención por cohortes: los alumnos se agrupan por mes de alta y se muestra qué parte de cada
+ * cohorte siguió pagando mes a mes, cuántos se dieron de baja y cuántos volvieron. Se exporta a CSV.
+ */
+public class RetencionPanel extends JPanel {
+
+    private static final String METRICA_RETENCION = "Retención (meses desde el alta)";
+    private static final String METRICA_BAJAS = "Bajas por mes";
+    private static final String METRICA_REACTIVACIONES = "Reactivaciones por mes";
+
+    private static final DateTimeFormatter MES_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private AlumnoController alumnoController;
+
+    // Componentes de la UI
+    private JTextField txtDesde;
+    private JTextField txtHasta;
+    private JComboBox<String> cmbMetrica;
+    private JLabel lblResumen;
+
+    private JButton btnActualizar;
+    private JButton btnExportarCsv;
+
+    private JTable retencionTable;
+    private DefaultTableModel tableModel;
+
+    private MatrizCohortes matriz; // Última matriz cargada
+
+    public RetencionPanel(AlumnoController alumnoController) {
+        this.alumnoController = alumnoController;
+        setLayout(new BorderLayout());
+
+        // --- Panel de Filtros ---
+        JPanel filtroPanel = new JPanel(new GridBagLayout());
+        filtroPanel.setBorder(BorderFactory.createTitledBorder("Retención de Alumnos por Cohorte"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5); // Márgenes
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        YearMonth mesActual = YearMonth.now();
+        txtDesde = new JTextField(mesActual.minusMonths(11).format(MES_FORMATTER), 8);
+        txtHasta = new JTextField(mesActual.format(MES_FORMATTER), 8);
+        cmbMetrica = new JComboBox<>(new String[]{METRICA_RETENCION, METRICA_BAJAS, METRICA_REACTIVACIONES});
+        lblResumen = new JLabel(" ");
+
+        int row = 0;
+        gbc.gridx = 0; gbc.gridy = row; filtroPanel.add(new JLabel("Desde (YYYY-MM):"), gbc);
+        gbc.gridx = 1; gbc.gridy = row++; filtroPanel.add(txtDesde, gbc);
+
+        gbc.gridx = 0; gbc.gridy = row; filtroPanel.add(new JLabel("Hasta (YYYY-MM):"), gbc);
+        gbc.gridx = 1; gbc.gridy = row++; filtroPanel.add(txtHasta, gbc);
+
+        gbc.gridx = 0; gbc.gridy = row; filtroPanel.add(new JLabel("Mostrar:"), gbc);
+        gbc.gridx = 1; gbc.gridy = row++; filtroPanel.add(cmbMetrica, gbc);
+
+        gbc.gridx = 0; gbc.gridy = row; gbc.gridwidth = 2; filtroPanel.add(lblResumen, gbc);
+        gbc.gridwidth = 1; // Reset gridwidth
+
+        // --- Panel de Botones ---
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        btnActualizar = new JButton("Actualizar");
+        btnExportarCsv = new JButton("Exportar CSV");
+        buttonPanel.add(btnActualizar);
+        buttonPanel.add(btnExportarCsv);
+
+        add(filtroPanel, BorderLayout.NORTH);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // --- Configuración de la Tabla ---
+        tableModel = new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Hacer que las celdas de la tabla no sean editables
+            }
+        };
+        retencionTable = new JTable(tableModel);
+        retencionTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF); // Con muchos meses se desplaza en horizontal
+        add(new JScrollPane(retencionTable), BorderLayout.CENTER);
+
+        // --- Listeners de Eventos ---
+        cmbMetrica.addActionListener(e -> mostrarMetrica());
+        btnActualizar.addActionListener(e -> cargarMatriz());
+        btnExportarCsv.addActionListener(e -> exportarCsv());
+
+        cargarMatriz();
+    }
+
+    // La matriz se arma en segundo plano para no congelar la ventana
+    private void cargarMatriz() {
+        YearMonth desde;
+        YearMonth hasta;
+        try {
+            desde = YearMonth.parse(txtDesde.getText().trim(), MES_FORMATTER);
+            hasta = YearMonth.parse(txtHasta.getText().trim(), MES_FORMATTER);
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Formato de mes inválido. Use YYYY-MM.", "Error de Formato", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        btnActualizar.setEnabled(false);
+        lblResumen.setText("Cargando...");
+        new SwingWorker<MatrizCohortes, Void>() {
+            @Override
+            protected MatrizCohortes doInBackground() throws Exception {
+                return alumnoController.obtenerMatrizCohortes(desde, hasta);
+            }
+
+            @Override
+            protected void done() {
+                btnActualizar.setEnabled(true);
+                try {
+                    matriz = get();
+                    mostrarMetrica();
+                } catch (InterruptedException | ExecutionException e) {
+                    lblResumen.setText(" ");
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(RetencionPanel.this, "Error al cargar la retención de alumnos: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    // Arma la tabla de la métrica elegida con la matriz ya cargada (cambiar de métrica no vuelve a consultar)
+    private void mostrarMetrica() {
+        if (matriz == null) {
+            return;
+        }
+        String metrica = (String) cmbMetrica.getSelectedItem();
+        int meses = matriz.getCantidadMeses();
+
+        Object[] columnas = new Object[2 + meses];
+        columnas[0] = "Cohorte (alta)";
+        columnas[1] = "Alumnos";
+        for (int m = 0; m < meses; m++) {
+            columnas[2 + m] = METRICA_RETENCION.equals(metrica) ? "Mes " + m : matriz.getMes(m).format(MES_FORMATTER);
+        }
+        tableModel.setDataVector(new Object[0][], columnas);
+
+        int cohortesConAlumnos = 0;
+        for (int c = 0; c < meses; c++) {
+            if (matriz.getTamanioCohorte(c) == 0) {
+                continue;
+            }
+            cohortesConAlumnos++;
+            Object[] fila = new Object[2 + meses];
+            fila[0] = matriz.getMes(c).format(MES_FORMATTER);
+            fila[1] = matriz.getTamanioCohorte(c);
+            for (int m = 0; m < meses; m++) {
+                if (METRICA_RETENCION.equals(metrica)) {
+                    fila[2 + m] = porcentaje(matriz.getRetencion(c, m), -1);
+                } else if (m <= c) {
+                    fila[2 + m] = ""; // Antes del alta (o el mismo mes) no hay bajas ni reactivaciones
+                } else if (METRICA_BAJAS.equals(metrica)) {
+                    fila[2 + m] = porcentaje(matriz.getTasaBajas(c, m), matriz.getBajas(c, m));
+                } else {
+                    fila[2 + m] = porcentaje(matriz.getTasaReactivacion(c, m), matriz.getReactivados(c, m));
+                }
+            }
+            tableModel.addRow(fila);
+        }
+
+        // Bajas y reactivaciones: fila con el total de todas las cohortes en cada mes
+        if (!METRICA_RETENCION.equals(metrica) && cohortesConAlumnos > 0) {
+            Object[] total = new Object[2 + meses];
+            total[0] = "Total";
+            total[1] = matriz.getCantidadAlumnos();
+            for (int m = 0; m < meses; m++) {
+                total[2 + m] = porcentaje(METRICA_BAJAS.equals(metrica) ? matriz.getTasaBajasMes(m) : matriz.getTasaReactivacionMes(m), -1);
+            }
+            tableModel.addRow(total);
+        }
+
+        lblResumen.setText(matriz.getCantidadAlumnos() + " alumnos dados de alta entre " + matriz.getMes(0).format(MES_FORMATTER)
+                + " y " + matriz.getMes(meses - 1).format(MES_FORMATTER) + ", en " + cohortesConAlumnos + " cohortes.");
+    }
+
+    // Proporción como porcentaje con un decimal; entre paréntesis la cantidad de alumnos, si se indica (>= 0)
+    private static String porcentaje(double proporcion, int cantidad) {
+        if (Double.isNaN(proporcion)) {
+            return "";
+        }
+        String texto = String.format("%.1f %%", proporcion * 100);
+        return cantidad >= 0 ? texto + " (" + cantidad + ")" : texto;
+    }
+
+    private void exportarCsv() {
+        if (matriz == null || tableModel.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this, "No hay datos para exportar.", "Advertencia", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("retencion_alumnos.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File archivo = chooser.getSelectedFile();
+
+        try (Writer writer = Files.newBufferedWriter(archivo.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(CsvUtil.BOM_UTF8);
+            Object[] encabezado = new Object[tableModel.getColumnCount()];
+            for (int col = 0; col < encabezado.length; col++) {
+                encabezado[col] = tableModel.getColumnName(col);
+            }
+            CsvUtil.escribirFila(writer, encabezado);
+
+            for (int row = 0; row < tableModel.getRowCount(); row++) {
+                Object[] fila = new Object[encabezado.length];
+                for (int col = 0; col < fila.length; col++) {
+                    fila[col] = tableModel.getValueAt(row, col);
+                }
+                CsvUtil.escribirFila(writer, fila);
+            }
+            JOptionPane.showMessageDialog(this, "Archivo exportado con éxito: " + archivo.getName(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error al exportar el archivo: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+}
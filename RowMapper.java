@@ -0,0 +1,23 @@
+package taichi.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto del modelo.
+ * Recibe los índices de columna ya resueltos (ver {@link ResultSetMapper#resolverColumnas}),
+ * de modo que la búsqueda por nombre se hace una sola vez por ResultSet y no una vez por fila.
+ *
+ * @param <T> Tipo de la entidad que se construye a partir de la fila.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * @param rs El ResultSet posicionado en la fila a mapear.
+     * @param col Índices JDBC (base 1) de cada columna, en el orden en que el DAO las declaró.
+     * @return La entidad construida a partir de la fila.
+     * @throws SQLException Si ocurre un error al leer del ResultSet.
+     */
+    T mapRow(ResultSet rs, int[] col) throws SQLException;
+}
@@ -0,0 +1,268 @@
+package taichi.gui;
+
+import taichi.controller.AlumnoController;
+import taichi.model.Alumno;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Campo para elegir un alumno escribiendo parte de su nombre o DNI.
+ *
+ * Reemplaza a los JComboBox que cargaban todos los alumnos al abrir el panel: aquí solo se muestran
+ * los pocos alumnos que coinciden con lo escrito. La búsqueda se lanza cuando el usuario deja de escribir
+ * por un instante (DEMORA_MS) y corre en segundo plano sobre el índice de búsqueda compartido del
+ * {@link AlumnoController}, por lo que la interfaz nunca se bloquea.
+ *
+ * Cuando cambia la selección se dispara el evento de propiedad {@link #PROPIEDAD_ALUMNO}.
+ */
+public class SelectorAlumno extends JPanel {
+
+    public static final String PROPIEDAD_ALUMNO = "alumnoSeleccionado";
+
+    private static final Logger LOGGER = Logger.getLogger(SelectorAlumno.class.getName());
+    private static final int DEMORA_MS = 250;      // Pausa de tipeo antes de buscar
+    private static final int MAX_RESULTADOS = 8;   // Tamaño de la lista de sugerencias
+
+    private final AlumnoController alumnoController;
+
+    // Componentes de la UI
+    private final JTextField txtBusqueda;
+    private final DefaultListModel<Alumno> modeloResultados;
+    private final JList<Alumno> lstResultados;
+    private final JPopupMenu popupResultados;
+    private final Timer temporizador;
+
+    private Alumno alumnoSeleccionado;
+    private int numeroConsulta = 0;         // Permite descartar resultados de búsquedas ya superadas
+    private boolean escribiendoSeleccion;   // Evita que mostrar el alumno elegido dispare otra búsqueda
+
+    public SelectorAlumno(AlumnoController alumnoController) {
+        this.alumnoController = alumnoController;
+        setLayout(new BorderLayout());
+
+        txtBusqueda = new JTextField(20);
+        txtBusqueda.setToolTipText("Escriba parte del nombre o del DNI del alumno");
+        add(txtBusqueda, BorderLayout.CENTER);
+
+        modeloResultados = new DefaultListModel<>();
+        lstResultados = new JList<>(modeloResultados);
+        lstResultados.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lstResultados.setFocusable(false);
+        lstResultados.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof Alumno) {
+                    setText(describir((Alumno) value));
+                }
+                return this;
+            }
+        });
+
+        popupResultados = new JPopupMenu();
+        popupResultados.setFocusable(false); // El foco queda en el campo de texto mientras se escribe
+        popupResultados.add(new JScrollPane(lstResultados));
+
+        temporizador = new Timer(DEMORA_MS, e -> buscar());
+        temporizador.setRepeats(false);
+
+        // --- Listeners de Eventos ---
+        txtBusqueda.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { textoModificado(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { textoModificado(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { textoModificado(); }
+        });
+
+        txtBusqueda.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        moverSeleccion(1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        moverSeleccion(-1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (popupResultados.isVisible() && lstResultados.getSelectedValue() != null) {
+                            elegir(lstResultados.getSelectedValue());
+                            e.consume();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        popupResultados.setVisible(false);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+
+        lstResultados.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                Alumno alumno = lstResultados.getSelectedValue();
+                if (alumno != null) {
+                    elegir(alumno);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return El alumno elegido, o null si no se eligió ninguno (o se modificó el texto después de elegir).
+     */
+    public Alumno getAlumnoSeleccionado() {
+        return alumnoSeleccionado;
+    }
+
+    /**
+     * Muestra un alumno como seleccionado, sin buscar. Con null limpia el campo.
+     */
+    public void setAlumnoSeleccionado(Alumno alumno) {
+        Alumno anterior = alumnoSeleccionado;
+        alumnoSeleccionado = alumno;
+        escribiendoSeleccion = true;
+        try {
+            txtBusqueda.setText(alumno != null ? describir(alumno) : "");
+        } finally {
+            escribiendoSeleccion = false;
+        }
+        temporizador.stop();
+        numeroConsulta++; // Descarta cualquier búsqueda en curso
+        popupResultados.setVisible(false);
+        firePropertyChange(PROPIEDAD_ALUMNO, anterior, alumno);
+    }
+
+    /**
+     * Selecciona un alumno a partir de su ID (por ejemplo, al elegir una fila de una tabla).
+     * La consulta a la base de datos se hace en segundo plano.
+     */
+    public void seleccionarPorId(int idAlumno) {
+        if (alumnoSeleccionado != null && alumnoSeleccionado.getIdAlumno() == idAlumno) {
+            return;
+        }
+        final int consulta = ++numeroConsulta;
+        new SwingWorker<Alumno, Void>() {
+            @Override
+            protected Alumno doInBackground() throws Exception {
+                return alumnoController.obtenerAlumnoPorId(idAlumno);
+            }
+
+            @Override
+            protected void done() {
+                if (consulta != numeroConsulta) {
+                    return; // El usuario ya eligió o escribió otra cosa
+                }
+                try {
+                    setAlumnoSeleccionado(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "No se pudo obtener el alumno con ID " + idAlumno, e);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Limpia el campo y la selección.
+     */
+    public void limpiar() {
+        setAlumnoSeleccionado(null);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        txtBusqueda.setEnabled(enabled);
+    }
+
+    private void textoModificado() {
+        if (escribiendoSeleccion) {
+            return;
+        }
+        if (alumnoSeleccionado != null) {
+            Alumno anterior = alumnoSeleccionado;
+            alumnoSeleccionado = null; // El texto ya no corresponde al alumno elegido
+            firePropertyChange(PROPIEDAD_ALUMNO, anterior, null);
+        }
+        temporizador.restart(); // Cada tecla posterga la búsqueda
+    }
+
+    private void buscar() {
+        String texto = txtBusqueda.getText().trim();
+        final int consulta = ++numeroConsulta;
+        if (texto.isEmpty()) {
+            popupResultados.setVisible(false);
+            return;
+        }
+        new SwingWorker<List<Alumno>, Void>() {
+            @Override
+            protected List<Alumno> doInBackground() throws Exception {
+                return alumnoController.buscarAlumnos(texto, MAX_RESULTADOS);
+            }
+
+            @Override
+            protected void done() {
+                if (consulta != numeroConsulta) {
+                    return; // Llegó tarde: ya hay una búsqueda más nueva
+                }
+                try {
+                    mostrarResultados(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Error al buscar alumnos: " + e.getMessage(), e);
+                    popupResultados.setVisible(false);
+                }
+            }
+        }.execute();
+    }
+
+    private void mostrarResultados(List<Alumno> alumnos) {
+        modeloResultados.clear();
+        for (Alumno alumno : alumnos) {
+            modeloResultados.addElement(alumno);
+        }
+        if (alumnos.isEmpty() || !txtBusqueda.isShowing()) {
+            popupResultados.setVisible(false);
+            return;
+        }
+        lstResultados.setVisibleRowCount(Math.min(alumnos.size(), MAX_RESULTADOS));
+        lstResultados.setSelectedIndex(0);
+        popupResultados.setPopupSize(txtBusqueda.getWidth(), popupResultados.getPreferredSize().height);
+        popupResultados.show(txtBusqueda, 0, txtBusqueda.getHeight());
+    }
+
+    private void moverSeleccion(int delta) {
+        if (!popupResultados.isVisible() || modeloResultados.isEmpty()) {
+            return;
+        }
+        int indice = Math.max(0, Math.min(modeloResultados.size() - 1, lstResultados.getSelectedIndex() + delta));
+        lstResultados.setSelectedIndex(indice);
+        lstResultados.ensureIndexIsVisible(indice);
+    }
+
+    private void elegir(Alumno alumno) {
+        setAlumnoSeleccionado(alumno);
+        txtBusqueda.requestFocusInWindow();
+    }
+
+    private static String describir(Alumno alumno) {
+        return alumno.getNombreCompleto() + " (DNI " + alumno.getDni() + ")";
+    }
+}
@@ -0,0 +1,201 @@
+package taichi.controller;
+
+import taichi.dao.RegistroCambiosDAO;
+import taichi.model.CambioRegistrado;
+import taichi.util.EventoCambio;
+import taichi.util.HilosVirtuales;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mantiene al día los cachés y las tablas abiertas de este puesto con los cambios hechos desde otros puestos.
+ *
+ * Cada pocos segundos consulta el registro de cambios (ver {@link RegistroCambiosDAO}) a partir del último
+ * que procesó, descarta los propios y pasa el resto al controlador de cada entidad, que relee el dato y lo
+ * publica en el {@link taichi.util.BusEventos} como si el cambio se hubiera hecho acá.
+ *
+ * Los ID de cambio se asignan al insertar, no al confirmar: una transacción larga (un lote de pagos) puede tener
+ * ID más bajos que un cambio de otro puesto que se confirmó antes. Por eso el punto de partida no pasa de un
+ * hueco en los ID hasta que el hueco tiene más de {@value #GRACIA_HUECO_SEGUNDOS} segundos (los huecos que
+ * quedan para siempre, como los de una transacción deshecha, se dan por perdidos); los cambios posteriores
+ * al hueco ya aplicados no se vuelven a aplicar.
+ */
+public class SincronizadorCambios {
+
+    private static final Logger LOGGER = Logger.getLogger(SincronizadorCambios.class.getName());
+
+    private static final long INTERVALO_SEGUNDOS = 5;
+    private static final int CAMBIOS_POR_CONSULTA = 500;
+    // Cuánto se espera a que aparezca un ID salteado antes de darlo por perdido
+    private static final long GRACIA_HUECO_SEGUNDOS = 120;
+    // Los cambios más viejos que esto se borran en la depuración nocturna
+    private static final int DIAS_CONSERVADOS = 7;
+    private static final String CRON_DEPURACION = "30 3 * * *";
+
+    private RegistroCambiosDAO registroCambiosDAO;
+    private AlumnoController alumnoController;
+    private ProfesorController profesorController;
+    private ClaseController claseController;
+    private PagoController pagoController;
+    private DocumentoEstadoController documentoEstadoController;
+    private PeriodoCuotaController periodoCuotaController;
+
+    private ScheduledExecutorService ejecutor;
+    private long ultimoId = -1; // Todos los cambios hasta este ID ya se procesaron; -1: todavía no se leyó
+    private final Set<Long> aplicadosDespues = new HashSet<>(); // Ya procesados, posteriores a un hueco
+    private final Map<Long, Long> huecos = new HashMap<>();     // ID faltante -> System.nanoTime() en que se vio
+
+    public SincronizadorCambios(RegistroCambiosDAO registroCambiosDAO, AlumnoController alumnoController,
+                                ProfesorController profesorController, ClaseController claseController,
+                                PagoController pagoController, DocumentoEstadoController documentoEstadoController,
+                                PeriodoCuotaController periodoCuotaController) {
+        this.registroCambiosDAO = registroCambiosDAO;
+        this.alumnoController = alumnoController;
+        this.profesorController = profesorController;
+        this.claseController = claseController;
+        this.pagoController = pagoController;
+        this.documentoEstadoController = documentoEstadoController;
+        this.periodoCuotaController = periodoCuotaController;
+    }
+
+    /**
+     * Empieza a consultar el registro en segundo plano y programa su depuración nocturna.
+     * Solo se aplican los cambios posteriores a este momento, porque lo anterior ya se lee de la BD
+     * al cargar cada pantalla. Llamadas posteriores no hacen nada.
+     * @param tareasController Controlador de tareas ya iniciado, donde se programa la depuración.
+     */
+    public synchronized void iniciar(TareasController tareasController) {
+        if (ejecutor != null) {
+            return;
+        }
+        ejecutor = Executors.newSingleThreadScheduledExecutor(HilosVirtuales.fabricaDaemon("sincronizador-cambios"));
+        ejecutor.scheduleWithFixedDelay(this::revisar, 0, INTERVALO_SEGUNDOS, TimeUnit.SECONDS);
+        tareasController.programarTarea(TareasController.TIPO_MANTENIMIENTO, "Depuración del registro de cambios",
+            CRON_DEPURACION, this::depurarRegistro);
+    }
+
+    /**
+     * Detiene las consultas (al cerrar la aplicación).
+     */
+    public synchronized void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdownNow();
+            ejecutor = null;
+        }
+    }
+
+    /**
+     * Borra del registro los cambios de más de {@value #DIAS_CONSERVADOS} días (pensado para una tarea nocturna).
+     * @return Un resumen para el historial de tareas.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public String depurarRegistro() throws Exception {
+        try {
+            int borrados = registroCambiosDAO.eliminarAnterioresA(LocalDateTime.now().minusDays(DIAS_CONSERVADOS));
+            return borrados + " cambios borrados del registro";
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al depurar el registro de cambios: " + e.getMessage(), e);
+            throw new Exception("Error al depurar el registro de cambios: " + e.getMessage());
+        }
+    }
+
+    // Procesa los cambios nuevos. Si algo falla, no se marcan y el lote completo se reintenta en la próxima vuelta
+    // (aplicar un cambio es idempotente: siempre se relee el estado actual de la BD).
+    private void revisar() {
+        try {
+            if (ultimoId < 0) {
+                ultimoId = registroCambiosDAO.obtenerUltimoId();
+                return;
+            }
+            // Se relee desde el primer hueco: lo que estaba sin confirmar puede haber aparecido
+            long leidoHasta = ultimoId;
+            List<CambioRegistrado> cambios;
+            do {
+                cambios = registroCambiosDAO.obtenerDesde(leidoHasta, CAMBIOS_POR_CONSULTA);
+                if (cambios.isEmpty()) {
+                    break;
+                }
+                for (CambioRegistrado cambio : agruparPorEntidad(cambios, aplicadosDespues)) {
+                    aplicar(cambio);
+                }
+                for (CambioRegistrado cambio : cambios) {
+                    aplicadosDespues.add(cambio.getIdCambio());
+                }
+                leidoHasta = cambios.get(cambios.size() - 1).getIdCambio();
+            } while (cambios.size() == CAMBIOS_POR_CONSULTA);
+            avanzar(leidoHasta);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "No se pudieron aplicar los cambios de otros puestos: " + e.getMessage(), e);
+        }
+    }
+
+    // Avanza el punto de partida por los ID ya procesados, hasta el primer hueco que todavía está en su plazo
+    private void avanzar(long leidoHasta) {
+        long ahora = System.nanoTime();
+        while (ultimoId < leidoHasta) {
+            long siguiente = ultimoId + 1;
+            if (!aplicadosDespues.remove(siguiente)) {
+                long vistoEn = huecos.computeIfAbsent(siguiente, id -> ahora);
+                if (ahora - vistoEn < TimeUnit.SECONDS.toNanos(GRACIA_HUECO_SEGUNDOS)) {
+                    break;
+                }
+                LOGGER.fine(() -> "Cambio " + siguiente + " sin aparecer en " + GRACIA_HUECO_SEGUNDOS + " s, se da por perdido.");
+            }
+            huecos.remove(siguiente);
+            ultimoId = siguiente;
+        }
+    }
+
+    // Deja un solo cambio por entidad (el último), sin los hechos por este puesto ni los ya aplicados
+    private static Iterable<CambioRegistrado> agruparPorEntidad(List<CambioRegistrado> cambios, Set<Long> aplicados) {
+        Map<String, CambioRegistrado> ultimos = new LinkedHashMap<>();
+        for (CambioRegistrado cambio : cambios) {
+            if (RegistroCambiosDAO.ORIGEN.equals(cambio.getOrigen()) || aplicados.contains(cambio.getIdCambio())) {
+                continue; // Ya se publicó en este puesto al hacer el cambio, o en una vuelta anterior
+            }
+            String clave = cambio.getEntidad() + ":" + cambio.getIdEntidad();
+            ultimos.remove(clave);
+            ultimos.put(clave, cambio);
+        }
+        return ultimos.values();
+    }
+
+    private void aplicar(CambioRegistrado cambio) throws Exception {
+        EventoCambio.Tipo tipo = EventoCambio.Tipo.valueOf(cambio.getOperacion());
+        int id = cambio.getIdEntidad();
+        switch (cambio.getEntidad()) {
+            case "Alumno":
+                alumnoController.aplicarCambioExterno(id, tipo);
+                break;
+            case "Profesor":
+                profesorController.aplicarCambioExterno(id, tipo);
+                break;
+            case "Clase":
+                claseController.aplicarCambioExterno(id, tipo);
+                break;
+            case "Pago":
+                pagoController.aplicarCambioExterno(id, tipo);
+                break;
+            case "DocumentoEstado":
+                documentoEstadoController.aplicarCambioExterno(id, tipo);
+                break;
+            case "PeriodoCuota":
+                periodoCuotaController.aplicarCambioExterno(id, tipo);
+                break;
+            default:
+                LOGGER.fine(() -> "Cambio de una entidad sin sincronizar: " + cambio);
+        }
+    }
+}
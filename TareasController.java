@@ -0,0 +1,131 @@
+package taichi.controller;
+
+import taichi.dao.HistorialTareasDAO;
+import taichi.model.EjecucionTarea;
+import taichi.util.PlanificadorTareas;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Administra las tareas en segundo plano de la aplicación (ver {@link PlanificadorTareas}):
+ * registra las tareas nocturnas, aplica los límites de concurrencia por tipo y guarda el historial en tareas_historial.
+ */
+public class TareasController {
+
+    private static final Logger LOGGER = Logger.getLogger(TareasController.class.getName());
+
+    // Tipos de tarea (el límite de tareas simultáneas se aplica por tipo)
+    public static final String TIPO_RECARGOS = "RECARGOS";
+    public static final String TIPO_MANTENIMIENTO = "MANTENIMIENTO"; // Depuración de tablas auxiliares
+
+    // Recargos de cuotas vencidas: todas las noches, y una vez al iniciar para recuperar los días con la aplicación cerrada
+    private static final String CRON_RECARGOS = "15 0 * * *";
+    private static final Duration DEMORA_RECARGOS_AL_INICIAR = Duration.ofMinutes(1);
+
+    private FacturacionController facturacionController;
+    private HistorialTareasDAO historialTareasDAO;
+    private PlanificadorTareas planificador;
+
+    public TareasController(FacturacionController facturacionController) {
+        this(facturacionController, new HistorialTareasDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public TareasController(FacturacionController facturacionController, HistorialTareasDAO historialTareasDAO) {
+        this.facturacionController = facturacionController;
+        this.historialTareasDAO = historialTareasDAO;
+    }
+
+    /**
+     * Crea el planificador y programa las tareas recurrentes. Llamadas posteriores no hacen nada.
+     */
+    public synchronized void iniciar() {
+        if (planificador != null) {
+            return;
+        }
+        planificador = new PlanificadorTareas(this::registrarEjecucion);
+        planificador.definirLimite(TIPO_RECARGOS, 1);
+        planificador.definirLimite(TIPO_MANTENIMIENTO, 1);
+
+        PlanificadorTareas.Tarea recargos =
+            () -> facturacionController.aplicarRecargosVencidos(LocalDate.now()) + " cuotas recargadas";
+        planificador.programarCron(TIPO_RECARGOS, "Recargos de cuotas vencidas", CRON_RECARGOS, recargos);
+        planificador.programarUnaVez(TIPO_RECARGOS, "Recargos de cuotas vencidas (al iniciar)", DEMORA_RECARGOS_AL_INICIAR, recargos);
+    }
+
+    /**
+     * Programa una tarea recurrente adicional (ej. la depuración del registro de cambios).
+     * @param tipo Tipo de tarea (uno de los TIPO_*).
+     * @param nombre Nombre de la tarea para el historial.
+     * @param expresionCron Expresión cron de cinco campos.
+     * @param tarea Trabajo a ejecutar.
+     */
+    public void programarTarea(String tipo, String nombre, String expresionCron, PlanificadorTareas.Tarea tarea) {
+        obtenerPlanificador().programarCron(tipo, nombre, expresionCron, tarea);
+    }
+
+    /**
+     * Ejecuta una tarea ahora en segundo plano, respetando el límite de su tipo.
+     * @return Futuro que se completa al terminar la tarea con su registro de ejecución.
+     */
+    public CompletableFuture<EjecucionTarea> ejecutarAhora(String tipo, String nombre, PlanificadorTareas.Tarea tarea) {
+        return obtenerPlanificador().ejecutarAhora(tipo, nombre, tarea);
+    }
+
+    /**
+     * @return Próxima ejecución de cada tarea recurrente, por nombre.
+     */
+    public Map<String, LocalDateTime> obtenerProximasEjecuciones() {
+        return obtenerPlanificador().getProximasEjecuciones();
+    }
+
+    /**
+     * Obtiene las últimas ejecuciones de tareas registradas.
+     * @param limite Cantidad máxima de ejecuciones.
+     * @return Lista de ejecuciones, de la más reciente a la más antigua.
+     * @throws Exception Si ocurre un error de base de datos.
+     */
+    public List<EjecucionTarea> obtenerHistorial(int limite) throws Exception {
+        try {
+            return historialTareasDAO.obtenerUltimas(limite);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener el historial de tareas: " + e.getMessage(), e);
+            throw new Exception("Error al obtener el historial de tareas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Detiene el planificador (al cerrar la aplicación).
+     */
+    public synchronized void detener() {
+        if (planificador != null) {
+            planificador.detener();
+            planificador = null;
+        }
+    }
+
+    private synchronized PlanificadorTareas obtenerPlanificador() {
+        if (planificador == null) {
+            throw new IllegalStateException("El planificador de tareas no está iniciado.");
+        }
+        return planificador;
+    }
+
+    private void registrarEjecucion(EjecucionTarea ejecucion) {
+        try {
+            historialTareasDAO.registrar(ejecucion);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar el historial de la tarea '" + ejecucion.getNombre() + "': " + e.getMessage(), e);
+        }
+    }
+}
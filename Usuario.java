@@ -9,6 +9,7 @@ public class Usuario {
     private String contrasena;           // contrasena (idealmente, almacenar hash de la contraseña)
     private String rol;                  // rol (ej. "Administrador", "Recepcionista")
     private boolean activo;              // activo (para habilitar/deshabilitar el usuario)
+    private int version;                 // version (control de concurrencia optimista)
 
     // --- Constructores ---
 
@@ -79,6 +80,14 @@ public class Usuario {
         this.activo = activo;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Usuario{" +
@@ -2,14 +2,16 @@ package taichi.controller;
 
 import taichi.model.Usuario;
 import taichi.dao.UsuarioDAO;
+import taichi.dao.ConflictoVersionException;
 import taichi.util.InputValidator;
 import taichi.util.PasswordHasher;
+import taichi.util.Asincrono;
 
-import java.awt.GraphicsConfiguration;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
 
 public class UsuarioController {
 
@@ -17,7 +19,14 @@ public class UsuarioController {
     private static final Logger LOGGER = Logger.getLogger(UsuarioController.class.getName());
 
     public UsuarioController() {
-        this.usuarioDAO = new UsuarioDAO();
+        this(new UsuarioDAO());
+    }
+
+    /**
+     * Crea el controlador con DAOs compartidos (ver {@link ContextoAplicacion}).
+     */
+    public UsuarioController(UsuarioDAO usuarioDAO) {
+        this.usuarioDAO = usuarioDAO;
     }
 
     /**
@@ -65,7 +74,7 @@ public class UsuarioController {
             int idGenerado = usuarioDAO.insertar(nuevoUsuario);
             if (idGenerado != -1) {
                 nuevoUsuario.setIdUsuario(idGenerado);
-                System.out.println("Usuario registrado con éxito: " + nombreUsuario);
+                LOGGER.info(() -> "Usuario registrado con éxito: " + nombreUsuario);
                 return nuevoUsuario;
             } else {
                 throw new Exception("No se pudo insertar el usuario en la base de datos.");
@@ -103,7 +112,7 @@ public class UsuarioController {
 
             // Verificar la contraseña hasheada
             if (PasswordHasher(contrasena, usuario.getContrasena())) {
-                System.out.println("Autenticación exitosa para el usuario: " + nombreUsuario);
+                LOGGER.fine(() -> "Autenticación exitosa para el usuario: " + nombreUsuario);
                 return usuario;
             } else {
                 throw new Exception("Credenciales incorrectas.");
@@ -151,12 +160,21 @@ public class UsuarioController {
         }
     }
 
+    /**
+     * Versión asíncrona de {@link #obtenerTodosLosUsuarios()}.
+     * @return Futuro con el resultado; si falla, se completa con la misma excepción.
+     */
+    public CompletableFuture<List<Usuario>> obtenerTodosLosUsuariosAsync() {
+        return Asincrono.ejecutar(() -> obtenerTodosLosUsuarios());
+    }
+
     /**
      * Actualiza la información de un usuario existente.
      * Si la contraseña se proporciona, se hashea. Si no, se mantiene la existente.
      * @param usuario El objeto Usuario con la información actualizada.
      * @param nuevaContrasena La nueva contraseña (puede ser null o vacío si no se cambia).
      * @return true si la actualización fue exitosa, false de lo contrario.
+     * @throws ConflictoVersionException Si otro usuario lo guardó después de que se cargó (trae el registro actual).
      * @throws Exception Si ocurre un error lógico o de base de datos.
      */
     public boolean actualizarInformacionUsuario(Usuario usuario, String nuevaContrasena) throws Exception {
@@ -186,6 +204,9 @@ public class UsuarioController {
         // --- 3. Llamar al DAO para actualizar en la BD ---
         try {
             return usuarioDAO.actualizar(usuario);
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al actualizar usuario con ID " + usuario.getIdUsuario() + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al actualizar usuario: " + e.getMessage());
@@ -208,11 +229,14 @@ public class UsuarioController {
                 throw new Exception("Usuario no encontrado con ID: " + idUsuario);
             }
             if (!usuario.isActivo()) {
-                System.out.println("El usuario con ID " + idUsuario + " ya está inactivo.");
+                LOGGER.fine(() -> "El usuario con ID " + idUsuario + " ya está inactivo.");
                 return true; 
             }
             usuario.setActivo(false); 
             return usuarioDAO.actualizar(usuario);
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al desactivar al usuario con ID " + idUsuario + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al desactivar usuario: " + e.getMessage());
@@ -235,44 +259,17 @@ public class UsuarioController {
                 throw new Exception("Usuario no encontrado con ID: " + idUsuario);
             }
             if (usuario.isActivo()) {
-                System.out.println("El usuario con ID " + idUsuario + " ya está activo.");
+                LOGGER.fine(() -> "El usuario con ID " + idUsuario + " ya está activo.");
                 return true; 
             }
             usuario.setActivo(true); 
             return usuarioDAO.actualizar(usuario);
+        } catch (ConflictoVersionException e) {
+            LOGGER.info(e.getMessage());
+            throw e; // Lo resuelve la pantalla, que tiene los datos en edición
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al activar al usuario con ID " + idUsuario + " en la BD: " + e.getMessage(), e);
             throw new Exception("Error al activar usuario: " + e.getMessage());
         }
     }
-
-	public Object getDocumentoEstadoController() {
-		
-		throw new UnsupportedOperationException("Unimplemented method 'getDocumentoEstadoController'");
-	}
-
-    public Object getPagoController() {
-        
-        throw new UnsupportedOperationException("Unimplemented method 'getPagoController'");
-    }
-
-    public Object getPeriodoCuotaController() {
-        
-        throw new UnsupportedOperationException("Unimplemented method 'getPeriodoCuotaController'");
-    }
-
-    public String getAlumnoController() {
-        
-        throw new UnsupportedOperationException("Unimplemented method 'getAlumnoController'");
-    }
-
-    public GraphicsConfiguration getProfesorController() {
-        
-        throw new UnsupportedOperationException("Unimplemented method 'getProfesorController'");
-    }
-
-    public Object getClaseController() {
-        
-        throw new UnsupportedOperationException("Unimplemented method 'getClaseController'");
-    }
-}
\ No newline at end of file
+}
@@ -8,6 +8,7 @@ import java.sql.SQLException;
 import java.sql.Statement; // Necesario para Statement.RETURN_GENERATED_KEYS
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Logger;
 
 // Importar una librería de hashing de contraseñas (ej. BCrypt) si la usas en la capa de servicio
 // import org.mindrot.jbcrypt.BCrypt;
@@ -15,6 +16,13 @@ import java.util.List;
 // Implementamos la interfaz IDAO, especificando que trabajamos con Usuario y su ID es Integer
 public class UsuarioDAO implements IDAO<Usuario, Integer> {
 
+    private static final Logger LOGGER = Logger.getLogger(UsuarioDAO.class.getName());
+
+    // Columnas que lee el mapper, en el orden en que se usan sus índices en mapResultSetTo*
+    private static final String[] COLUMNAS = {
+        "id_usuario", "nombre_usuario", "contrasena_hash", "rol", "activo", "version"
+    };
+
     /**
      * Inserta un nuevo usuario en la base de datos.
      * La contraseña se asume que ha sido hasheada ANTES de ser pasada a este método (por ejemplo, en una capa de servicio).
@@ -24,7 +32,7 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
      */
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Usuario crear(Usuario usuario) throws SQLException {
-        // Columnas en BD: id_usuario, nombre_usuario, contrasena_hash, rol, activo
+        // Columnas en BD: id_usuario, nombre_usuario, contrasena_hash, rol, activo, version
         String sql = "INSERT INTO usuarios (nombre_usuario, contrasena_hash, rol, activo) VALUES (?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -50,7 +58,7 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     usuario.setIdUsuario(rs.getInt(1)); // Asignar el ID al objeto Usuario
-                    System.out.println("Usuario insertado con ID: " + usuario.getIdUsuario());
+                    LOGGER.fine(() -> "Usuario insertado con ID: " + usuario.getIdUsuario());
                 } else {
                     throw new SQLException("La creación del usuario falló, no se obtuvo ID generado de la base de datos.");
                 }
@@ -70,8 +78,8 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
     @Override // Indica que este método implementa un método de la interfaz IDAO
     public Usuario obtenerPorId(Integer id) throws SQLException { // Usamos Integer para consistencia con la interfaz
         // Seleccionamos las columnas según el esquema MySQL
-        // id_usuario, nombre_usuario, contrasena_hash, rol, activo
-        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo FROM usuarios WHERE id_usuario = ?";
+        // id_usuario, nombre_usuario, contrasena_hash, rol, activo, version
+        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo, version FROM usuarios WHERE id_usuario = ?";
         Usuario usuario = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -80,9 +88,7 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    usuario = mapResultSetToUsuario(rs); // Usamos el método auxiliar
-                }
+                usuario = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToUsuario);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el usuario con ID " + id + " de la base de datos: " + e.getMessage(), e);
@@ -99,7 +105,7 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
      */
     public Usuario obtenerPorNombreUsuario(String nombreUsuario) throws SQLException {
         // Seleccionamos las columnas según el esquema MySQL, incluyendo contrasena_hash
-        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo FROM usuarios WHERE nombre_usuario = ?";
+        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo, version FROM usuarios WHERE nombre_usuario = ?";
         Usuario usuario = null;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -108,9 +114,7 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
             pstmt.setString(1, nombreUsuario);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    usuario = mapResultSetToUsuario(rs); // Usamos el método auxiliar
-                }
+                usuario = ResultSetMapper.mapearPrimero(rs, COLUMNAS, this::mapResultSetToUsuario);
             }
         } catch (SQLException e) {
             throw new SQLException("Error al obtener el usuario por nombre '" + nombreUsuario + "' de la base de datos: " + e.getMessage(), e);
@@ -127,15 +131,13 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
     public List<Usuario> obtenerTodos() throws SQLException {
         List<Usuario> usuarios = new ArrayList<>();
         // Seleccionamos las columnas según el esquema MySQL, incluyendo contrasena_hash
-        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo FROM usuarios";
+        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo, version FROM usuarios";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                usuarios.add(mapResultSetToUsuario(rs)); // Usamos el método auxiliar
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToUsuario, usuarios);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener todos los usuarios de la base de datos: " + e.getMessage(), e);
         }
@@ -154,7 +156,7 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
     public boolean actualizar(Usuario usuario) throws SQLException {
         // Ajustamos la sentencia SQL para que coincida con la tabla 'usuarios' en MySQL.
         // La columna de contraseña debe ser 'contrasena_hash'.
-        String sql = "UPDATE usuarios SET nombre_usuario = ?, contrasena_hash = ?, rol = ?, activo = ? WHERE id_usuario = ?";
+        String sql = "UPDATE usuarios SET nombre_usuario = ?, contrasena_hash = ?, rol = ?, activo = ?, version = version + 1 WHERE id_usuario = ? AND version = ?";
         int filasAfectadas = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -166,12 +168,22 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
             pstmt.setString(3, usuario.getRol());
             pstmt.setBoolean(4, usuario.isActivo());
             pstmt.setInt(5, usuario.getIdUsuario());
+            pstmt.setInt(6, usuario.getVersion());
 
             filasAfectadas = pstmt.executeUpdate();
         } catch (SQLException e) {
             throw new SQLException("Error al actualizar el usuario con ID " + usuario.getIdUsuario() + ": " + e.getMessage(), e);
         }
-        return filasAfectadas > 0;
+        if (filasAfectadas == 0) {
+            // O ya no existe, o alguien lo guardó después de que se leyó esta versión
+            Usuario actual = obtenerPorId(usuario.getIdUsuario());
+            if (actual != null) {
+                throw new ConflictoVersionException("usuario", usuario.getIdUsuario(), actual);
+            }
+            return false;
+        }
+        usuario.setVersion(usuario.getVersion() + 1);
+        return true;
     }
 
     /**
@@ -228,15 +240,13 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
      */
     public List<Usuario> obtenerUsuariosActivos() throws SQLException {
         List<Usuario> usuariosActivos = new ArrayList<>();
-        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo FROM usuarios WHERE activo = TRUE";
+        String sql = "SELECT id_usuario, nombre_usuario, contrasena_hash, rol, activo, version FROM usuarios WHERE activo = TRUE";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                usuariosActivos.add(mapResultSetToUsuario(rs));
-            }
+            ResultSetMapper.mapearLista(rs, COLUMNAS, this::mapResultSetToUsuario, usuariosActivos);
         } catch (SQLException e) {
             throw new SQLException("Error al obtener usuarios activos: " + e.getMessage(), e);
         }
@@ -247,16 +257,19 @@ public class UsuarioDAO implements IDAO<Usuario, Integer> {
      * Método auxiliar para mapear un ResultSet a un objeto Usuario.
      * Extrae los datos de la fila actual del ResultSet y crea un objeto Usuario.
      * @param rs El ResultSet del que extraer los datos.
+     * @param col Índices de columna resueltos una vez por ResultSet (ver COLUMNAS).
      * @return Un objeto Usuario con los datos de la fila actual.
      * @throws SQLException Si ocurre un error de base de datos.
      */
-    private Usuario mapResultSetToUsuario(ResultSet rs) throws SQLException {
-        return new Usuario(
-            rs.getInt("id_usuario"),
-            rs.getString("nombre_usuario"),
-            rs.getString("contrasena_hash"), // Leer el hash de la contraseña
-            rs.getString("rol"),
-            rs.getBoolean("activo")
+    private Usuario mapResultSetToUsuario(ResultSet rs, int[] col) throws SQLException {
+        Usuario usuario = new Usuario(
+            rs.getInt(col[0]),                               // id_usuario
+            rs.getString(col[1]),                            // nombre_usuario
+            rs.getString(col[2]),                            // contrasena_hash
+            rs.getString(col[3]),                            // rol
+            rs.getBoolean(col[4])                            // activo
         );
+        usuario.setVersion(rs.getInt(col[5]));
+        return usuario;
     }
 }
\ No newline at end of file